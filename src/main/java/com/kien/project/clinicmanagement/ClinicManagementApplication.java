@@ -5,12 +5,42 @@ import javax.swing.UIManager;
 
 import com.formdev.flatlaf.FlatLightLaf;
 import com.kien.project.clinicmanagement.controller.AuthController;
+import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.service.MailOutbox;
+import com.kien.project.clinicmanagement.service.MedicalResultService;
+import com.kien.project.clinicmanagement.service.MedicineService;
+import com.kien.project.clinicmanagement.service.PatientIntakeService;
+import com.kien.project.clinicmanagement.service.PatientService;
+import com.kien.project.clinicmanagement.service.PrescriptionService;
+import com.kien.project.clinicmanagement.utils.BackgroundExecutor;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.SchemaMigrator;
 
 public class ClinicManagementApplication {
 
+    private static final String REBUILD_REVENUE_COMMAND = "--rebuild-revenue";
+
     public static void main(String[] args) {
+        registerShutdownHook();
+        // Nâng cấp schema (chỉ mục, cột mới...) trước khi mở giao diện
+        SchemaMigrator.migrate();
+
+        // Lệnh bảo trì chạy không cần giao diện
+        if (args.length > 0 && REBUILD_REVENUE_COMMAND.equals(args[0])) {
+            rebuildRevenueRollups();
+            return;
+        }
+
         setLookAndFeel();
 
+        // Dựng chỉ mục tìm kiếm bệnh nhân và ghi chú khám trên luồng nền trong lúc mở giao diện
+        new PatientService().warmUpSearchIndex();
+        new MedicalResultService().warmUpNoteIndex();
+        // Chụp tồn kho định kỳ cho sổ kho (bỏ qua nếu đã chụp trong ngày)
+        BackgroundExecutor.get().execute(() -> new MedicineService().takeInventorySnapshotIfDue());
+        // Khởi động luồng gửi email để gửi nốt thư còn trong hộp thư đi
+        MailOutbox.getInstance();
+
         // Đảm bảo UI khởi động trên Event Dispatch Thread: Luồng chuyên xử lý UI trong Swing
         EventQueue.invokeLater(ClinicManagementApplication::launchApp);
     }
@@ -21,6 +51,23 @@ public class ClinicManagementApplication {
         authController.showLoginView();
     }
 
+    // Dựng lại bảng doanh thu tổng hợp từ toàn bộ đơn thuốc
+    private static void rebuildRevenueRollups() {
+        boolean success = new PrescriptionService().rebuildRevenueRollups();
+        System.out.println(success ? "✅ Revenue rollup tables rebuilt" : "❌ Revenue rollup rebuild failed");
+    }
+
+    // Giải phóng tài nguyên dùng chung khi JVM tắt
+    private static void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            PatientIntakeService.getInstance().stop();
+            MailOutbox.shutdownIfStarted();
+            BackgroundExecutor.shutdown();
+            SystemLogDAO.shutdown();
+            ConnectionDatabase.shutdown();
+        }, "clinic-shutdown"));
+    }
+
     // Look and Feel FlatLightLaf
     private static void setLookAndFeel() {
         try {
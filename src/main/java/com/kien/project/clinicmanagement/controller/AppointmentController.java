@@ -3,7 +3,6 @@ package com.kien.project.clinicmanagement.controller;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
-import java.util.List;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
@@ -14,8 +13,11 @@ import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.service.AppointmentService;
 import com.kien.project.clinicmanagement.service.ExamQueueService;
+import com.kien.project.clinicmanagement.service.ExportService;
 import com.kien.project.clinicmanagement.service.PatientService;
 import com.kien.project.clinicmanagement.service.UserService;
+import com.kien.project.clinicmanagement.utils.ExportProgressDialog;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
 import com.kien.project.clinicmanagement.utils.PageHelper;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.kien.project.clinicmanagement.view.appointment.AppointmentManagementView;
@@ -29,17 +31,19 @@ public class AppointmentController {
 	private final PatientService patientService = new PatientService();
 	private final UserService userService = new UserService();
 	private final ExamQueueService examQueueService = new ExamQueueService();
+	private final ExportService exportService = new ExportService();
 
-	private List<Appointment> currentPageAppointments;
-	private int totalAppointments;
-	private int totalPages;
+	// Bảng tải dữ liệu theo trang khi cuộn; Prev/Next chỉ cuộn theo từng nhóm rowsPerPage dòng
+	private final LazyPagedTableModel<Appointment> tableModel;
+	private int totalPages = 1;
 	private int currentPage = 1;
 	private final int rowsPerPage = 3;
+	// Chỉ báo "No appointments found" cho lần tìm kiếm vừa gửi
+	private boolean notifyEmptyResult = false;
 	// Tìm kiếm
 	private boolean isSearching = false;
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
-	private int totalSearchResults = 0;
 	// Phân quyền bác sĩ
 	private final String currentUserRole;
 	private final String currentUserCode;
@@ -51,6 +55,9 @@ public class AppointmentController {
 		User currentUser = Session.getCurrentUser();
 		this.currentUserRole = currentUser.getRole();
 		this.currentUserCode = currentUser.getCode();
+		this.tableModel = appointmentManagementView.getTableModel();
+		tableModel.setTotalListener(this::onTotalLoaded);
+		appointmentManagementView.getTableViewport().addChangeListener(e -> updatePageInfo());
 		loadAllAppointments();
 		initHeaderActions();
 		initCRUDActions();
@@ -73,63 +80,56 @@ public class AppointmentController {
 		isSearching = false;
 		currentSearchKeyword = "";
 		currentSearchField = "";
-		totalSearchResults = 0;
 		currentPage = 1;
 		updateTable();
 	}
 
 	public void loadAllAppointments() {
 	    resetState();
-	    totalAppointments = getTotalCount();
-	    totalPages = Math.max(1, (int) Math.ceil((double) totalAppointments / rowsPerPage));
-	    currentPage = 1;
-	    updateTable();
 	}
 
+	// Nạp lại bảng từ đầu; các trang được truy vấn nền khi người dùng cuộn tới
 	public void updateTable() {
-	    int offset = PageHelper.getOffSet(currentPage, rowsPerPage);
-
-	    int totalAppointments = getTotalCount();
-	    List<Appointment> pageAppointments = fetchAppointments(offset, rowsPerPage);
-
-	    totalPages = Math.max(1, (int) Math.ceil((double) totalAppointments / rowsPerPage));
-	    if (currentPage > totalPages) {
-	        currentPage = totalPages;
-	        offset = PageHelper.getOffSet(currentPage, rowsPerPage);
-	        pageAppointments = fetchAppointments(offset, rowsPerPage);
-	    }
-
-	    currentPageAppointments = (pageAppointments != null) ? pageAppointments : List.of();
-
-	    appointmentManagementView.renderAppointmentTable(currentPageAppointments, offset);
-	    appointmentManagementView.updatePageInfo(currentPage, totalPages);
-	}
-
-	private List<Appointment> fetchAppointments(int offset, int limit) {
+	    boolean admin = "ADMIN".equalsIgnoreCase(currentUserRole);
 	    if (isSearching) {
-	        if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-	            return appointmentService.searchAppointments(currentSearchKeyword, currentSearchField, offset, limit);
-	        }
+	        String keyword = currentSearchKeyword;
+	        String field = currentSearchField;
 	        //  Doctor & Receptionist gộp chung 1 hàm
-	        return appointmentService.searchAppointmentsByUser(currentUserCode, currentUserRole, currentSearchKeyword, currentSearchField, offset, limit);
+	        tableModel.reload((offset, limit) -> admin
+	                ? appointmentService.searchAppointmentsPage(keyword, field, offset, limit)
+	                : appointmentService.searchAppointmentsByUserPage(currentUserCode, currentUserRole, keyword, field,
+	                        offset, limit));
+	        return;
 	    }
 
-	    if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-	        return appointmentService.getAppointments(offset, limit);
-	    }
-	    //  Doctor & Receptionist gộp chung 1 hàm
-	    return appointmentService.getAppointmentsByUser(currentUserCode, currentUserRole, offset, limit);
+	    // Cuộn tuần tự: trang sau lấy theo keyset (scheduled_date, id) từ dòng cuối của trang trước
+	    tableModel.reload((offset, limit) -> admin
+	            ? appointmentService.getAppointmentsPage(offset, limit)
+	            : appointmentService.getAppointmentsByUserPage(currentUserCode, currentUserRole, offset, limit),
+	            (anchor, limit) -> {
+	                if (anchor.getScheduledDate() == null)
+	                    return null; // Không có mốc ngày: dùng OFFSET
+	                return admin
+	                        ? appointmentService.getAppointmentsSeek(anchor.getScheduledDate(), anchor.getId(),
+	                                PageHelper.Direction.NEXT, limit)
+	                        : appointmentService.getAppointmentsByUserSeek(currentUserCode, currentUserRole,
+	                                anchor.getScheduledDate(), anchor.getId(), PageHelper.Direction.NEXT, limit);
+	            });
 	}
 
-	private int getTotalCount() {
-	    if (isSearching)
-	        return totalSearchResults;
+	private void onTotalLoaded(int total) {
+	    totalPages = Math.max(1, (int) Math.ceil((double) total / rowsPerPage));
+	    updatePageInfo();
 
-	    if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-	        return appointmentService.countAppointments();
+	    if (notifyEmptyResult && total <= 0) {
+	        appointmentManagementView.showInfo("No appointments found!");
 	    }
-	    //  Doctor & Receptionist gộp chung
-	    return appointmentService.countAppointmentsByUser(currentUserCode, currentUserRole);
+	    notifyEmptyResult = false;
+	}
+
+	private void updatePageInfo() {
+	    currentPage = Math.min(totalPages, appointmentManagementView.getFirstVisibleRow() / rowsPerPage + 1);
+	    appointmentManagementView.updatePageInfo(currentPage, totalPages);
 	}
 
 	
@@ -138,35 +138,15 @@ public class AppointmentController {
 	    currentSearchField = (String) appointmentManagementView.getSearchTypeCombo().getSelectedItem();
 
 	    if (currentSearchKeyword.isEmpty()) {
-	        resetState();
 	        loadAllAppointments();
 	        return;
 	    }
 
 	    isSearching = true;
-
-	    if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-	        totalSearchResults = appointmentService.countSearchAppointments(currentSearchKeyword, currentSearchField);
-	    } else {
-	        // Doctor & Receptionist gộp chung 1 hàm
-	        totalSearchResults = appointmentService.countSearchAppointmentsByUser(currentUserCode, currentUserRole, currentSearchKeyword, currentSearchField);
-	    }
-
-	    if (totalSearchResults <= 0) {
-	        appointmentManagementView.showInfo("No appointments found!");
-	        renderEmptyTable();
-	        return;
-	    }
-
 	    currentPage = 1;
+	    notifyEmptyResult = true;
 	    updateTable();
 	}
-
-	
-	private void renderEmptyTable() {
-		appointmentManagementView.renderAppointmentTable(List.of(), 0);
-		appointmentManagementView.updatePageInfo(1, 1);
-	}
 	
 	
 
@@ -181,6 +161,8 @@ public class AppointmentController {
 				.addActionListener(e -> checkIn(appointmentManagementView.getAppointmentTable().getSelectedRow()));
 		appointmentManagementView.getViewPatientProfileButton().addActionListener(
 				e -> viewPatientProfile(appointmentManagementView.getAppointmentTable().getSelectedRow()));
+		appointmentManagementView.getExportButton().addActionListener(e -> ExportProgressDialog.run(
+				appointmentManagementView, "Export Appointments", "appointments.xlsx", exportService::exportAppointments));
 	}
 
 	public void initAppointmentFormActions() {
@@ -321,18 +303,23 @@ public class AppointmentController {
 	}
 	
 	private boolean isRowSelected(int rowIndex) {
-		if (currentPageAppointments == null || currentPageAppointments.isEmpty()) {
+		if (tableModel.getRowCount() == 0) {
 			appointmentManagementView.showWarning("No appointments available.");
 			return false;
 		}
-		if (rowIndex < 0 || rowIndex >= currentPageAppointments.size()) {
+		if (rowIndex < 0 || rowIndex >= tableModel.getRowCount()) {
 			appointmentManagementView.showWarning("Please select a valid appointment.");
+			return false;
+		}
+		if (tableModel.getRow(rowIndex) == null) {
+			appointmentManagementView.showWarning("Appointment data is still loading, please try again.");
+			return false;
 		}
 		return true;
 	}
 	
 	private Appointment getSelectedAppointment(int rowIndex) {
-		return currentPageAppointments.get(rowIndex);
+		return tableModel.getRow(rowIndex);
 	}
 
 	// Hàm chỉnh sửa lịch hẹn
@@ -484,15 +471,13 @@ public class AppointmentController {
 
 	public void nextPage() {
 		if (currentPage < totalPages) {
-			currentPage++;
-			updateTable();
+			appointmentManagementView.scrollToRow(currentPage * rowsPerPage);
 		}
 	}
 
 	public void previousPage() {
 		if (currentPage > 1) {
-			currentPage--;
-			updateTable();
+			appointmentManagementView.scrollToRow((currentPage - 2) * rowsPerPage);
 		}
 	}
 }
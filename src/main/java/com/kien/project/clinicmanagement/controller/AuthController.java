@@ -1,6 +1,12 @@
 package com.kien.project.clinicmanagement.controller;
 
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.JButton;
+import javax.swing.SwingUtilities;
+
 import com.kien.project.clinicmanagement.dto.ServiceResult;
+import com.kien.project.clinicmanagement.model.OutgoingMail;
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.service.AuthService;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
@@ -126,13 +132,27 @@ public class AuthController {
             return;
         }
 
-        ServiceResult<Void> result = authService.sendVerificationCode(username, email);
-        if (result.isSuccess()) {
-            forgotPasswordView.showInfoMessage(result.getMessage());
-            forgotPasswordView.showStep2();
-        } else {
+        ServiceResult<CompletableFuture<OutgoingMail.Status>> result = authService.sendVerificationCode(username, email);
+        if (!result.isSuccess()) {
             forgotPasswordView.showErrorMessage(result.getMessage());
+            return;
         }
+
+        // Thư gửi nền; chỉ sang bước nhập mã khi thư đã gửi thành công (mã chưa có hiệu lực trước đó)
+        JButton sendCodeButton = forgotPasswordView.getSendCodeButton();
+        String buttonText = sendCodeButton.getText();
+        sendCodeButton.setEnabled(false);
+        sendCodeButton.setText("Sending...");
+        result.getData().thenAccept(status -> SwingUtilities.invokeLater(() -> {
+            sendCodeButton.setEnabled(true);
+            sendCodeButton.setText(buttonText);
+            if (status == OutgoingMail.Status.SENT) {
+                forgotPasswordView.showInfoMessage("Verification code has been sent to your email.");
+                forgotPasswordView.showStep2();
+            } else {
+                forgotPasswordView.showErrorMessage("The verification code could not be delivered. Please try again.");
+            }
+        }));
     }
 
     private void handleVerifyCode() {
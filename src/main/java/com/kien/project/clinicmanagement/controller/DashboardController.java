@@ -1,9 +1,14 @@
 package com.kien.project.clinicmanagement.controller;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
 import org.jfree.chart.ChartFactory;
@@ -12,76 +17,160 @@ import org.jfree.chart.JFreeChart;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
 
-import com.kien.project.clinicmanagement.service.UserService;
-import com.kien.project.clinicmanagement.service.PatientService;
-import com.kien.project.clinicmanagement.service.AppointmentService;
-import com.kien.project.clinicmanagement.service.MedicineService;
-import com.kien.project.clinicmanagement.service.ExamQueueService;
+import com.kien.project.clinicmanagement.dto.DashboardStatistics;
+import com.kien.project.clinicmanagement.service.ExportService;
 import com.kien.project.clinicmanagement.service.PrescriptionService;
+import com.kien.project.clinicmanagement.service.StatisticsService;
+import com.kien.project.clinicmanagement.utils.BackgroundExecutor;
+import com.kien.project.clinicmanagement.utils.ExportProgressDialog;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
 import com.kien.project.clinicmanagement.view.statistic.DashboardView;
 
 public class DashboardController {
 
-    private final UserService userService = new UserService();
-    private final PatientService patientService = new PatientService();
-    private final AppointmentService appointmentService = new AppointmentService();
-    private final MedicineService medicineService = new MedicineService();
-    private final ExamQueueService examQueueService = new ExamQueueService();
+    private static final int LOW_STOCK_THRESHOLD = 50;
+
+    // Vị trí của từng chart trên lưới
+    private static final int USERS = 0;
+    private static final int PATIENTS = 1;
+    private static final int APPOINTMENTS = 2;
+    private static final int MEDICINES = 3;
+    private static final int EXAM_QUEUES = 4;
+    private static final int REVENUE = 5;
+    private static final String[] CHART_TITLES = {
+            "Users by Gender", "Patients by Gender", "Appointments", "Medicines", "Exam Queues", "Revenue by Month"
+    };
+
+    private final StatisticsService statisticsService = new StatisticsService();
     private final PrescriptionService prescriptionService = new PrescriptionService();
+    private final ExportService exportService = new ExportService();
+    private final List<Future<?>> pending = new ArrayList<>();
+    // Statement đang chạy của lượt hiện tại; interrupt luồng không dừng được executeQuery nên phải hủy phía MySQL
+    private final List<QueryCancellation> cancellations = new ArrayList<>();
+    // Tăng mỗi lần tải lại hoặc hủy; kết quả thuộc lượt cũ sẽ bị bỏ qua
+    private volatile int generation = 0;
 
     private final DashboardView view;
 
     public DashboardController(DashboardView view) {
         this.view = view;
+        view.getExportRevenueButton().addActionListener(e -> ExportProgressDialog.run(view, "Export Revenue",
+                "revenue.xlsx", exportService::exportRevenue));
+        // Toàn bộ lịch sử chi tiết đơn thuốc, ghi streaming nên không giới hạn số dòng
+        view.getExportPrescriptionDetailsButton().addActionListener(e -> ExportProgressDialog.run(view,
+                "Export Prescription Details", "prescription_details.xlsx",
+                (file, listener, cancelled) -> exportService.exportPrescriptionDetails(null, null, file, listener,
+                        cancelled)));
     }
 
-    /** Load tất cả chart và summary vào view */
+    /**
+     * Hiển thị placeholder ngay, sau đó chạy song song các truy vấn thống kê trên luồng nền
+     * và điền từng chart khi dữ liệu về. Không chặn Event Dispatch Thread.
+     */
     public void loadCharts() {
+        cancel();
+        int currentGeneration = generation;
+        view.showPlaceholders(CHART_TITLES);
+
+        QueryCancellation statsCancellation = new QueryCancellation();
+        QueryCancellation revenueCancellation = new QueryCancellation();
+        cancellations.add(statsCancellation);
+        cancellations.add(revenueCancellation);
+
+        // Nhóm 1: toàn bộ số liệu đếm (một truy vấn tổng hợp)
+        CompletableFuture<DashboardStatistics> statsFuture = CompletableFuture.supplyAsync(
+                () -> statisticsService.getDashboardStatistics(LOW_STOCK_THRESHOLD, statsCancellation),
+                BackgroundExecutor.get());
+        statsFuture.whenComplete((stats, error) -> onEdt(currentGeneration, () -> {
+            if (error != null) {
+                for (int i = USERS; i <= EXAM_QUEUES; i++) {
+                    view.showChartError(i, CHART_TITLES[i] + " - Unable to load data");
+                }
+                return;
+            }
+            renderCounts(stats);
+        }));
+
+        // Nhóm 2: doanh thu theo tháng (bảng tổng hợp revenue_monthly)
+        CompletableFuture<Map<String, BigDecimal>> revenueFuture = CompletableFuture.supplyAsync(
+                () -> prescriptionService.getRevenueByMonth(revenueCancellation), BackgroundExecutor.get());
+        revenueFuture.whenComplete((revenueData, error) -> onEdt(currentGeneration, () -> {
+            if (error != null) {
+                view.showChartError(REVENUE, CHART_TITLES[REVENUE] + " - Unable to load data");
+                return;
+            }
+            renderRevenue(revenueData);
+        }));
+
+        pending.add(statsFuture);
+        pending.add(revenueFuture);
+    }
+
+    /** Hủy các truy vấn chưa xong (Statement.cancel() phía MySQL); kết quả về muộn sẽ bị bỏ qua */
+    public void cancel() {
+        generation++;
+        for (QueryCancellation cancellation : cancellations) {
+            cancellation.cancel();
+        }
+        cancellations.clear();
+        for (Future<?> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    // Chỉ cập nhật giao diện trên EDT và khi Dashboard chưa bị rời đi
+    private void onEdt(int expectedGeneration, Runnable action) {
+        SwingUtilities.invokeLater(() -> {
+            if (expectedGeneration == generation) {
+                action.run();
+            }
+        });
+    }
+
+    private void renderCounts(DashboardStatistics stats) {
         // Users
-        int maleUsers = userService.countByGender("Male");
-        int femaleUsers = userService.countByGender("Female");
-        view.addChart(createPieChartPanel("Users by Gender", buildUserDataset(maleUsers, femaleUsers)));
-        view.addSummary("Users: Male = " + maleUsers + ", Female = " + femaleUsers);
+        int maleUsers = stats.getUserCountByGender("Male");
+        int femaleUsers = stats.getUserCountByGender("Female");
+        view.setChart(USERS, createPieChartPanel(CHART_TITLES[USERS], buildUserDataset(maleUsers, femaleUsers)));
+        view.setSummary(USERS, List.of("Users: Male = " + maleUsers + ", Female = " + femaleUsers));
 
         // Patients
-        int malePatients = patientService.countByGender("Male");
-        int femalePatients = patientService.countByGender("Female");
-        view.addChart(createPieChartPanel("Patients by Gender", buildPatientDataset(malePatients, femalePatients)));
-        view.addSummary("Patients: Male = " + malePatients + ", Female = " + femalePatients);
+        int malePatients = stats.getPatientCountByGender("Male");
+        int femalePatients = stats.getPatientCountByGender("Female");
+        view.setChart(PATIENTS, createPieChartPanel(CHART_TITLES[PATIENTS], buildPatientDataset(malePatients, femalePatients)));
+        view.setSummary(PATIENTS, List.of("Patients: Male = " + malePatients + ", Female = " + femalePatients));
 
         // Appointments
-        int scheduled = appointmentService.countByStatus("Scheduled");
-        int cancelled = appointmentService.countByStatus("Cancelled");
-        int checkedIn = appointmentService.countByStatus("Checked-In");
-        view.addChart(createPieChartPanel("Appointments", buildAppointmentDataset(scheduled, cancelled, checkedIn)));
-        view.addSummary("Appointments: Scheduled = " + scheduled + ", Cancelled = " + cancelled + ", Checked-In = " + checkedIn);
+        int scheduled = stats.getAppointmentCountByStatus("Scheduled");
+        int cancelled = stats.getAppointmentCountByStatus("Cancelled");
+        int checkedIn = stats.getAppointmentCountByStatus("Checked-In");
+        view.setChart(APPOINTMENTS, createPieChartPanel(CHART_TITLES[APPOINTMENTS], buildAppointmentDataset(scheduled, cancelled, checkedIn)));
+        view.setSummary(APPOINTMENTS, List.of("Appointments: Scheduled = " + scheduled + ", Cancelled = " + cancelled + ", Checked-In = " + checkedIn));
 
         // Medicines
-        int threshold = 50;
-        int lowStock = medicineService.countLowStockMedicines(threshold);
-        int normalStock = medicineService.countNormalStockMedicines(threshold);
-        int totalMedicines = medicineService.getTotalMedicines();
-        int totalStock = medicineService.getTotalStock();
-        view.addChart(createPieChartPanel("Medicines", buildMedicineDataset(lowStock, normalStock, totalMedicines, totalStock)));
-        view.addSummary("Medicines: Low Stock = " + lowStock + ", Normal Stock = " + normalStock +
-                ", Total Medicines = " + totalMedicines + ", Total Stock = " + totalStock);
+        int lowStock = stats.getLowStockMedicines();
+        int normalStock = stats.getNormalStockMedicines();
+        int totalMedicines = stats.getTotalMedicines();
+        int totalStock = stats.getTotalStock();
+        view.setChart(MEDICINES, createPieChartPanel(CHART_TITLES[MEDICINES], buildMedicineDataset(lowStock, normalStock, totalMedicines, totalStock)));
+        view.setSummary(MEDICINES, List.of("Medicines: Low Stock = " + lowStock + ", Normal Stock = " + normalStock +
+                ", Total Medicines = " + totalMedicines + ", Total Stock = " + totalStock));
 
         // Exam Queues
-        int waiting = examQueueService.countByStatus("Waiting");
-        int done = examQueueService.countByStatus("Done");
-        view.addChart(createPieChartPanel("Exam Queues", buildExamQueueDataset(waiting, done)));
-        view.addSummary("Exam Queues: Waiting = " + waiting + ", Done = " + done);
-
-        // Revenue
-        Map<String, BigDecimal> revenueData = prescriptionService.getRevenueByMonth();
-        view.addChart(createBarChartPanel("Revenue by Month", buildRevenueDataset(revenueData)));
+        int waiting = stats.getExamQueueCountByStatus("Waiting");
+        int done = stats.getExamQueueCountByStatus("Done");
+        view.setChart(EXAM_QUEUES, createPieChartPanel(CHART_TITLES[EXAM_QUEUES], buildExamQueueDataset(waiting, done)));
+        view.setSummary(EXAM_QUEUES, List.of("Exam Queues: Waiting = " + waiting + ", Done = " + done));
+    }
+
+    private void renderRevenue(Map<String, BigDecimal> revenueData) {
+        view.setChart(REVENUE, createBarChartPanel(CHART_TITLES[REVENUE], buildRevenueDataset(revenueData)));
+        List<String> lines = new ArrayList<>();
         revenueData.forEach((month, revenue) -> 
-            view.addSummary("Revenue " + month + " = " + revenue + " VND")
+            lines.add("Revenue " + month + " = " + revenue + " VND")
         );
-
-        // refresh giao diện
-        view.refreshView();
-        view.refreshSummary();
+        view.setSummary(REVENUE, lines);
     }
 
     // ---------------- Dataset builders ----------------
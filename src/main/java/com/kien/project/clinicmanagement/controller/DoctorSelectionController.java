@@ -1,6 +1,7 @@
 package com.kien.project.clinicmanagement.controller;
 
 import java.util.List;
+import java.util.Map;
 
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.service.ExamQueueService;
@@ -11,6 +12,7 @@ public class DoctorSelectionController {
 
 	private final DoctorSelectionView doctorSelectionView;
 	private final UserService userService = new UserService();
+	private final ExamQueueService examQueueService = new ExamQueueService();
 
 	private List<User> currentPageDoctors;
 	private int totalDoctors;
@@ -75,12 +77,11 @@ public class DoctorSelectionController {
 	    List<User> pageDoctors = fetchDoctors(offset, rowsPerPage);
 	    currentPageDoctors = (pageDoctors != null) ? pageDoctors : List.of();
 
-	    // Gọi service để đếm số bệnh nhân hôm nay cho từng bác sĩ
-	    ExamQueueService examQueueService = new ExamQueueService();
-
+	    // Số bệnh nhân hôm nay của cả trang bác sĩ trong một lần gọi
+	    List<String> doctorCodes = currentPageDoctors.stream().map(User::getCode).toList();
+	    Map<String, Integer> todayLoads = examQueueService.getTodayLoadForDoctors(doctorCodes);
 	    for (User doctor : currentPageDoctors) {
-	        int todayLoad = examQueueService.countPatientsForDoctorToday(doctor.getCode());
-	        doctor.setTodayLoad(todayLoad);
+	        doctor.setTodayLoad(todayLoads.getOrDefault(doctor.getCode(), 0));
 	    }
 
 	    // Gọi hàm render để hiển thị toàn bộ danh sách
@@ -149,7 +150,7 @@ public class DoctorSelectionController {
 		User selectedDoctor = getSelectedDoctor(rowIndex);
 
 		// Check today's patient load
-		int todayLoad = new ExamQueueService().countPatientsForDoctorToday(selectedDoctor.getCode());
+		int todayLoad = examQueueService.countPatientsForDoctorToday(selectedDoctor.getCode());
 		if (todayLoad >= 5) {
 			doctorSelectionView.showWarning(
 					"Doctor " + selectedDoctor.getName() + " has already reached the limit of 5 patients today.");
@@ -1,16 +1,20 @@
 package com.kien.project.clinicmanagement.controller;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
+import com.kien.project.clinicmanagement.dto.ExamQueueChanges;
 import com.kien.project.clinicmanagement.model.ExamQueue;
 import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.service.ExamQueueService;
 import com.kien.project.clinicmanagement.service.PatientService;
 import com.kien.project.clinicmanagement.service.UserService;
+import com.kien.project.clinicmanagement.utils.BackgroundExecutor;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
 import com.kien.project.clinicmanagement.utils.PageHelper;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.kien.project.clinicmanagement.view.examqueue.ExamQueueManagementView;
@@ -24,32 +28,45 @@ public class ExamQueueController {
 	private final UserService userService = new UserService();
 	private final PatientService patientService = new PatientService();
 
-	private List<ExamQueue> currentPageExamQueues;
-	private int totalExamQueues;
-	private int totalPages;
+	// Bảng tải dữ liệu theo trang khi cuộn; Prev/Next chỉ cuộn theo từng nhóm rowsPerPage dòng
+	private final LazyPagedTableModel<ExamQueue> tableModel;
+	private int totalPages = 1;
 	private int currentPage = 1;
 	private final int rowsPerPage = 3;
+	// Chỉ báo "No exam queues found" cho lần tìm kiếm vừa gửi
+	private boolean notifyEmptyResult = false;
 	// Tìm kiếm
 	private boolean isSearching = false;
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
-	private int totalSearchResults = 0;
 	// Phân quyền bác sĩ
 	private final String currentUserRole;
 	private final String currentUserCode;
 
 	private ExamQueue editingExamQueue = null;
 
+	// Poll version stamp của exam_queue; chỉ nạp lại các trang đang giữ khi có thay đổi
+	private static final int REFRESH_INTERVAL_MS = 5_000;
+	private final Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> pollExamQueueChanges());
+	private ExamQueueChanges changeStamp;
+	private boolean polling = false;
+	// Tăng mỗi lần updateTable; stamp về muộn của lần nạp cũ sẽ bị bỏ qua
+	private int reloadGeneration = 0;
+
 	public ExamQueueController(ExamQueueManagementView examQueueManagementView) {
 		this.examQueueManagementView = examQueueManagementView;
 		User currentUser = Session.getCurrentUser();
 		this.currentUserCode = currentUser.getCode();
 		this.currentUserRole = currentUser.getRole();
+		this.tableModel = examQueueManagementView.getTableModel();
+		tableModel.setTotalListener(this::onTotalLoaded);
+		examQueueManagementView.getTableViewport().addChangeListener(e -> updatePageInfo());
 		loadAllExamQueues();
 		initHeaderActions();
 		initCRUDActions();
 		initExamQueueFormActions();
 		initPagingActions();
+		refreshTimer.start();
 	}
 
 	private void initHeaderActions() {
@@ -64,60 +81,85 @@ public class ExamQueueController {
 		isSearching = false;
 		currentSearchKeyword = "";
 		currentSearchField = "";
-		totalSearchResults = 0;
 		currentPage = 1;
 		updateTable();
 	}
 
 	public void loadAllExamQueues() {
 		resetState();
-		totalExamQueues = getTotalCount();
-		totalPages = Math.max(1, (int) Math.ceil((double) totalExamQueues / rowsPerPage));
-		currentPage = 1;
-		updateTable();
 	}
 
+	// Nạp lại bảng từ đầu. Stamp được đọc trên luồng nền trước khi nạp (để không bỏ sót thay đổi xảy ra
+	// trong lúc tải), rồi mới nạp bảng trên EDT; các trang được truy vấn nền khi người dùng cuộn tới
 	public void updateTable() {
-		int offset = PageHelper.getOffSet(currentPage, rowsPerPage);
-
-		int totalExamQueues = getTotalCount();
-		List<ExamQueue> pageExamQueues = fetchExamQueues(offset, rowsPerPage);
+		int generation = ++reloadGeneration;
+		changeStamp = null; // Tạm dừng poll cho tới khi có stamp mới
+		CompletableFuture.supplyAsync(examQueueService::getExamQueueChangeStamp, BackgroundExecutor.get())
+				.whenComplete((stamp, error) -> SwingUtilities.invokeLater(() -> {
+					if (generation != reloadGeneration)
+						return;
+					// Không đọc được stamp thì vẫn nạp bảng, chỉ tắt tự làm mới tới lần nạp sau
+					changeStamp = error == null ? stamp : null;
+					reloadTable();
+				}));
+	}
 
-		totalPages = Math.max(1, (int) Math.ceil((double) totalExamQueues / rowsPerPage));
-		if (currentPage > totalPages) {
-			currentPage = totalPages;
-			offset = PageHelper.getOffSet(currentPage, rowsPerPage);
-			pageExamQueues = fetchExamQueues(offset, rowsPerPage);
+	private void reloadTable() {
+		boolean admin = "ADMIN".equalsIgnoreCase(currentUserRole);
+		if (isSearching) {
+			String keyword = currentSearchKeyword;
+			String field = currentSearchField;
+			tableModel.reload((offset, limit) -> admin
+					? examQueueService.searchExamQueuesPage(keyword, field, offset, limit)
+					: examQueueService.searchExamQueuesByUserPage(currentUserCode, currentUserRole, keyword, field,
+							offset, limit));
+			return;
 		}
 
-		currentPageExamQueues = (pageExamQueues != null) ? pageExamQueues : List.of();
-
-		examQueueManagementView.renderExamQueueTable(currentPageExamQueues, offset);
-		examQueueManagementView.updatePageInfo(currentPage, totalPages);
+		// Cuộn tuần tự: trang sau lấy theo keyset (id) từ dòng cuối của trang trước
+		tableModel.reload((offset, limit) -> admin
+				? examQueueService.getExamQueuesPage(offset, limit)
+				: examQueueService.getExamQueuesByUserPage(currentUserCode, currentUserRole, offset, limit),
+				(anchor, limit) -> admin
+						? examQueueService.getExamQueuesSeek(anchor.getId(), PageHelper.Direction.NEXT, limit)
+						: examQueueService.getExamQueuesByUserSeek(currentUserCode, currentUserRole, anchor.getId(),
+								PageHelper.Direction.NEXT, limit));
 	}
 
-	private List<ExamQueue> fetchExamQueues(int offset, int limit) {
-		if (isSearching) {
-			if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-				return examQueueService.searchExamQueues(currentSearchKeyword, currentSearchField, offset, limit);
-			}
-			return examQueueService.searchExamQueuesByUser(currentUserCode, currentUserRole, currentSearchKeyword,
-					currentSearchField, offset, limit);
-		}
+	private void onTotalLoaded(int total) {
+		totalPages = Math.max(1, (int) Math.ceil((double) total / rowsPerPage));
+		updatePageInfo();
 
-		if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-			return examQueueService.getExamQueues(offset, limit);
+		if (notifyEmptyResult && total <= 0) {
+			examQueueManagementView.showInfo("No exam queues found!");
 		}
-		return examQueueService.getExamQueuesByUser(currentUserCode, currentUserRole, offset, limit);
+		notifyEmptyResult = false;
 	}
 
-	private int getTotalCount() {
-		if (isSearching)
-			return totalSearchResults;
-		if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-			return examQueueService.countExamQueues();
-		}
-		return examQueueService.countExamQueuesByUser(currentUserCode, currentUserRole);
+	private void updatePageInfo() {
+		currentPage = Math.min(totalPages, examQueueManagementView.getFirstVisibleRow() / rowsPerPage + 1);
+		examQueueManagementView.updatePageInfo(currentPage, totalPages);
+	}
+
+	private void pollExamQueueChanges() {
+		if (polling || changeStamp == null) return;
+		polling = true;
+		CompletableFuture.supplyAsync(examQueueService::getExamQueueChangeStamp, BackgroundExecutor.get())
+				.whenComplete((stamp, error) -> SwingUtilities.invokeLater(() -> {
+					polling = false;
+					// changeStamp null: đang nạp lại bảng, kết quả poll này không còn dùng
+					if (error != null || changeStamp == null || !refreshTimer.isRunning()
+							|| stamp.isSameStamp(changeStamp)) return;
+					// Giữ dữ liệu đang hiển thị và dòng đang chọn trong lúc nạp lại
+					changeStamp = stamp;
+					tableModel.refresh();
+				}));
+	}
+
+	// Gọi khi rời màn hình hàng đợi hoặc đăng xuất
+	public void stopAutoRefresh() {
+		refreshTimer.stop();
+		tableModel.cancelLoading();
 	}
 
 	private void searchUsers() {
@@ -125,35 +167,16 @@ public class ExamQueueController {
 		currentSearchField = (String) examQueueManagementView.getSearchTypeCombo().getSelectedItem();
 
 		if (currentSearchKeyword.isEmpty()) {
-			resetState();
 			loadAllExamQueues();
 			return;
 		}
 
 		isSearching = true;
-
-		if ("ADMIN".equalsIgnoreCase(currentUserRole)) {
-			totalSearchResults = examQueueService.countSearchExamQueues(currentSearchKeyword, currentSearchField);
-		} else {
-			totalSearchResults = examQueueService.countSearchExamQueuesByUser(currentUserCode, currentUserRole,
-					currentSearchKeyword, currentSearchField);
-		}
-
-		if (totalSearchResults <= 0) {
-			examQueueManagementView.showInfo("No exam queues found!");
-			renderEmptyTable();
-			return;
-		}
-
 		currentPage = 1;
+		notifyEmptyResult = true;
 		updateTable();
 	}
 
-	private void renderEmptyTable() {
-		examQueueManagementView.renderExamQueueTable(List.of(), 0);
-		examQueueManagementView.updatePageInfo(1, 1);
-	}
-
 	private void initCRUDActions() {
 		examQueueManagementView.getEditButton().addActionListener(
 				e -> editSelectedQueue(examQueueManagementView.getExamQueueTable().getSelectedRow()));
@@ -276,18 +299,23 @@ public class ExamQueueController {
 	}
 
 	private boolean isRowSelected(int rowIndex) {
-		if (currentPageExamQueues == null || currentPageExamQueues.isEmpty()) {
+		if (tableModel.getRowCount() == 0) {
 			examQueueManagementView.showWarning("No appointments available.");
 			return false;
 		}
-		if (rowIndex < 0 || rowIndex >= currentPageExamQueues.size()) {
+		if (rowIndex < 0 || rowIndex >= tableModel.getRowCount()) {
 			examQueueManagementView.showWarning("Please select a valid appointment.");
+			return false;
+		}
+		if (tableModel.getRow(rowIndex) == null) {
+			examQueueManagementView.showWarning("Queue data is still loading, please try again.");
+			return false;
 		}
 		return true;
 	}
 
 	private ExamQueue getSelectedExamQueue(int rowIndex) {
-		return currentPageExamQueues.get(rowIndex);
+		return tableModel.getRow(rowIndex);
 	}
 
 	private void editSelectedQueue(int rowIndex) {
@@ -358,15 +386,13 @@ public class ExamQueueController {
 
 	public void nextPage() {
 		if (currentPage < totalPages) {
-			currentPage++;
-			updateTable();
+			examQueueManagementView.scrollToRow(currentPage * rowsPerPage);
 		}
 	}
 
 	public void previousPage() {
 		if (currentPage > 1) {
-			currentPage--;
-			updateTable();
+			examQueueManagementView.scrollToRow((currentPage - 2) * rowsPerPage);
 		}
 	}
 }
@@ -47,6 +47,7 @@ public class HomePageController {
     private final String role;
     private final List<JButton> navButtons = new ArrayList<>();
     private final UserService userService = new UserService();
+    private JPanel currentContent;
 
     public HomePageController(HomePageView homePageView, LoginView loginView) {
         this.homePageView = homePageView;
@@ -67,9 +68,9 @@ public class HomePageController {
     
     private void showDefaultPanel() {
         switch (role) {
-            case "receptionist" -> homePageView.setMainContent(new ExamQueueManagementView());
-            case "admin" -> homePageView.setMainContent(new DashboardView());
-            default -> homePageView.setMainContent(new MedicalExaminateView());
+            case "receptionist" -> showMainContent(new ExamQueueManagementView());
+            case "admin" -> showMainContent(new DashboardView());
+            default -> showMainContent(new MedicalExaminateView());
         }
     }
 
@@ -126,22 +127,22 @@ public class HomePageController {
 
         switch (role) {
             case "admin" -> {
-                actions.put("Dashboard", () -> homePageView.setMainContent(new DashboardView()));
-                actions.put("User Management", () -> homePageView.setMainContent(new UserManagementView()));
-                actions.put("Patient Management", () -> homePageView.setMainContent(new PatientManagementView()));
-                actions.put("Medicine Management", () -> homePageView.setMainContent(new MedicineManagementView()));
-                actions.put("Appointment Management", () -> homePageView.setMainContent(new AppointmentManagementView()));
-                actions.put("Exam Queue Management", () -> homePageView.setMainContent(new ExamQueueManagementView()));
-                actions.put("Medical Examination", () -> homePageView.setMainContent(new MedicalExaminateView()));
+                actions.put("Dashboard", () -> showMainContent(new DashboardView()));
+                actions.put("User Management", () -> showMainContent(new UserManagementView()));
+                actions.put("Patient Management", () -> showMainContent(new PatientManagementView()));
+                actions.put("Medicine Management", () -> showMainContent(new MedicineManagementView()));
+                actions.put("Appointment Management", () -> showMainContent(new AppointmentManagementView()));
+                actions.put("Exam Queue Management", () -> showMainContent(new ExamQueueManagementView()));
+                actions.put("Medical Examination", () -> showMainContent(new MedicalExaminateView()));
             }
             case "doctor" -> {
-                actions.put("Medical Examination", () -> homePageView.setMainContent(new MedicalExaminateView()));
-                actions.put("Appointment Management", () -> homePageView.setMainContent(new AppointmentManagementView()));
+                actions.put("Medical Examination", () -> showMainContent(new MedicalExaminateView()));
+                actions.put("Appointment Management", () -> showMainContent(new AppointmentManagementView()));
             }
             case "receptionist" -> {
-                actions.put("Patient Management", () -> homePageView.setMainContent(new PatientManagementView()));
-                actions.put("Appointment Management", () -> homePageView.setMainContent(new AppointmentManagementView()));
-                actions.put("Exam Queue Management", () -> homePageView.setMainContent(new ExamQueueManagementView()));
+                actions.put("Patient Management", () -> showMainContent(new PatientManagementView()));
+                actions.put("Appointment Management", () -> showMainContent(new AppointmentManagementView()));
+                actions.put("Exam Queue Management", () -> showMainContent(new ExamQueueManagementView()));
             }
         }
 
@@ -178,6 +179,31 @@ public class HomePageController {
 
     /** ======================= MAIN CONTENT ======================= */
 
+    // Đổi màn hình chính; dừng các tác vụ nền của màn hình cũ (truy vấn thống kê, poll hàng đợi)
+    private void showMainContent(JPanel panel) {
+        if (currentContent != panel) {
+            releaseContent(currentContent);
+        }
+        currentContent = panel;
+        homePageView.setMainContent(panel);
+    }
+
+    private void releaseContent(JPanel content) {
+        if (content instanceof DashboardView dashboardView) {
+            dashboardView.cancelLoading();
+        } else if (content instanceof MedicalExaminateView medicalExaminateView) {
+            medicalExaminateView.stopAutoRefresh();
+        } else if (content instanceof ExamQueueManagementView examQueueManagementView) {
+            examQueueManagementView.stopAutoRefresh();
+        } else if (content instanceof PatientManagementView patientManagementView) {
+            patientManagementView.cancelLoading();
+        } else if (content instanceof AppointmentManagementView appointmentManagementView) {
+            appointmentManagementView.cancelLoading();
+        } else if (content instanceof MedicineManagementView medicineManagementView) {
+            medicineManagementView.cancelLoading();
+        }
+    }
+
 
 
     private void showUserProfile() {
@@ -200,6 +226,7 @@ public class HomePageController {
         );
 
         if (choice == JOptionPane.YES_OPTION) {
+            releaseContent(currentContent);
             Session.clearCurrentUser();
             homePageView.dispose();
             loginView.setVisible(true);
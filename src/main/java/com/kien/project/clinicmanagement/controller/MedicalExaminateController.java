@@ -3,14 +3,16 @@ package com.kien.project.clinicmanagement.controller;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
+import com.kien.project.clinicmanagement.dto.ExamQueueChanges;
 import com.kien.project.clinicmanagement.model.ExamQueue;
 import com.kien.project.clinicmanagement.model.MedicalResult;
 import com.kien.project.clinicmanagement.model.Medicine;
@@ -21,8 +23,7 @@ import com.kien.project.clinicmanagement.service.ExamQueueService;
 import com.kien.project.clinicmanagement.service.MedicalResultService;
 import com.kien.project.clinicmanagement.service.MedicineService;
 import com.kien.project.clinicmanagement.service.PatientService;
-import com.kien.project.clinicmanagement.service.PrescriptionDetailService;
-import com.kien.project.clinicmanagement.service.PrescriptionService;
+import com.kien.project.clinicmanagement.utils.BackgroundExecutor;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.kien.project.clinicmanagement.view.medicalexaminate.MedicalExaminateView;
@@ -36,11 +37,14 @@ public class MedicalExaminateController {
 	private final ExamQueueService examQueueService = new ExamQueueService();
 	private final MedicalResultService medicalResultService = new MedicalResultService();
 	private final MedicineService medicineService = new MedicineService();
-	private final PrescriptionService prescriptionService = new PrescriptionService();
-	private final PrescriptionDetailService prescriptionDetailService = new PrescriptionDetailService();
 	private final PatientService patientService = new PatientService();
 
 	private List<ExamQueue> allExamQueues;
+	// Poll nhật ký thay đổi của hàng đợi để thấy bệnh nhân mới check-in mà không cần bấm tải lại
+	private static final int REFRESH_INTERVAL_MS = 5_000;
+	private final Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> pollExamQueueChanges());
+	private ExamQueueChanges changeStamp;
+	private boolean polling = false;
 	private List<PrescriptionDetail> prescriptionDetails = new ArrayList<>();
 
 	public MedicalExaminateController(MedicalExaminateView medicalExaminateView) {
@@ -48,6 +52,7 @@ public class MedicalExaminateController {
 
 		loadAllExamQueues();
 		initMedicalExaminateActions();
+		refreshTimer.start();
 	}
 
 	private void initMedicalExaminateActions() {
@@ -176,68 +181,8 @@ public class MedicalExaminateController {
 	            return;
 	        }
 	        
-	        if (prescriptionDetails != null && !prescriptionDetails.isEmpty()) {
-
-	            // 1. Gom tổng số lượng cần dùng theo từng mã thuốc
-	            Map<String, Integer> requiredQuantities = new HashMap<>();
-
-	            for (PrescriptionDetail detail : prescriptionDetails) {
-	                if (detail == null) continue;
-
-	                String medCode = detail.getMedicineCode();
-	                if (medCode == null || medCode.trim().isEmpty()) continue;
-
-	                int quantity = (detail.getQuantity() == null) ? 0 : detail.getQuantity();
-
-	                // Nếu đã có thuốc này thì cộng thêm, chưa có thì thêm mới
-	                if (requiredQuantities.containsKey(medCode)) {
-	                    int current = requiredQuantities.get(medCode);
-	                    requiredQuantities.put(medCode, current + quantity);
-	                } else {
-	                    requiredQuantities.put(medCode, quantity);
-	                }
-	            }
-
-	            // 2. Kiểm tra tồn kho của từng thuốc
-	            StringBuilder stockErrors = new StringBuilder();
-
-	            for (String medCode : requiredQuantities.keySet()) {
-	                int needed = requiredQuantities.get(medCode);
-
-	                Medicine medicine = medicineService.getByMedicineCode(medCode);
-
-	                if (medicine == null) {
-	                    stockErrors.append("- Medicine not found: ").append(medCode).append("\n");
-	                } else {
-	                    int available = medicine.getQuantity();
-	                    if (available < needed) {
-	                        stockErrors.append("- Not enough stock for ")
-	                                   .append(medCode)
-	                                   .append(" (required: ").append(needed)
-	                                   .append(", available: ").append(available)
-	                                   .append(")\n");
-	                    }
-	                }
-	            }
-
-	            if (stockErrors.length() > 0) {
-	                medicalExaminateView.showError(
-	                    "Cannot save medical result because of stock issues:\n" + stockErrors.toString()
-	                );
-	                return;
-	            }
-	        }
-
-
-	        // --- Tạo MedicalResult ---
+	        // --- Tạo MedicalResult (id được cấp trong giao dịch) ---
 	        MedicalResult result = new MedicalResult();
-	        Long newId = medicalResultService.generateNewMedicalResultId(); //Bỏ
-	        if (newId == null) {
-	            medicalExaminateView.showError("Unable to generate new MedicalResult ID.");
-	            return;
-	        }
-	        result.setId(newId);
-
 	        result.setExamQueueId(examQueueId);
 	        result.setDoctorCode(doctorCode.trim());
 	        result.setPatientCode(patientCode.trim());
@@ -246,21 +191,22 @@ public class MedicalExaminateController {
 	        result.setDiagnosis(diagnosis.trim());
 	        result.setTreatmentPlan(treatmentPlan.trim());
 
-	        // --- Lưu và cập nhật trạng thái ---
-	        medicalResultService.saveMedicalResult(result);
-	        examQueueService.updateExamQueueStatus(result.getExamQueueId(), "done");
+	        Prescription prescription = new Prescription();
+	        prescription.setPatientCode(patientCode.trim());
+	        prescription.setPrescriptionDate(LocalDate.now());
+
+	        // --- Lưu kết quả, đóng hàng đợi, trừ kho và lưu đơn thuốc trong một giao dịch ---
+	        String error = medicalResultService.finalizeExamination(result, prescription, prescriptionDetails);
+	        if (error != null) {
+	            medicalExaminateView.showError(error);
+	            return;
+	        }
 
 	        // --- Update UI ---
 	        medicalExaminateView.getTxtMedicalResultId().setText(String.valueOf(result.getId()));
 	        medicalExaminateView.showInfo("Medical result saved successfully.");
-
-	        if (!(prescriptionDetails == null || prescriptionDetails.isEmpty())) {
-	        		Prescription prescription = createPrescription(result.getId());
-	        		addPrescriptionDetail(prescription.getId());
-	        		prescriptionService.updateTotalPriceForPrescription(prescription);
-	        }
 	        
-	        loadAllExamQueues();
+	        pollExamQueueChanges();
 	        clearExaminationForm();
 	        if (prescriptionDetails != null) {
 	            prescriptionDetails.clear();
@@ -279,49 +225,6 @@ public class MedicalExaminateController {
 	    }
 	}
 	
-	private Prescription createPrescription(Long medicalResultId) {
-		Long prescriptionId = prescriptionService.generateNewPrescriptionId(); //Bỏ gen id mới
-        String patientCode = medicalExaminateView.getTxtPatientCode().getText();
-		BigDecimal totalPrive = prescriptionService.calculateTotalPriceForPrescription(prescriptionId); //Tính toán từ list PrescriptionDetail
-		
-		Prescription prescription = new Prescription();
-		prescription.setId(prescriptionId);
-		prescription.setMedicalResultId(medicalResultId);
-		prescription.setPatientCode(patientCode);
-		prescription.setPrescriptionDate(LocalDate.now());
-		prescription.setTotalPrice(totalPrive);
-		
-		prescriptionService.savePrescription(prescription);
-		return prescription;
-	}
-	
-	private void addPrescriptionDetail(Long prescriptionId) {
-	    try {
-	        if (prescriptionDetails == null || prescriptionDetails.isEmpty()) {
-	            return;
-	        }
-
-	        for (PrescriptionDetail detail : prescriptionDetails) {
-	            detail.setPrescriptionId(prescriptionId);
-
-	            boolean stockUpdated = medicineService.reduceStock(detail.getMedicineCode(), detail.getQuantity());
-	            if (!stockUpdated) {
-	                medicalExaminateView.showError(
-	                    "Not enough stock for medicine: " + detail.getMedicineCode() 
-	                    + ". Prescription detail was not saved."
-	                );
-	                return;
-	            }
-	            prescriptionDetailService.saveDetail(detail);
-	        }
-
-	        medicalExaminateView.showInfo("All prescription details have been saved successfully.");
-	    } catch (Exception ex) {
-	        ex.printStackTrace();
-	        medicalExaminateView.showError("Error while saving prescription details: " + ex.getMessage());
-	    }
-	}
-
 	private void editPrescriptionDetail() {
 	    int selectedRow = medicalExaminateView.getPrescriptionDetailTable().getSelectedRow();
 	    if (!isRowSelected(selectedRow)) {
@@ -520,16 +423,102 @@ public class MedicalExaminateController {
 	}
 
 	private void loadAllExamQueues() {
-	    String role = Session.getCurrentUser().getRole().toLowerCase();
-	    if ("doctor".equals(role)) {
-	        String currentDoctorCode = Session.getCurrentUser().getCode();
-	        allExamQueues = examQueueService.getExamQueuesByDoctorCode(currentDoctorCode);
+	    // Lấy stamp trước: thay đổi xảy ra trong lúc tải sẽ được áp dụng lại ở lần poll sau
+	    changeStamp = examQueueService.getExamQueueChangeStamp();
+	    if (isDoctor()) {
+	        allExamQueues = new ArrayList<>(examQueueService.getExamQueuesByDoctorCode(currentDoctorCode()));
 	    } else {
-	        allExamQueues = examQueueService.getAllWaitingExamQueues();
+	        allExamQueues = new ArrayList<>(examQueueService.getAllWaitingExamQueues());
 	    }
 	    medicalExaminateView.renderTable(allExamQueues);
 	}
 
+	// Poll nhật ký thay đổi trên luồng nền, áp dụng delta trên EDT
+	private void pollExamQueueChanges() {
+	    if (polling || Session.getCurrentUser() == null) return;
+	    polling = true;
+	    ExamQueueChanges since = changeStamp;
+	    CompletableFuture.supplyAsync(() -> examQueueService.getExamQueueChangesSince(since), BackgroundExecutor.get())
+	            .whenComplete((changes, error) -> SwingUtilities.invokeLater(() -> {
+	                polling = false;
+	                if (error != null || changes == null || !refreshTimer.isRunning()) return;
+	                applyExamQueueChanges(changes);
+	            }));
+	}
+
+	private void applyExamQueueChanges(ExamQueueChanges changes) {
+	    if (changes.isFullReload()) {
+	        loadAllExamQueues();
+	        return;
+	    }
+	    changeStamp = changes;
+
+	    for (Long id : changes.getRemovedIds()) {
+	        removeExamQueue(id);
+	    }
+	    for (ExamQueue queue : changes.getChanged()) {
+	        if (!belongsToWaitingList(queue)) {
+	            removeExamQueue(queue.getId());
+	            continue;
+	        }
+	        int index = indexOfExamQueue(queue.getId());
+	        if (index >= 0 && queueOrder().compare(allExamQueues.get(index), queue) == 0) {
+	            allExamQueues.set(index, queue);
+	            medicalExaminateView.updateQueueRow(index, queue);
+	        } else {
+	            removeExamQueue(queue.getId());
+	            int insertAt = 0;
+	            while (insertAt < allExamQueues.size() && queueOrder().compare(allExamQueues.get(insertAt), queue) < 0) {
+	                insertAt++;
+	            }
+	            allExamQueues.add(insertAt, queue);
+	            medicalExaminateView.insertQueueRow(insertAt, queue);
+	        }
+	    }
+	}
+
+	private void removeExamQueue(Long id) {
+	    int index = indexOfExamQueue(id);
+	    if (index >= 0) {
+	        allExamQueues.remove(index);
+	        medicalExaminateView.removeQueueRow(index);
+	    }
+	}
+
+	private int indexOfExamQueue(Long id) {
+	    for (int i = 0; i < allExamQueues.size(); i++) {
+	        if (allExamQueues.get(i).getId().equals(id)) return i;
+	    }
+	    return -1;
+	}
+
+	// Cùng điều kiện lọc với truy vấn tải danh sách ban đầu
+	private boolean belongsToWaitingList(ExamQueue queue) {
+	    if (!"WAITING".equalsIgnoreCase(queue.getStatus())) return false;
+	    return !isDoctor() || currentDoctorCode().equals(queue.getDoctorCode());
+	}
+
+	// Bác sĩ: theo số thứ tự tăng dần; còn lại: mới nhất lên đầu
+	private Comparator<ExamQueue> queueOrder() {
+	    if (isDoctor()) {
+	        return Comparator.comparingInt(ExamQueue::getQueueNumber).thenComparing(ExamQueue::getId);
+	    }
+	    return Comparator.comparing(ExamQueue::getId).reversed();
+	}
+
+	private boolean isDoctor() {
+	    return "doctor".equalsIgnoreCase(Session.getCurrentUser().getRole());
+	}
+
+	private String currentDoctorCode() {
+	    return Session.getCurrentUser().getCode();
+	}
+
+	// Gọi khi rời màn hình khám bệnh hoặc đăng xuất
+	public void stopAutoRefresh() {
+	    refreshTimer.stop();
+	}
+
 	private void viewSelectedPatientProfile() {
 		int selectedRow = medicalExaminateView.getExamQueueTable().getSelectedRow();
 		if (selectedRow == -1) {
@@ -1,37 +1,52 @@
 package com.kien.project.clinicmanagement.controller;
 
+import java.awt.GridLayout;
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
-import javax.swing.table.DefaultTableModel;
 
 import com.kien.project.clinicmanagement.model.Medicine;
+import com.kien.project.clinicmanagement.service.ImportService;
 import com.kien.project.clinicmanagement.service.MedicineService;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.ImportProgressDialog;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
+import com.kien.project.clinicmanagement.utils.PageHelper;
+import com.kien.project.clinicmanagement.view.medicine.ExpiringLotsView;
 import com.kien.project.clinicmanagement.view.medicine.MedicineFormView;
 import com.kien.project.clinicmanagement.view.medicine.MedicineManagementView;
+import com.kien.project.clinicmanagement.view.medicine.StockHistoryView;
 
 public class MedicineController {
 	private final MedicineManagementView medicineManagementView;
 	private MedicineFormView medicineFormView;
 	private final MedicineService medicineService = new MedicineService();
+	private final ImportService importService = new ImportService();
 
-	private List<Medicine> currentPageMedicines;
-	private int totalMedicines;
-	private int totalPages;
+	// Bảng tải dữ liệu theo trang khi cuộn; Prev/Next chỉ cuộn theo từng nhóm 10 dòng
+	private final LazyPagedTableModel<Medicine> tableModel;
+	private int totalPages = 1;
 	private int currentPage = 1;
 	private final int rowsPerPage = 10;
+	// Chỉ báo "No medicines found" cho lần tìm kiếm vừa gửi
+	private boolean notifyEmptyResult = false;
 	// Tìm kiếm
 	private boolean isSearching = false;
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
-	private int totalSearchResults = 0;
 
-	public MedicineController(MedicineManagementView medicineManagementView, DefaultTableModel tableModel) {
+	public MedicineController(MedicineManagementView medicineManagementView) {
 		this.medicineManagementView = medicineManagementView;
+		this.tableModel = medicineManagementView.getMedicineTableModel();
+		tableModel.setTotalListener(this::onTotalLoaded);
+		medicineManagementView.getTableViewport().addChangeListener(e -> updatePageInfo());
 		loadAllMedicines();
 		initHeaderActions();
 		initCRUDActions();
@@ -50,51 +65,40 @@ public class MedicineController {
 		isSearching = false;
 		currentSearchKeyword = "";
 		currentSearchField = "";
-		totalSearchResults = 0;
 		currentPage = 1;
 		updateTable();
 	}
 
 	public void loadAllMedicines() {
 		resetState();
-		totalMedicines = medicineService.countMedicines();
-		totalPages = Math.max(1, (int) Math.ceil((double) totalMedicines / rowsPerPage));
-		currentPage = 1;
-		updateTable();
 	}
 
+	// Nạp lại bảng từ đầu; các trang được truy vấn nền khi người dùng cuộn tới
 	private void updateTable() {
-		int offset = (currentPage - 1) * rowsPerPage;
-
-		int totalMedicines = getTotalCount();
-		List<Medicine> pageMedicines = fetchMedicines(offset, rowsPerPage);
-
-		totalPages = Math.max(1, (int) Math.ceil((double) totalMedicines / rowsPerPage));
-		if (currentPage > totalPages) {
-			currentPage = totalPages;
-			offset = (currentPage - 1) * rowsPerPage;
+		if (isSearching) {
+			String keyword = currentSearchKeyword;
+			String field = currentSearchField;
+			tableModel.reload((offset, limit) -> medicineService.searchMedicinesPage(keyword, field, offset, limit));
+			return;
 		}
+		// Cuộn tuần tự: trang sau lấy theo keyset (id) từ dòng cuối của trang trước
+		tableModel.reload(medicineService::getMedicinesPage, (anchor, limit) -> medicineService
+				.getMedicinesSeek(anchor.getId(), PageHelper.Direction.NEXT, limit));
+	}
 
-		currentPageMedicines = (pageMedicines != null) ? pageMedicines : List.of();
-
-		medicineManagementView.renderMedicineTable(currentPageMedicines, offset);
-		medicineManagementView.updatePageInfo(currentPage, totalPages);
+	private void onTotalLoaded(int total) {
+		totalPages = Math.max(1, (int) Math.ceil((double) total / rowsPerPage));
+		updatePageInfo();
 
-		if (currentPageMedicines.isEmpty()) {
+		if (notifyEmptyResult && total <= 0) {
 			medicineManagementView.showInfo("No medicines found!");
 		}
+		notifyEmptyResult = false;
 	}
 
-	private List<Medicine> fetchMedicines(int offset, int limit) {
-		if (isSearching)
-			return medicineService.searchMedicines(currentSearchKeyword, currentSearchField, offset, limit);
-		return medicineService.getMedicines(offset, limit);
-	}
-
-	private int getTotalCount() {
-		if (isSearching)
-			return totalSearchResults;
-		return medicineService.countMedicines();
+	private void updatePageInfo() {
+		currentPage = Math.min(totalPages, medicineManagementView.getFirstVisibleRow() / rowsPerPage + 1);
+		medicineManagementView.updatePageInfo(currentPage, totalPages);
 	}
 
 	// Tìm kiếm thuốc
@@ -103,29 +107,16 @@ public class MedicineController {
 		currentSearchField = (String) medicineManagementView.getSearchTypeCombo().getSelectedItem();
 
 		if (currentSearchKeyword.isEmpty()) {
-			resetState();
 			loadAllMedicines();
 			return;
 		}
 
 		isSearching = true;
-		totalSearchResults = medicineService.countSearchMedicines(currentSearchKeyword, currentSearchField);
-
-		if (totalSearchResults <= 0) {
-			medicineManagementView.showInfo("No medicines found!");
-			renderEmptyTable();
-			return;
-		}
-
 		currentPage = 1;
+		notifyEmptyResult = true;
 		updateTable();
 	}
 
-	private void renderEmptyTable() {
-		medicineManagementView.renderMedicineTable(List.of(), 0);
-		medicineManagementView.updatePageInfo(1, 1);
-	}
-
 	public void initCRUDActions() {
 		medicineManagementView.getAddButton().addActionListener(e -> showMedicineForm(null));
 		medicineManagementView.getEditButton().addActionListener(
@@ -134,6 +125,11 @@ public class MedicineController {
 				e -> deleteSelectedMedicine(medicineManagementView.getMedicineTable().getSelectedRow()));
 		medicineManagementView.getAddStockButton().addActionListener(
 				e -> addStockToSelectedMedicine(medicineManagementView.getMedicineTable().getSelectedRow()));
+		medicineManagementView.getStockHistoryButton().addActionListener(
+				e -> showStockHistory(medicineManagementView.getMedicineTable().getSelectedRow()));
+		medicineManagementView.getExpiringLotsButton().addActionListener(e -> showExpiringLots());
+		medicineManagementView.getImportButton().addActionListener(e -> ImportProgressDialog.run(medicineManagementView,
+				"Import Medicines", importService::importMedicines, this::updateTable));
 	}
 
 	public void showMedicineForm(Medicine medicine) {
@@ -207,8 +203,10 @@ public class MedicineController {
 			return;
 		}
 		
-		
-		medicineService.saveOrUpdateMedicine(medicine);
+		if (!medicineService.saveOrUpdateMedicine(medicine)) {
+			medicineFormView.showError("Failed to save medicine. The stock lots may not cover the reduced quantity.");
+			return;
+		}
 		medicineFormView.setSaved(true);
 		medicineFormView.dispose();
 		
@@ -218,10 +216,11 @@ public class MedicineController {
 	}
 	
 	private void handleMedicineSave(Medicine originalMedicine) {
+		updateTable();
+		// Thuốc mới nằm đầu danh sách (id giảm dần)
 		if (originalMedicine == null || originalMedicine.getCode() == null) {
-			currentPage = 1;
+			medicineManagementView.scrollToRow(0);
 		}
-		updateTable();
 	}
 
 	private Medicine prepareMedicineFromForm() {
@@ -316,19 +315,23 @@ public class MedicineController {
 	}
 	
 	private boolean isRowSelected(int rowIndex) {
-		if (currentPageMedicines == null || currentPageMedicines.isEmpty()) {
+		if (tableModel.getRowCount() == 0) {
 			medicineManagementView.showWarning("No medicines avaiable.");
 			return false;
 		}
-		if (rowIndex < 0 || rowIndex >= currentPageMedicines.size()) {
+		if (rowIndex < 0 || rowIndex >= tableModel.getRowCount()) {
 			medicineManagementView.showWarning("Please select a valid medicine.");
 			return false;
 		}
+		if (tableModel.getRow(rowIndex) == null) {
+			medicineManagementView.showWarning("Medicine data is still loading, please try again.");
+			return false;
+		}
 		return true;
 	}
 	
 	private Medicine getSelectedMedicine(int rowIndex) {
-		return currentPageMedicines.get(rowIndex);
+		return tableModel.getRow(rowIndex);
 	}
 	
 	// Hàm chỉnh sửa thuốc
@@ -358,7 +361,6 @@ public class MedicineController {
 			return;
 
 		if (medicineService.deleteMedicine(medicine.getCode())) {
-			adjustPaginationAfterDelete();
 			updateTable();
 			medicineManagementView.showInfo("Medicine deleted successfully.");
 		} else {
@@ -366,38 +368,52 @@ public class MedicineController {
 		}
 	}
 	
-	private void adjustPaginationAfterDelete() {
-		int totalMedicines = medicineService.countMedicines();
-		int totalPages = Math.max(1, (int) Math.ceil((double) totalMedicines / rowsPerPage));
-		if (currentPage > totalPages)
-			currentPage = totalPages;
-	}
-
 	public void addStockToSelectedMedicine(int rowIndex) {
 	    if (!isRowSelected(rowIndex))
 	        return;
 
 	    Medicine medicine = getSelectedMedicine(rowIndex);
 
-	    String input = JOptionPane.showInputDialog(
+	    // Số lượng bắt buộc; số lô và hạn dùng có thể bỏ trống (hàng vào lô không rõ số lô)
+	    JTextField quantityField = new JTextField(10);
+	    JTextField lotField = new JTextField(10);
+	    JTextField expiryField = new JTextField(10);
+	    JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+	    panel.add(new JLabel("Quantity:"));
+	    panel.add(quantityField);
+	    panel.add(new JLabel("Lot number:"));
+	    panel.add(lotField);
+	    panel.add(new JLabel("Expiry date (yyyy-MM-dd):"));
+	    panel.add(expiryField);
+
+	    int option = JOptionPane.showConfirmDialog(
 	            medicineManagementView,
-	            "Enter quantity to add for \"" + medicine.getName() + "\":",
-	            "Add Stock",
+	            panel,
+	            "Add Stock - " + medicine.getName(),
+	            JOptionPane.OK_CANCEL_OPTION,
 	            JOptionPane.PLAIN_MESSAGE
 	    );
 
-	    if (input == null || input.trim().isEmpty())
+	    if (option != JOptionPane.OK_OPTION || quantityField.getText().trim().isEmpty())
 	        return;
 
 	    try {
-	        int addedQty = Integer.parseInt(input.trim());
+	        int addedQty = Integer.parseInt(quantityField.getText().trim());
 
 	        if (addedQty <= 0) {
 	            medicineManagementView.showWarning("Quantity must be a positive integer.");
 	            return;
 	        }
 
-	        boolean success = medicineService.addStock(medicine.getCode(), addedQty, medicineManagementView);
+	        String expiryText = expiryField.getText().trim();
+	        LocalDate expiryDate = expiryText.isEmpty() ? null : LocalDate.parse(expiryText);
+	        if (expiryDate != null && expiryDate.isBefore(LocalDate.now())) {
+	            medicineManagementView.showWarning("Expiry date must not be in the past.");
+	            return;
+	        }
+
+	        boolean success = medicineService.addStock(medicine.getCode(), addedQty, lotField.getText().trim(),
+	                expiryDate);
 
 	        if (success) {
 	            medicineManagementView.showInfo("Stock added successfully.");
@@ -408,9 +424,38 @@ public class MedicineController {
 
 	    } catch (NumberFormatException e) {
 	        medicineManagementView.showError("Quantity must be a valid integer.");
+	    } catch (DateTimeParseException e) {
+	        medicineManagementView.showError("Expiry date must be in the format yyyy-MM-dd.");
 	    }
 	}
 
+	// Sổ kho của thuốc đang chọn: tồn kho theo ngày và lịch sử nhập/xuất
+	public void showStockHistory(int rowIndex) {
+		if (!isRowSelected(rowIndex))
+			return;
+
+		JFrame owner = (JFrame) SwingUtilities.getWindowAncestor(medicineManagementView);
+		StockHistoryView stockHistoryView = new StockHistoryView(owner, getSelectedMedicine(rowIndex));
+		new StockHistoryController(stockHistoryView);
+		stockHistoryView.setVisible(true);
+	}
+
+	// Báo cáo lô sắp hết hạn; đổi số ngày thì lọc lại từ cache lô thuốc
+	public void showExpiringLots() {
+		JFrame owner = (JFrame) SwingUtilities.getWindowAncestor(medicineManagementView);
+		ExpiringLotsView expiringLotsView = new ExpiringLotsView(owner);
+		Runnable render = () -> expiringLotsView.renderLots(
+				medicineService.getExpiringLots(expiringLotsView.getSelectedDays()), this::getMedicineName);
+		expiringLotsView.getDaysCombo().addActionListener(e -> render.run());
+		render.run();
+		expiringLotsView.setVisible(true);
+	}
+
+	private String getMedicineName(String code) {
+		Medicine medicine = medicineService.getByMedicineCode(code);
+		return (medicine != null) ? medicine.getName() : code;
+	}
+
 	public String generateNextMedicineCode() {
 		return medicineService.generateNextMedicineCode();
 	}
@@ -422,15 +467,13 @@ public class MedicineController {
 
 	public void nextPage() {
 		if (currentPage < totalPages) {
-			currentPage++;
-			updateTable();
+			medicineManagementView.scrollToRow(currentPage * rowsPerPage);
 		}
 	}
 
 	public void previousPage() {
 		if (currentPage > 1) {
-			currentPage--;
-			updateTable();
+			medicineManagementView.scrollToRow((currentPage - 2) * rowsPerPage);
 		}
 	}
 }
@@ -4,6 +4,8 @@ import java.util.List;
 
 import com.kien.project.clinicmanagement.model.Medicine;
 import com.kien.project.clinicmanagement.service.MedicineService;
+import com.kien.project.clinicmanagement.utils.IncrementalSearch;
+import com.kien.project.clinicmanagement.utils.TextNormalizer;
 import com.kien.project.clinicmanagement.view.medicine.MedicineSelectionView;
 
 public class MedicineSelectionController {
@@ -22,9 +24,18 @@ public class MedicineSelectionController {
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
 	private int totalSearchResults = 0;
+	// Tìm khi đang gõ: kết quả (tối đa SEARCH_LIMIT dòng) được phân trang ngay trong bộ nhớ,
+	// null nghĩa là kết quả quá nhiều và phải phân trang bằng truy vấn như trước
+	private static final int SEARCH_LIMIT = 200;
+	private final IncrementalSearch<Medicine> incrementalSearch;
+	private List<Medicine> searchResults;
+	private boolean explicitSearch = false;
 
 	public MedicineSelectionController(MedicineSelectionView medicineSelectionView) {
 		this.medicineSelectionView = medicineSelectionView;
+		this.incrementalSearch = new IncrementalSearch<>(medicineSelectionView.getSearchField(),
+				medicineSelectionView.getSearchCombo(), SEARCH_LIMIT, medicineService::searchMedicinesForLookup,
+				MedicineSelectionController::matchesKeyword, this::onSearchResults);
 		loadAllMedicines();
 		initHeaderActions();
 		initCRUDActions();
@@ -40,8 +51,10 @@ public class MedicineSelectionController {
 	}
 	
 	private void resetState() {
+		incrementalSearch.reset();
 		medicineSelectionView.getSearchField().setText("");
 		isSearching = false;
+		searchResults = null;
 		currentSearchKeyword = "";
 		currentSearchField = "";
 		totalSearchResults = 0;
@@ -74,12 +87,18 @@ public class MedicineSelectionController {
 		medicineSelectionView.renderMedicineTable(currentPageMedicines, offset);
 		medicineSelectionView.updatePageInfo(currentPage, totalPages);
 
-		if (currentPageMedicines.isEmpty()) {
+		// Đang gõ thì không bật hộp thoại, tránh mất focus ô tìm kiếm
+		if (currentPageMedicines.isEmpty() && (!isSearching || explicitSearch)) {
 			medicineSelectionView.showInfo("No medicines found!");
 		}
+		explicitSearch = false;
 	}
 
 	private List<Medicine> fetchMedicines(int offset, int limit) {
+		if (isSearching && searchResults != null) {
+			int end = Math.min(offset + limit, searchResults.size());
+			return (offset < end) ? searchResults.subList(offset, end) : List.of();
+		}
 		if (isSearching)
 			return medicineService.searchMedicines(currentSearchKeyword, currentSearchField, offset, limit);
 		return medicineService.getMedicines(offset, limit);
@@ -92,20 +111,30 @@ public class MedicineSelectionController {
 	}
 
 	private void searchMedicines() {
-		currentSearchKeyword = medicineSelectionView.getSearchField().getText().trim();
-		currentSearchField = (String) medicineSelectionView.getSearchCombo().getSelectedItem();
+		explicitSearch = true;
+		incrementalSearch.searchNow();
+	}
 
-		if (currentSearchKeyword.isEmpty()) {
-			resetState();
-			loadAllMedicines();
+	// Nhận kết quả trên EDT, từ database hoặc lọc lại từ kết quả của từ khóa ngắn hơn
+	private void onSearchResults(String keyword, String field, List<Medicine> rows, boolean truncated) {
+		if (keyword.isEmpty()) {
+			explicitSearch = false;
+			if (isSearching) {
+				resetState();
+			}
 			return;
 		}
 
+		currentSearchKeyword = keyword;
+		currentSearchField = field;
 		isSearching = true;
-		totalSearchResults = medicineService.countSearchMedicines(currentSearchKeyword, currentSearchField);
+		searchResults = truncated ? null : rows;
+		totalSearchResults = truncated ? medicineService.countSearchMedicines(keyword, field) : rows.size();
 
 		if (totalSearchResults <= 0) {
-			medicineSelectionView.showInfo("No medicines found!");
+			if (explicitSearch)
+				medicineSelectionView.showInfo("No medicines found!");
+			explicitSearch = false;
 			renderEmptyTable();
 			return;
 		}
@@ -114,6 +143,11 @@ public class MedicineSelectionController {
 		updateTable();
 	}
 
+	private static boolean matchesKeyword(Medicine medicine, String foldedKeyword, String field) {
+		String value = field.toLowerCase().equals("search by unit") ? medicine.getUnit() : medicine.getName();
+		return TextNormalizer.containsFolded(value, foldedKeyword);
+	}
+
 	private void renderEmptyTable() {
 		medicineSelectionView.renderMedicineTable(List.of(), 0);
 		medicineSelectionView.updatePageInfo(1, 1);
@@ -1,39 +1,35 @@
 package com.kien.project.clinicmanagement.controller;
 
 import java.awt.Window;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import javax.imageio.ImageIO;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JTable;
 import javax.swing.SwingUtilities;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.google.zxing.BinaryBitmap;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.LuminanceSource;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.Result;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
-import com.google.zxing.common.HybridBinarizer;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.MedicalResult;
 import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.model.PrescriptionDetail;
+import com.kien.project.clinicmanagement.service.ExportService;
+import com.kien.project.clinicmanagement.service.ImportService;
 import com.kien.project.clinicmanagement.service.MedicalResultService;
 import com.kien.project.clinicmanagement.service.PatientService;
 import com.kien.project.clinicmanagement.service.PrescriptionDetailService;
+import com.kien.project.clinicmanagement.utils.ExportProgressDialog;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.ImportProgressDialog;
+import com.kien.project.clinicmanagement.utils.IncrementalSearch;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
+import com.kien.project.clinicmanagement.utils.PageHelper;
+import com.kien.project.clinicmanagement.utils.PatientQrDecoder;
+import com.kien.project.clinicmanagement.utils.TextNormalizer;
 import com.kien.project.clinicmanagement.view.patient.PatientFormView;
+import com.kien.project.clinicmanagement.view.patient.PatientIntakeView;
 import com.kien.project.clinicmanagement.view.patient.PatientManagementView;
 import com.kien.project.clinicmanagement.view.patient.PatientProfileView;
 import com.kien.project.clinicmanagement.view.prescription.PrescriptionDetailView;
@@ -43,23 +39,39 @@ public class PatientController {
 	private final PatientManagementView patientManagementView;
 	private PatientFormView patientFormView;
 	private PatientProfileView patientProfileView;
+	private PatientIntakeView patientIntakeView;
 	private final PatientService patientService = new PatientService();
 	private final MedicalResultService service = new MedicalResultService();
 	private final PrescriptionDetailService prescriptionDetailService = new PrescriptionDetailService();
+	private final ExportService exportService = new ExportService();
+	private final ImportService importService = new ImportService();
 
-	private List<Patient> currentPagePatients;
+	// Bảng tải dữ liệu theo trang khi cuộn; Prev/Next chỉ cuộn theo từng nhóm 10 dòng
+	private final LazyPagedTableModel<Patient> tableModel;
 	private int totalPatients;
-	private int totalPages;
+	private int totalPages = 1;
 	private int currentPage = 1;
 	private final int rowsPerPage = 10;
+	// Chỉ báo "No patients found" cho lần tìm kiếm vừa gửi
+	private boolean notifyEmptyResult = false;
 	// Tìm kiếm
 	private boolean isSearching = false;
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
-	private int totalSearchResults = 0;
+	// Tìm khi đang gõ: kết quả đủ nhỏ được giữ trong bộ nhớ và hiển thị không cần truy vấn thêm,
+	// null nghĩa là kết quả quá nhiều và bảng phân trang bằng truy vấn như trước
+	private static final int SEARCH_LIMIT = 200;
+	private final IncrementalSearch<Patient> incrementalSearch;
+	private List<Patient> searchResults;
 
 	public PatientController(PatientManagementView patientManagementView) {
 		this.patientManagementView = patientManagementView;
+		this.tableModel = patientManagementView.getPatientTableModel();
+		this.incrementalSearch = new IncrementalSearch<>(patientManagementView.getSearchField(),
+				patientManagementView.getSearchTypeCombo(), SEARCH_LIMIT, patientService::searchPatientsForLookup,
+				PatientController::matchesKeyword, this::onSearchResults);
+		tableModel.setTotalListener(this::onTotalLoaded);
+		patientManagementView.getTableViewport().addChangeListener(e -> updatePageInfo());
 		loadAllPatients();
 		initHeaderActions();
 		initCRUDActions();
@@ -77,81 +89,103 @@ public class PatientController {
 
 	public void loadAllPatients() {
 		resetState();
-		totalPatients = getTotalCount();
-		totalPages = Math.max(1, (int) Math.ceil((double) totalPatients / rowsPerPage));
-		currentPage = 1;
-		updateTable();
 	}
 
 	private void resetState() {
+		incrementalSearch.reset();
 		patientManagementView.getSearchField().setText("");
 		isSearching = false;
+		searchResults = null;
 		currentSearchKeyword = "";
 		currentSearchField = "";
-		totalSearchResults = 0;
 		currentPage = 1;
 		updateTable();
 	}
 
+	// Nạp lại bảng từ đầu; các trang được truy vấn nền khi người dùng cuộn tới
 	private void updateTable() {
-		int offset = (currentPage - 1) * rowsPerPage;
-
-		int totalPatients = getTotalCount();
-		List<Patient> pagePatients = fetchPatients(offset, rowsPerPage);
-
-		totalPages = Math.max(1, (int) Math.ceil((double) totalPatients / rowsPerPage));
-		if (currentPage > totalPages) {
-			currentPage = totalPages;
-			offset = (currentPage - 1) * rowsPerPage;
-			pagePatients = fetchPatients(offset, rowsPerPage);
+		boolean searching = isSearching;
+		String keyword = currentSearchKeyword;
+		String field = currentSearchField;
+		List<Patient> results = searchResults;
+		if (searching && results != null) {
+			tableModel.reload((offset, limit) -> {
+				int end = Math.min(offset + limit, results.size());
+				List<Patient> rows = (offset < end) ? results.subList(offset, end) : List.of();
+				return new PagedResult<>(rows, results.size(), offset, limit);
+			});
+			return;
 		}
-
-		// Đảm bảo không null
-		currentPagePatients = (pagePatients != null) ? pagePatients : List.of();
-
-		patientManagementView.renderPatientTable(currentPagePatients, offset);
-		patientManagementView.updatePageInfo(currentPage, totalPages);
+		if (searching) {
+			tableModel.reload((offset, limit) -> patientService.searchPatientsPage(keyword, field, offset, limit));
+			return;
+		}
+		// Cuộn tuần tự: trang sau lấy theo keyset (id) từ dòng cuối của trang trước
+		tableModel.reload(patientService::getPatientsPage, (anchor, limit) -> patientService
+				.getPatientsSeek(anchor.getId(), PageHelper.Direction.NEXT, limit));
 	}
 
-	private List<Patient> fetchPatients(int offset, int limit) {
-		if (isSearching)
-			return patientService.searchPatients(currentSearchKeyword, currentSearchField, offset, limit);
-		return patientService.getPatients(offset, limit);
+	private void onTotalLoaded(int total) {
+		totalPatients = total;
+		totalPages = Math.max(1, (int) Math.ceil((double) total / rowsPerPage));
+		updatePageInfo();
+
+		if (notifyEmptyResult && total <= 0) {
+			patientManagementView.showInfo("No patients found!");
+		}
+		notifyEmptyResult = false;
 	}
 
-	private int getTotalCount() {
-		if (isSearching)
-			return totalSearchResults;
-		return patientService.countPatients();
+	private void updatePageInfo() {
+		currentPage = Math.min(totalPages, patientManagementView.getFirstVisibleRow() / rowsPerPage + 1);
+		patientManagementView.updatePageInfo(currentPage, totalPages);
 	}
 
 	// Hàm chức năng cho phần Header
 	private void searchUsers() {
-		currentSearchKeyword = patientManagementView.getSearchField().getText().trim();
-		currentSearchField = (String) patientManagementView.getSearchTypeCombo().getSelectedItem();
+		notifyEmptyResult = true;
+		incrementalSearch.searchNow();
+	}
 
-		if (currentSearchKeyword.isEmpty()) {
-			resetState();
-			loadAllPatients();
+	// Nhận kết quả trên EDT, từ database hoặc lọc lại từ kết quả của từ khóa ngắn hơn
+	private void onSearchResults(String keyword, String field, List<Patient> rows, boolean truncated) {
+		if (keyword.isEmpty()) {
+			notifyEmptyResult = false;
+			if (isSearching) {
+				isSearching = false;
+				searchResults = null;
+				currentPage = 1;
+				updateTable();
+			}
 			return;
 		}
 
+		currentSearchKeyword = keyword;
+		currentSearchField = field;
 		isSearching = true;
-		totalSearchResults = patientService.countSearchPatients(currentSearchKeyword, currentSearchField);
-
-		if (totalSearchResults <= 0) {
-			patientManagementView.showInfo("No patients found!");
-			renderEmptyTable();
-			return;
-		}
-
+		searchResults = truncated ? null : rows;
 		currentPage = 1;
 		updateTable();
 	}
 
-	private void renderEmptyTable() {
-		patientManagementView.renderPatientTable(List.of(), 0);
-		patientManagementView.updatePageInfo(1, 1);
+	private static boolean matchesKeyword(Patient patient, String foldedKeyword, String field) {
+		String value = switch (field.toLowerCase()) {
+			case "search by phone number" -> patient.getPhoneNumber();
+			case "search by citizen id" -> patient.getCitizenId();
+			case "search by code" -> patient.getCode();
+			default -> patient.getName();
+		};
+		return TextNormalizer.containsFolded(value, foldedKeyword);
+	}
+
+	// Sau khi thêm/sửa/xóa: kết quả tìm kiếm đang giữ đã cũ nên tìm lại, còn không thì nạp lại bảng
+	private void refreshAfterChange() {
+		incrementalSearch.invalidateCache();
+		if (isSearching && searchResults != null) {
+			incrementalSearch.searchNow();
+			return;
+		}
+		updateTable();
 	}
 
 	private void initCRUDActions() {
@@ -164,17 +198,23 @@ public class PatientController {
 		patientManagementView.getPatientProfileButton()
 				.addActionListener(e -> showPatientProfile(patientManagementView.getPatientTable().getSelectedRow()));
 		patientManagementView.getScanPatientButton().addActionListener(e -> scanPatient());
+		patientManagementView.getIntakeButton().addActionListener(e -> openIntakeQueue());
+		patientManagementView.getExportButton().addActionListener(e -> ExportProgressDialog.run(patientManagementView,
+				"Export Patients", "patients.xlsx", exportService::exportPatients));
+		patientManagementView.getImportButton().addActionListener(e -> ImportProgressDialog.run(patientManagementView,
+				"Import Patients", importService::importPatients, this::refreshAfterChange));
 	}
 
 	// Hàm chức năng cho phần Footer
-	public void showPatientForm(Patient patient) {
+	// Form modal; trả về true nếu bệnh nhân đã được lưu
+	public boolean showPatientForm(Patient patient) {
 		JFrame owner = (JFrame) SwingUtilities.getWindowAncestor(patientManagementView);
 		patientFormView = new PatientFormView(owner, patient);
 
 		initPatientFormActions();
 		applyRealtimeValidation();
 
-		patientFormView.showPatientForm();
+		return patientFormView.showPatientForm();
 	}
 
 	public void initPatientFormActions() {
@@ -221,7 +261,7 @@ public class PatientController {
 		if (originalPatient == null || originalPatient.getCode() == null) {
 			currentPage = 1;
 		}
-		updateTable();
+		refreshAfterChange();
 	}
 
 	private Patient prepareUserFromForm() {
@@ -299,19 +339,23 @@ public class PatientController {
 
 	// Code làm việc với bệnh nhân trong bảng
 	private boolean isRowSelected(int rowIndex) {
-		if (currentPagePatients == null || currentPagePatients.isEmpty()) {
+		if (tableModel.getRowCount() == 0) {
 			patientManagementView.showWarning("No patients available.");
 			return false;
 		}
-		if (rowIndex < 0 || rowIndex >= currentPagePatients.size()) {
+		if (rowIndex < 0 || rowIndex >= tableModel.getRowCount()) {
 			patientManagementView.showWarning("Please select a valid user.");
 			return false;
 		}
+		if (tableModel.getRow(rowIndex) == null) {
+			patientManagementView.showWarning("Patient data is still loading, please try again.");
+			return false;
+		}
 		return true;
 	}
 
 	private Patient getSelectedPatient(int rowIndex) {
-		return currentPagePatients.get(rowIndex);
+		return tableModel.getRow(rowIndex);
 	}
 
 	
@@ -341,20 +385,12 @@ public class PatientController {
 			return;
 
 		if (patientService.deletePatient(patient.getCode())) {
-			adjustPaginationAfterDelete();
-			updateTable();
+			refreshAfterChange();
 			patientManagementView.showInfo("Patient deleted successfully.");
 		} else {
 			patientManagementView.showError("Failed to delete patient.");
 		}
 	}
-	
-	private void adjustPaginationAfterDelete() {
-		int totalUsers = patientService.countPatients();
-		int totalPages = Math.max(1, (int) Math.ceil((double) totalUsers / rowsPerPage));
-		if (currentPage > totalPages)
-			currentPage = totalPages;
-	}
 
 	private void scanPatient() {
 		JFileChooser fileChooser = new JFileChooser();
@@ -364,22 +400,7 @@ public class PatientController {
 
 		if (fileChooser.showOpenDialog(patientManagementView) == JFileChooser.APPROVE_OPTION) {
 			try {
-				File file = fileChooser.getSelectedFile();
-				BufferedImage bufferedImage = ImageIO.read(file);
-				LuminanceSource source = new BufferedImageLuminanceSource(bufferedImage);
-				BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-
-				Map<DecodeHintType, Object> hints = new HashMap<>();
-				hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
-
-				Result result = new MultiFormatReader().decode(bitmap, hints);
-				String qrContent = result.getText();
-
-				ObjectMapper objectMapper = new ObjectMapper();
-				objectMapper.registerModule(new JavaTimeModule());
-				objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-
-				Patient patient = objectMapper.readValue(qrContent, Patient.class);
+				Patient patient = PatientQrDecoder.decode(fileChooser.getSelectedFile().toPath());
 				patient.setCode(patientService.generateNextPatientCode());
 				patient.setProfileImage("/images/for_avatar/avt_patient.png");
 
@@ -393,6 +414,18 @@ public class PatientController {
 		}
 	}
 	
+	// Hàng chờ từ thư mục quét QR; chỉ mở một cửa sổ, mở lại thì đưa cửa sổ cũ lên trước
+	private void openIntakeQueue() {
+		if (patientIntakeView != null && patientIntakeView.isDisplayable()) {
+			patientIntakeView.toFront();
+			return;
+		}
+		JFrame owner = (JFrame) SwingUtilities.getWindowAncestor(patientManagementView);
+		patientIntakeView = new PatientIntakeView(owner);
+		new PatientIntakeController(patientIntakeView, this::showPatientForm);
+		patientIntakeView.setVisible(true);
+	}
+
 	private void showPatientProfile(int rowIndex) {
 		if (!isRowSelected(rowIndex))
 			return;
@@ -447,15 +480,13 @@ public class PatientController {
 
 	public void nextPage() {
 		if (currentPage < totalPages) {
-			currentPage++;
-			updateTable();
+			patientManagementView.scrollToRow(currentPage * rowsPerPage);
 		}
 	}
 
 	public void previousPage() {
 		if (currentPage > 1) {
-			currentPage--;
-			updateTable();
+			patientManagementView.scrollToRow((currentPage - 2) * rowsPerPage);
 		}
 	}
 }
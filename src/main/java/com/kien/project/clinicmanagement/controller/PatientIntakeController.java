@@ -0,0 +1,145 @@
+package com.kien.project.clinicmanagement.controller;
+
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import com.kien.project.clinicmanagement.dto.PendingRegistration;
+import com.kien.project.clinicmanagement.model.Patient;
+import com.kien.project.clinicmanagement.service.PatientIntakeService;
+import com.kien.project.clinicmanagement.service.PatientService;
+import com.kien.project.clinicmanagement.view.patient.PatientIntakeView;
+
+public class PatientIntakeController {
+
+	private final PatientIntakeView intakeView;
+	private final PatientIntakeService intakeService = PatientIntakeService.getInstance();
+	private final PatientService patientService = new PatientService();
+	// Mở form bệnh nhân (modal), trả về true nếu đã lưu
+	private final Predicate<Patient> patientForm;
+	private Path folder;
+
+	// Service gọi listener trên luồng nền nên mọi cập nhật giao diện được chuyển sang EDT
+	private final PatientIntakeService.Listener listener = new PatientIntakeService.Listener() {
+		@Override
+		public void onPendingChanged() {
+			SwingUtilities.invokeLater(PatientIntakeController.this::refresh);
+		}
+
+		@Override
+		public void onFailed(String fileName, String reason) {
+			SwingUtilities.invokeLater(PatientIntakeController.this::updateStatus);
+		}
+	};
+
+	public PatientIntakeController(PatientIntakeView intakeView, Predicate<Patient> patientForm) {
+		this.intakeView = intakeView;
+		this.patientForm = patientForm;
+		this.folder = intakeService.isRunning() ? intakeService.getFolder() : PatientIntakeService.defaultFolder();
+
+		initActions();
+		intakeService.addListener(listener);
+		intakeView.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				intakeService.removeListener(listener);
+			}
+		});
+		intakeView.setFolderText(folder.toString());
+		refresh();
+	}
+
+	private void initActions() {
+		intakeView.getChooseFolderButton().addActionListener(e -> chooseFolder());
+		intakeView.getStartStopButton().addActionListener(e -> toggleWatching());
+		intakeView.getRegisterButton().addActionListener(e -> registerSelected());
+		intakeView.getDiscardButton().addActionListener(e -> discardSelected());
+		intakeView.getCloseButton().addActionListener(e -> intakeView.dispose());
+	}
+
+	private void chooseFolder() {
+		JFileChooser fileChooser = new JFileChooser(folder.toFile());
+		fileChooser.setDialogTitle("Choose the folder scanned QR images are saved to");
+		fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		if (fileChooser.showOpenDialog(intakeView) == JFileChooser.APPROVE_OPTION) {
+			folder = fileChooser.getSelectedFile().toPath();
+			intakeView.setFolderText(folder.toString());
+		}
+	}
+
+	private void toggleWatching() {
+		if (intakeService.isRunning()) {
+			intakeService.stop();
+		} else {
+			try {
+				intakeService.start(folder);
+			} catch (IOException e) {
+				e.printStackTrace();
+				intakeView.showError("Cannot watch folder " + folder + ": " + e.getMessage());
+			}
+		}
+		refresh();
+	}
+
+	private void registerSelected() {
+		PendingRegistration registration = intakeView.getSelectedRegistration();
+		if (registration == null) {
+			intakeView.showWarning("Please select a registration.");
+			return;
+		}
+		if (registration.isAlreadyRegistered()) {
+			intakeView.showWarning("This patient is already registered as " + registration.getExistingPatientCode()
+					+ ".\nDiscard the scan or search the patient list for that code.");
+			return;
+		}
+
+		Patient patient = registration.getPatient();
+		// Cấp mã khi lễ tân xác nhận, ảnh bị bỏ qua sẽ không tốn mã
+		patient.setCode(patientService.generateNextPatientCode());
+		patient.setProfileImage("/images/for_avatar/avt_patient.png");
+		if (patientForm.test(patient)) {
+			intakeService.complete(registration.getId());
+		}
+	}
+
+	private void discardSelected() {
+		PendingRegistration registration = intakeView.getSelectedRegistration();
+		if (registration == null) {
+			intakeView.showWarning("Please select a registration.");
+			return;
+		}
+		int option = JOptionPane.showConfirmDialog(intakeView,
+				"Discard the scan of " + registration.getPatient().getName() + "?", "Confirm",
+				JOptionPane.YES_NO_OPTION);
+		if (option == JOptionPane.YES_OPTION) {
+			intakeService.discard(registration.getId());
+		}
+	}
+
+	private void refresh() {
+		List<PendingRegistration> registrations = intakeService.getPending();
+		intakeView.setRegistrations(registrations);
+		intakeView.setRunning(intakeService.isRunning());
+		updateStatus();
+	}
+
+	private void updateStatus() {
+		if (!intakeService.isRunning()) {
+			intakeView.setStatusText("Stopped");
+			return;
+		}
+		String status = "Watching - " + intakeService.getPending().size() + " pending";
+		int failed = intakeService.getFailedCount();
+		if (failed > 0) {
+			status += ", " + failed + " unreadable (moved to failed/)";
+		}
+		intakeView.setStatusText(status);
+	}
+}
@@ -8,9 +8,12 @@ import java.util.List;
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.service.PatientService;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.IncrementalSearch;
+import com.kien.project.clinicmanagement.utils.TextNormalizer;
 import com.kien.project.clinicmanagement.view.patient.PatientFormView;
 import com.kien.project.clinicmanagement.view.patient.PatientSelectionView;
 
@@ -30,10 +33,18 @@ public class PatientSelectionController {
 	private boolean isSearching = false;
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
-	private int totalSearchResults = 0;
+	// Tìm khi đang gõ: kết quả (tối đa SEARCH_LIMIT dòng) được phân trang ngay trong bộ nhớ,
+	// null nghĩa là kết quả quá nhiều và phải phân trang bằng truy vấn như trước
+	private static final int SEARCH_LIMIT = 200;
+	private final IncrementalSearch<Patient> incrementalSearch;
+	private List<Patient> searchResults;
+	private boolean explicitSearch = false;
 
 	public PatientSelectionController(PatientSelectionView patientSelectionView) {
 		this.patientSelectionView = patientSelectionView;
+		this.incrementalSearch = new IncrementalSearch<>(patientSelectionView.getSearchField(),
+				patientSelectionView.getSearchCombo(), SEARCH_LIMIT, patientService::searchPatientsForLookup,
+				PatientSelectionController::matchesKeyword, this::onSearchResults);
 		loadAllPatients();
 		initHeaderActions();
 		initCRUDActions();
@@ -50,84 +61,92 @@ public class PatientSelectionController {
 	}
 	
 	private void resetState() {
+		incrementalSearch.reset();
 		patientSelectionView.getSearchField().setText("");
 		isSearching = false;
+		searchResults = null;
 		currentSearchKeyword = "";
 		currentSearchField = "";
-		totalSearchResults = 0;
 		currentPage = 1;
 		updateTable();
 	}
 	
 	private void loadAllPatients() {
 		resetState();
-		totalPatients = getTotalCount();
-		totalPages = Math.max(1, (int) Math.ceil((double) totalPatients / rowsPerPage));
-		currentPage = 1;
-		updateTable();
 	}
 	
 	private void updateTable() {
 		int offset = (currentPage - 1) * rowsPerPage;
-		
-		int totalPatients = getTotalCount();
-		totalPages = Math.max(1, (int) Math.ceil((double) totalPatients / rowsPerPage));
+
+		// Trang dữ liệu và tổng số dòng lấy về trong cùng một truy vấn
+		PagedResult<Patient> page = fetchPatients(offset, rowsPerPage);
+		totalPages = page.getTotalPages();
 		
 		if (currentPage > totalPages) {
 	        currentPage = totalPages;
 	        offset = (currentPage - 1) * rowsPerPage;
+	        page = fetchPatients(offset, rowsPerPage);
 	    }
 
-	    List<Patient> pagePatients = fetchPatients(offset, rowsPerPage);
-	    currentPagePatients = (pagePatients != null) ? pagePatients : List.of();
+	    totalPatients = page.getTotal();
+	    currentPagePatients = page.getRows();
 
 
 	    patientSelectionView.renderPatientTable(currentPagePatients, offset);
 	    patientSelectionView.updatePageInfo(currentPage, totalPages);
 
-	    if (currentPagePatients.isEmpty()) {
+	    // Đang gõ thì không bật hộp thoại, tránh mất focus ô tìm kiếm
+	    if (currentPagePatients.isEmpty() && (!isSearching || explicitSearch)) {
 	    		patientSelectionView.showInfo("No patients found!");
 	    }
+	    explicitSearch = false;
 	}
 	
-	private List<Patient> fetchPatients(int offset, int limit) {
-		if (isSearching)
-			return patientService.searchPatients(currentSearchKeyword, currentSearchField, offset, limit);
-		return patientService.getPatients(offset, limit);
-	}
-
-	private int getTotalCount() {
+	private PagedResult<Patient> fetchPatients(int offset, int limit) {
+		if (isSearching && searchResults != null) {
+			int end = Math.min(offset + limit, searchResults.size());
+			List<Patient> rows = (offset < end) ? searchResults.subList(offset, end) : List.of();
+			return new PagedResult<>(rows, searchResults.size(), offset, limit);
+		}
 		if (isSearching)
-			return totalSearchResults;
-		return patientService.countPatients();
+			return patientService.searchPatientsPage(currentSearchKeyword, currentSearchField, offset, limit);
+		return patientService.getPatientsPage(offset, limit);
 	}
 	
 	private void handleSearch() {
-		currentSearchKeyword = patientSelectionView.getSearchField().getText().trim();
-		currentSearchField = (String) patientSelectionView.getSearchCombo().getSelectedItem();
+		explicitSearch = true;
+		incrementalSearch.searchNow();
+	}
 
-		if (currentSearchKeyword.isEmpty()) {
-			resetState();
-			loadAllPatients();
+	// Nhận kết quả trên EDT, từ database hoặc lọc lại từ kết quả của từ khóa ngắn hơn
+	private void onSearchResults(String keyword, String field, List<Patient> rows, boolean truncated) {
+		if (keyword.isEmpty()) {
+			explicitSearch = false;
+			if (isSearching) {
+				isSearching = false;
+				searchResults = null;
+				currentPage = 1;
+				updateTable();
+			}
 			return;
 		}
-		
+
+		currentSearchKeyword = keyword;
+		currentSearchField = field;
 		isSearching = true;
-		totalSearchResults = patientService.countSearchPatients(currentSearchKeyword, currentSearchField);
-		
-		if (totalSearchResults <= 0) {
-			patientSelectionView.showInfo("No patients found!");
-			renderEmptyTable();
-			return;
-		}
-		
+		searchResults = truncated ? null : rows;
 		currentPage = 1;
 		updateTable();
 	}
-	
-	private void renderEmptyTable() {
-		patientSelectionView.renderPatientTable(List.of(), 0);
-		patientSelectionView.updatePageInfo(1, 1);
+
+	private static boolean matchesKeyword(Patient patient, String foldedKeyword, String field) {
+		String value = switch (field.toLowerCase()) {
+			case "search by phone number" -> patient.getPhoneNumber();
+			case "search by citizen id" -> patient.getCitizenId();
+			case "search by code" -> patient.getCode();
+			default -> patient.getName();
+		};
+		return TextNormalizer.containsFolded(value, foldedKeyword);
 	}
 	
 
@@ -198,6 +217,12 @@ public class PatientSelectionController {
 	}
 
 	private void handleUserSave(Patient originalPatient) {
+		incrementalSearch.invalidateCache();
+		if (isSearching && searchResults != null) {
+			// Kết quả đang giữ trong bộ nhớ đã cũ, tìm lại với từ khóa hiện tại
+			incrementalSearch.searchNow();
+			return;
+		}
 		if (originalPatient == null || originalPatient.getCode() == null) {
 			currentPage = 1;
 		}
@@ -0,0 +1,92 @@
+package com.kien.project.clinicmanagement.controller;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.InventoryMovement;
+import com.kien.project.clinicmanagement.service.MedicineService;
+import com.kien.project.clinicmanagement.view.medicine.StockHistoryView;
+
+public class StockHistoryController {
+
+	// Mặc định xem 30 ngày gần nhất
+	private static final int DEFAULT_DAYS = 30;
+	private static final int ROWS_PER_PAGE = 20;
+
+	private final StockHistoryView stockHistoryView;
+	private final MedicineService medicineService = new MedicineService();
+
+	private LocalDate fromDate;
+	private LocalDate toDate;
+	private int currentPage = 1;
+	private int totalPages = 1;
+
+	public StockHistoryController(StockHistoryView stockHistoryView) {
+		this.stockHistoryView = stockHistoryView;
+
+		toDate = LocalDate.now();
+		fromDate = toDate.minusDays(DEFAULT_DAYS);
+		stockHistoryView.getFromField().setText(fromDate.toString());
+		stockHistoryView.getToField().setText(toDate.toString());
+
+		initActions();
+		loadHistory();
+		stockHistoryView.renderLots(medicineService.getLots(stockHistoryView.getMedicine().getCode()));
+	}
+
+	private void initActions() {
+		stockHistoryView.getShowButton().addActionListener(e -> applyDateRange());
+		stockHistoryView.getFromField().addActionListener(e -> applyDateRange());
+		stockHistoryView.getToField().addActionListener(e -> applyDateRange());
+		stockHistoryView.getPrevPageButton().addActionListener(e -> previousPage());
+		stockHistoryView.getNextPageButton().addActionListener(e -> nextPage());
+	}
+
+	private void applyDateRange() {
+		try {
+			LocalDate from = LocalDate.parse(stockHistoryView.getFromField().getText().trim());
+			LocalDate to = LocalDate.parse(stockHistoryView.getToField().getText().trim());
+			if (from.isAfter(to)) {
+				stockHistoryView.showWarning("From date must not be after To date.");
+				return;
+			}
+			fromDate = from;
+			toDate = to;
+			currentPage = 1;
+			loadHistory();
+		} catch (DateTimeParseException e) {
+			stockHistoryView.showError("Dates must be in the format yyyy-MM-dd.");
+		}
+	}
+
+	// Tồn kho cuối ngày "To" và trang hiện tại của các dòng nhập/xuất trong khoảng [From, To]
+	private void loadHistory() {
+		String code = stockHistoryView.getMedicine().getCode();
+		LocalDateTime endExclusive = toDate.plusDays(1).atStartOfDay();
+
+		Integer stock = medicineService.getStockAt(code, endExclusive.minusNanos(1000));
+		stockHistoryView.setStockAtText(stock != null ? "Stock at end of " + toDate + ": " + stock : " ");
+
+		PagedResult<InventoryMovement> page = medicineService.getInventoryMovements(code, fromDate.atStartOfDay(),
+				endExclusive, (currentPage - 1) * ROWS_PER_PAGE, ROWS_PER_PAGE);
+		totalPages = page.getTotalPages();
+		stockHistoryView.renderMovements(page.getRows());
+		stockHistoryView.updatePageInfo(currentPage, totalPages);
+	}
+
+	private void nextPage() {
+		if (currentPage < totalPages) {
+			currentPage++;
+			loadHistory();
+		}
+	}
+
+	private void previousPage() {
+		if (currentPage > 1) {
+			currentPage--;
+			loadHistory();
+		}
+	}
+}
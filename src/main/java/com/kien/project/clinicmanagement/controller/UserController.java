@@ -6,6 +6,8 @@ import java.util.List;
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.OutgoingMail;
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.service.UserService;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
@@ -28,11 +30,9 @@ public class UserController {
 	private boolean isSearching = false;
 	private String currentSearchKeyword = "";
 	private String currentSearchField = "";
-	private int totalSearchResults = 0;
 	// Lọc
 	private boolean isFiltering = false;
 	private String currentRoleFilter = "All";
-	private int totalRoleUsers = 0;
 
 	public UserController(UserManagementView userManagementView) {
 		this.userManagementView = userManagementView;
@@ -45,10 +45,6 @@ public class UserController {
 	// Hàm lấy tất cả người dùng
 	public void loadAllUsers() {
 	    resetState();
-	    totalUsers = userService.countUsers("ALL");
-	    totalPages = Math.max(1, (int) Math.ceil((double) totalUsers / rowsPerPage));
-	    currentPage = 1;
-	    updateTable();
 	}
 
 	// Chỉ reset biến trạng thái, không đụng UI
@@ -59,42 +55,39 @@ public class UserController {
 	    currentSearchKeyword = "";
 	    currentSearchField = "";
 	    currentRoleFilter = "";
-	    totalSearchResults = 0;
-	    totalRoleUsers = 0;
 	    currentPage = 1;
 	    updateTable();
 	}
 
 	// Cập nhật bảng người dùng với phân trang
 	private void updateTable() {
-	    // Đảm bảo totalPages luôn đúng
-	    totalUsers = getTotalCount();
-	    totalPages = Math.max(1, (int) Math.ceil((double) totalUsers / rowsPerPage));
-
-	    currentPage = Math.max(1, Math.min(currentPage, totalPages));
+	    currentPage = Math.max(1, currentPage);
 	    int offset = (currentPage - 1) * rowsPerPage;
 
-	    List<User> pageUsers = fetchUsers(offset, rowsPerPage);
-	    currentPageUsers = (pageUsers != null) ? pageUsers : List.of();
+	    // Trang dữ liệu và tổng số dòng lấy về trong cùng một truy vấn
+	    PagedResult<User> page = fetchUsers(offset, rowsPerPage);
+
+	    // Đảm bảo totalPages luôn đúng
+	    totalPages = page.getTotalPages();
+	    if (currentPage > totalPages) {
+	        currentPage = totalPages;
+	        offset = (currentPage - 1) * rowsPerPage;
+	        page = fetchUsers(offset, rowsPerPage);
+	    }
+
+	    totalUsers = page.getTotal();
+	    currentPageUsers = page.getRows();
 
 	    userManagementView.renderUserTable(currentPageUsers, offset);
 	    userManagementView.updatePageInfo(currentPage, totalPages);
 	}
 
-	private List<User> fetchUsers(int offset, int limit) {
+	private PagedResult<User> fetchUsers(int offset, int limit) {
 	    if (isSearching)
-	        return userService.searchUsers(currentSearchKeyword, currentSearchField, "All", offset, limit);
+	        return userService.searchUsersPage(currentSearchKeyword, currentSearchField, "All", offset, limit);
 	    if (isFiltering)
-	        return userService.filterUsersByRole(currentRoleFilter, offset, limit);
-	    return userService.getUsers("ALL", offset, limit);
-	}
-
-	private int getTotalCount() {
-	    if (isSearching)
-	        return totalSearchResults;
-	    if (isFiltering)
-	        return totalRoleUsers;
-	    return totalUsers;
+	        return userService.filterUsersByRolePage(currentRoleFilter, offset, limit);
+	    return userService.getUsersPage("ALL", offset, limit);
 	}
 
 	// Gắn sự kiện cho header
@@ -121,16 +114,13 @@ public class UserController {
 	    // Đặt trạng thái tìm kiếm
 	    isSearching = true;
 	    isFiltering = false; // tránh xung đột
-	    totalSearchResults = userService.countSearchUsers(currentSearchKeyword, currentSearchField, "ALL");
+	    currentPage = 1;
+	    updateTable();
 
 	    // Không có kết quả
-	    if (totalSearchResults <= 0) {
-	        handleNoResults("No users found!");
-	        return;
+	    if (totalUsers <= 0) {
+	        userManagementView.showInfo("No users found!");
 	    }
-
-	    currentPage = 1;
-	    updateTable();
 	}
 
 	// Lọc người dùng theo vai trò
@@ -146,27 +136,13 @@ public class UserController {
 	    // Đặt trạng thái lọc
 	    isFiltering = true;
 	    isSearching = false; // tránh xung đột
-	    totalRoleUsers = userService.countUsersByRole(currentRoleFilter);
-
-	    // Không có kết quả
-	    if (totalRoleUsers <= 0) {
-	        handleNoResults("No users found for selected role!");
-	        return;
-	    }
-
 	    currentPage = 1;
 	    updateTable();
-	}
-
-	// Xử lý khi không có kết quả tìm kiếm hoặc lọc
-	private void handleNoResults(String message) {
-	    userManagementView.showInfo(message);
-	    renderEmptyTable();
-	}
 
-	private void renderEmptyTable() {
-	    userManagementView.renderUserTable(List.of(), 0);
-	    userManagementView.updatePageInfo(1, 1);
+	    // Không có kết quả
+	    if (totalUsers <= 0) {
+	        userManagementView.showInfo("No users found for selected role!");
+	    }
 	}
 
 
@@ -375,7 +351,6 @@ public class UserController {
 		String result = userService.deleteUser(user.getCode());
 
 		if (result == null) {
-			adjustPaginationAfterDelete();
 			updateTable();
 			userManagementView.showInfo("User deleted successfully.");
 		} else {
@@ -383,13 +358,6 @@ public class UserController {
 		}
 	}
 
-	private void adjustPaginationAfterDelete() {
-		int totalUsers = userService.countUsers("ALL");
-		int totalPages = Math.max(1, (int) Math.ceil((double) totalUsers / rowsPerPage));
-		if (currentPage > totalPages)
-			currentPage = totalPages;
-	}
-
 	// Reset password
 	public void resetPassword(int rowIndex) {
 		if (!isRowSelected(rowIndex))
@@ -399,13 +367,15 @@ public class UserController {
 		if (!userManagementView.confirmResetUserPassword(user))
 			return;
 
-		boolean success = userService.resetPassword(user, userManagementView);
-		String message = "Password for user " + user.getUsername()
-				+ (success ? " has been reset." : " could not be reset.");
-		if (success)
-			userManagementView.showInfo(message);
-		else
-			userManagementView.showError(message);
+		// Mật khẩu chỉ đổi sau khi thư đã gửi; báo kết quả khi hộp thư đi gửi xong
+		userManagementView.showInfo("A new password is being sent to " + user.getEmail() + ".");
+		userService.resetPassword(user).thenAccept(status -> SwingUtilities.invokeLater(() -> {
+			if (status == OutgoingMail.Status.SENT)
+				userManagementView.showInfo("Password for user " + user.getUsername() + " has been reset.");
+			else
+				userManagementView.showError("Password for user " + user.getUsername()
+						+ " could not be reset: the email was not delivered.");
+		}));
 	}
 
 	private void showUserDetail(int rowIndex) {
@@ -3,25 +3,26 @@ package com.kien.project.clinicmanagement.dao;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.Appointment;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.PageHelper;
 
 public class AppointmentDAO {
 
+	// Tên bệnh nhân / bác sĩ / người tạo được ghép từ cache thay vì JOIN
+	private final NameResolver nameResolver = NameResolver.getInstance();
+
 	// Hàm lấy tất cả lịch hẹn
 	public List<Appointment> getAllAppointments() {
 		String sql = """
-			    SELECT a.*, 
-			           p.name AS patientName, 
-			           d.name AS doctorName, 
-			           cb.name AS createdByName
+			    SELECT a.*
 			    FROM appointment a
-			    LEFT JOIN patient_profile p ON a.patient_code = p.code
-			    LEFT JOIN profile d ON a.doctor_code = d.user_code
-			    LEFT JOIN profile cb ON a.created_by = cb.user_code
-			    ORDER BY a.scheduled_date DESC
+			    ORDER BY a.scheduled_date DESC, a.id DESC
 			    """;
 	    List<Appointment> list = new ArrayList<>();
 	    try (Connection con = ConnectionDatabase.getConnection();
@@ -33,6 +34,7 @@ public class AppointmentDAO {
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	    }
+	    nameResolver.fillAppointmentNames(list);
 	    return list;
 	}
 	
@@ -53,18 +55,19 @@ public class AppointmentDAO {
 
 	// Lấy danh sách lịch hẹn có phân trang
 	public List<Appointment> getAppointments(int offset, int limit) {
+	    return getAppointmentsPage(offset, limit).getRows();
+	}
+
+	// Trang dữ liệu kèm tổng số dòng (COUNT(*) OVER()) trong một truy vấn
+	public PagedResult<Appointment> getAppointmentsPage(int offset, int limit) {
 	    List<Appointment> list = new ArrayList<>();
+	    int total = 0;
 
 	    String sql = """
 	        SELECT a.*, 
-	               p.name AS patientName, 
-	               d.name AS doctorName, 
-	               cb.name AS createdByName
+	               COUNT(*) OVER() AS total_count
 	        FROM appointment a
-	        LEFT JOIN patient_profile p ON a.patient_code = p.code
-	        LEFT JOIN profile d ON a.doctor_code = d.user_code
-	        LEFT JOIN profile cb ON a.created_by = cb.user_code
-	        ORDER BY a.scheduled_date DESC
+	        ORDER BY a.scheduled_date DESC, a.id DESC
 	        LIMIT ? OFFSET ?
 	    """;
 
@@ -76,6 +79,7 @@ public class AppointmentDAO {
 
 	        try (ResultSet rs = stmt.executeQuery()) {
 	            while (rs.next()) {
+	                total = rs.getInt("total_count");
 	                list.add(mapResultSetToAppointment(rs));
 	            }
 	        }
@@ -83,13 +87,28 @@ public class AppointmentDAO {
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	    }
+	    nameResolver.fillAppointmentNames(list);
 
-	    return list;
+	    // Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+	    if (list.isEmpty() && offset > 0)
+	        total = countAppointments();
+	    return new PagedResult<>(list, total, offset, limit);
+	}
+
+	// Phân trang keyset theo (scheduled_date, id) tính từ dòng mốc của trang hiện tại
+	public List<Appointment> getAppointmentsSeek(java.util.Date anchorDate, long anchorId,
+	        PageHelper.Direction direction, int limit) {
+	    return getAppointmentsByUserSeek(null, "ADMIN", anchorDate, anchorId, direction, limit);
 	}
 
 	// Tìm kiếm lịch hẹn có phân trang (theo tên bệnh nhân hoặc tên bác sĩ)
 	public List<Appointment> searchAppointments(String keyword, String field, int offset, int limit) {
+	    return searchAppointmentsPage(keyword, field, offset, limit).getRows();
+	}
+
+	public PagedResult<Appointment> searchAppointmentsPage(String keyword, String field, int offset, int limit) {
 	    List<Appointment> list = new ArrayList<>();
+	    int total = 0;
 
 	    String whereClause;
 	    switch (field.toLowerCase()) {
@@ -100,15 +119,12 @@ public class AppointmentDAO {
 
 	    String sql = """
 	        SELECT a.*, 
-	               p.name AS patientName, 
-	               d.name AS doctorName, 
-	               cb.name AS createdByName
+	               COUNT(*) OVER() AS total_count
 	        FROM appointment a
 	        LEFT JOIN patient_profile p ON a.patient_code = p.code
 	        LEFT JOIN profile d ON a.doctor_code = d.user_code
-	        LEFT JOIN profile cb ON a.created_by = cb.user_code
 	        WHERE %s
-	        ORDER BY a.scheduled_date DESC
+	        ORDER BY a.scheduled_date DESC, a.id DESC
 	        LIMIT ? OFFSET ?
 	    """.formatted(whereClause);
 
@@ -121,6 +137,7 @@ public class AppointmentDAO {
 
 	        try (ResultSet rs = stmt.executeQuery()) {
 	            while (rs.next()) {
+	                total = rs.getInt("total_count");
 	                list.add(mapResultSetToAppointment(rs));
 	            }
 	        }
@@ -128,8 +145,12 @@ public class AppointmentDAO {
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	    }
+	    nameResolver.fillAppointmentNames(list);
 
-	    return list;
+	    // Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+	    if (list.isEmpty() && offset > 0)
+	        total = countSearchAppointments(keyword, field);
+	    return new PagedResult<>(list, total, offset, limit);
 	}
 
 	// Đếm tổng số lịch hẹn khi tìm kiếm
@@ -192,7 +213,12 @@ public class AppointmentDAO {
 
 	// Lấy danh sách lịch hẹn có phân trang theo user
 	public List<Appointment> getAppointmentsByUser(String userCode, String role, int offset, int limit) {
+	    return getAppointmentsByUserPage(userCode, role, offset, limit).getRows();
+	}
+
+	public PagedResult<Appointment> getAppointmentsByUserPage(String userCode, String role, int offset, int limit) {
 	    List<Appointment> list = new ArrayList<>();
+	    int total = 0;
 	    String where = switch (role.toUpperCase()) {
 	        case "DOCTOR" -> "WHERE a.doctor_code = ?";
 	        case "RECEPTIONIST" -> "WHERE a.created_by = ?";
@@ -201,15 +227,10 @@ public class AppointmentDAO {
 
 	    String sql = """
 	        SELECT a.*, 
-	               p.name AS patientName, 
-	               d.name AS doctorName, 
-	               cb.name AS createdByName
+	               COUNT(*) OVER() AS total_count
 	        FROM appointment a
-	        LEFT JOIN patient_profile p ON a.patient_code = p.code
-	        LEFT JOIN profile d ON a.doctor_code = d.user_code
-	        LEFT JOIN profile cb ON a.created_by = cb.user_code
 	        %s
-	        ORDER BY a.scheduled_date DESC
+	        ORDER BY a.scheduled_date DESC, a.id DESC
 	        LIMIT ? OFFSET ?
 	    """.formatted(where);
 
@@ -223,6 +244,7 @@ public class AppointmentDAO {
 
 	        try (ResultSet rs = stmt.executeQuery()) {
 	            while (rs.next()) {
+	                total = rs.getInt("total_count");
 	                list.add(mapResultSetToAppointment(rs));
 	            }
 	        }
@@ -230,6 +252,59 @@ public class AppointmentDAO {
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	    }
+	    nameResolver.fillAppointmentNames(list);
+	    // Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+	    if (list.isEmpty() && offset > 0)
+	        total = countAppointmentsByUser(userCode, role);
+	    return new PagedResult<>(list, total, offset, limit);
+	}
+
+	// Phân trang keyset theo user; trang trước được đọc ngược chiều rồi đảo lại
+	public List<Appointment> getAppointmentsByUserSeek(String userCode, String role, java.util.Date anchorDate,
+	        long anchorId, PageHelper.Direction direction, int limit) {
+	    List<Appointment> list = new ArrayList<>();
+	    boolean next = direction == PageHelper.Direction.NEXT;
+	    String userFilter = switch (role.toUpperCase()) {
+	        case "DOCTOR" -> "a.doctor_code = ? AND ";
+	        case "RECEPTIONIST" -> "a.created_by = ? AND ";
+	        default -> "";
+	    };
+	    String cmp = next ? "<" : ">";
+	    String order = next ? "DESC" : "ASC";
+
+	    String sql = """
+	        SELECT a.*
+	        FROM appointment a
+	        WHERE %s(a.scheduled_date %s ? OR (a.scheduled_date = ? AND a.id %s ?))
+	        ORDER BY a.scheduled_date %s, a.id %s
+	        LIMIT ?
+	    """.formatted(userFilter, cmp, cmp, order, order);
+
+	    try (Connection conn = ConnectionDatabase.getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+	        Date scheduled = new Date(anchorDate.getTime());
+	        int index = 1;
+	        if (!userFilter.isEmpty()) stmt.setString(index++, userCode);
+	        stmt.setDate(index++, scheduled);
+	        stmt.setDate(index++, scheduled);
+	        stmt.setLong(index++, anchorId);
+	        stmt.setInt(index, limit);
+
+	        try (ResultSet rs = stmt.executeQuery()) {
+	            while (rs.next()) {
+	                list.add(mapResultSetToAppointment(rs));
+	            }
+	        }
+
+	    } catch (Exception e) {
+	        e.printStackTrace();
+	    }
+	    nameResolver.fillAppointmentNames(list);
+
+	    if (!next) {
+	        Collections.reverse(list);
+	    }
 	    return list;
 	}
 
@@ -268,7 +343,12 @@ public class AppointmentDAO {
 
 	// Tìm kiếm lịch hẹn theo user có phân trang
 	public List<Appointment> searchAppointmentsByUser(String userCode, String role, String keyword, String field, int offset, int limit) {
+	    return searchAppointmentsByUserPage(userCode, role, keyword, field, offset, limit).getRows();
+	}
+
+	public PagedResult<Appointment> searchAppointmentsByUserPage(String userCode, String role, String keyword, String field, int offset, int limit) {
 	    List<Appointment> list = new ArrayList<>();
+	    int total = 0;
 	    String userColumn = role.equalsIgnoreCase("DOCTOR") ? "a.doctor_code" : "a.created_by";
 	    String whereField = switch (field.toLowerCase()) {
 	        case "search by patient name" -> "p.name LIKE ?";
@@ -278,15 +358,12 @@ public class AppointmentDAO {
 
 	    String sql = """
 	        SELECT a.*, 
-	               p.name AS patientName, 
-	               d.name AS doctorName, 
-	               cb.name AS createdByName
+	               COUNT(*) OVER() AS total_count
 	        FROM appointment a
 	        LEFT JOIN patient_profile p ON a.patient_code = p.code
 	        LEFT JOIN profile d ON a.doctor_code = d.user_code
-	        LEFT JOIN profile cb ON a.created_by = cb.user_code
 	        WHERE %s = ? AND %s
-	        ORDER BY a.scheduled_date DESC
+	        ORDER BY a.scheduled_date DESC, a.id DESC
 	        LIMIT ? OFFSET ?
 	    """.formatted(userColumn, whereField);
 
@@ -300,6 +377,7 @@ public class AppointmentDAO {
 
 	        try (ResultSet rs = stmt.executeQuery()) {
 	            while (rs.next()) {
+	                total = rs.getInt("total_count");
 	                list.add(mapResultSetToAppointment(rs));
 	            }
 	        }
@@ -307,24 +385,22 @@ public class AppointmentDAO {
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	    }
-	    return list;
+	    nameResolver.fillAppointmentNames(list);
+	    // Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+	    if (list.isEmpty() && offset > 0)
+	        total = countSearchAppointmentsByUser(userCode, role, keyword, field);
+	    return new PagedResult<>(list, total, offset, limit);
 	}
 
 
 
 	public List<Appointment> getAppointmentsByDoctorAndStatus(String doctorCode, String status) {
 	    String sql = """
-	        SELECT a.*, 
-	               p.name AS patientName, 
-	               d.name AS doctorName, 
-	               cb.name AS createdByName
+	        SELECT a.*
 	        FROM appointment a
-	        LEFT JOIN patient_profile p ON a.patient_code = p.code
-	        LEFT JOIN profile d ON a.doctor_code = d.user_code
-	        LEFT JOIN profile cb ON a.created_by = cb.user_code
 	        WHERE a.doctor_code = ? 
 	          AND a.status = ?
-	        ORDER BY a.scheduled_date DESC
+	        ORDER BY a.scheduled_date DESC, a.id DESC
 	    """;
 
 	    List<Appointment> list = new ArrayList<>();
@@ -343,6 +419,7 @@ public class AppointmentDAO {
 	    } catch (Exception e) {
 	        e.printStackTrace();
 	    }
+	    nameResolver.fillAppointmentNames(list);
 	    return list;
 	}
 
@@ -405,7 +482,7 @@ public class AppointmentDAO {
 
     public int countPatientsForDoctorToday(String doctorCode, LocalDate today) {
         String sql = "SELECT COUNT(*) FROM appointment " +
-                     "WHERE doctor_code = ? AND DATE(scheduled_date) = ? AND status = 'SCHEDULED'";
+                     "WHERE doctor_code = ? AND scheduled_date = ? AND status = 'SCHEDULED'";
         try (Connection con = ConnectionDatabase.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, doctorCode);
@@ -546,6 +623,38 @@ public class AppointmentDAO {
     }
 
     // ✅ Chuẩn hóa kiểu Date trong mapping
+	/**
+	 * Đọc tuần tự toàn bộ lịch hẹn (streaming result set) cho xuất Excel.
+	 * Tên được lấy bằng JOIN: trong lúc đang stream, kết nối không chạy được truy vấn khác để tra cache.
+	 */
+	public void streamAppointments(Consumer<Appointment> consumer) {
+		String sql = """
+			    SELECT a.*, pp.name AS patient_name, d.name AS doctor_name, c.name AS created_by_name
+			    FROM appointment a
+			    LEFT JOIN patient_profile pp ON pp.code = a.patient_code
+			    LEFT JOIN profile d ON d.user_code = a.doctor_code
+			    LEFT JOIN profile c ON c.user_code = a.created_by
+			    ORDER BY a.scheduled_date DESC, a.id DESC
+			    """;
+
+		try (Connection con = ConnectionDatabase.getConnection();
+				PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+			ps.setFetchSize(Integer.MIN_VALUE);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					Appointment appointment = mapResultSetToAppointment(rs);
+					appointment.setPatientName(rs.getString("patient_name"));
+					appointment.setDoctorName(rs.getString("doctor_name"));
+					appointment.setCreatedByName(rs.getString("created_by_name"));
+					consumer.accept(appointment);
+				}
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to stream appointments", e);
+		}
+	}
+
     private Appointment mapResultSetToAppointment(ResultSet rs) throws SQLException {
         Appointment a = new Appointment();
         a.setId(rs.getLong("id"));
@@ -562,11 +671,6 @@ public class AppointmentDAO {
             a.setCreatedAt(new java.util.Date(createdAt.getTime()));
         }
 
-        // Optional fields
-        try { a.setPatientName(rs.getString("patientName")); } catch (SQLException ignore) {}
-        try { a.setDoctorName(rs.getString("doctorName")); } catch (SQLException ignore) {}
-        try { a.setCreatedByName(rs.getString("createdByName")); } catch (SQLException ignore) {}
-
         return a;
     }
 }
@@ -0,0 +1,116 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.kien.project.clinicmanagement.dto.ExamQueueChanges;
+import com.kien.project.clinicmanagement.model.ExamQueue;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Đọc nhật ký exam_queue_change (được ghi bởi trigger) để các màn hình hàng đợi cập nhật theo delta.
+ * Version stamp = (MAX(id), COUNT(*)): rẻ để poll, và COUNT đổi cả khi một giao dịch cũ
+ * (id nhỏ hơn) commit muộn sau khi client đã đọc MAX(id).
+ */
+public class ExamQueueChangeDAO {
+
+	// Dòng commit muộn vẫn được đọc lại nếu thay đổi trong khoảng này (áp dụng delta là idempotent)
+	private static final int LATE_COMMIT_WINDOW_SECONDS = 30;
+	private static final int RETENTION_DAYS = 1;
+
+	private final ExamQueueDAO examQueueDAO = new ExamQueueDAO();
+
+	public ExamQueueChanges getStamp() {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			long[] stamp = readStamp(conn);
+			return ExamQueueChanges.stamp(stamp[2], stamp[0]);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return ExamQueueChanges.stamp(0, 0);
+	}
+
+	/**
+	 * Trả về các dòng exam_queue thay đổi sau stamp {@code since}.
+	 * Không có thay đổi thì chỉ tốn một truy vấn MIN/MAX/COUNT trên bảng nhật ký.
+	 */
+	public ExamQueueChanges getChangesSince(ExamQueueChanges since) {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			long[] stamp = readStamp(conn);
+			long count = stamp[0], minId = stamp[1], maxId = stamp[2];
+			if (since.getVersion() == maxId && since.getCount() == count) {
+				return since;
+			}
+
+			// Nhật ký đã bị dọn qua mốc client đang giữ: không còn tính được delta
+			if (since.getVersion() > 0 && minId > since.getVersion() + 1) {
+				return new ExamQueueChanges(maxId, count, true, List.of(), Set.of());
+			}
+
+			Set<Long> changedIds = getChangedQueueIds(conn, since.getVersion());
+			List<ExamQueue> changed = changedIds.isEmpty() ? new ArrayList<>()
+					: examQueueDAO.getExamQueuesByIds(conn, changedIds);
+
+			// Id có trong nhật ký nhưng không còn trong exam_queue là dòng đã bị xóa
+			Set<Long> removedIds = new HashSet<>(changedIds);
+			for (ExamQueue queue : changed) {
+				removedIds.remove(queue.getId());
+			}
+			return new ExamQueueChanges(maxId, count, false, changed, removedIds);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return since;
+	}
+
+	// Xóa nhật ký cũ để bảng luôn nhỏ
+	public int purgeOldChanges() {
+		String sql = "DELETE FROM exam_queue_change WHERE changed_at < NOW() - INTERVAL ? DAY";
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, RETENTION_DAYS);
+			return stmt.executeUpdate();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return 0;
+	}
+
+	// {count, minId, maxId}
+	private long[] readStamp(Connection conn) throws SQLException {
+		String sql = "SELECT COUNT(*), COALESCE(MIN(id), 0), COALESCE(MAX(id), 0) FROM exam_queue_change";
+		try (PreparedStatement stmt = conn.prepareStatement(sql);
+				ResultSet rs = stmt.executeQuery()) {
+			if (rs.next()) {
+				return new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3) };
+			}
+		}
+		return new long[] { 0, 0, 0 };
+	}
+
+	private Set<Long> getChangedQueueIds(Connection conn, long sinceId) throws SQLException {
+		String sql = """
+				SELECT DISTINCT queue_id
+				FROM exam_queue_change
+				WHERE id > ? OR changed_at >= NOW() - INTERVAL ? SECOND
+				""";
+		Set<Long> ids = new LinkedHashSet<>();
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setLong(1, sinceId);
+			stmt.setInt(2, LATE_COMMIT_WINDOW_SECONDS);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					ids.add(rs.getLong(1));
+				}
+			}
+		}
+		return ids;
+	}
+}
@@ -9,30 +9,27 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.ExamQueue;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.PageHelper;
 
 public class ExamQueueDAO {
 
+	// Tên bệnh nhân / bác sĩ / người tạo được ghép từ cache thay vì JOIN 5 bảng
+	private final NameResolver nameResolver = NameResolver.getInstance();
+
 	public List<ExamQueue> getAllExamQueues() {
 		String sql = """
-				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				    SELECT q.*
 				    FROM exam_queue q
-				    LEFT JOIN patient_profile p
-				           ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor
-				           ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor
-				           ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator
-				           ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator
-				           ON a_creator.code = pr_creator.user_code
 				    ORDER BY q.id DESC
 				""";
 
@@ -43,14 +40,12 @@ public class ExamQueueDAO {
 
 			while (rs.next()) {
 				ExamQueue eq = extractExamQueueFromResultSet(rs);
-				eq.setPatientName(rs.getString("patientName"));
-				eq.setDoctorName(rs.getString("doctorName"));
-				eq.setCreatedByName(rs.getString("createdByName"));
 				list.add(eq);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		nameResolver.fillExamQueueNames(list);
 		return list;
 	}
 
@@ -72,18 +67,17 @@ public class ExamQueueDAO {
 	}
 
 	public List<ExamQueue> getExamQueues(int offset, int limit) {
+		return getExamQueuesPage(offset, limit).getRows();
+	}
+
+	// Trả về trang dữ liệu kèm tổng số dòng (COUNT(*) OVER()) trong một truy vấn
+	public PagedResult<ExamQueue> getExamQueuesPage(int offset, int limit) {
 		List<ExamQueue> list = new ArrayList<>();
+		int total = 0;
 		String sql = """
 				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				           COUNT(*) OVER() AS total_count
 				    FROM exam_queue q
-				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator ON a_creator.code = pr_creator.user_code
 				    ORDER BY q.id DESC
 				    LIMIT ?, ?
 				""";
@@ -96,15 +90,53 @@ public class ExamQueueDAO {
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					ExamQueue eq = extractExamQueueFromResultSet(rs);
-					eq.setPatientName(rs.getString("patientName"));
-					eq.setDoctorName(rs.getString("doctorName"));
-					eq.setCreatedByName(rs.getString("createdByName"));
+					total = rs.getInt("total_count");
+					list.add(eq);
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		nameResolver.fillExamQueueNames(list);
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countExamQueues();
+		return new PagedResult<>(list, total, offset, limit);
+	}
+
+	// Phân trang keyset: lấy trang kế tiếp/trước đó tính từ id của dòng mốc
+	// (dùng PRIMARY KEY nên không phải quét bỏ các dòng của những trang trước)
+	public List<ExamQueue> getExamQueuesSeek(long anchorId, PageHelper.Direction direction, int limit) {
+		List<ExamQueue> list = new ArrayList<>();
+		boolean next = direction == PageHelper.Direction.NEXT;
+		String sql = """
+				    SELECT q.*
+				    FROM exam_queue q
+				    WHERE q.id %s ?
+				    ORDER BY q.id %s
+				    LIMIT ?
+				""".formatted(next ? "<" : ">", next ? "DESC" : "ASC");
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setLong(1, anchorId);
+			stmt.setInt(2, limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					ExamQueue eq = extractExamQueueFromResultSet(rs);
 					list.add(eq);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		nameResolver.fillExamQueueNames(list);
+
+		// Trang trước được đọc theo chiều ngược lại, đảo lại cho đúng thứ tự hiển thị
+		if (!next) {
+			Collections.reverse(list);
+		}
 		return list;
 	}
 
@@ -122,8 +154,7 @@ public class ExamQueueDAO {
 				    SELECT COUNT(*)
 				    FROM exam_queue q
 				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
+				    LEFT JOIN profile pr_doctor ON q.doctor_code = pr_doctor.user_code
 				    WHERE %s LIKE ?
 				""".formatted(column);
 
@@ -141,7 +172,12 @@ public class ExamQueueDAO {
 	}
 
 	public List<ExamQueue> searchExamQueues(String keyword, String field, int offset, int limit) {
+		return searchExamQueuesPage(keyword, field, offset, limit).getRows();
+	}
+
+	public PagedResult<ExamQueue> searchExamQueuesPage(String keyword, String field, int offset, int limit) {
 		List<ExamQueue> list = new ArrayList<>();
+		int total = 0;
 		String column;
 		switch (field.toLowerCase()) {
 		case "search by doctor name":
@@ -153,15 +189,10 @@ public class ExamQueueDAO {
 
 		String sql = """
 				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				           COUNT(*) OVER() AS total_count
 				    FROM exam_queue q
 				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator ON a_creator.code = pr_creator.user_code
+				    LEFT JOIN profile pr_doctor ON q.doctor_code = pr_doctor.user_code
 				    WHERE %s LIKE ?
 				    ORDER BY q.id DESC
 				    LIMIT ?, ?
@@ -177,16 +208,18 @@ public class ExamQueueDAO {
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					ExamQueue eq = extractExamQueueFromResultSet(rs);
-					eq.setPatientName(rs.getString("patientName"));
-					eq.setDoctorName(rs.getString("doctorName"));
-					eq.setCreatedByName(rs.getString("createdByName"));
+					total = rs.getInt("total_count");
 					list.add(eq);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		return list;
+		nameResolver.fillExamQueueNames(list);
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countSearchExamQueues(keyword, field);
+		return new PagedResult<>(list, total, offset, limit);
 	}
 
 	// ============================
@@ -212,20 +245,18 @@ public class ExamQueueDAO {
 	}
 
 	public List<ExamQueue> getExamQueuesByUser(String userCode, String role, int offset, int limit) {
+		return getExamQueuesByUserPage(userCode, role, offset, limit).getRows();
+	}
+
+	public PagedResult<ExamQueue> getExamQueuesByUserPage(String userCode, String role, int offset, int limit) {
 		List<ExamQueue> list = new ArrayList<>();
+		int total = 0;
 		String condition = role.equalsIgnoreCase("DOCTOR") ? "q.doctor_code = ?" : "q.created_by = ?";
 
 		String sql = """
 				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				           COUNT(*) OVER() AS total_count
 				    FROM exam_queue q
-				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator ON a_creator.code = pr_creator.user_code
 				    WHERE %s
 				    ORDER BY q.id DESC
 				    LIMIT ?, ?
@@ -241,15 +272,55 @@ public class ExamQueueDAO {
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					ExamQueue eq = extractExamQueueFromResultSet(rs);
-					eq.setPatientName(rs.getString("patientName"));
-					eq.setDoctorName(rs.getString("doctorName"));
-					eq.setCreatedByName(rs.getString("createdByName"));
+					total = rs.getInt("total_count");
 					list.add(eq);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		nameResolver.fillExamQueueNames(list);
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countExamQueuesByUser(userCode, role);
+		return new PagedResult<>(list, total, offset, limit);
+	}
+
+	public List<ExamQueue> getExamQueuesByUserSeek(String userCode, String role, long anchorId,
+			PageHelper.Direction direction, int limit) {
+		List<ExamQueue> list = new ArrayList<>();
+		boolean next = direction == PageHelper.Direction.NEXT;
+		String condition = role.equalsIgnoreCase("DOCTOR") ? "q.doctor_code = ?" : "q.created_by = ?";
+
+		String sql = """
+				    SELECT q.*
+				    FROM exam_queue q
+				    WHERE %s AND q.id %s ?
+				    ORDER BY q.id %s
+				    LIMIT ?
+				""".formatted(condition, next ? "<" : ">", next ? "DESC" : "ASC");
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setString(1, userCode);
+			stmt.setLong(2, anchorId);
+			stmt.setInt(3, limit);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					ExamQueue eq = extractExamQueueFromResultSet(rs);
+					list.add(eq);
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		nameResolver.fillExamQueueNames(list);
+
+		if (!next) {
+			Collections.reverse(list);
+		}
 		return list;
 	}
 
@@ -268,8 +339,7 @@ public class ExamQueueDAO {
 				    SELECT COUNT(*)
 				    FROM exam_queue q
 				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
+				    LEFT JOIN profile pr_doctor ON q.doctor_code = pr_doctor.user_code
 				    WHERE %s AND %s LIKE ?
 				""".formatted(condition, column);
 
@@ -291,7 +361,13 @@ public class ExamQueueDAO {
 
 	public List<ExamQueue> searchExamQueuesByUser(String userCode, String role, String keyword, String field,
 			int offset, int limit) {
+		return searchExamQueuesByUserPage(userCode, role, keyword, field, offset, limit).getRows();
+	}
+
+	public PagedResult<ExamQueue> searchExamQueuesByUserPage(String userCode, String role, String keyword, String field,
+			int offset, int limit) {
 		List<ExamQueue> list = new ArrayList<>();
+		int total = 0;
 		String condition = role.equalsIgnoreCase("DOCTOR") ? "q.doctor_code = ?" : "q.created_by = ?";
 		String column;
 		switch (field.toLowerCase()) {
@@ -304,15 +380,10 @@ public class ExamQueueDAO {
 
 		String sql = """
 				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				           COUNT(*) OVER() AS total_count
 				    FROM exam_queue q
 				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator ON a_creator.code = pr_creator.user_code
+				    LEFT JOIN profile pr_doctor ON q.doctor_code = pr_doctor.user_code
 				    WHERE %s AND %s LIKE ?
 				    ORDER BY q.id DESC
 				    LIMIT ?, ?
@@ -329,36 +400,25 @@ public class ExamQueueDAO {
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					ExamQueue eq = extractExamQueueFromResultSet(rs);
-					eq.setPatientName(rs.getString("patientName"));
-					eq.setDoctorName(rs.getString("doctorName"));
-					eq.setCreatedByName(rs.getString("createdByName"));
+					total = rs.getInt("total_count");
 					list.add(eq);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		return list;
+		nameResolver.fillExamQueueNames(list);
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countSearchExamQueuesByUser(userCode, role, keyword, field);
+		return new PagedResult<>(list, total, offset, limit);
 	}
 
 	public List<ExamQueue> getWaitingExamQueues() {
 		List<ExamQueue> list = new ArrayList<>();
 		String sql = """
-				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				    SELECT q.*
 				    FROM exam_queue q
-				    LEFT JOIN patient_profile p
-				           ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor
-				           ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor
-				           ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator
-				           ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator
-				           ON a_creator.code = pr_creator.user_code
 				    WHERE q.status = 'waiting'
 				    ORDER BY q.id DESC
 				""";
@@ -369,14 +429,12 @@ public class ExamQueueDAO {
 
 			while (rs.next()) {
 				ExamQueue eq = extractExamQueueFromResultSet(rs);
-				eq.setPatientName(rs.getString("patientName"));
-				eq.setDoctorName(rs.getString("doctorName"));
-				eq.setCreatedByName(rs.getString("createdByName"));
 				list.add(eq);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		nameResolver.fillExamQueueNames(list);
 		return list;
 	}
 
@@ -386,16 +444,8 @@ public class ExamQueueDAO {
 			return list;
 
 		String sql = """
-				    SELECT q.*,
-				           p.name AS patientName,
-				           pr_doctor.name AS doctorName,
-				           pr_creator.name AS createdByName
+				    SELECT q.*
 				    FROM exam_queue q
-				    LEFT JOIN patient_profile p ON q.patient_code = p.code
-				    LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code
-				    LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code
-				    LEFT JOIN account a_creator ON q.created_by = a_creator.code
-				    LEFT JOIN profile pr_creator ON a_creator.code = pr_creator.user_code
 				    WHERE q.doctor_code = ? AND q.status = 'waiting'
 				    ORDER BY q.queue_number ASC
 				""";
@@ -408,18 +458,58 @@ public class ExamQueueDAO {
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					ExamQueue eq = extractExamQueueFromResultSet(rs);
-					eq.setPatientName(rs.getString("patientName"));
-					eq.setDoctorName(rs.getString("doctorName"));
-					eq.setCreatedByName(rs.getString("createdByName"));
 					list.add(eq);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		nameResolver.fillExamQueueNames(list);
+		return list;
+	}
+
+	// Đọc trạng thái hiện tại của các hàng đợi theo id (dùng khi áp dụng delta từ nhật ký thay đổi)
+	public List<ExamQueue> getExamQueuesByIds(Connection conn, Collection<Long> ids) throws SQLException {
+		List<ExamQueue> list = new ArrayList<>();
+		if (ids == null || ids.isEmpty())
+			return list;
+
+		String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+		String sql = """
+				    SELECT q.*
+				    FROM exam_queue q
+				    WHERE q.id IN (%s)
+				""".formatted(placeholders);
+
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			int index = 1;
+			for (Long id : ids) {
+				stmt.setLong(index++, id);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					ExamQueue eq = extractExamQueueFromResultSet(rs);
+					list.add(eq);
+				}
+			}
+		}
+		nameResolver.fillExamQueueNames(list);
 		return list;
 	}
 
+	public CacheStatistics getNameCacheStatistics() {
+		return nameResolver.getStatistics();
+	}
+
+	// Chuyển hàng đợi sang DONE trong giao dịch đang mở; false nếu hàng đợi không còn ở trạng thái chờ
+	public boolean markDone(Connection conn, Long id) throws SQLException {
+		String sql = "UPDATE exam_queue SET status = 'DONE' WHERE id = ? AND status = 'WAITING'";
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setLong(1, id);
+			return stmt.executeUpdate() > 0;
+		}
+	}
+
 	public boolean updateExamQueueStatus(Long id, String status) {
 		if (id == null || status == null || status.isBlank())
 			return false;
@@ -611,13 +701,9 @@ public class ExamQueueDAO {
 			column = "p.name";
 		}
 
-		String sql = "SELECT q.*, " + "       p.name AS patientName, " + "       pr_doctor.name AS doctorName, "
-				+ "       pr_creator.name AS createdByName " + "FROM exam_queue q "
+		String sql = "SELECT q.* " + "FROM exam_queue q "
 				+ "LEFT JOIN patient_profile p ON q.patient_code = p.code "
-				+ "LEFT JOIN account a_doctor ON q.doctor_code = a_doctor.code "
-				+ "LEFT JOIN profile pr_doctor ON a_doctor.code = pr_doctor.user_code "
-				+ "LEFT JOIN account a_creator ON q.created_by = a_creator.code "
-				+ "LEFT JOIN profile pr_creator ON a_creator.code = pr_creator.user_code " + "WHERE " + column
+				+ "LEFT JOIN profile pr_doctor ON q.doctor_code = pr_doctor.user_code " + "WHERE " + column
 				+ " LIKE ? " + "ORDER BY q.id DESC";
 
 		try (Connection conn = ConnectionDatabase.getConnection();
@@ -628,24 +714,24 @@ public class ExamQueueDAO {
 			try (ResultSet rs = stmt.executeQuery()) {
 				while (rs.next()) {
 					ExamQueue eq = extractExamQueueFromResultSet(rs);
-					eq.setPatientName(rs.getString("patientName"));
-					eq.setDoctorName(rs.getString("doctorName"));
-					eq.setCreatedByName(rs.getString("createdByName"));
 					list.add(eq);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		nameResolver.fillExamQueueNames(list);
 		return list;
 	}
 
 	public int countPatientsForDoctorToday(String doctorCode, LocalDate date) {
-		String sql = "SELECT COUNT(*) FROM exam_queue WHERE doctor_code = ? AND DATE(created_at) = ?";
+		// So sánh theo khoảng [00:00, 00:00 ngày sau) để dùng được chỉ mục (doctor_code, created_at)
+		String sql = "SELECT COUNT(*) FROM exam_queue WHERE doctor_code = ? AND created_at >= ? AND created_at < ?";
 		try (Connection conn = ConnectionDatabase.getConnection();
 				PreparedStatement stmt = conn.prepareStatement(sql)) {
 			stmt.setString(1, doctorCode);
-			stmt.setDate(2, java.sql.Date.valueOf(date));
+			stmt.setTimestamp(2, Timestamp.valueOf(date.atStartOfDay()));
+			stmt.setTimestamp(3, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
 			ResultSet rs = stmt.executeQuery();
 			if (rs.next()) {
 				return rs.getInt(1);
@@ -656,13 +742,43 @@ public class ExamQueueDAO {
 		return 0;
 	}
 
+	// Số bệnh nhân trong ngày của nhiều bác sĩ bằng một truy vấn GROUP BY; bác sĩ không có dòng nào không có trong map
+	public Map<String, Integer> countPatientsForDoctorsToday(Collection<String> doctorCodes, LocalDate date) {
+		Map<String, Integer> counts = new HashMap<>();
+		if (doctorCodes == null || doctorCodes.isEmpty())
+			return counts;
+
+		String placeholders = String.join(", ", Collections.nCopies(doctorCodes.size(), "?"));
+		String sql = "SELECT doctor_code, COUNT(*) FROM exam_queue "
+				+ "WHERE doctor_code IN (" + placeholders + ") AND created_at >= ? AND created_at < ? "
+				+ "GROUP BY doctor_code";
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			int index = 1;
+			for (String code : doctorCodes) {
+				stmt.setString(index++, code);
+			}
+			stmt.setTimestamp(index++, Timestamp.valueOf(date.atStartOfDay()));
+			stmt.setTimestamp(index, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					counts.put(rs.getString(1), rs.getInt(2));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return counts;
+	}
+
 	public int getMaxQueueNumberForDoctorToday(String doctorCode, LocalDate date) {
 		String sql = "SELECT COALESCE(MAX(queue_number), 0) " + "FROM exam_queue "
-				+ "WHERE doctor_code = ? AND DATE(created_at) = ?";
+				+ "WHERE doctor_code = ? AND created_at >= ? AND created_at < ?";
 		try (Connection conn = ConnectionDatabase.getConnection();
 				PreparedStatement stmt = conn.prepareStatement(sql)) {
 			stmt.setString(1, doctorCode);
-			stmt.setDate(2, java.sql.Date.valueOf(date));
+			stmt.setTimestamp(2, Timestamp.valueOf(date.atStartOfDay()));
+			stmt.setTimestamp(3, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
 			ResultSet rs = stmt.executeQuery();
 			if (rs.next()) {
 				return rs.getInt(1);
@@ -0,0 +1,134 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kien.project.clinicmanagement.model.MedicalResult;
+import com.kien.project.clinicmanagement.model.Prescription;
+import com.kien.project.clinicmanagement.model.PrescriptionDetail;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Kết thúc một lượt khám trong một giao dịch duy nhất: lưu kết quả khám, đóng hàng đợi,
+ * trừ kho có điều kiện, lưu đơn thuốc cùng chi tiết (batch) và cập nhật doanh thu tổng hợp.
+ * Bất kỳ bước nào lỗi thì toàn bộ được rollback.
+ */
+public class ExaminationDAO {
+
+	private final MedicalResultDAO medicalResultDAO = new MedicalResultDAO();
+	private final ExamQueueDAO examQueueDAO = new ExamQueueDAO();
+	private final MedicineDAO medicineDAO = new MedicineDAO();
+	private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
+	private final PrescriptionDetailDAO prescriptionDetailDAO = new PrescriptionDetailDAO();
+	private final SequenceDAO sequenceDAO = new SequenceDAO();
+
+	/**
+	 * @return null nếu thành công, ngược lại là thông báo lỗi. Khi thành công,
+	 *         id của result (và của prescription nếu có chi tiết) được gán lại.
+	 */
+	public String finalizeExamination(MedicalResult result, Prescription prescription, List<PrescriptionDetail> details) {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false); // Bắt đầu giao dịch thủ công
+
+			try {
+				// 1. Đóng hàng đợi trước: nếu đã được kết thúc ở máy khác thì dừng ngay
+				if (!examQueueDAO.markDone(conn, result.getExamQueueId())) {
+					conn.rollback();
+					return "This exam queue has already been completed or cancelled.";
+				}
+
+				// 2. Trừ kho có điều kiện quantity >= ? cho từng thuốc (một batch)
+				boolean hasPrescription = details != null && !details.isEmpty();
+				Map<String, Integer> required = hasPrescription ? sumQuantities(details) : Map.of();
+				if (hasPrescription) {
+					List<String> failed = medicineDAO.decreaseQuantities(conn, required,
+								"Exam queue #" + result.getExamQueueId());
+					if (!failed.isEmpty()) {
+						// Rollback trước rồi mới đọc tồn kho: trong giao dịch này số lượng có thể đã bị trừ
+						conn.rollback();
+						return buildStockError(conn, failed, required);
+					}
+				}
+
+				// 3. Lưu kết quả khám
+				result.setId(sequenceDAO.nextValue(SequenceDAO.MEDICAL_RESULT));
+				medicalResultDAO.addMedicalResult(conn, result);
+
+				// 4. Đơn thuốc: tính tổng tiền ngay khi duyệt chi tiết, rồi chèn chi tiết theo batch
+				if (hasPrescription) {
+					prescription.setId(sequenceDAO.nextValue(SequenceDAO.PRESCRIPTION));
+					prescription.setMedicalResultId(result.getId());
+
+					BigDecimal total = BigDecimal.ZERO;
+					for (PrescriptionDetail detail : details) {
+						BigDecimal lineTotal = detail.getUnitPrice() != null && detail.getQuantity() != null
+								? detail.getUnitPrice().multiply(BigDecimal.valueOf(detail.getQuantity()))
+								: BigDecimal.ZERO;
+						detail.setTotalPrice(lineTotal);
+						detail.setPrescriptionId(prescription.getId());
+						total = total.add(lineTotal);
+					}
+					prescription.setTotalPrice(total);
+
+					prescriptionDAO.insertPrescription(conn, prescription, result.getDoctorCode());
+					prescriptionDetailDAO.addPrescriptionDetails(conn, details);
+				}
+
+				conn.commit(); // Commit nếu mọi thứ thành công
+				medicineDAO.applyCommittedDecrease(required);
+				medicalResultDAO.indexCommitted(result);
+				return null;
+			} catch (Exception e) {
+				conn.rollback(); // Rollback nếu có lỗi
+				System.err.println("Error during finalizeExamination transaction. Rolling back...");
+				e.printStackTrace();
+				return "Unable to save examination: " + e.getMessage();
+			} finally {
+				conn.setAutoCommit(true); // Trả trạng thái mặc định cho connection
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "Database connection failed: " + e.getMessage();
+		}
+	}
+
+	// Gom tổng số lượng cần dùng theo từng mã thuốc
+	private Map<String, Integer> sumQuantities(List<PrescriptionDetail> details) {
+		Map<String, Integer> required = new LinkedHashMap<>();
+		for (PrescriptionDetail detail : details) {
+			if (detail == null)
+				continue;
+			String code = detail.getMedicineCode();
+			if (code == null || code.trim().isEmpty())
+				continue;
+			int quantity = detail.getQuantity() == null ? 0 : detail.getQuantity();
+			required.merge(code, quantity, Integer::sum);
+		}
+		return required;
+	}
+
+	private String buildStockError(Connection conn, List<String> failed, Map<String, Integer> required)
+			throws SQLException {
+		Map<String, Integer> available = medicineDAO.getQuantities(conn, failed);
+		StringBuilder errors = new StringBuilder("Cannot save medical result because of stock issues:\n");
+		for (String code : failed) {
+			if (!available.containsKey(code)) {
+				errors.append("- Medicine not found: ").append(code).append("\n");
+			} else if (available.get(code) >= required.get(code)) {
+				// Tổng tồn đủ nhưng một phần nằm ở lô đã hết hạn
+				errors.append("- Not enough unexpired stock for ").append(code)
+						.append(" (required: ").append(required.get(code))
+						.append(", in stock including expired lots: ").append(available.get(code)).append(")\n");
+			} else {
+				errors.append("- Not enough stock for ").append(code)
+						.append(" (required: ").append(required.get(code))
+						.append(", available: ").append(available.get(code)).append(")\n");
+			}
+		}
+		return errors.toString();
+	}
+}
@@ -0,0 +1,231 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.InventoryMovement;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Sổ kho thuốc chỉ ghi thêm: mỗi lần nhập/xuất/điều chỉnh là một dòng inventory_movement,
+ * ghi trong cùng giao dịch với medicine.quantity (số dư hiện tại vẫn nằm ở medicine để kiểm tra đủ hàng).
+ * Ảnh chụp định kỳ trong inventory_snapshot giúp tính tồn kho tại một thời điểm mà không cộng lại từ đầu.
+ */
+public class InventoryLedgerDAO {
+
+	private static final long SNAPSHOT_INTERVAL_HOURS = 24;
+
+	// Ghi một dòng phát sinh trong giao dịch đang mở
+	public void record(Connection conn, String medicineCode, InventoryMovement.Type type, int quantityDelta,
+			String reference) throws SQLException {
+		if (quantityDelta == 0)
+			return;
+		String sql = "INSERT INTO inventory_movement (medicine_code, movement_type, quantity_delta, reference) VALUES (?, ?, ?, ?)";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setString(1, medicineCode);
+			ps.setString(2, type.name());
+			ps.setInt(3, quantityDelta);
+			ps.setString(4, reference);
+			ps.executeUpdate();
+		}
+	}
+
+	// Ghi nhiều dòng cùng loại bằng một JDBC batch (vd: xuất thuốc cho cả đơn)
+	public void recordAll(Connection conn, Map<String, Integer> quantityDeltas, InventoryMovement.Type type,
+			String reference) throws SQLException {
+		String sql = "INSERT INTO inventory_movement (medicine_code, movement_type, quantity_delta, reference) VALUES (?, ?, ?, ?)";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (Map.Entry<String, Integer> entry : quantityDeltas.entrySet()) {
+				if (entry.getValue() == 0)
+					continue;
+				ps.setString(1, entry.getKey());
+				ps.setString(2, type.name());
+				ps.setInt(3, entry.getValue());
+				ps.setString(4, reference);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	/**
+	 * Tồn kho của một thuốc tại thời điểm at = ảnh chụp gần nhất không muộn hơn at
+	 * + tổng các dòng phát sinh sau ảnh chụp đó và không muộn hơn at.
+	 * @return null nếu lỗi truy vấn
+	 */
+	public Integer getStockAt(String medicineCode, LocalDateTime at) {
+		String snapshotSql = """
+				    SELECT quantity, last_movement_id FROM inventory_snapshot
+				    WHERE medicine_code = ? AND taken_at <= ?
+				    ORDER BY taken_at DESC LIMIT 1
+				""";
+		String tailSql = """
+				    SELECT COALESCE(SUM(quantity_delta), 0) FROM inventory_movement
+				    WHERE medicine_code = ? AND id > ? AND created_at <= ?
+				""";
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			Timestamp atTimestamp = Timestamp.valueOf(at);
+			int base = 0;
+			long lastMovementId = 0;
+
+			try (PreparedStatement ps = conn.prepareStatement(snapshotSql)) {
+				ps.setString(1, medicineCode);
+				ps.setTimestamp(2, atTimestamp);
+				try (ResultSet rs = ps.executeQuery()) {
+					if (rs.next()) {
+						base = rs.getInt("quantity");
+						lastMovementId = rs.getLong("last_movement_id");
+					}
+				}
+			}
+
+			try (PreparedStatement ps = conn.prepareStatement(tailSql)) {
+				ps.setString(1, medicineCode);
+				ps.setLong(2, lastMovementId);
+				ps.setTimestamp(3, atTimestamp);
+				try (ResultSet rs = ps.executeQuery()) {
+					rs.next();
+					return base + rs.getInt(1);
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Lịch sử nhập/xuất trong khoảng thời gian, mới nhất trước; medicineCode null là mọi thuốc.
+	 * Đi theo chỉ mục (medicine_code, created_at) hoặc (created_at) nên không quét toàn bảng.
+	 */
+	public PagedResult<InventoryMovement> getMovementsPage(String medicineCode, LocalDateTime from, LocalDateTime to,
+			int offset, int limit) {
+		List<InventoryMovement> list = new ArrayList<>();
+		int total = 0;
+
+		String sql = """
+				    SELECT *, COUNT(*) OVER() AS total_count FROM inventory_movement
+				    WHERE created_at >= ? AND created_at < ? %s
+				    ORDER BY created_at DESC, id DESC
+				    LIMIT ? OFFSET ?
+				""".formatted(medicineCode != null ? "AND medicine_code = ?" : "");
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql)) {
+
+			int index = 1;
+			ps.setTimestamp(index++, Timestamp.valueOf(from));
+			ps.setTimestamp(index++, Timestamp.valueOf(to));
+			if (medicineCode != null)
+				ps.setString(index++, medicineCode);
+			ps.setInt(index++, limit);
+			ps.setInt(index, offset);
+
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					total = rs.getInt("total_count");
+					list.add(extractMovementFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return new PagedResult<>(list, total, offset, limit);
+	}
+
+	// Đã quá SNAPSHOT_INTERVAL_HOURS kể từ ảnh chụp gần nhất (hoặc chưa có ảnh chụp nào)
+	public boolean isSnapshotDue() {
+		String sql = "SELECT MAX(taken_at) FROM inventory_snapshot";
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql);
+				ResultSet rs = ps.executeQuery()) {
+			if (!rs.next() || rs.getTimestamp(1) == null)
+				return true;
+			return rs.getTimestamp(1).toLocalDateTime().isBefore(LocalDateTime.now().minusHours(SNAPSHOT_INTERVAL_HOURS));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Chụp tồn kho cho mọi thuốc có phát sinh kể từ ảnh chụp trước, trong một lệnh INSERT ... SELECT:
+	 * số dư mới = số dư ảnh chụp trước + tổng các dòng phát sinh sau đó, tới mốc id đã chốt.
+	 * Mọi giao dịch ghi sổ kho đều giữ khóa dòng medicine tới lúc commit, nên sau khi khóa toàn bộ bảng medicine
+	 * thì mọi dòng có id <= MAX(id) đã commit: mốc id đó không bỏ sót dòng nào, dù giao dịch ghi dòng đó chạy lâu
+	 * bao nhiêu. Xuất/nhập kho chỉ phải chờ trong lúc chạy lệnh chụp (mỗi ngày một lần).
+	 * @return số ảnh chụp mới, -1 nếu lỗi
+	 */
+	public int takeSnapshots() {
+		// Cùng thứ tự mã với decreaseQuantities để không deadlock
+		String lockSql = "SELECT code FROM medicine ORDER BY code FOR UPDATE";
+		// Đọc có khóa nên luôn thấy giá trị mới nhất đã commit
+		String watermarkSql = "SELECT COALESCE(MAX(id), 0) FROM inventory_movement FOR SHARE";
+		String snapshotSql = """
+				    INSERT INTO inventory_snapshot (medicine_code, last_movement_id, quantity, taken_at)
+				    SELECT m.medicine_code, MAX(m.id), COALESCE(MAX(s.quantity), 0) + SUM(m.quantity_delta), NOW()
+				    FROM inventory_movement m
+				    LEFT JOIN inventory_snapshot s
+				        ON s.medicine_code = m.medicine_code
+				        AND s.last_movement_id = (SELECT MAX(s2.last_movement_id) FROM inventory_snapshot s2
+				                                  WHERE s2.medicine_code = m.medicine_code)
+				    WHERE m.id > COALESCE(s.last_movement_id, 0) AND m.id <= ?
+				    GROUP BY m.medicine_code
+				""";
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				try (PreparedStatement ps = conn.prepareStatement(lockSql);
+						ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						// Chỉ cần khóa, không dùng kết quả
+					}
+				}
+
+				long watermark;
+				try (PreparedStatement ps = conn.prepareStatement(watermarkSql);
+						ResultSet rs = ps.executeQuery()) {
+					rs.next();
+					watermark = rs.getLong(1);
+				}
+
+				int count;
+				try (PreparedStatement ps = conn.prepareStatement(snapshotSql)) {
+					ps.setLong(1, watermark);
+					count = ps.executeUpdate();
+				}
+				conn.commit();
+				return count;
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return -1;
+		}
+	}
+
+	private InventoryMovement extractMovementFromResultSet(ResultSet rs) throws SQLException {
+		InventoryMovement movement = new InventoryMovement();
+		movement.setId(rs.getLong("id"));
+		movement.setMedicineCode(rs.getString("medicine_code"));
+		movement.setType(InventoryMovement.Type.valueOf(rs.getString("movement_type")));
+		movement.setQuantityDelta(rs.getInt("quantity_delta"));
+		movement.setReference(rs.getString("reference"));
+		movement.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+		return movement;
+	}
+}
@@ -0,0 +1,290 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kien.project.clinicmanagement.model.OutgoingMail;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Hàng đợi email lưu trong bảng mail_outbox, dùng chung cho mọi máy trạm.
+ * Thư được "nhận" (PENDING -> SENDING) bằng SELECT ... FOR UPDATE SKIP LOCKED nên hai máy không gửi trùng;
+ * thư kẹt ở SENDING quá lâu (máy gửi bị tắt giữa chừng) được trả lại PENDING ở lần nhận sau.
+ * Thư có holds_secret chỉ lưu nội dung với chỗ trống; chỉ máy trạm đang giữ bí mật trong bộ nhớ được nhận thư đó,
+ * và thư không ai giữ bí mật nữa (máy tạo thư đã tắt) được đánh dấu FAILED sau ORPHANED_SECRET_HOURS.
+ * Mọi mốc thời gian dùng NOW() của database để không phụ thuộc đồng hồ từng máy.
+ */
+public class MailOutboxDAO {
+
+	private static final int STALE_CLAIM_MINUTES = 10;
+	private static final int ORPHANED_SECRET_HOURS = 24;
+	private static final int MAX_ERROR_LENGTH = 500;
+
+	// Ghi thư mới chờ gửi ngay; trả về id, -1 nếu lỗi
+	public long enqueue(String recipient, String subject, String body, boolean holdsSecret) {
+		String sql = "INSERT INTO mail_outbox (recipient, subject, body, holds_secret) VALUES (?, ?, ?, ?)";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+			ps.setString(1, recipient);
+			ps.setString(2, subject);
+			ps.setString(3, body);
+			ps.setBoolean(4, holdsSecret);
+			ps.executeUpdate();
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				if (keys.next())
+					return keys.getLong(1);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return -1;
+	}
+
+	/**
+	 * Nhận tối đa limit thư đã đến hạn gửi, chuyển sang SENDING trong một giao dịch.
+	 * @param secretIds các thư có bí mật mà máy này đang giữ; thư có bí mật khác không được nhận
+	 * @return danh sách rỗng nếu không có thư hoặc lỗi
+	 */
+	public List<OutgoingMail> claimDue(int limit, Collection<Long> secretIds) {
+		List<OutgoingMail> claimed = new ArrayList<>();
+
+		String releaseSql = """
+				    UPDATE mail_outbox SET status = 'PENDING', claimed_at = NULL
+				    WHERE status = 'SENDING' AND claimed_at < NOW() - INTERVAL ? MINUTE
+				""";
+		String orphanSql = """
+				    UPDATE mail_outbox SET status = 'FAILED', body = '', last_error = 'Secret is no longer available',
+				        claimed_at = NULL
+				    WHERE holds_secret = TRUE AND status = 'PENDING' AND created_at < NOW() - INTERVAL ? HOUR
+				""";
+		String ownSecrets = secretIds.isEmpty() ? ""
+				: " OR id IN (" + String.join(", ", Collections.nCopies(secretIds.size(), "?")) + ")";
+		String selectSql = """
+				    SELECT * FROM mail_outbox
+				    WHERE status = 'PENDING' AND next_attempt_at <= NOW() AND (holds_secret = FALSE%s)
+				    ORDER BY next_attempt_at, id
+				    LIMIT ?
+				    FOR UPDATE SKIP LOCKED
+				""".formatted(ownSecrets);
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				try (PreparedStatement ps = conn.prepareStatement(releaseSql)) {
+					ps.setInt(1, STALE_CLAIM_MINUTES);
+					ps.executeUpdate();
+				}
+				try (PreparedStatement ps = conn.prepareStatement(orphanSql)) {
+					ps.setInt(1, ORPHANED_SECRET_HOURS);
+					ps.executeUpdate();
+				}
+
+				try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+					int index = 1;
+					for (Long id : secretIds) {
+						ps.setLong(index++, id);
+					}
+					ps.setInt(index, limit);
+					try (ResultSet rs = ps.executeQuery()) {
+						while (rs.next()) {
+							claimed.add(extractMailFromResultSet(rs));
+						}
+					}
+				}
+
+				if (!claimed.isEmpty()) {
+					List<Long> ids = new ArrayList<>(claimed.size());
+					for (OutgoingMail mail : claimed) {
+						ids.add(mail.getId());
+					}
+					updateStatus(conn, ids, "status = 'SENDING', claimed_at = NOW()");
+				}
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			claimed.clear();
+		}
+		return claimed;
+	}
+
+	// Gửi thành công: xóa nội dung thư (có thể chứa mật khẩu/mã xác minh), chỉ giữ lại trạng thái
+	public void markSent(long id, int attempts) {
+		String sql = """
+				    UPDATE mail_outbox SET status = 'SENT', attempts = ?, body = '', last_error = NULL,
+				        claimed_at = NULL, sent_at = NOW()
+				    WHERE id = ?
+				""";
+		execute(sql, ps -> {
+			ps.setInt(1, attempts);
+			ps.setLong(2, id);
+		});
+	}
+
+	// Lỗi tạm thời: hẹn lần thử sau sau delaySeconds giây
+	public void markRetry(long id, int attempts, long delaySeconds, String error) {
+		String sql = """
+				    UPDATE mail_outbox SET status = 'PENDING', attempts = ?, last_error = ?, claimed_at = NULL,
+				        next_attempt_at = NOW() + INTERVAL ? SECOND
+				    WHERE id = ?
+				""";
+		execute(sql, ps -> {
+			ps.setInt(1, attempts);
+			ps.setString(2, truncate(error));
+			ps.setLong(3, delaySeconds);
+			ps.setLong(4, id);
+		});
+	}
+
+	// Lỗi vĩnh viễn hoặc hết số lần thử: dừng gửi và xóa nội dung thư
+	public void markFailed(long id, int attempts, String error) {
+		String sql = """
+				    UPDATE mail_outbox SET status = 'FAILED', attempts = ?, body = '', last_error = ?, claimed_at = NULL
+				    WHERE id = ?
+				""";
+		execute(sql, ps -> {
+			ps.setInt(1, attempts);
+			ps.setString(2, truncate(error));
+			ps.setLong(3, id);
+		});
+	}
+
+	// Trả thư đã nhận nhưng chưa kịp gửi (mất kết nối SMTP, đang tắt ứng dụng) về hàng đợi, không tính lần thử
+	public void release(List<Long> ids) {
+		if (ids.isEmpty())
+			return;
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			updateStatus(conn, ids, "status = 'PENDING', claimed_at = NULL");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Trạng thái hiện tại của các thư; thư không còn trong bảng không có trong kết quả.
+	 * @return null nếu lỗi truy vấn
+	 */
+	public Map<Long, OutgoingMail.Status> getStatuses(Collection<Long> ids) {
+		Map<Long, OutgoingMail.Status> statuses = new HashMap<>();
+		if (ids.isEmpty())
+			return statuses;
+
+		String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+		String sql = "SELECT id, status FROM mail_outbox WHERE id IN (" + placeholders + ")";
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql)) {
+			int index = 1;
+			for (Long id : ids) {
+				ps.setLong(index++, id);
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					statuses.put(rs.getLong("id"), OutgoingMail.Status.valueOf(rs.getString("status")));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+		return statuses;
+	}
+
+	// Hủy các thư có bí mật chưa gửi (máy giữ bí mật tắt ứng dụng hoặc hết giờ chờ), không máy nào khác gửi được
+	public void cancelPending(List<Long> ids, String reason) {
+		if (ids.isEmpty())
+			return;
+		String sql = "UPDATE mail_outbox SET status = 'FAILED', body = '', last_error = ?, claimed_at = NULL WHERE id IN ("
+				+ String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setString(1, reason);
+			for (int i = 0; i < ids.size(); i++) {
+				ps.setLong(i + 2, ids.get(i));
+			}
+			ps.executeUpdate();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Trạng thái hiện tại của thư, null nếu không tìm thấy hoặc lỗi
+	public OutgoingMail getById(long id) {
+		String sql = "SELECT * FROM mail_outbox WHERE id = ?";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setLong(1, id);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next())
+					return extractMailFromResultSet(rs);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private interface ParameterSetter {
+		void set(PreparedStatement ps) throws SQLException;
+	}
+
+	private void execute(String sql, ParameterSetter setter) {
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql)) {
+			setter.set(ps);
+			ps.executeUpdate();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void updateStatus(Connection conn, List<Long> ids, String assignments) throws SQLException {
+		String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+		String sql = "UPDATE mail_outbox SET " + assignments + " WHERE id IN (" + placeholders + ")";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (int i = 0; i < ids.size(); i++) {
+				ps.setLong(i + 1, ids.get(i));
+			}
+			ps.executeUpdate();
+		}
+	}
+
+	private static String truncate(String error) {
+		if (error == null)
+			return null;
+		return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+	}
+
+	private OutgoingMail extractMailFromResultSet(ResultSet rs) throws SQLException {
+		OutgoingMail mail = new OutgoingMail();
+		mail.setId(rs.getLong("id"));
+		mail.setRecipient(rs.getString("recipient"));
+		mail.setSubject(rs.getString("subject"));
+		mail.setBody(rs.getString("body"));
+		mail.setHoldsSecret(rs.getBoolean("holds_secret"));
+		mail.setStatus(OutgoingMail.Status.valueOf(rs.getString("status")));
+		mail.setAttempts(rs.getInt("attempts"));
+		mail.setNextAttemptAt(rs.getTimestamp("next_attempt_at").toLocalDateTime());
+		mail.setLastError(rs.getString("last_error"));
+		mail.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+		Timestamp sentAt = rs.getTimestamp("sent_at");
+		mail.setSentAt(sentAt != null ? sentAt.toLocalDateTime() : null);
+		return mail;
+	}
+}
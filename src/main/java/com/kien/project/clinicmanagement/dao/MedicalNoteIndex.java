@@ -0,0 +1,356 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.MedicalNoteFilter;
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.MedicalResult;
+import com.kien.project.clinicmanagement.utils.BackgroundExecutor;
+import com.kien.project.clinicmanagement.utils.TextNormalizer;
+
+/**
+ * Chỉ mục toàn văn trong bộ nhớ cho ghi chú khám (triệu chứng, chẩn đoán, hướng điều trị).
+ * Văn bản được bỏ dấu, tách từ và lưu vị trí từng từ để hỗ trợ tìm cụm từ trong ngoặc kép;
+ * kết quả phải chứa đủ mọi từ/cụm từ trong câu tìm kiếm và được xếp hạng theo BM25.
+ * Dựng bằng một lần quét tuần tự bảng medical_result, MedicalResultDAO cập nhật sau mỗi lần ghi;
+ * kết quả khám lưu ở máy khác được thấy sau lần dựng lại định kỳ.
+ */
+class MedicalNoteIndex {
+
+	// Tham số BM25 thông dụng
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	// Khoảng cách vị trí giữa các trường để cụm từ không khớp vắt qua hai trường
+	private static final int FIELD_GAP = 100;
+	private static final long REBUILD_INTERVAL_MS = 10 * 60_000;
+
+	private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+	// Cụm từ trong ngoặc kép hoặc một từ đơn
+	private static final Pattern QUERY_PART = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+	private record Document(MedicalResult result, int length) {
+	}
+
+	private record ScoredDocument(Document document, double score) {
+	}
+
+	// Toàn bộ dữ liệu chỉ mục, được thay nguyên khối khi dựng lại
+	private static final class Index {
+		private final Map<Long, Document> documents = new HashMap<>();
+		// Từ -> (id kết quả khám -> các vị trí tăng dần)
+		private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+		private long totalLength;
+	}
+
+	private static final MedicalNoteIndex INSTANCE = new MedicalNoteIndex();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Index index = new Index();
+
+	private volatile boolean ready = false;
+	private volatile long builtAt = 0;
+	private final AtomicBoolean building = new AtomicBoolean(false);
+	// Thay đổi xảy ra trong lúc đang quét, áp dụng lại sau khi thay chỉ mục mới.
+	// building và pendingChanges chỉ được đổi khi giữ write lock (xem PatientSearchIndex)
+	private final List<Consumer<Index>> pendingChanges = new ArrayList<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	private MedicalNoteIndex() {
+	}
+
+	static MedicalNoteIndex getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Dựng chỉ mục trên luồng nền nếu chưa có hoặc đã quá hạn.
+	 * @param scanner quét toàn bộ kết quả khám, gọi consumer cho từng dòng
+	 */
+	void refreshIfStale(Consumer<Consumer<MedicalResult>> scanner) {
+		if (ready && System.currentTimeMillis() - builtAt < REBUILD_INTERVAL_MS)
+			return;
+		if (!building.compareAndSet(false, true))
+			return;
+		BackgroundExecutor.get().execute(() -> rebuild(scanner));
+	}
+
+	private void rebuild(Consumer<Consumer<MedicalResult>> scanner) {
+		Index fresh = new Index();
+		boolean scanned = false;
+		try {
+			scanner.accept(result -> addDocument(fresh, result));
+			scanned = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (scanned) {
+				for (Consumer<Index> change : pendingChanges) {
+					change.accept(fresh);
+				}
+				index = fresh;
+				ready = true;
+				builtAt = System.currentTimeMillis();
+				loads.increment();
+			}
+		} finally {
+			// Quét lỗi thì giữ chỉ mục cũ (các thay đổi đã được áp dụng trực tiếp lên nó)
+			pendingChanges.clear();
+			building.set(false);
+			lock.writeLock().unlock();
+		}
+	}
+
+	void put(MedicalResult result) {
+		MedicalResult snapshot = copy(result);
+		apply(target -> {
+			removeDocument(target, snapshot.getId());
+			addDocument(target, snapshot);
+		});
+	}
+
+	void remove(Long id) {
+		apply(target -> removeDocument(target, id));
+	}
+
+	private void apply(Consumer<Index> change) {
+		lock.writeLock().lock();
+		try {
+			if (building.get()) {
+				pendingChanges.add(change);
+			}
+			change.accept(index);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Tìm kết quả khám chứa mọi từ và cụm từ ("..." ) trong câu tìm kiếm, lọc theo bệnh nhân/bác sĩ/ngày,
+	 * xếp theo điểm BM25 giảm dần rồi ngày khám mới nhất. Câu tìm kiếm rỗng trả về mọi kết quả khớp bộ lọc.
+	 * @return null nếu chỉ mục chưa sẵn sàng
+	 */
+	PagedResult<MedicalResult> search(String query, MedicalNoteFilter filter, int offset, int limit) {
+		if (!ready) {
+			misses.increment();
+			return null;
+		}
+		List<List<String>> clauses = parseQuery(query);
+		MedicalNoteFilter effectiveFilter = (filter != null) ? filter : MedicalNoteFilter.none();
+
+		List<ScoredDocument> matches = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			if (clauses.isEmpty()) {
+				for (Document document : index.documents.values()) {
+					if (matchesFilter(document.result(), effectiveFilter))
+						matches.add(new ScoredDocument(document, 0));
+				}
+			} else {
+				collectMatches(clauses, effectiveFilter, matches);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		hits.increment();
+
+		matches.sort(Comparator.comparingDouble(ScoredDocument::score).reversed()
+				.thenComparing(scored -> scored.document().result().getExaminationDate(),
+						Comparator.nullsLast(Comparator.reverseOrder()))
+				.thenComparing(scored -> scored.document().result().getId(), Comparator.reverseOrder()));
+
+		int from = Math.min(Math.max(offset, 0), matches.size());
+		int to = (int) Math.min((long) from + limit, matches.size());
+		List<MedicalResult> rows = new ArrayList<>(to - from);
+		for (ScoredDocument scored : matches.subList(from, to)) {
+			rows.add(copy(scored.document().result()));
+		}
+		return new PagedResult<>(rows, matches.size(), offset, limit);
+	}
+
+	private void collectMatches(List<List<String>> clauses, MedicalNoteFilter filter, List<ScoredDocument> matches) {
+		Set<String> terms = new LinkedHashSet<>();
+		for (List<String> clause : clauses) {
+			terms.addAll(clause);
+		}
+
+		// Mọi từ đều phải có mặt: duyệt danh sách ngắn nhất làm ứng viên
+		Map<Long, int[]> smallest = null;
+		for (String term : terms) {
+			Map<Long, int[]> posting = index.postings.get(term);
+			if (posting == null)
+				return;
+			if (smallest == null || posting.size() < smallest.size())
+				smallest = posting;
+		}
+
+		int documentCount = index.documents.size();
+		double averageLength = documentCount == 0 ? 1 : Math.max(1.0, (double) index.totalLength / documentCount);
+
+		for (Long id : smallest.keySet()) {
+			Document document = index.documents.get(id);
+			if (document == null || !matchesFilter(document.result(), filter))
+				continue;
+			if (!matchesAllClauses(id, clauses))
+				continue;
+
+			double score = 0;
+			for (String term : terms) {
+				Map<Long, int[]> posting = index.postings.get(term);
+				int frequency = posting.get(id).length;
+				double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+				double norm = K1 * (1 - B + B * document.length() / averageLength);
+				score += idf * (frequency * (K1 + 1)) / (frequency + norm);
+			}
+			matches.add(new ScoredDocument(document, score));
+		}
+	}
+
+	private boolean matchesAllClauses(Long id, List<List<String>> clauses) {
+		for (List<String> clause : clauses) {
+			for (String term : clause) {
+				if (!index.postings.get(term).containsKey(id))
+					return false;
+			}
+			if (clause.size() > 1 && !matchesPhrase(id, clause))
+				return false;
+		}
+		return true;
+	}
+
+	// Cụm từ khớp khi có vị trí p của từ đầu mà từ thứ i nằm ở p + i
+	private boolean matchesPhrase(Long id, List<String> phrase) {
+		int[] starts = index.postings.get(phrase.get(0)).get(id);
+		for (int start : starts) {
+			boolean matched = true;
+			for (int i = 1; i < phrase.size() && matched; i++) {
+				int[] positions = index.postings.get(phrase.get(i)).get(id);
+				matched = Arrays.binarySearch(positions, start + i) >= 0;
+			}
+			if (matched)
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean matchesFilter(MedicalResult result, MedicalNoteFilter filter) {
+		if (filter.getPatientCode() != null && !filter.getPatientCode().equalsIgnoreCase(result.getPatientCode()))
+			return false;
+		if (filter.getDoctorCode() != null && !filter.getDoctorCode().equalsIgnoreCase(result.getDoctorCode()))
+			return false;
+		if (filter.getFromDate() != null
+				&& (result.getExaminationDate() == null || result.getExaminationDate().isBefore(filter.getFromDate())))
+			return false;
+		if (filter.getToDate() != null
+				&& (result.getExaminationDate() == null || result.getExaminationDate().isAfter(filter.getToDate())))
+			return false;
+		return true;
+	}
+
+	CacheStatistics getStatistics() {
+		lock.readLock().lock();
+		try {
+			return new CacheStatistics("medical-notes", hits.sum(), misses.sum(), loads.sum(),
+					index.documents.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Mỗi phần trong ngoặc kép là một cụm từ; từ đơn bị tách thành nhiều từ (vd: "đau-đầu") cũng coi là cụm từ
+	private static List<List<String>> parseQuery(String query) {
+		List<List<String>> clauses = new ArrayList<>();
+		if (query == null)
+			return clauses;
+		Matcher matcher = QUERY_PART.matcher(query);
+		while (matcher.find()) {
+			String part = (matcher.group(1) != null) ? matcher.group(1) : matcher.group(2);
+			List<String> tokens = tokenize(part);
+			if (!tokens.isEmpty())
+				clauses.add(tokens);
+		}
+		return clauses;
+	}
+
+	private static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null || text.isBlank())
+			return tokens;
+		for (String token : TOKEN_SPLIT.split(TextNormalizer.fold(text))) {
+			if (!token.isEmpty())
+				tokens.add(token);
+		}
+		return tokens;
+	}
+
+	private static void addDocument(Index target, MedicalResult result) {
+		Map<String, List<Integer>> positions = new HashMap<>();
+		int position = 0;
+		int length = 0;
+		for (String text : new String[] { result.getSymptoms(), result.getDiagnosis(), result.getTreatmentPlan() }) {
+			for (String token : tokenize(text)) {
+				positions.computeIfAbsent(token, k -> new ArrayList<>()).add(position++);
+				length++;
+			}
+			position += FIELD_GAP;
+		}
+
+		for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+			int[] termPositions = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+			target.postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(result.getId(), termPositions);
+		}
+		target.documents.put(result.getId(), new Document(copy(result), length));
+		target.totalLength += length;
+	}
+
+	private static void removeDocument(Index target, Long id) {
+		Document previous = target.documents.remove(id);
+		if (previous == null)
+			return;
+		MedicalResult result = previous.result();
+		for (String text : new String[] { result.getSymptoms(), result.getDiagnosis(), result.getTreatmentPlan() }) {
+			for (String token : tokenize(text)) {
+				Map<Long, int[]> posting = target.postings.get(token);
+				if (posting != null) {
+					posting.remove(id);
+					if (posting.isEmpty())
+						target.postings.remove(token);
+				}
+			}
+		}
+		target.totalLength -= previous.length();
+	}
+
+	private static MedicalResult copy(MedicalResult source) {
+		MedicalResult result = new MedicalResult();
+		result.setId(source.getId());
+		result.setExamQueueId(source.getExamQueueId());
+		result.setPatientCode(source.getPatientCode());
+		result.setDoctorCode(source.getDoctorCode());
+		result.setExaminationDate(source.getExaminationDate());
+		result.setSymptoms(source.getSymptoms());
+		result.setDiagnosis(source.getDiagnosis());
+		result.setTreatmentPlan(source.getTreatmentPlan());
+		return result;
+	}
+}
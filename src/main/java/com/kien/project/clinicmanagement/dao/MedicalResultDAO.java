@@ -7,12 +7,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.MedicalNoteFilter;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.MedicalResult;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
 
 public class MedicalResultDAO {
 
+	private final MedicalNoteIndex noteIndex = MedicalNoteIndex.getInstance();
+
 	private MedicalResult extractMedicalResultFromResultSet(ResultSet rs) throws SQLException {
 		MedicalResult result = new MedicalResult();
 		result.setId(rs.getLong("id"));
@@ -98,15 +104,23 @@ public class MedicalResultDAO {
 	}
 
 	public void addMedicalResult(MedicalResult result) {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			addMedicalResult(conn, result);
+			noteIndex.put(result);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Dùng trong giao dịch đang mở (kết thúc khám); gọi indexCommitted sau khi commit
+	public void addMedicalResult(Connection conn, MedicalResult result) throws SQLException {
 		String sql = """
 				    INSERT INTO medical_result
 				    (id, exam_queue_id, patient_code, doctor_code, examination_date, symptoms, diagnosis, treatment_plan)
 				    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
 				""";
 
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 			stmt.setLong(1, result.getId()); // Tự set ID đã sinh ra
 			stmt.setLong(2, result.getExamQueueId());
 			stmt.setString(3, result.getPatientCode());
@@ -117,8 +131,6 @@ public class MedicalResultDAO {
 			stmt.setString(8, result.getTreatmentPlan());
 
 			stmt.executeUpdate();
-		} catch (Exception e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -143,6 +155,7 @@ public class MedicalResultDAO {
 			stmt.setLong(8, result.getId());
 
 			stmt.executeUpdate();
+			noteIndex.put(result);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -156,6 +169,7 @@ public class MedicalResultDAO {
 
 			stmt.setLong(1, id);
 			stmt.executeUpdate();
+			noteIndex.remove(id);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -242,4 +256,47 @@ public class MedicalResultDAO {
 
 		return 0;
 	}
+
+	// ==================== Tìm kiếm toàn văn ghi chú khám ====================
+
+	/**
+	 * Tìm trong triệu chứng, chẩn đoán và hướng điều trị (bỏ dấu, "cụm từ" trong ngoặc kép, xếp hạng BM25).
+	 * @return null nếu chỉ mục chưa dựng xong (lần đầu sau khi khởi động)
+	 */
+	public PagedResult<MedicalResult> searchNotes(String query, MedicalNoteFilter filter, int offset, int limit) {
+		noteIndex.refreshIfStale(this::scanAllMedicalResults);
+		return noteIndex.search(query, filter, offset, limit);
+	}
+
+	// Kết quả được thêm trong giao dịch của ExaminationDAO chỉ được đưa vào chỉ mục sau khi commit
+	public void indexCommitted(MedicalResult result) {
+		noteIndex.put(result);
+	}
+
+	public void warmUpNoteIndex() {
+		noteIndex.refreshIfStale(this::scanAllMedicalResults);
+	}
+
+	public CacheStatistics getNoteIndexStatistics() {
+		return noteIndex.getStatistics();
+	}
+
+	// Đọc tuần tự từng dòng (streaming result set của MySQL) thay vì nạp cả bảng vào một List
+	private void scanAllMedicalResults(Consumer<MedicalResult> consumer) {
+		String sql = "SELECT * FROM medical_result";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY)) {
+
+			stmt.setFetchSize(Integer.MIN_VALUE);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					consumer.accept(extractMedicalResultFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to scan medical_result", e);
+		}
+	}
 }
@@ -0,0 +1,138 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.model.Medicine;
+
+/**
+ * Danh mục thuốc trong bộ nhớ (theo mã và theo tên, kèm tồn kho hiện tại).
+ * Nạp toàn bộ một lần, sau đó MedicineDAO cập nhật ngay sau mỗi lần ghi;
+ * thay đổi từ máy khác được thấy sau lần nạp lại định kỳ.
+ * Luôn trả về bản sao để nơi gọi sửa object không làm bẩn cache.
+ */
+class MedicineCatalogCache {
+
+	private static final long RELOAD_INTERVAL_MS = 60_000;
+
+	private static final MedicineCatalogCache INSTANCE = new MedicineCatalogCache();
+
+	private final Map<String, Medicine> byCode = new ConcurrentHashMap<>();
+	// Tên (không phân biệt hoa thường, giống collation của MySQL) -> mã thuốc
+	private final Map<String, String> codeByName = new ConcurrentHashMap<>();
+	private volatile long loadedAt = 0; // 0 = chưa nạp
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	private MedicineCatalogCache() {
+	}
+
+	static MedicineCatalogCache getInstance() {
+		return INSTANCE;
+	}
+
+	// null nếu không có trong cache (nơi gọi tự đọc database)
+	Medicine get(String code, Supplier<List<Medicine>> loader) {
+		ensureLoaded(loader);
+		Medicine medicine = (code == null) ? null : byCode.get(code);
+		if (medicine == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return copy(medicine);
+	}
+
+	String findCodeByName(String name, Supplier<List<Medicine>> loader) {
+		ensureLoaded(loader);
+		String code = (name == null) ? null : codeByName.get(nameKey(name));
+		if (code == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return code;
+	}
+
+	synchronized void put(Medicine medicine) {
+		Medicine previous = byCode.put(medicine.getCode(), copy(medicine));
+		if (previous != null && previous.getName() != null) {
+			codeByName.remove(nameKey(previous.getName()), previous.getCode());
+		}
+		if (medicine.getName() != null) {
+			codeByName.put(nameKey(medicine.getName()), medicine.getCode());
+		}
+	}
+
+	synchronized void remove(String code) {
+		Medicine previous = byCode.remove(code);
+		if (previous != null && previous.getName() != null) {
+			codeByName.remove(nameKey(previous.getName()), code);
+		}
+	}
+
+	// Áp dụng thay đổi tồn kho đã commit, không cần đọc lại database
+	void adjustQuantity(String code, int delta) {
+		byCode.computeIfPresent(code, (k, medicine) -> {
+			Medicine updated = copy(medicine);
+			updated.setQuantity(medicine.getQuantity() + delta);
+			return updated;
+		});
+	}
+
+	void setQuantity(String code, int quantity) {
+		byCode.computeIfPresent(code, (k, medicine) -> {
+			Medicine updated = copy(medicine);
+			updated.setQuantity(quantity);
+			return updated;
+		});
+	}
+
+	void invalidateAll() {
+		loadedAt = 0;
+	}
+
+	CacheStatistics getStatistics() {
+		return new CacheStatistics("medicine", hits.sum(), misses.sum(), loads.sum(), byCode.size());
+	}
+
+	private void ensureLoaded(Supplier<List<Medicine>> loader) {
+		if (System.currentTimeMillis() - loadedAt < RELOAD_INTERVAL_MS) return;
+		synchronized (this) {
+			if (System.currentTimeMillis() - loadedAt < RELOAD_INTERVAL_MS) return;
+			List<Medicine> all = loader.get();
+			byCode.clear();
+			codeByName.clear();
+			for (Medicine medicine : all) {
+				put(medicine);
+			}
+			loadedAt = System.currentTimeMillis();
+			loads.increment();
+		}
+	}
+
+	private static String nameKey(String name) {
+		return name.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static Medicine copy(Medicine source) {
+		Medicine medicine = new Medicine();
+		medicine.setId(source.getId());
+		medicine.setCode(source.getCode());
+		medicine.setName(source.getName());
+		medicine.setDescription(source.getDescription());
+		medicine.setUnit(source.getUnit());
+		medicine.setPrice(source.getPrice());
+		medicine.setMaxAge(source.getMaxAge());
+		medicine.setMinAge(source.getMinAge());
+		medicine.setQuantity(source.getQuantity());
+		return medicine;
+	}
+}
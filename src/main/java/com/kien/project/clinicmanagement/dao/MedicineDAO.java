@@ -4,14 +4,34 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.InventoryMovement;
 import com.kien.project.clinicmanagement.model.Medicine;
+import com.kien.project.clinicmanagement.model.MedicineLot;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.PageHelper;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
 
 public class MedicineDAO {
 
+	private static final int LOOKUP_TIMEOUT_SECONDS = 5;
+
+	private final SequenceDAO sequenceDAO = new SequenceDAO();
+	private final MedicineCatalogCache catalogCache = MedicineCatalogCache.getInstance();
+	private final InventoryLedgerDAO ledgerDAO = new InventoryLedgerDAO();
+	private final MedicineLotDAO lotDAO = new MedicineLotDAO();
+
 	// Lấy tất cả thuốc
 	public List<Medicine> getAllMedicines() {
 		List<Medicine> list = new ArrayList<>();
@@ -75,6 +95,74 @@ public class MedicineDAO {
 		return list;
 	}
 
+	// Trang dữ liệu kèm tổng số dòng (COUNT(*) OVER()) trong một truy vấn
+	public PagedResult<Medicine> getMedicinesPage(int offset, int limit) {
+		List<Medicine> list = new ArrayList<>();
+		int total = 0;
+
+		String sql = """
+				SELECT *, COUNT(*) OVER() AS total_count
+				FROM medicine
+				ORDER BY id DESC
+				LIMIT ? OFFSET ?
+				""";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setInt(1, limit);
+			stmt.setInt(2, offset);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					total = rs.getInt("total_count");
+					list.add(extractMedicineFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countMedicines();
+		return new PagedResult<>(list, total, offset, limit);
+	}
+
+	// Lấy thuốc theo keyset (id của dòng mốc) cho Next/Prev
+	public List<Medicine> getMedicinesSeek(long anchorId, PageHelper.Direction direction, int limit) {
+		List<Medicine> list = new ArrayList<>();
+		boolean next = direction == PageHelper.Direction.NEXT;
+
+		String sql = """
+				SELECT *
+				FROM medicine
+				WHERE id %s ?
+				ORDER BY id %s
+				LIMIT ?
+				""".formatted(next ? "<" : ">", next ? "DESC" : "ASC");
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setLong(1, anchorId);
+			stmt.setInt(2, limit);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					list.add(extractMedicineFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		if (!next) {
+			Collections.reverse(list);
+		}
+		return list;
+	}
+
 	// Tìm kiếm thuốc với offset và limit
 	public List<Medicine> searchMedicines(String keyword, String field, int offset, int limit) {
 		List<Medicine> list = new ArrayList<>();
@@ -105,6 +193,76 @@ public class MedicineDAO {
 		return list;
 	}
 
+	public PagedResult<Medicine> searchMedicinesPage(String keyword, String field, int offset, int limit) {
+		List<Medicine> list = new ArrayList<>();
+		int total = 0;
+
+		String column = switch (field.toLowerCase()) {
+		case "search by unit" -> "unit";
+		default -> "name";
+		};
+
+		String sql = String.format(
+				"SELECT *, COUNT(*) OVER() AS total_count FROM medicine WHERE %s LIKE ? ORDER BY id ASC LIMIT ? OFFSET ?",
+				column);
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setString(1, "%" + keyword + "%");
+			stmt.setInt(2, limit);
+			stmt.setInt(3, offset);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					total = rs.getInt("total_count");
+					list.add(extractMedicineFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countSearchMedicines(keyword, field);
+		return new PagedResult<>(list, total, offset, limit);
+	}
+
+	// Tìm kiếm khi đang gõ: có timeout và có thể bị hủy giữa chừng khi người dùng gõ tiếp
+	public List<Medicine> searchMedicinesForLookup(String keyword, String field, int limit,
+			QueryCancellation cancellation) {
+		List<Medicine> list = new ArrayList<>();
+
+		String column = switch (field.toLowerCase()) {
+		case "search by unit" -> "unit";
+		default -> "name";
+		};
+
+		String sql = String.format("SELECT * FROM medicine WHERE %s LIKE ? ORDER BY id ASC LIMIT ?", column);
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+			stmt.setQueryTimeout(LOOKUP_TIMEOUT_SECONDS);
+			stmt.setString(1, "%" + keyword + "%");
+			stmt.setInt(2, limit);
+			cancellation.register(stmt);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					list.add(extractMedicineFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			// Bị hủy do có từ khóa mới thì bỏ qua, kết quả sẽ không được dùng
+			if (!cancellation.isCancelled())
+				e.printStackTrace();
+		}
+
+		return list;
+	}
+
 	public int countSearchMedicines(String keyword, String field) {
 		String column = switch (field.toLowerCase()) {
 		case "search by unit" -> "unit";
@@ -127,7 +285,19 @@ public class MedicineDAO {
 		return 0;
 	}
 
+	// Đọc từ danh mục trong bộ nhớ; không có (thuốc mới thêm ở máy khác) thì đọc database rồi bổ sung vào cache
 	public Medicine getByMedicineCode(String code) {
+		Medicine cached = catalogCache.get(code, this::getAllMedicines);
+		if (cached != null)
+			return cached;
+
+		Medicine medicine = loadByMedicineCode(code);
+		if (medicine != null)
+			catalogCache.put(medicine);
+		return medicine;
+	}
+
+	private Medicine loadByMedicineCode(String code) {
 		String sql = "SELECT * FROM medicine WHERE code = ?";
 
 		try (Connection conn = ConnectionDatabase.getConnection();
@@ -144,108 +314,466 @@ public class MedicineDAO {
 		return null;
 	}
 
+	// Ghi xong thì đọc lại đúng dòng đó vào cache (write-through)
+	private void refreshCacheEntry(String code) {
+		Medicine medicine = loadByMedicineCode(code);
+		if (medicine != null) {
+			catalogCache.put(medicine);
+		} else {
+			catalogCache.remove(code);
+		}
+	}
+
+	public CacheStatistics getCacheStatistics() {
+		return catalogCache.getStatistics();
+	}
+
+	// Gọi sau khi giao dịch trừ kho (decreaseQuantities) đã commit
+	public void applyCommittedDecrease(Map<String, Integer> quantities) {
+		quantities.forEach((code, quantity) -> {
+			catalogCache.adjustQuantity(code, -quantity);
+			lotDAO.refreshCommitted(code);
+		});
+	}
+
 	public void addMedicine(Medicine medicine) {
 		String sql = """
 				    INSERT INTO medicine (code, name, description, unit, price, max_age, min_age, quantity)
 				    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
 				""";
 
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			stmt.setString(1, medicine.getCode());
-			stmt.setString(2, medicine.getName());
-			stmt.setString(3, medicine.getDescription());
-			stmt.setString(4, medicine.getUnit());
-			stmt.setBigDecimal(5, medicine.getPrice());
-			stmt.setInt(6, medicine.getMaxAge());
-			stmt.setInt(7, medicine.getMinAge());
-			stmt.setInt(8, medicine.getQuantity());
-
-			stmt.executeUpdate();
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setString(1, medicine.getCode());
+				stmt.setString(2, medicine.getName());
+				stmt.setString(3, medicine.getDescription());
+				stmt.setString(4, medicine.getUnit());
+				stmt.setBigDecimal(5, medicine.getPrice());
+				stmt.setInt(6, medicine.getMaxAge());
+				stmt.setInt(7, medicine.getMinAge());
+				stmt.setInt(8, medicine.getQuantity());
+
+				stmt.executeUpdate();
+				// Số lượng ban đầu là số dư đầu kỳ của thuốc trong sổ kho
+				ledgerDAO.record(conn, medicine.getCode(), InventoryMovement.Type.OPENING, medicine.getQuantity(),
+						"New medicine");
+				if (medicine.getQuantity() > 0)
+					lotDAO.receive(conn, medicine.getCode(), MedicineLot.UNASSIGNED, null, medicine.getQuantity());
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+			refreshCacheEntry(medicine.getCode());
+			lotDAO.refreshCommitted(medicine.getCode());
 
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	// Đặt lại số lượng tuyệt đối (kiểm kê): chênh lệch so với số cũ được ghi thành dòng điều chỉnh
 	public boolean updateQuantity(String medicineCode, int newQuantity) {
-		// ví dụ cập nhật vào database:
-		String sql = "UPDATE medicine SET quantity = ? WHERE code = ?";
-		try (Connection conn = ConnectionDatabase.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-			ps.setInt(1, newQuantity);
-			ps.setString(2, medicineCode);
-			int affected = ps.executeUpdate();
-			return affected > 0;
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				if (!setQuantityLocked(conn, medicineCode, newQuantity, "Stock count")) {
+					conn.rollback();
+					return false;
+				}
+				conn.commit();
+				catalogCache.setQuantity(medicineCode, newQuantity);
+				lotDAO.refreshCommitted(medicineCode);
+				return true;
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	// Trừ kho có điều kiện trong một lệnh: không đủ hàng thì không trừ (tránh đọc-rồi-ghi)
+	public boolean decreaseQuantity(String medicineCode, int quantity) {
+		return changeStock(medicineCode, -quantity, InventoryMovement.Type.DISPENSE, "Prescription detail");
+	}
+
+	// Hoàn lại kho khi giảm/xóa chi tiết đơn thuốc
+	public boolean increaseQuantity(String medicineCode, int quantity) {
+		return changeStock(medicineCode, quantity, InventoryMovement.Type.ADJUSTMENT, "Prescription detail returned");
+	}
+
+	private boolean changeStock(String medicineCode, int delta, InventoryMovement.Type type, String reference) {
+		return changeStock(medicineCode, delta, type, reference, MedicineLot.UNASSIGNED, null);
+	}
+
+	/**
+	 * Cộng/trừ medicine.quantity, lô thuốc và ghi dòng sổ kho trong cùng một giao dịch.
+	 * Trừ kho chỉ thành công khi còn đủ hàng (điều kiện quantity >= ? ngay trong lệnh UPDATE)
+	 * và các lô chưa hết hạn đủ để xuất theo FEFO; cộng kho thì nhập vào lô lotNumber.
+	 */
+	private boolean changeStock(String medicineCode, int delta, InventoryMovement.Type type, String reference,
+			String lotNumber, LocalDate expiryDate) {
+		String sql = (delta < 0)
+				? "UPDATE medicine SET quantity = quantity + ? WHERE code = ? AND quantity >= ?"
+				: "UPDATE medicine SET quantity = quantity + ? WHERE code = ?";
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement ps = conn.prepareStatement(sql)) {
+				ps.setInt(1, delta);
+				ps.setString(2, medicineCode);
+				if (delta < 0)
+					ps.setInt(3, -delta);
+				if (ps.executeUpdate() == 0) {
+					conn.rollback();
+					return false;
+				}
+				if (delta < 0) {
+					if (!lotDAO.allocate(conn, medicineCode, -delta, false)) {
+						conn.rollback();
+						return false;
+					}
+				} else {
+					lotDAO.receive(conn, medicineCode, lotNumber, expiryDate, delta);
+				}
+				ledgerDAO.record(conn, medicineCode, type, delta, reference);
+				conn.commit();
+				catalogCache.adjustQuantity(medicineCode, delta);
+				lotDAO.refreshCommitted(medicineCode);
+				return true;
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 			return false;
 		}
 	}
 
-	public void updateMedicine(Medicine medicine) {
+	// Khóa dòng thuốc, đặt số lượng mới và ghi chênh lệch vào sổ kho; gọi trong giao dịch đang mở.
+	// Trả về false khi chưa ghi gì (thuốc không tồn tại hoặc lô không đủ để giảm); nơi gọi phải rollback, không commit
+	private boolean setQuantityLocked(Connection conn, String medicineCode, int newQuantity, String reference)
+			throws SQLException {
+		Integer oldQuantity = null;
+		try (PreparedStatement ps = conn.prepareStatement("SELECT quantity FROM medicine WHERE code = ? FOR UPDATE")) {
+			ps.setString(1, medicineCode);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next())
+					oldQuantity = rs.getInt(1);
+			}
+		}
+		if (oldQuantity == null)
+			return false;
+
+		// Kiểm kê giảm thì trừ lô theo FEFO (kể cả lô đã hết hạn), tăng thì đưa vào lô UNASSIGNED
+		int difference = newQuantity - oldQuantity;
+		if (difference < 0) {
+			if (!lotDAO.allocate(conn, medicineCode, -difference, true))
+				return false;
+		} else if (difference > 0) {
+			lotDAO.receive(conn, medicineCode, MedicineLot.UNASSIGNED, null, difference);
+		}
+
+		try (PreparedStatement ps = conn.prepareStatement("UPDATE medicine SET quantity = ? WHERE code = ?")) {
+			ps.setInt(1, newQuantity);
+			ps.setString(2, medicineCode);
+			ps.executeUpdate();
+		}
+		ledgerDAO.record(conn, medicineCode, InventoryMovement.Type.ADJUSTMENT, difference, reference);
+		return true;
+	}
+
+	/**
+	 * Trừ kho nhiều thuốc trong giao dịch đang mở bằng một JDBC batch.
+	 * Trả về danh sách mã thuốc không trừ được (không tồn tại, không đủ hàng hoặc không đủ lô còn hạn).
+	 * Khi danh sách khác rỗng, số lượng trong giao dịch có thể đã bị trừ một phần: nơi gọi phải rollback
+	 * trước khi đọc lại tồn kho.
+	 */
+	public List<String> decreaseQuantities(Connection conn, Map<String, Integer> quantities, String reference)
+			throws SQLException {
+		String sql = "UPDATE medicine SET quantity = quantity - ? WHERE code = ? AND quantity >= ?";
+		List<String> codes = new ArrayList<>(quantities.keySet());
+		Collections.sort(codes); // Khóa dòng theo cùng thứ tự để hai giao dịch không deadlock
+
+		List<String> failed = new ArrayList<>();
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (String code : codes) {
+				int quantity = quantities.get(code);
+				ps.setInt(1, quantity);
+				ps.setString(2, code);
+				ps.setInt(3, quantity);
+				ps.addBatch();
+			}
+			int[] results = ps.executeBatch();
+			for (int i = 0; i < results.length; i++) {
+				if (results[i] == 0) {
+					failed.add(codes.get(i));
+				}
+			}
+		}
+
+		// Xuất từ các lô theo FEFO; dòng medicine đã bị khóa ở trên nên các lô không bị trừ song song
+		if (failed.isEmpty()) {
+			for (String code : codes) {
+				if (!lotDAO.allocate(conn, code, quantities.get(code), false))
+					failed.add(code);
+			}
+		}
+
+		// Trừ đủ mọi thuốc thì ghi các dòng xuất kho trong cùng giao dịch; thiếu hàng thì nơi gọi sẽ rollback
+		if (failed.isEmpty()) {
+			Map<String, Integer> deltas = new LinkedHashMap<>();
+			for (String code : codes) {
+				deltas.put(code, -quantities.get(code));
+			}
+			ledgerDAO.recordAll(conn, deltas, InventoryMovement.Type.DISPENSE, reference);
+		}
+		return failed;
+	}
+
+	// Số lượng tồn hiện tại của các mã thuốc (mã không tồn tại sẽ không có trong kết quả)
+	public Map<String, Integer> getQuantities(Connection conn, List<String> codes) throws SQLException {
+		Map<String, Integer> result = new HashMap<>();
+		if (codes.isEmpty()) return result;
+
+		String placeholders = String.join(", ", Collections.nCopies(codes.size(), "?"));
+		String sql = "SELECT code, quantity FROM medicine WHERE code IN (" + placeholders + ")";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (int i = 0; i < codes.size(); i++) {
+				ps.setString(i + 1, codes.get(i));
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.put(rs.getString("code"), rs.getInt("quantity"));
+				}
+			}
+		}
+		return result;
+	}
+
+	// Trả về false nếu không lưu được (thuốc không tồn tại hoặc các lô không đủ để giảm số lượng); khi đó không có gì thay đổi
+	public boolean updateMedicine(Medicine medicine) {
 		String sql = """
 				    UPDATE medicine SET
-				        name = ?, description = ?, unit = ?, price = ?, max_age = ?, min_age = ?, quantity = ?
+				        name = ?, description = ?, unit = ?, price = ?, max_age = ?, min_age = ?
 				    WHERE code = ?
 				""";
 
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			stmt.setString(1, medicine.getName());
-			stmt.setString(2, medicine.getDescription());
-			stmt.setString(3, medicine.getUnit());
-			stmt.setBigDecimal(4, medicine.getPrice());
-			stmt.setInt(5, medicine.getMaxAge());
-			stmt.setInt(6, medicine.getMinAge());
-			stmt.setInt(7, medicine.getQuantity());
-			stmt.setString(8, medicine.getCode());
-
-			stmt.executeUpdate();
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setString(1, medicine.getName());
+				stmt.setString(2, medicine.getDescription());
+				stmt.setString(3, medicine.getUnit());
+				stmt.setBigDecimal(4, medicine.getPrice());
+				stmt.setInt(5, medicine.getMaxAge());
+				stmt.setInt(6, medicine.getMinAge());
+				stmt.setString(7, medicine.getCode());
+
+				stmt.executeUpdate();
+				// Số lượng sửa trên form được ghi thành dòng điều chỉnh kho
+				if (!setQuantityLocked(conn, medicine.getCode(), medicine.getQuantity(), "Medicine edited")) {
+					conn.rollback();
+					return false;
+				}
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+			refreshCacheEntry(medicine.getCode());
+			lotDAO.refreshCommitted(medicine.getCode());
+			return true;
 
 		} catch (Exception e) {
 			e.printStackTrace();
+			return false;
 		}
 	}
 
 	// Cập nhật số lượng thuốc (thêm vào stock)
 	public boolean addStock(String code, int addedQuantity) {
-		String sql = "UPDATE medicine SET quantity = quantity + ? WHERE code = ?";
+		return changeStock(code, addedQuantity, InventoryMovement.Type.STOCK_IN, "Stock added");
+	}
 
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
+	// Nhập hàng vào một lô cụ thể; lotNumber rỗng thì vào lô UNASSIGNED
+	public boolean addStock(String code, int addedQuantity, String lotNumber, LocalDate expiryDate) {
+		String lot = (lotNumber == null || lotNumber.isBlank()) ? MedicineLot.UNASSIGNED : lotNumber.trim();
+		return changeStock(code, addedQuantity, InventoryMovement.Type.STOCK_IN, "Stock added: lot " + lot, lot,
+				expiryDate);
+	}
+
+	public void deleteMedicine(String code) {
+		String sql = "DELETE FROM medicine WHERE code = ?";
 
-			stmt.setInt(1, addedQuantity);
-			stmt.setString(2, code);
-			return stmt.executeUpdate() > 0;
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setString(1, code);
+				stmt.executeUpdate();
+				lotDAO.deleteLots(conn, code);
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+			catalogCache.remove(code);
+			lotDAO.removeCommitted(code);
 
 		} catch (Exception e) {
-			System.err.println("Error adding stock for medicine:");
 			e.printStackTrace();
-			return false;
 		}
 	}
 
-	public void deleteMedicine(String code) {
-		String sql = "DELETE FROM medicine WHERE code = ?";
+	// ==================== Nhập hàng loạt từ Excel ====================
 
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
+	// Thuốc có mã hoặc tên thuộc các tập đã cho, trong một truy vấn cho cả lô (so sánh tên theo collation, không phân biệt hoa thường)
+	public List<Medicine> findByCodesOrNames(Collection<String> codes, Collection<String> names) {
+		List<Medicine> list = new ArrayList<>();
+		List<String> conditions = new ArrayList<>();
+		List<String> params = new ArrayList<>();
+		if (!codes.isEmpty()) {
+			conditions.add("code IN (" + String.join(", ", Collections.nCopies(codes.size(), "?")) + ")");
+			params.addAll(codes);
+		}
+		if (!names.isEmpty()) {
+			conditions.add("name IN (" + String.join(", ", Collections.nCopies(names.size(), "?")) + ")");
+			params.addAll(names);
+		}
+		if (conditions.isEmpty())
+			return list;
 
-			stmt.setString(1, code);
-			stmt.executeUpdate();
+		String sql = "SELECT * FROM medicine WHERE " + String.join(" OR ", conditions);
+		try (Connection conn = ConnectionDatabase.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (int i = 0; i < params.size(); i++) {
+				ps.setString(i + 1, params.get(i));
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					list.add(extractMedicineFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to look up existing medicines", e);
+		}
+		return list;
+	}
+
+	/**
+	 * Ghi một lô thuốc trong một giao dịch. Thuốc mới: một batch INSERT, số lượng ban đầu ghi thành dòng OPENING
+	 * và nhập vào lô UNASSIGNED (cũng bằng batch). Thuốc đã có: một batch UPDATE thông tin, số lượng trong file
+	 * được coi là số kiểm kê nên chênh lệch được ghi thành dòng điều chỉnh như khi sửa trên form.
+	 * @return false nếu lỗi, cả lô đã được rollback
+	 */
+	public boolean importMedicines(List<Medicine> inserts, List<Medicine> updates) {
+		String insertSql = """
+				    INSERT INTO medicine (code, name, description, unit, price, max_age, min_age, quantity)
+				    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+				""";
+		String updateSql = """
+				    UPDATE medicine SET
+				        name = ?, description = ?, unit = ?, price = ?, max_age = ?, min_age = ?
+				    WHERE code = ?
+				""";
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement insert = conn.prepareStatement(insertSql);
+					PreparedStatement update = conn.prepareStatement(updateSql)) {
+				Map<String, Integer> openings = new LinkedHashMap<>();
+				for (Medicine medicine : inserts) {
+					insert.setString(1, medicine.getCode());
+					insert.setString(2, medicine.getName());
+					insert.setString(3, medicine.getDescription());
+					insert.setString(4, medicine.getUnit());
+					insert.setBigDecimal(5, medicine.getPrice());
+					insert.setInt(6, medicine.getMaxAge());
+					insert.setInt(7, medicine.getMinAge());
+					insert.setInt(8, medicine.getQuantity());
+					insert.addBatch();
+					openings.put(medicine.getCode(), medicine.getQuantity());
+				}
+				if (!inserts.isEmpty()) {
+					insert.executeBatch();
+					ledgerDAO.recordAll(conn, openings, InventoryMovement.Type.OPENING, "Excel import");
+					lotDAO.receiveAll(conn, openings, MedicineLot.UNASSIGNED);
+				}
+
+				// Khóa dòng theo thứ tự mã để không deadlock với giao dịch xuất thuốc
+				List<Medicine> sorted = new ArrayList<>(updates);
+				sorted.sort(Comparator.comparing(Medicine::getCode));
+				for (Medicine medicine : sorted) {
+					update.setString(1, medicine.getName());
+					update.setString(2, medicine.getDescription());
+					update.setString(3, medicine.getUnit());
+					update.setBigDecimal(4, medicine.getPrice());
+					update.setInt(5, medicine.getMaxAge());
+					update.setInt(6, medicine.getMinAge());
+					update.setString(7, medicine.getCode());
+					update.addBatch();
+				}
+				if (!sorted.isEmpty())
+					update.executeBatch();
+				for (Medicine medicine : sorted) {
+					if (!setQuantityLocked(conn, medicine.getCode(), medicine.getQuantity(), "Excel import"))
+						throw new SQLException("Unable to set stock of " + medicine.getCode());
+				}
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+			// Nhiều thuốc đổi cùng lúc: nạp lại danh mục và lô ở lần đọc sau thay vì đọc lại từng thuốc
+			catalogCache.invalidateAll();
+			lotDAO.invalidateCache();
+			return true;
 
 		} catch (Exception e) {
 			e.printStackTrace();
+			return false;
 		}
 	}
 
+	// ==================== Lô thuốc ====================
+
+	public List<MedicineLot> getLots(String medicineCode) {
+		return lotDAO.getLots(medicineCode);
+	}
+
+	public List<MedicineLot> getExpiringLots(LocalDate from, LocalDate to) {
+		return lotDAO.getExpiringLots(from, to);
+	}
+
+	public CacheStatistics getLotCacheStatistics() {
+		return lotDAO.getCacheStatistics();
+	}
+
 	public boolean isExistingMedicine(String code) {
-		return checkExist("code", code, null);
+		return getByMedicineCode(code) != null;
 	}
 
 	public boolean isExistingName(String name, String excludeCode) {
+		// Cache chỉ trả lời chắc chắn khi tìm thấy; không thấy thì vẫn hỏi database
+		String code = catalogCache.findCodeByName(name, this::getAllMedicines);
+		if (code != null && !code.equals(excludeCode))
+			return true;
 		return checkExist("name", name, excludeCode);
 	}
 
@@ -274,26 +802,8 @@ public class MedicineDAO {
 	}
 
 	public String generateNextMedicineCode() {
-		String prefix = "MED";
-		String sql = "SELECT code FROM medicine WHERE code LIKE ? ORDER BY id DESC LIMIT 1";
-
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-			stmt.setString(1, prefix + "%");
-			ResultSet rs = stmt.executeQuery();
-
-			if (rs.next()) {
-				String lastCode = rs.getString("code");
-				int num = Integer.parseInt(lastCode.substring(prefix.length()));
-				return prefix + String.format("%03d", num + 1);
-			}
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		return prefix + "001";
+		// Cấp từ khối sequence trong bộ nhớ, không còn ORDER BY id DESC
+		return sequenceDAO.nextCode(SequenceDAO.MEDICINE_CODE, "MED");
 	}
 
 	private Medicine extractMedicineFromResultSet(ResultSet rs) throws SQLException {
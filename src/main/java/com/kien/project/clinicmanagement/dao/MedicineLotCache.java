@@ -0,0 +1,173 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.model.MedicineLot;
+
+/**
+ * Các lô thuốc còn hàng trong bộ nhớ, sắp theo hạn dùng (FEFO): mỗi thuốc một TreeSet riêng để lập kế hoạch
+ * xuất kho trong O(log n + số lô lấy), và một TreeSet chung theo hạn dùng để báo cáo "sắp hết hạn" bằng subSet.
+ * Kế hoạch chỉ là gợi ý: MedicineLotDAO luôn trừ có điều kiện trong database và tự xử lý khi cache đã cũ.
+ * Nạp lại toàn bộ định kỳ để thấy thay đổi từ máy khác; luôn trả về bản sao.
+ */
+class MedicineLotCache {
+
+	private static final long RELOAD_INTERVAL_MS = 60_000;
+
+	// Hạn gần nhất trước, lô không rõ hạn sau cùng; cùng hạn thì lô nhập trước (id nhỏ) trước
+	private static final Comparator<MedicineLot> FEFO = Comparator
+			.comparing(MedicineLot::getExpiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparingLong(MedicineLot::getId);
+
+	private static final MedicineLotCache INSTANCE = new MedicineLotCache();
+
+	// Kế hoạch lấy hàng cho một lô
+	record Allocation(long lotId, int quantity) {
+	}
+
+	private final Map<String, TreeSet<MedicineLot>> byMedicine = new HashMap<>();
+	// Chỉ chứa lô có hạn dùng, phục vụ truy vấn theo khoảng ngày
+	private final TreeSet<MedicineLot> byExpiry = new TreeSet<>(FEFO);
+	private long loadedAt = 0; // 0 = chưa nạp
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	private MedicineLotCache() {
+	}
+
+	static MedicineLotCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Lập kế hoạch FEFO: lấy lần lượt từ lô hết hạn sớm nhất, bỏ qua lô hết hạn trước notBefore.
+	 * @param notBefore null = dùng cả lô đã hết hạn (điều chỉnh kiểm kê)
+	 * @return danh sách lô và số lượng, hoặc null nếu theo cache không đủ hàng
+	 */
+	synchronized List<Allocation> plan(String medicineCode, int quantity, LocalDate notBefore,
+			Supplier<List<MedicineLot>> loader) {
+		ensureLoaded(loader);
+		TreeSet<MedicineLot> lots = byMedicine.get(medicineCode);
+		if (lots == null) {
+			misses.increment();
+			return null;
+		}
+
+		List<Allocation> allocations = new ArrayList<>();
+		int remaining = quantity;
+		Set<MedicineLot> usable = notBefore != null ? lots.tailSet(probe(notBefore, Long.MIN_VALUE), true) : lots;
+		for (MedicineLot lot : usable) {
+			if (remaining == 0)
+				break;
+			int take = Math.min(remaining, lot.getQuantity());
+			if (take > 0) {
+				allocations.add(new Allocation(lot.getId(), take));
+				remaining -= take;
+			}
+		}
+		if (remaining > 0) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return allocations;
+	}
+
+	// Lô còn hàng có hạn dùng trong [from, to], hạn gần nhất trước
+	synchronized List<MedicineLot> expiringBetween(LocalDate from, LocalDate to, Supplier<List<MedicineLot>> loader) {
+		ensureLoaded(loader);
+		List<MedicineLot> result = new ArrayList<>();
+		for (MedicineLot lot : byExpiry.subSet(probe(from, Long.MIN_VALUE), true, probe(to, Long.MAX_VALUE), true)) {
+			result.add(copy(lot));
+		}
+		return result;
+	}
+
+	synchronized List<MedicineLot> getLots(String medicineCode, Supplier<List<MedicineLot>> loader) {
+		ensureLoaded(loader);
+		List<MedicineLot> result = new ArrayList<>();
+		TreeSet<MedicineLot> lots = byMedicine.get(medicineCode);
+		if (lots != null) {
+			for (MedicineLot lot : lots) {
+				result.add(copy(lot));
+			}
+		}
+		return result;
+	}
+
+	// Thay toàn bộ lô của một thuốc bằng dữ liệu vừa đọc lại sau khi ghi
+	synchronized void replaceMedicine(String medicineCode, List<MedicineLot> lots) {
+		removeMedicine(medicineCode);
+		for (MedicineLot lot : lots) {
+			add(lot);
+		}
+	}
+
+	synchronized void removeMedicine(String medicineCode) {
+		TreeSet<MedicineLot> previous = byMedicine.remove(medicineCode);
+		if (previous != null) {
+			byExpiry.removeAll(previous);
+		}
+	}
+
+	synchronized void invalidateAll() {
+		loadedAt = 0;
+	}
+
+	synchronized CacheStatistics getStatistics() {
+		int size = 0;
+		for (TreeSet<MedicineLot> lots : byMedicine.values()) {
+			size += lots.size();
+		}
+		return new CacheStatistics("medicine-lot", hits.sum(), misses.sum(), loads.sum(), size);
+	}
+
+	private void ensureLoaded(Supplier<List<MedicineLot>> loader) {
+		if (System.currentTimeMillis() - loadedAt < RELOAD_INTERVAL_MS)
+			return;
+		List<MedicineLot> all = loader.get();
+		byMedicine.clear();
+		byExpiry.clear();
+		for (MedicineLot lot : all) {
+			add(lot);
+		}
+		loadedAt = System.currentTimeMillis();
+		loads.increment();
+	}
+
+	// Chỉ giữ lô còn hàng
+	private void add(MedicineLot lot) {
+		if (lot.getQuantity() <= 0)
+			return;
+		MedicineLot stored = copy(lot);
+		byMedicine.computeIfAbsent(stored.getMedicineCode(), k -> new TreeSet<>(FEFO)).add(stored);
+		if (stored.getExpiryDate() != null) {
+			byExpiry.add(stored);
+		}
+	}
+
+	// Mốc tìm kiếm trong TreeSet: cùng hạn dùng, id nhỏ nhất/lớn nhất
+	private static MedicineLot probe(LocalDate expiryDate, long id) {
+		MedicineLot probe = new MedicineLot();
+		probe.setExpiryDate(expiryDate);
+		probe.setId(id);
+		return probe;
+	}
+
+	private static MedicineLot copy(MedicineLot source) {
+		return new MedicineLot(source.getId(), source.getMedicineCode(), source.getLotNumber(),
+				source.getExpiryDate(), source.getQuantity(), source.getReceivedAt());
+	}
+}
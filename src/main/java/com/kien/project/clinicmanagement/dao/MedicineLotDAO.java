@@ -0,0 +1,221 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.model.MedicineLot;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Tồn kho theo lô thuốc. Tổng của các lô luôn bằng medicine.quantity: MedicineDAO gọi receive/allocate
+ * trong cùng giao dịch với lệnh cộng/trừ medicine.quantity, nên dòng medicine đã bị khóa khi chạm tới lô.
+ * Xuất kho theo FEFO (hết hạn trước xuất trước): kế hoạch lấy từ MedicineLotCache, trừ có điều kiện từng lô;
+ * cache cũ (lô đã bị trừ ở máy khác) thì phần còn thiếu được lấy lại bằng SELECT ... FOR UPDATE.
+ */
+public class MedicineLotDAO {
+
+	private final MedicineLotCache lotCache = MedicineLotCache.getInstance();
+
+	// Nhập hàng vào một lô (lô đã có thì cộng dồn); gọi trong giao dịch đang mở
+	public void receive(Connection conn, String medicineCode, String lotNumber, LocalDate expiryDate, int quantity)
+			throws SQLException {
+		String sql = """
+				    INSERT INTO medicine_lot (medicine_code, lot_number, expiry_date, quantity)
+				    VALUES (?, ?, ?, ?)
+				    ON DUPLICATE KEY UPDATE
+				        quantity = quantity + VALUES(quantity),
+				        expiry_date = COALESCE(expiry_date, VALUES(expiry_date))
+				""";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setString(1, medicineCode);
+			ps.setString(2, lotNumber);
+			ps.setDate(3, expiryDate != null ? Date.valueOf(expiryDate) : null);
+			ps.setInt(4, quantity);
+			ps.executeUpdate();
+		}
+	}
+
+	// Nhập nhiều thuốc vào cùng một lô bằng một JDBC batch (vd: số dư đầu kỳ khi nhập từ Excel)
+	public void receiveAll(Connection conn, Map<String, Integer> quantities, String lotNumber) throws SQLException {
+		String sql = """
+				    INSERT INTO medicine_lot (medicine_code, lot_number, expiry_date, quantity)
+				    VALUES (?, ?, NULL, ?)
+				    ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)
+				""";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+				if (entry.getValue() <= 0)
+					continue;
+				ps.setString(1, entry.getKey());
+				ps.setString(2, lotNumber);
+				ps.setInt(3, entry.getValue());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	/**
+	 * Trừ quantity khỏi các lô của thuốc theo FEFO; gọi trong giao dịch đang mở.
+	 * @param includeExpired true khi điều chỉnh kiểm kê (được trừ cả lô đã hết hạn), false khi xuất cho bệnh nhân
+	 * @return false nếu các lô dùng được không đủ hàng; khi đó các lô đã trừ trong lần gọi này được hoàn lại
+	 *         (rollback về savepoint) và nơi gọi vẫn phải rollback cả giao dịch
+	 */
+	public boolean allocate(Connection conn, String medicineCode, int quantity, boolean includeExpired)
+			throws SQLException {
+		int remaining = quantity;
+		Savepoint savepoint = conn.setSavepoint();
+
+		List<MedicineLotCache.Allocation> plan = lotCache.plan(medicineCode, quantity,
+				includeExpired ? null : LocalDate.now(), this::loadAllLots);
+		if (plan != null) {
+			String sql = "UPDATE medicine_lot SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+			try (PreparedStatement ps = conn.prepareStatement(sql)) {
+				for (MedicineLotCache.Allocation allocation : plan) {
+					ps.setInt(1, allocation.quantity());
+					ps.setLong(2, allocation.lotId());
+					ps.setInt(3, allocation.quantity());
+					if (ps.executeUpdate() == 1)
+						remaining -= allocation.quantity();
+				}
+			}
+		}
+
+		if (remaining > 0)
+			remaining = allocateLocked(conn, medicineCode, remaining, includeExpired);
+		if (remaining > 0) {
+			// Kế hoạch từ cache có thể đã trừ một phần trước khi đường dự phòng báo thiếu hàng
+			conn.rollback(savepoint);
+			return false;
+		}
+		conn.releaseSavepoint(savepoint);
+		return true;
+	}
+
+	// Đường dự phòng khi cache không đủ/đã cũ: khóa các lô còn hàng theo thứ tự FEFO rồi trừ lần lượt
+	private int allocateLocked(Connection conn, String medicineCode, int quantity, boolean includeExpired)
+			throws SQLException {
+		String sql = """
+				    SELECT id, quantity FROM medicine_lot
+				    WHERE medicine_code = ? AND quantity > 0 %s
+				    ORDER BY expiry_date IS NULL, expiry_date, id
+				    FOR UPDATE
+				""".formatted(includeExpired ? "" : "AND (expiry_date IS NULL OR expiry_date >= CURDATE())");
+
+		List<long[]> takes = new ArrayList<>();
+		int remaining = quantity;
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setString(1, medicineCode);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (remaining > 0 && rs.next()) {
+					int take = Math.min(remaining, rs.getInt("quantity"));
+					takes.add(new long[] { rs.getLong("id"), take });
+					remaining -= take;
+				}
+			}
+		}
+		if (remaining > 0)
+			return remaining;
+
+		try (PreparedStatement ps = conn.prepareStatement("UPDATE medicine_lot SET quantity = quantity - ? WHERE id = ?")) {
+			for (long[] take : takes) {
+				ps.setInt(1, (int) take[1]);
+				ps.setLong(2, take[0]);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+		return 0;
+	}
+
+	public void deleteLots(Connection conn, String medicineCode) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("DELETE FROM medicine_lot WHERE medicine_code = ?")) {
+			ps.setString(1, medicineCode);
+			ps.executeUpdate();
+		}
+	}
+
+	// Gọi sau khi giao dịch đã commit: đọc lại các lô của thuốc vào cache
+	public void refreshCommitted(String medicineCode) {
+		List<MedicineLot> lots = loadLots(medicineCode);
+		if (lots != null)
+			lotCache.replaceMedicine(medicineCode, lots);
+		else
+			lotCache.invalidateAll();
+	}
+
+	// Sau khi ghi nhiều thuốc cùng lúc: nạp lại toàn bộ lô ở lần đọc sau thay vì đọc lại từng thuốc
+	public void invalidateCache() {
+		lotCache.invalidateAll();
+	}
+
+	public void removeCommitted(String medicineCode) {
+		lotCache.removeMedicine(medicineCode);
+	}
+
+	// Các lô còn hàng của một thuốc theo thứ tự sẽ được xuất
+	public List<MedicineLot> getLots(String medicineCode) {
+		return lotCache.getLots(medicineCode, this::loadAllLots);
+	}
+
+	// Lô còn hàng có hạn dùng trong [from, to]: truy vấn khoảng trên cây sắp theo hạn dùng, không quét bảng
+	public List<MedicineLot> getExpiringLots(LocalDate from, LocalDate to) {
+		return lotCache.expiringBetween(from, to, this::loadAllLots);
+	}
+
+	public CacheStatistics getCacheStatistics() {
+		return lotCache.getStatistics();
+	}
+
+	private List<MedicineLot> loadAllLots() {
+		List<MedicineLot> list = new ArrayList<>();
+		String sql = "SELECT * FROM medicine_lot WHERE quantity > 0";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql);
+				ResultSet rs = ps.executeQuery()) {
+			while (rs.next()) {
+				list.add(extractLotFromResultSet(rs));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return list;
+	}
+
+	// null nếu lỗi truy vấn
+	private List<MedicineLot> loadLots(String medicineCode) {
+		List<MedicineLot> list = new ArrayList<>();
+		String sql = "SELECT * FROM medicine_lot WHERE medicine_code = ? AND quantity > 0";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setString(1, medicineCode);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					list.add(extractLotFromResultSet(rs));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+		return list;
+	}
+
+	private MedicineLot extractLotFromResultSet(ResultSet rs) throws SQLException {
+		Date expiry = rs.getDate("expiry_date");
+		return new MedicineLot(rs.getLong("id"), rs.getString("medicine_code"), rs.getString("lot_number"),
+				expiry != null ? expiry.toLocalDate() : null, rs.getInt("quantity"),
+				rs.getTimestamp("received_at").toLocalDateTime());
+	}
+}
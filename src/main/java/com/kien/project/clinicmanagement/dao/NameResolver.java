@@ -0,0 +1,166 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.model.Appointment;
+import com.kien.project.clinicmanagement.model.ExamQueue;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Tra tên hiển thị theo mã (người dùng: profile.name, bệnh nhân: patient_profile.name) có cache trong bộ nhớ,
+ * để truy vấn danh sách hàng đợi / lịch hẹn chỉ đọc bảng gốc rồi ghép tên ở Java.
+ * Mã chưa có trong cache được tra chung trong một truy vấn IN (...).
+ * UserDAO / PatientDAO xóa mục tương ứng sau khi ghi; sửa từ máy khác được thấy sau TTL_MS.
+ */
+class NameResolver {
+
+	private static final long TTL_MS = 5 * 60_000;
+	private static final int MAX_CODES_PER_QUERY = 500;
+
+	private static final NameResolver INSTANCE = new NameResolver();
+
+	// name = null nghĩa là mã không có hồ sơ (vẫn cache để không tra lại liên tục)
+	private record Entry(String name, long loadedAt) {
+	}
+
+	private final Map<String, Entry> userNames = new ConcurrentHashMap<>();
+	private final Map<String, Entry> patientNames = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	private NameResolver() {
+	}
+
+	static NameResolver getInstance() {
+		return INSTANCE;
+	}
+
+	void fillExamQueueNames(List<ExamQueue> queues) {
+		if (queues.isEmpty()) return;
+		Set<String> userCodes = new HashSet<>();
+		Set<String> patientCodes = new HashSet<>();
+		for (ExamQueue queue : queues) {
+			userCodes.add(queue.getDoctorCode());
+			userCodes.add(queue.getCreatedBy());
+			patientCodes.add(queue.getPatientCode());
+		}
+
+		Map<String, String> users = resolveUserNames(userCodes);
+		Map<String, String> patients = resolvePatientNames(patientCodes);
+		for (ExamQueue queue : queues) {
+			queue.setPatientName(patients.get(queue.getPatientCode()));
+			queue.setDoctorName(users.get(queue.getDoctorCode()));
+			queue.setCreatedByName(users.get(queue.getCreatedBy()));
+		}
+	}
+
+	void fillAppointmentNames(List<Appointment> appointments) {
+		if (appointments.isEmpty()) return;
+		Set<String> userCodes = new HashSet<>();
+		Set<String> patientCodes = new HashSet<>();
+		for (Appointment appointment : appointments) {
+			userCodes.add(appointment.getDoctorCode());
+			userCodes.add(appointment.getCreatedBy());
+			patientCodes.add(appointment.getPatientCode());
+		}
+
+		Map<String, String> users = resolveUserNames(userCodes);
+		Map<String, String> patients = resolvePatientNames(patientCodes);
+		for (Appointment appointment : appointments) {
+			appointment.setPatientName(patients.get(appointment.getPatientCode()));
+			appointment.setDoctorName(users.get(appointment.getDoctorCode()));
+			appointment.setCreatedByName(users.get(appointment.getCreatedBy()));
+		}
+	}
+
+	Map<String, String> resolveUserNames(Collection<String> codes) {
+		return resolve(codes, userNames, "SELECT user_code, name FROM profile WHERE user_code IN (%s)");
+	}
+
+	Map<String, String> resolvePatientNames(Collection<String> codes) {
+		return resolve(codes, patientNames, "SELECT code, name FROM patient_profile WHERE code IN (%s)");
+	}
+
+	void invalidateUser(String userCode) {
+		if (userCode != null) userNames.remove(userCode);
+	}
+
+	void invalidatePatient(String patientCode) {
+		if (patientCode != null) patientNames.remove(patientCode);
+	}
+
+	CacheStatistics getStatistics() {
+		return new CacheStatistics("display-name", hits.sum(), misses.sum(), loads.sum(),
+				userNames.size() + patientNames.size());
+	}
+
+	private Map<String, String> resolve(Collection<String> codes, Map<String, Entry> cache, String sqlTemplate) {
+		Map<String, String> result = new HashMap<>();
+		Set<String> missing = new HashSet<>();
+		long now = System.currentTimeMillis();
+		for (String code : codes) {
+			if (code == null) continue;
+			Entry entry = cache.get(code);
+			if (entry != null && now - entry.loadedAt() < TTL_MS) {
+				hits.increment();
+				result.put(code, entry.name());
+			} else {
+				misses.increment();
+				missing.add(code);
+			}
+		}
+		if (missing.isEmpty()) return result;
+
+		List<String> pending = new ArrayList<>(missing);
+		for (int from = 0; from < pending.size(); from += MAX_CODES_PER_QUERY) {
+			List<String> chunk = pending.subList(from, Math.min(from + MAX_CODES_PER_QUERY, pending.size()));
+			Map<String, String> loaded = load(chunk, sqlTemplate);
+			for (String code : chunk) {
+				String name = (loaded != null) ? loaded.get(code) : null;
+				if (loaded != null) {
+					cache.put(code, new Entry(name, now)); // Lỗi kết nối thì không cache kết quả rỗng
+				}
+				result.put(code, name);
+			}
+		}
+		return result;
+	}
+
+	// null nếu truy vấn lỗi
+	private Map<String, String> load(List<String> codes, String sqlTemplate) {
+		Map<String, String> names = new HashMap<>();
+		String sql = sqlTemplate.formatted(String.join(", ", Collections.nCopies(codes.size(), "?")));
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			int index = 1;
+			for (String code : codes) {
+				stmt.setString(index++, code);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					names.put(rs.getString(1), rs.getString(2));
+				}
+			}
+			loads.increment();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+		return names;
+	}
+}
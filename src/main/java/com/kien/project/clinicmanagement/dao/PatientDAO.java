@@ -6,13 +6,26 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.PageHelper;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
 
 public class PatientDAO {
 
+    private final SequenceDAO sequenceDAO = new SequenceDAO();
+    private static final int LOOKUP_TIMEOUT_SECONDS = 5;
+
+    private final NameResolver nameResolver = NameResolver.getInstance();
+    private final PatientSearchIndex searchIndex = PatientSearchIndex.getInstance();
+
     public List<Patient> getAllPatients() {
         List<Patient> list = new ArrayList<>();
         String sql = "SELECT * FROM patient_profile ORDER BY id ASC";
@@ -44,10 +57,16 @@ public class PatientDAO {
     }
     
     public List<Patient> getPatients(int offset, int limit) {
+        return getPatientsPage(offset, limit).getRows();
+    }
+
+    // Trang dữ liệu kèm tổng số dòng (COUNT(*) OVER()) trong một truy vấn
+    public PagedResult<Patient> getPatientsPage(int offset, int limit) {
         List<Patient> list = new ArrayList<>();
+        int total = 0;
 
         String sql = """
-            SELECT * 
+            SELECT *, COUNT(*) OVER() AS total_count
             FROM patient_profile
             ORDER BY id DESC
             LIMIT ? OFFSET ?
@@ -59,6 +78,42 @@ public class PatientDAO {
             stmt.setInt(1, limit);
             stmt.setInt(2, offset);
 
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    total = rs.getInt("total_count");
+                    list.add(extractPatientFromResultSet(rs));
+                }
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+        if (list.isEmpty() && offset > 0)
+            total = countPatients();
+        return new PagedResult<>(list, total, offset, limit);
+    }
+
+    // Phân trang keyset theo id: dùng cho Next/Prev thay vì OFFSET
+    public List<Patient> getPatientsSeek(long anchorId, PageHelper.Direction direction, int limit) {
+        List<Patient> list = new ArrayList<>();
+        boolean next = direction == PageHelper.Direction.NEXT;
+
+        String sql = """
+            SELECT * 
+            FROM patient_profile
+            WHERE id %s ?
+            ORDER BY id %s
+            LIMIT ?
+        """.formatted(next ? "<" : ">", next ? "DESC" : "ASC");
+
+        try (Connection conn = ConnectionDatabase.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, anchorId);
+            stmt.setInt(2, limit);
+
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     list.add(extractPatientFromResultSet(rs));
@@ -69,21 +124,33 @@ public class PatientDAO {
             e.printStackTrace();
         }
 
+        if (!next) {
+            Collections.reverse(list);
+        }
         return list;
     }
     
     
     public List<Patient> searchPatients(String keyword, String field, int offset, int limit) {
+        return searchPatientsPage(keyword, field, offset, limit).getRows();
+    }
+
+    public PagedResult<Patient> searchPatientsPage(String keyword, String field, int offset, int limit) {
+        PagedResult<Patient> indexed = searchFromIndex(keyword, field, offset, limit);
+        if (indexed != null) return indexed;
+
         List<Patient> list = new ArrayList<>();
+        int total = 0;
 
         String column = switch (field.toLowerCase()) {
             case "search by phone number" -> "phone_number";
             case "search by citizen id" -> "citizen_id";
+            case "search by code" -> "code";
             default -> "name";
         };
 
         String sql = String.format(
-            "SELECT * FROM patient_profile WHERE %s LIKE ? ORDER BY id ASC LIMIT ? OFFSET ?",
+            "SELECT *, COUNT(*) OVER() AS total_count FROM patient_profile WHERE %s LIKE ? ORDER BY id ASC LIMIT ? OFFSET ?",
             column
         );
 
@@ -96,6 +163,7 @@ public class PatientDAO {
 
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
+                total = rs.getInt("total_count");
                 list.add(extractPatientFromResultSet(rs));
             }
 
@@ -103,13 +171,58 @@ public class PatientDAO {
             e.printStackTrace();
         }
 
+        // Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+        if (list.isEmpty() && offset > 0)
+            total = countSearchPatient(keyword, field);
+        return new PagedResult<>(list, total, offset, limit);
+    }
+
+    // Tìm kiếm khi đang gõ: không đếm tổng, có timeout và có thể bị hủy giữa chừng khi người dùng gõ tiếp
+    public List<Patient> searchPatientsForLookup(String keyword, String field, int limit, QueryCancellation cancellation) {
+        PagedResult<Patient> indexed = searchFromIndex(keyword, field, 0, limit);
+        if (indexed != null) return indexed.getRows();
+
+        List<Patient> list = new ArrayList<>();
+
+        String column = switch (field.toLowerCase()) {
+            case "search by phone number" -> "phone_number";
+            case "search by citizen id" -> "citizen_id";
+            case "search by code" -> "code";
+            default -> "name";
+        };
+
+        String sql = String.format("SELECT * FROM patient_profile WHERE %s LIKE ? ORDER BY id ASC LIMIT ?", column);
+
+        try (Connection conn = ConnectionDatabase.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setQueryTimeout(LOOKUP_TIMEOUT_SECONDS);
+            stmt.setString(1, "%" + keyword + "%");
+            stmt.setInt(2, limit);
+            cancellation.register(stmt);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(extractPatientFromResultSet(rs));
+                }
+            }
+
+        } catch (Exception e) {
+            // Bị hủy do có từ khóa mới thì bỏ qua, kết quả sẽ không được dùng
+            if (!cancellation.isCancelled())
+                e.printStackTrace();
+        }
         return list;
     }
 
     public int countSearchPatient(String keyword, String field) {
+        PagedResult<Patient> indexed = searchFromIndex(keyword, field, 0, 0);
+        if (indexed != null) return indexed.getTotal();
+
         String column = switch (field.toLowerCase()) {
             case "search by phone number" -> "phone_number";
             case "search by citizen id" -> "citizen_id";
+            case "search by code" -> "code";
             default -> "name";
         };
 
@@ -166,6 +279,8 @@ public class PatientDAO {
             stmt.setString(9, patient.getProfileImage());
 
             stmt.executeUpdate();
+            nameResolver.invalidatePatient(patient.getCode());
+            refreshIndexEntry(patient.getCode());
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -193,6 +308,8 @@ public class PatientDAO {
             stmt.setString(9, patient.getCode());
 
             stmt.executeUpdate();
+            nameResolver.invalidatePatient(patient.getCode());
+            refreshIndexEntry(patient.getCode());
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -207,6 +324,8 @@ public class PatientDAO {
 
             stmt.setString(1, code);
             stmt.executeUpdate();
+            nameResolver.invalidatePatient(code);
+            searchIndex.remove(code);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -256,23 +375,185 @@ public class PatientDAO {
     }
 
     public String generateNextPatientCode() {
-        String sql = "SELECT MAX(code) FROM patient_profile WHERE code LIKE 'P%'";
+        // Cấp từ khối sequence trong bộ nhớ, không còn quét MAX(code)
+        return sequenceDAO.nextCode(SequenceDAO.PATIENT_CODE, "P");
+    }
+    
+    // ==================== Nhập hàng loạt từ Excel ====================
+
+    /**
+     * Bệnh nhân có CCCD, số điện thoại hoặc email thuộc các tập đã cho; một truy vấn cho cả lô
+     * thay vì ba lần checkExist cho mỗi dòng.
+     */
+    public List<Patient> findByIdentities(Collection<String> citizenIds, Collection<String> phones, Collection<String> emails) {
+        List<Patient> list = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        List<String> params = new ArrayList<>();
+        addInCondition("citizen_id", citizenIds, conditions, params);
+        addInCondition("phone_number", phones, conditions, params);
+        addInCondition("email", emails, conditions, params);
+        if (conditions.isEmpty()) return list;
+
+        String sql = "SELECT * FROM patient_profile WHERE " + String.join(" OR ", conditions);
+
         try (Connection conn = ConnectionDatabase.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setString(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                list.add(extractPatientFromResultSet(rs));
+            }
+
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to look up existing patients", e);
+        }
+        return list;
+    }
 
-            if (rs.next() && rs.getString(1) != null) {
-                String lastCode = rs.getString(1);
-                int num = Integer.parseInt(lastCode.substring(1));
-                return String.format("P%03d", num + 1);
+    /**
+     * Ghi một lô bệnh nhân trong một giao dịch bằng hai JDBC batch (thêm mới / cập nhật theo mã).
+     * Bản ghi cập nhật giữ nguyên mã và ảnh đại diện.
+     * @return false nếu lỗi, cả lô đã được rollback
+     */
+    public boolean importPatients(List<Patient> inserts, List<Patient> updates) {
+        String insertSql = """
+            INSERT INTO patient_profile (code, name, email, phone_number, address, date_of_birth, gender, citizen_id, profile_image)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+        String updateSql = """
+            UPDATE patient_profile SET
+            name = ?, email = ?, phone_number = ?, address = ?, date_of_birth = ?, gender = ?, citizen_id = ?
+            WHERE code = ?
+        """;
+
+        List<String> codes = new ArrayList<>();
+        try (Connection conn = ConnectionDatabase.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(insertSql);
+                 PreparedStatement update = conn.prepareStatement(updateSql)) {
+
+                for (Patient patient : inserts) {
+                    insert.setString(1, patient.getCode());
+                    insert.setString(2, patient.getName());
+                    insert.setString(3, patient.getEmail());
+                    insert.setString(4, patient.getPhoneNumber());
+                    insert.setString(5, patient.getAddress());
+                    insert.setDate(6, Date.valueOf(patient.getDateOfBirth()));
+                    insert.setString(7, patient.getGender());
+                    insert.setString(8, patient.getCitizenId());
+                    insert.setString(9, patient.getProfileImage());
+                    insert.addBatch();
+                    codes.add(patient.getCode());
+                }
+                for (Patient patient : updates) {
+                    update.setString(1, patient.getName());
+                    update.setString(2, patient.getEmail());
+                    update.setString(3, patient.getPhoneNumber());
+                    update.setString(4, patient.getAddress());
+                    update.setDate(5, Date.valueOf(patient.getDateOfBirth()));
+                    update.setString(6, patient.getGender());
+                    update.setString(7, patient.getCitizenId());
+                    update.setString(8, patient.getCode());
+                    update.addBatch();
+                    codes.add(patient.getCode());
+                }
+                if (!inserts.isEmpty()) insert.executeBatch();
+                if (!updates.isEmpty()) update.executeBatch();
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+
+            refreshImported(conn, codes);
+            return true;
+
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
         }
-        return "P001";
     }
-    
+
+    // Đọc lại cả lô đã commit một lần để cập nhật chỉ mục tìm kiếm (cần id, created_at do database cấp)
+    private void refreshImported(Connection conn, List<String> codes) {
+        if (codes.isEmpty()) return;
+
+        String placeholders = String.join(", ", Collections.nCopies(codes.size(), "?"));
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM patient_profile WHERE code IN (" + placeholders + ")")) {
+            for (int i = 0; i < codes.size(); i++) {
+                stmt.setString(i + 1, codes.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Patient saved = extractPatientFromResultSet(rs);
+                nameResolver.invalidatePatient(saved.getCode());
+                searchIndex.put(saved);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void addInCondition(String column, Collection<String> values, List<String> conditions, List<String> params) {
+        if (values == null || values.isEmpty()) return;
+        conditions.add(column + " IN (" + String.join(", ", Collections.nCopies(values.size(), "?")) + ")");
+        params.addAll(values);
+    }
+
 	// Code PatientManagementView
+    // ==================== Chỉ mục tìm kiếm trong bộ nhớ ====================
+
+    // Dựng chỉ mục trên luồng nền ngay khi khởi động để lần tìm đầu tiên không phải chờ
+    public void warmUpSearchIndex() {
+        searchIndex.refreshIfStale(this::scanAllPatients);
+    }
+
+    public CacheStatistics getSearchIndexStatistics() {
+        return searchIndex.getStatistics();
+    }
+
+    // null nếu chỉ mục chưa sẵn sàng, nơi gọi tiếp tục dùng LIKE
+    private PagedResult<Patient> searchFromIndex(String keyword, String field, int offset, int limit) {
+        searchIndex.refreshIfStale(this::scanAllPatients);
+        PatientSearchIndex.Field indexField = switch (field.toLowerCase()) {
+            case "search by phone number" -> PatientSearchIndex.Field.PHONE;
+            case "search by citizen id" -> PatientSearchIndex.Field.CITIZEN_ID;
+            case "search by code" -> PatientSearchIndex.Field.CODE;
+            default -> PatientSearchIndex.Field.NAME;
+        };
+        return searchIndex.search(keyword, indexField, offset, limit);
+    }
+
+    private void refreshIndexEntry(String code) {
+        Patient saved = getByPatientCode(code);
+        if (saved != null) searchIndex.put(saved);
+    }
+
+    // Đọc tuần tự từng dòng (streaming result set của MySQL) thay vì nạp cả bảng vào một List;
+    // dùng cho chỉ mục tìm kiếm và xuất Excel
+    public void scanAllPatients(Consumer<Patient> consumer) {
+        String sql = "SELECT * FROM patient_profile ORDER BY id";
+
+        try (Connection conn = ConnectionDatabase.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(extractPatientFromResultSet(rs));
+                }
+            }
+
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to scan patient_profile", e);
+        }
+    }
+
     private Patient extractPatientFromResultSet(ResultSet rs) throws SQLException {
         Patient patient = new Patient();
         patient.setId(rs.getLong("id"));
@@ -0,0 +1,275 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.Patient;
+import com.kien.project.clinicmanagement.utils.BackgroundExecutor;
+import com.kien.project.clinicmanagement.utils.TextNormalizer;
+
+/**
+ * Chỉ mục đảo trigram trong bộ nhớ cho tìm kiếm bệnh nhân (tên đã bỏ dấu, số điện thoại, CCCD, mã).
+ * Mỗi trigram trỏ tới tập mã bệnh nhân chứa nó; từ khóa được tách trigram, lấy tập nhỏ nhất làm ứng viên
+ * rồi kiểm tra lại bằng contains nên kết quả giống hệt LIKE '%kw%' (không dấu, không phân biệt hoa thường).
+ * Được dựng bằng một lần quét tuần tự bảng patient_profile, PatientDAO cập nhật ngay sau mỗi lần ghi;
+ * thay đổi từ máy khác được thấy sau lần dựng lại định kỳ. Chưa dựng xong thì trả về null để nơi gọi dùng SQL.
+ */
+class PatientSearchIndex {
+
+	private static final int GRAM_LENGTH = 3;
+	private static final long REBUILD_INTERVAL_MS = 5 * 60_000;
+
+	enum Field {
+		NAME('n'), PHONE('p'), CITIZEN_ID('c'), CODE('k');
+
+		private final char tag;
+
+		Field(char tag) {
+			this.tag = tag;
+		}
+	}
+
+	// Giá trị đã chuẩn hóa của từng trường, giữ cùng bản ghi để kiểm tra lại ứng viên
+	private record Entry(Patient patient, String name, String phone, String citizenId, String code) {
+		String value(Field field) {
+			return switch (field) {
+			case NAME -> name;
+			case PHONE -> phone;
+			case CITIZEN_ID -> citizenId;
+			case CODE -> code;
+			};
+		}
+	}
+
+	private static final PatientSearchIndex INSTANCE = new PatientSearchIndex();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Map<String, Entry> byCode = new HashMap<>();
+	// Khóa = ký hiệu trường + trigram, vd: "nguy" -> 'n' + "guy"
+	private Map<String, Set<String>> postings = new HashMap<>();
+
+	private volatile boolean ready = false;
+	private volatile long builtAt = 0;
+	private final AtomicBoolean building = new AtomicBoolean(false);
+	// Thay đổi xảy ra trong lúc đang quét, áp dụng lại sau khi thay chỉ mục mới.
+	// building và pendingChanges chỉ được đổi khi giữ write lock, để không thay đổi nào lọt giữa lúc
+	// xả hàng đợi và lúc hạ cờ building (sẽ bị phát lại đè lên dữ liệu mới ở lần dựng sau)
+	private final List<Consumer<PatientSearchIndex>> pendingChanges = new ArrayList<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	private PatientSearchIndex() {
+	}
+
+	static PatientSearchIndex getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Dựng chỉ mục trên luồng nền nếu chưa có hoặc đã quá hạn.
+	 * @param scanner quét toàn bộ bệnh nhân, gọi consumer cho từng dòng
+	 */
+	void refreshIfStale(Consumer<Consumer<Patient>> scanner) {
+		if (ready && System.currentTimeMillis() - builtAt < REBUILD_INTERVAL_MS)
+			return;
+		if (!building.compareAndSet(false, true))
+			return;
+		BackgroundExecutor.get().execute(() -> rebuild(scanner));
+	}
+
+	private void rebuild(Consumer<Consumer<Patient>> scanner) {
+		Map<String, Entry> newByCode = new HashMap<>();
+		Map<String, Set<String>> newPostings = new HashMap<>();
+		boolean scanned = false;
+		try {
+			scanner.accept(patient -> addEntry(newByCode, newPostings, toEntry(patient)));
+			scanned = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (scanned) {
+				byCode = newByCode;
+				postings = newPostings;
+				for (Consumer<PatientSearchIndex> change : pendingChanges) {
+					change.accept(this);
+				}
+				ready = true;
+				builtAt = System.currentTimeMillis();
+				loads.increment();
+			}
+		} finally {
+			// Quét lỗi thì giữ chỉ mục cũ (các thay đổi đã được áp dụng trực tiếp lên nó)
+			pendingChanges.clear();
+			building.set(false);
+			lock.writeLock().unlock();
+		}
+	}
+
+	void put(Patient patient) {
+		apply(index -> index.putNow(patient));
+	}
+
+	void remove(String code) {
+		apply(index -> index.removeNow(code));
+	}
+
+	private void apply(Consumer<PatientSearchIndex> change) {
+		lock.writeLock().lock();
+		try {
+			if (building.get()) {
+				pendingChanges.add(change);
+			}
+			change.accept(this);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void putNow(Patient patient) {
+		removeNow(patient.getCode());
+		addEntry(byCode, postings, toEntry(patient));
+	}
+
+	private void removeNow(String code) {
+		Entry previous = byCode.remove(code);
+		if (previous == null)
+			return;
+		for (Field field : Field.values()) {
+			for (String gram : grams(previous.value(field))) {
+				String key = field.tag + gram;
+				Set<String> codes = postings.get(key);
+				if (codes != null) {
+					codes.remove(code);
+					if (codes.isEmpty())
+						postings.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tìm theo một trường, kết quả xếp hạng: khớp toàn bộ, khớp đầu chuỗi, khớp đầu một từ, rồi chứa từ khóa;
+	 * cùng hạng thì theo id tăng dần như truy vấn cũ.
+	 * @return null nếu chỉ mục chưa sẵn sàng
+	 */
+	PagedResult<Patient> search(String keyword, Field field, int offset, int limit) {
+		if (!ready) {
+			misses.increment();
+			return null;
+		}
+		String folded = TextNormalizer.fold(keyword);
+
+		List<Entry> matches = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (Entry entry : candidates(folded, field)) {
+				if (entry.value(field).contains(folded))
+					matches.add(entry);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		hits.increment();
+
+		matches.sort(Comparator.<Entry>comparingInt(e -> rank(e.value(field), folded))
+				.thenComparingLong(e -> e.patient().getId() == null ? Long.MAX_VALUE : e.patient().getId()));
+
+		int from = Math.min(Math.max(offset, 0), matches.size());
+		int to = Math.min(from + limit, matches.size());
+		List<Patient> rows = new ArrayList<>(to - from);
+		for (Entry entry : matches.subList(from, to)) {
+			rows.add(copy(entry.patient()));
+		}
+		return new PagedResult<>(rows, matches.size(), offset, limit);
+	}
+
+	// Từ khóa ngắn hơn một trigram thì duyệt toàn bộ; còn lại lấy danh sách trigram ngắn nhất
+	private Collection<Entry> candidates(String folded, Field field) {
+		if (folded.length() < GRAM_LENGTH)
+			return byCode.values();
+
+		Set<String> smallest = null;
+		for (String gram : grams(folded)) {
+			Set<String> codes = postings.get(field.tag + gram);
+			if (codes == null)
+				return List.of();
+			if (smallest == null || codes.size() < smallest.size())
+				smallest = codes;
+		}
+
+		List<Entry> result = new ArrayList<>(smallest.size());
+		for (String code : smallest) {
+			Entry entry = byCode.get(code);
+			if (entry != null)
+				result.add(entry);
+		}
+		return result;
+	}
+
+	CacheStatistics getStatistics() {
+		lock.readLock().lock();
+		try {
+			return new CacheStatistics("patient-search", hits.sum(), misses.sum(), loads.sum(), byCode.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static int rank(String value, String folded) {
+		if (value.equals(folded))
+			return 0;
+		if (value.startsWith(folded))
+			return 1;
+		if (value.contains(" " + folded))
+			return 2;
+		return 3;
+	}
+
+	private static void addEntry(Map<String, Entry> byCode, Map<String, Set<String>> postings, Entry entry) {
+		String code = entry.patient().getCode();
+		byCode.put(code, entry);
+		for (Field field : Field.values()) {
+			for (String gram : grams(entry.value(field))) {
+				postings.computeIfAbsent(field.tag + gram, k -> new HashSet<>()).add(code);
+			}
+		}
+	}
+
+	private static Set<String> grams(String value) {
+		Set<String> grams = new HashSet<>();
+		for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+			grams.add(value.substring(i, i + GRAM_LENGTH));
+		}
+		return grams;
+	}
+
+	private static Entry toEntry(Patient patient) {
+		return new Entry(copy(patient), TextNormalizer.fold(patient.getName()),
+				TextNormalizer.fold(patient.getPhoneNumber()), TextNormalizer.fold(patient.getCitizenId()),
+				TextNormalizer.fold(patient.getCode()));
+	}
+
+	private static Patient copy(Patient source) {
+		return new Patient(source.getId(), source.getCode(), source.getName(), source.getEmail(),
+				source.getPhoneNumber(), source.getAddress(), source.getDateOfBirth(), source.getGender(),
+				source.getCitizenId(), source.getProfileImage(), source.getCreatedAt());
+	}
+}
@@ -6,6 +6,7 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,6 +15,9 @@ import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
 
 public class PrescriptionDAO {
 
+    private final RevenueRollupDAO revenueRollupDAO = new RevenueRollupDAO();
+    private final SequenceDAO sequenceDAO = new SequenceDAO();
+
     private Prescription extractPrescriptionFromResultSet(ResultSet rs) throws SQLException {
         Prescription prescription = new Prescription();
         prescription.setId(rs.getLong("id"));
@@ -49,16 +53,50 @@ public class PrescriptionDAO {
     }
     
     public boolean updateTotalPrice(Long prescriptionId, BigDecimal totalPrice) {
+        String selectSql = "SELECT p.prescription_date, p.total_price, mr.doctor_code FROM prescription p "
+                         + "LEFT JOIN medical_result mr ON p.medical_result_id = mr.id WHERE p.id = ? FOR UPDATE";
         String sql = "UPDATE prescription SET total_price = ? WHERE id = ?";
+        BigDecimal newTotal = totalPrice != null ? totalPrice : BigDecimal.ZERO;
+
+        try (Connection conn = ConnectionDatabase.getConnection()) {
+            conn.setAutoCommit(false); // Cập nhật đơn thuốc và bảng doanh thu trong cùng giao dịch
+
+            try (PreparedStatement selectStmt = conn.prepareStatement(selectSql);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                selectStmt.setLong(1, prescriptionId);
+                LocalDate date = null;
+                BigDecimal oldTotal = BigDecimal.ZERO;
+                String doctorCode = null;
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                    Date sqlDate = rs.getDate("prescription_date");
+                    date = sqlDate != null ? sqlDate.toLocalDate() : null;
+                    if (rs.getBigDecimal("total_price") != null) {
+                        oldTotal = rs.getBigDecimal("total_price");
+                    }
+                    doctorCode = rs.getString("doctor_code");
+                }
 
-        try (Connection conn = ConnectionDatabase.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setBigDecimal(1, totalPrice != null ? totalPrice : BigDecimal.ZERO);
-            stmt.setLong(2, prescriptionId);
-
-            return stmt.executeUpdate() > 0;
-
+                stmt.setBigDecimal(1, newTotal);
+                stmt.setLong(2, prescriptionId);
+                boolean updated = stmt.executeUpdate() > 0;
+
+                // Chỉ cộng phần chênh lệch, số lượng đơn không đổi
+                revenueRollupDAO.applyDelta(conn, date, doctorCode, 0, newTotal.subtract(oldTotal));
+
+                conn.commit();
+                return updated;
+            } catch (Exception e) {
+                conn.rollback();
+                System.err.println("Error during updateTotalPrice transaction. Rolling back...");
+                e.printStackTrace();
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -125,16 +163,52 @@ public class PrescriptionDAO {
     }
 
     public boolean insertPrescription(Prescription prescription) {
-        Long lastId = getLastPrescriptionId();
-        long newId = (lastId == null) ? 1 : lastId + 1; //Bỏ gen id mới
+        if (prescription.getId() == null) {
+            prescription.setId(sequenceDAO.nextValue(SequenceDAO.PRESCRIPTION));
+        }
+
+        String doctorSql = "SELECT doctor_code FROM medical_result WHERE id = ?";
+
+        try (Connection conn = ConnectionDatabase.getConnection()) {
+            conn.setAutoCommit(false); // Lưu đơn thuốc và cộng doanh thu trong cùng giao dịch
+
+            try (PreparedStatement doctorStmt = conn.prepareStatement(doctorSql)) {
+                String doctorCode = null;
+                doctorStmt.setLong(1, prescription.getMedicalResultId());
+                try (ResultSet rs = doctorStmt.executeQuery()) {
+                    if (rs.next()) {
+                        doctorCode = rs.getString(1);
+                    }
+                }
+
+                boolean inserted = insertPrescription(conn, prescription, doctorCode);
 
+                conn.commit();
+                return inserted;
+            } catch (Exception e) {
+                conn.rollback();
+                System.err.println("Error during insertPrescription transaction. Rolling back...");
+                e.printStackTrace();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Chèn đơn thuốc (đã có id) và cộng doanh thu tổng hợp trong giao dịch đang mở.
+     */
+    public boolean insertPrescription(Connection conn, Prescription prescription, String doctorCode) throws SQLException {
         String sql = "INSERT INTO prescription (id, medical_result_id, patient_code, prescription_date, total_price) "
                    + "VALUES (?, ?, ?, ?, ?)";
+        BigDecimal totalPrice = prescription.getTotalPrice() != null ? prescription.getTotalPrice() : BigDecimal.ZERO;
 
-        try (Connection conn = ConnectionDatabase.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setLong(1, newId);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, prescription.getId());
             stmt.setLong(2, prescription.getMedicalResultId());
             stmt.setString(3, prescription.getPatientCode());
 
@@ -144,14 +218,13 @@ public class PrescriptionDAO {
                 stmt.setDate(4, null);
             }
 
-            stmt.setBigDecimal(5, prescription.getTotalPrice() != null ? prescription.getTotalPrice() : BigDecimal.ZERO);
-
-            return stmt.executeUpdate() > 0;
+            stmt.setBigDecimal(5, totalPrice);
 
-        } catch (Exception e) {
-            e.printStackTrace();
+            boolean inserted = stmt.executeUpdate() > 0;
+            if (inserted) {
+                revenueRollupDAO.applyDelta(conn, prescription.getPrescriptionDate(), doctorCode, 1, totalPrice);
+            }
+            return inserted;
         }
-
-        return false;
     }
 }
@@ -2,12 +2,16 @@ package com.kien.project.clinicmanagement.dao;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
+import com.kien.project.clinicmanagement.model.Prescription;
 import com.kien.project.clinicmanagement.model.PrescriptionDetail;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
 
@@ -176,6 +180,30 @@ public class PrescriptionDetailDAO {
 		}
 	}
 
+	// Chèn toàn bộ chi tiết đơn thuốc bằng một JDBC batch trong giao dịch đang mở
+	public void addPrescriptionDetails(Connection conn, List<PrescriptionDetail> details) throws SQLException {
+		String sql = """
+				    INSERT INTO prescription_detail
+				    (prescription_id, medicine_code, medicine_name, dosage, quantity, unit_price, total_price, usage_instructions)
+				    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+				""";
+
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			for (PrescriptionDetail detail : details) {
+				stmt.setLong(1, detail.getPrescriptionId());
+				stmt.setString(2, detail.getMedicineCode());
+				stmt.setString(3, detail.getMedicineName());
+				stmt.setString(4, detail.getDosage());
+				stmt.setInt(5, detail.getQuantity());
+				stmt.setBigDecimal(6, detail.getUnitPrice());
+				stmt.setBigDecimal(7, detail.getTotalPrice());
+				stmt.setString(8, detail.getUsageInstructions());
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+	}
+
 	public void updatePrescriptionDetail(PrescriptionDetail detail) {
 		String sql = """
 				    UPDATE prescription_detail
@@ -311,4 +339,75 @@ public class PrescriptionDetailDAO {
 
 		return 0;
 	}
+
+	// Số chi tiết đơn thuốc có ngày kê trong [from, to] (null = không giới hạn), dùng cho thanh tiến trình
+	public int countPrescriptionDetails(LocalDate from, LocalDate to) {
+		String sql = "SELECT COUNT(*) FROM prescription_detail pd JOIN prescription p ON p.id = pd.prescription_id"
+				+ dateFilter(from, to);
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			bindDateFilter(stmt, from, to);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (rs.next())
+					return rs.getInt(1);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return -1;
+	}
+
+	/**
+	 * Đọc tuần tự chi tiết đơn thuốc (kèm mã bệnh nhân và ngày kê của đơn) bằng streaming result set:
+	 * mỗi dòng được đưa thẳng cho consumer, không gom vào List nên xuất được hàng triệu dòng.
+	 */
+	public void streamPrescriptionDetails(LocalDate from, LocalDate to,
+			BiConsumer<Prescription, PrescriptionDetail> consumer) {
+		String sql = """
+				    SELECT pd.*, p.patient_code, p.prescription_date
+				    FROM prescription_detail pd
+				    JOIN prescription p ON p.id = pd.prescription_id
+				""" + dateFilter(from, to) + " ORDER BY pd.id";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY)) {
+
+			stmt.setFetchSize(Integer.MIN_VALUE);
+			bindDateFilter(stmt, from, to);
+			try (ResultSet rs = stmt.executeQuery()) {
+				// Tái sử dụng một đối tượng đơn thuốc cho mọi dòng, consumer không được giữ lại
+				Prescription prescription = new Prescription();
+				while (rs.next()) {
+					PrescriptionDetail detail = extractPrescriptionDetailFromResultSet(rs);
+					prescription.setId(detail.getPrescriptionId());
+					prescription.setPatientCode(rs.getString("patient_code"));
+					Date date = rs.getDate("prescription_date");
+					prescription.setPrescriptionDate(date != null ? date.toLocalDate() : null);
+					consumer.accept(prescription, detail);
+				}
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to stream prescription_detail", e);
+		}
+	}
+
+	private static String dateFilter(LocalDate from, LocalDate to) {
+		if (from != null && to != null)
+			return " WHERE p.prescription_date BETWEEN ? AND ?";
+		if (from != null)
+			return " WHERE p.prescription_date >= ?";
+		if (to != null)
+			return " WHERE p.prescription_date <= ?";
+		return "";
+	}
+
+	private static void bindDateFilter(PreparedStatement stmt, LocalDate from, LocalDate to) throws SQLException {
+		int index = 1;
+		if (from != null)
+			stmt.setDate(index++, Date.valueOf(from));
+		if (to != null)
+			stmt.setDate(index, Date.valueOf(to));
+	}
 }
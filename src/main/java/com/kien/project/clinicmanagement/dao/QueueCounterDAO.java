@@ -0,0 +1,96 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Cấp số thứ tự hàng đợi theo (bác sĩ, ngày) bằng dòng đếm trong bảng queue_counter.
+ * Mỗi lần cấp chỉ là một UPDATE theo khóa chính (LAST_INSERT_ID trả về số vừa cấp),
+ * nên hai lễ tân check-in cùng lúc không bao giờ nhận trùng số.
+ * Dòng đếm được khởi tạo một lần từ MAX(queue_number) của ngày đó; sang ngày mới thì bắt đầu dòng mới.
+ */
+public class QueueCounterDAO {
+
+	private static final String SEED_SQL = """
+			INSERT IGNORE INTO queue_counter (doctor_code, queue_date, last_number)
+			SELECT ?, ?, COALESCE(MAX(queue_number), 0)
+			FROM exam_queue
+			WHERE doctor_code = ? AND created_at >= ? AND created_at < ?
+			""";
+	private static final String INCREMENT_SQL = "UPDATE queue_counter SET last_number = LAST_INSERT_ID(last_number + 1) "
+			+ "WHERE doctor_code = ? AND queue_date = ?";
+
+	// Các bác sĩ đã có dòng đếm cho ngày hiện tại (tránh chạy lại bước khởi tạo)
+	private static final Set<String> SEEDED = ConcurrentHashMap.newKeySet();
+	private static volatile LocalDate seededDay;
+
+	public int nextQueueNumber(String doctorCode, LocalDate date) {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			if (!isSeeded(doctorCode, date)) {
+				seed(conn, doctorCode, date);
+			}
+
+			int updated = increment(conn, doctorCode, date);
+			if (updated == 0) {
+				// Dòng đếm bị xóa ngoài ứng dụng: khởi tạo lại rồi thử lần nữa
+				seed(conn, doctorCode, date);
+				updated = increment(conn, doctorCode, date);
+			}
+			if (updated > 0) {
+				try (PreparedStatement stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+						ResultSet rs = stmt.executeQuery()) {
+					if (rs.next()) {
+						return rs.getInt(1);
+					}
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return 0;
+	}
+
+	private boolean isSeeded(String doctorCode, LocalDate date) {
+		if (!date.equals(seededDay)) {
+			return false;
+		}
+		return SEEDED.contains(doctorCode);
+	}
+
+	private void seed(Connection conn, String doctorCode, LocalDate date) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(SEED_SQL)) {
+			stmt.setString(1, doctorCode);
+			stmt.setDate(2, Date.valueOf(date));
+			stmt.setString(3, doctorCode);
+			stmt.setTimestamp(4, Timestamp.valueOf(date.atStartOfDay()));
+			stmt.setTimestamp(5, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+			stmt.executeUpdate();
+		}
+
+		// Qua nửa đêm: bỏ đánh dấu của ngày cũ
+		synchronized (SEEDED) {
+			if (!date.equals(seededDay)) {
+				SEEDED.clear();
+				seededDay = date;
+			}
+		}
+		SEEDED.add(doctorCode);
+	}
+
+	private int increment(Connection conn, String doctorCode, LocalDate date) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(INCREMENT_SQL)) {
+			stmt.setString(1, doctorCode);
+			stmt.setDate(2, Date.valueOf(date));
+			return stmt.executeUpdate();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
+
+/**
+ * Bảng doanh thu tổng hợp sẵn (revenue_daily, revenue_doctor_daily, revenue_monthly).
+ * Các hàm applyDelta nhận Connection của giao dịch đang mở để cập nhật cùng lúc với prescription.
+ */
+public class RevenueRollupDAO {
+
+	private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+	private static final String DAILY_DELTA = """
+			INSERT INTO revenue_daily (revenue_date, prescription_count, total_revenue) VALUES (?, ?, ?)
+			ON DUPLICATE KEY UPDATE prescription_count = prescription_count + ?, total_revenue = total_revenue + ?
+			""";
+
+	private static final String DOCTOR_DAILY_DELTA = """
+			INSERT INTO revenue_doctor_daily (revenue_date, doctor_code, prescription_count, total_revenue) VALUES (?, ?, ?, ?)
+			ON DUPLICATE KEY UPDATE prescription_count = prescription_count + ?, total_revenue = total_revenue + ?
+			""";
+
+	private static final String MONTHLY_DELTA = """
+			INSERT INTO revenue_monthly (revenue_month, prescription_count, total_revenue) VALUES (?, ?, ?)
+			ON DUPLICATE KEY UPDATE prescription_count = prescription_count + ?, total_revenue = total_revenue + ?
+			""";
+
+	// Dựng lại toàn bộ từ bảng prescription (dùng khi backfill hoặc lệch số liệu)
+	private static final String[] REBUILD_STATEMENTS = {
+			"DELETE FROM revenue_daily",
+			"DELETE FROM revenue_doctor_daily",
+			"DELETE FROM revenue_monthly",
+			"""
+			INSERT INTO revenue_daily (revenue_date, prescription_count, total_revenue)
+			SELECT prescription_date, COUNT(*), COALESCE(SUM(total_price), 0)
+			FROM prescription
+			WHERE prescription_date IS NOT NULL
+			GROUP BY prescription_date
+			""",
+			"""
+			INSERT INTO revenue_doctor_daily (revenue_date, doctor_code, prescription_count, total_revenue)
+			SELECT p.prescription_date, mr.doctor_code, COUNT(*), COALESCE(SUM(p.total_price), 0)
+			FROM prescription p
+			JOIN medical_result mr ON p.medical_result_id = mr.id
+			WHERE p.prescription_date IS NOT NULL
+			GROUP BY p.prescription_date, mr.doctor_code
+			""",
+			"""
+			INSERT INTO revenue_monthly (revenue_month, prescription_count, total_revenue)
+			SELECT DATE_FORMAT(prescription_date, '%Y-%m') AS month_key, COUNT(*), COALESCE(SUM(total_price), 0)
+			FROM prescription
+			WHERE prescription_date IS NOT NULL
+			GROUP BY month_key
+			"""
+	};
+
+	/**
+	 * Cộng dồn thay đổi của một đơn thuốc vào cả ba bảng tổng hợp.
+	 * doctorCode có thể null (đơn thuốc không gắn kết quả khám) thì bỏ qua bảng theo bác sĩ.
+	 */
+	public void applyDelta(Connection conn, LocalDate date, String doctorCode, int countDelta, BigDecimal amountDelta)
+			throws SQLException {
+		if (date == null) return;
+		BigDecimal amount = amountDelta != null ? amountDelta : BigDecimal.ZERO;
+		Date sqlDate = Date.valueOf(date);
+
+		try (PreparedStatement stmt = conn.prepareStatement(DAILY_DELTA)) {
+			stmt.setDate(1, sqlDate);
+			stmt.setInt(2, countDelta);
+			stmt.setBigDecimal(3, amount);
+			stmt.setInt(4, countDelta);
+			stmt.setBigDecimal(5, amount);
+			stmt.executeUpdate();
+		}
+
+		if (doctorCode != null) {
+			try (PreparedStatement stmt = conn.prepareStatement(DOCTOR_DAILY_DELTA)) {
+				stmt.setDate(1, sqlDate);
+				stmt.setString(2, doctorCode);
+				stmt.setInt(3, countDelta);
+				stmt.setBigDecimal(4, amount);
+				stmt.setInt(5, countDelta);
+				stmt.setBigDecimal(6, amount);
+				stmt.executeUpdate();
+			}
+		}
+
+		try (PreparedStatement stmt = conn.prepareStatement(MONTHLY_DELTA)) {
+			stmt.setString(1, date.format(MONTH_FORMAT));
+			stmt.setInt(2, countDelta);
+			stmt.setBigDecimal(3, amount);
+			stmt.setInt(4, countDelta);
+			stmt.setBigDecimal(5, amount);
+			stmt.executeUpdate();
+		}
+	}
+
+	public boolean rebuild() {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false); // Xóa và nạp lại trong cùng một giao dịch
+
+			try (Statement stmt = conn.createStatement()) {
+				for (String sql : REBUILD_STATEMENTS) {
+					stmt.executeUpdate(sql);
+				}
+				conn.commit();
+				return true;
+			} catch (Exception e) {
+				conn.rollback();
+				System.err.println("Error during revenue rollup rebuild. Rolling back...");
+				e.printStackTrace();
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	// Doanh thu theo tháng, key "yyyy-MM" tăng dần
+	public Map<String, BigDecimal> getRevenueByMonth() {
+		return getRevenueByMonth(new QueryCancellation());
+	}
+
+	// Như trên, truy vấn đang chạy có thể bị hủy từ luồng khác (Dashboard)
+	public Map<String, BigDecimal> getRevenueByMonth(QueryCancellation cancellation) {
+		Map<String, BigDecimal> result = new LinkedHashMap<>();
+		String sql = "SELECT revenue_month, total_revenue FROM revenue_monthly ORDER BY revenue_month";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			cancellation.register(stmt);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					result.put(rs.getString("revenue_month"), rs.getBigDecimal("total_revenue"));
+				}
+			}
+		} catch (Exception e) {
+			if (!cancellation.isCancelled())
+				e.printStackTrace();
+		}
+		return result;
+	}
+
+	// Doanh thu từng ngày trong khoảng [from, to]
+	public Map<LocalDate, BigDecimal> getRevenueByDay(LocalDate from, LocalDate to) {
+		Map<LocalDate, BigDecimal> result = new LinkedHashMap<>();
+		String sql = "SELECT revenue_date, total_revenue FROM revenue_daily "
+				+ "WHERE revenue_date BETWEEN ? AND ? ORDER BY revenue_date";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setDate(1, Date.valueOf(from));
+			stmt.setDate(2, Date.valueOf(to));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					result.put(rs.getDate("revenue_date").toLocalDate(), rs.getBigDecimal("total_revenue"));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return result;
+	}
+
+	// Doanh thu theo bác sĩ trong khoảng [from, to], cao nhất trước
+	public Map<String, BigDecimal> getRevenueByDoctor(LocalDate from, LocalDate to) {
+		Map<String, BigDecimal> result = new LinkedHashMap<>();
+		String sql = "SELECT doctor_code, SUM(total_revenue) AS revenue FROM revenue_doctor_daily "
+				+ "WHERE revenue_date BETWEEN ? AND ? GROUP BY doctor_code ORDER BY revenue DESC";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setDate(1, Date.valueOf(from));
+			stmt.setDate(2, Date.valueOf(to));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					result.put(rs.getString("doctor_code"), rs.getBigDecimal("revenue"));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return result;
+	}
+
+	public BigDecimal getTotalRevenue() {
+		String sql = "SELECT COALESCE(SUM(total_revenue), 0) FROM revenue_monthly";
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql);
+				ResultSet rs = stmt.executeQuery()) {
+			if (rs.next()) {
+				return rs.getBigDecimal(1);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return BigDecimal.ZERO;
+	}
+}
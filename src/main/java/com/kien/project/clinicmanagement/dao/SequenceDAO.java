@@ -0,0 +1,111 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Cấp phát id / mã theo khối (hi-lo) từ bảng id_sequence.
+ * Mỗi lần hết khối chỉ cần một lệnh UPDATE nguyên tử để giữ trước cả khối,
+ * các giá trị trong khối được phát ra từ bộ nhớ nên không còn MAX()+1 và không trùng giữa các máy.
+ * Khối chưa dùng hết khi tắt ứng dụng sẽ bị bỏ qua (mã có thể nhảy số).
+ */
+public class SequenceDAO {
+
+	public static final String PRESCRIPTION = "prescription";
+	public static final String MEDICAL_RESULT = "medical_result";
+	public static final String PATIENT_CODE = "patient_code";
+	public static final String USER_CODE = "user_code";
+	public static final String MEDICINE_CODE = "medicine_code";
+
+	private static final int DEFAULT_BLOCK_SIZE = 20;
+	// Mã hiển thị cho người dùng: khối nhỏ để hạn chế nhảy số
+	private static final Map<String, Integer> BLOCK_SIZES = Map.of(
+			PATIENT_CODE, 5,
+			USER_CODE, 2,
+			MEDICINE_CODE, 5);
+
+	// Giá trị khởi tạo lấy từ dữ liệu hiện có, giống migration V3 (dùng khi dòng sequence bị thiếu)
+	private static final Map<String, String> SEED_VALUES = Map.of(
+			PRESCRIPTION, "COALESCE(MAX(id), 0) + 1 FROM prescription",
+			MEDICAL_RESULT, "COALESCE(MAX(id), 0) + 1 FROM medical_result",
+			PATIENT_CODE, "COALESCE(MAX(CAST(SUBSTRING(code, 2) AS UNSIGNED)), 0) + 1"
+					+ " FROM patient_profile WHERE code REGEXP '^P[0-9]+$'",
+			USER_CODE, "COALESCE(MAX(CAST(SUBSTRING(code, 2) AS UNSIGNED)), 0) + 1"
+					+ " FROM account WHERE code REGEXP '^U[0-9]+$'",
+			MEDICINE_CODE, "COALESCE(MAX(CAST(SUBSTRING(code, 4) AS UNSIGNED)), 0) + 1"
+					+ " FROM medicine WHERE code REGEXP '^MED[0-9]+$'");
+
+	// Khối đang dùng của từng sequence, dùng chung cho mọi instance
+	private static final Map<String, Block> BLOCKS = new ConcurrentHashMap<>();
+
+	private static final class Block {
+		private long next;
+		private long limit; // Giá trị đầu tiên không thuộc khối
+	}
+
+	public long nextValue(String name) {
+		Block block = BLOCKS.computeIfAbsent(name, k -> new Block());
+		synchronized (block) {
+			if (block.next >= block.limit) {
+				int size = BLOCK_SIZES.getOrDefault(name, DEFAULT_BLOCK_SIZE);
+				block.limit = allocateBlock(name, size);
+				block.next = block.limit - size;
+			}
+			return block.next++;
+		}
+	}
+
+	// Mã dạng tiền tố + số, vd: P001, U012, MED105
+	public String nextCode(String name, String prefix) {
+		return prefix + String.format("%03d", nextValue(name));
+	}
+
+	/**
+	 * Giữ trước một khối giá trị bằng một lệnh UPDATE nguyên tử.
+	 * LAST_INSERT_ID(expr) lưu giá trị mới theo connection nên đọc lại không cần khóa.
+	 * @return giá trị đầu tiên không thuộc khối vừa cấp
+	 */
+	private long allocateBlock(String name, int size) {
+		String updateSql = "UPDATE id_sequence SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?";
+		String seedValue = SEED_VALUES.get(name);
+		if (seedValue == null)
+			throw new IllegalArgumentException("Unknown sequence: " + name);
+		// INSERT IGNORE: máy khác vừa khởi tạo trước thì giữ nguyên giá trị của nó
+		String initSql = "INSERT IGNORE INTO id_sequence (name, next_value) SELECT ?, " + seedValue;
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			if (!incrementSequence(conn, updateSql, name, size)) {
+				// Sequence chưa có (dòng bị xóa / chưa chạy migration): khởi tạo từ MAX của bảng đích
+				// để không cấp lại id/mã đã tồn tại, rồi thử lại
+				try (PreparedStatement init = conn.prepareStatement(initSql)) {
+					init.setString(1, name);
+					init.executeUpdate();
+				}
+				if (!incrementSequence(conn, updateSql, name, size)) {
+					throw new SQLException("Unable to allocate sequence block for " + name);
+				}
+			}
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+					ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				return rs.getLong(1);
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to allocate sequence block for " + name, e);
+		}
+	}
+
+	private boolean incrementSequence(Connection conn, String sql, String name, int size) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, size);
+			stmt.setString(2, name);
+			return stmt.executeUpdate() > 0;
+		}
+	}
+}
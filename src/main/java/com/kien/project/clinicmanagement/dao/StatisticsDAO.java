@@ -0,0 +1,81 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import com.kien.project.clinicmanagement.dto.DashboardStatistics;
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
+
+/**
+ * Truy vấn tổng hợp cho Dashboard: mỗi số liệu là một nhánh GROUP BY,
+ * ghép lại bằng UNION ALL để lấy tất cả trong một lần gọi database.
+ * Doanh thu được đọc riêng từ bảng revenue_monthly (RevenueRollupDAO).
+ */
+public class StatisticsDAO {
+
+	private static final String DASHBOARD_QUERY = """
+			SELECT 'user_gender' AS metric, p.gender AS grp, COUNT(*) AS cnt, CAST(NULL AS DECIMAL(14, 2)) AS amount
+			FROM account a
+			JOIN profile p ON a.code = p.user_code
+			GROUP BY p.gender
+			UNION ALL
+			SELECT 'patient_gender', gender, COUNT(*), NULL
+			FROM patient_profile
+			GROUP BY gender
+			UNION ALL
+			SELECT 'appointment_status', status, COUNT(*), NULL
+			FROM appointment
+			GROUP BY status
+			UNION ALL
+			SELECT 'exam_queue_status', status, COUNT(*), NULL
+			FROM exam_queue
+			GROUP BY status
+			UNION ALL
+			SELECT 'medicine_stock', IF(COALESCE(quantity, 0) <= ?, 'LOW', 'NORMAL') AS stock_level,
+			       COUNT(*), SUM(COALESCE(quantity, 0))
+			FROM medicine
+			GROUP BY stock_level
+			ORDER BY metric, grp
+			""";
+
+	// cancellation: Dashboard bị rời đi hoặc tải lại thì truy vấn đang chạy được hủy phía MySQL
+	public DashboardStatistics getDashboardStatistics(int lowStockThreshold, QueryCancellation cancellation) {
+		DashboardStatistics stats = new DashboardStatistics();
+
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(DASHBOARD_QUERY)) {
+			stmt.setInt(1, lowStockThreshold);
+			cancellation.register(stmt);
+			try (ResultSet rs = stmt.executeQuery()) {
+				int totalStock = 0;
+				while (rs.next()) {
+					String metric = rs.getString("metric");
+					String group = rs.getString("grp");
+					int count = rs.getInt("cnt");
+					BigDecimal amount = rs.getBigDecimal("amount");
+
+					switch (metric) {
+					case "medicine_stock" -> {
+						if ("LOW".equals(group)) {
+							stats.setLowStockMedicines(count);
+						} else {
+							stats.setNormalStockMedicines(count);
+						}
+						totalStock += amount != null ? amount.intValue() : 0;
+					}
+					default -> stats.addCount(metric, group, count);
+					}
+				}
+				stats.setTotalStock(totalStock);
+			}
+		} catch (Exception e) {
+			// Bị hủy thì kết quả không được dùng nữa
+			if (!cancellation.isCancelled())
+				e.printStackTrace();
+		}
+		return stats;
+	}
+}
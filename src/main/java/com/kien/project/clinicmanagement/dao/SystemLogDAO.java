@@ -12,22 +12,23 @@ import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
 
 public class SystemLogDAO {
 
+    // Ghi bất đồng bộ qua SystemLogWriter, không chờ INSERT
     public void logAction(String userCode, String action) {
-        String sql = "INSERT INTO system_log (user_code, action) VALUES (?, ?)";
-
-        try (Connection conn = ConnectionDatabase.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        SystemLogWriter.getInstance().submit(userCode, action);
+    }
 
-            stmt.setString(1, userCode);
-            stmt.setString(2, action);
-            stmt.executeUpdate();
+    // Chờ các log đang trong hàng đợi được ghi xong (gọi trước khi đọc system_log)
+    public static void flush() {
+        SystemLogWriter.getInstance().flush();
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    // Ghi nốt log còn lại khi thoát ứng dụng
+    public static void shutdown() {
+        SystemLogWriter.getInstance().shutdown();
     }
 
     public List<SystemLog> getLogsByUserCode(String userCode) {
+        flush();
         List<SystemLog> logs = new ArrayList<>();
         String sql = "SELECT * FROM system_log WHERE user_code = ? ORDER BY timestamp DESC";
 
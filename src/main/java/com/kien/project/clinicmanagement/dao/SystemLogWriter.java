@@ -0,0 +1,227 @@
+package com.kien.project.clinicmanagement.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
+
+/**
+ * Ghi nhật ký hệ thống bất đồng bộ: service chỉ đẩy bản ghi vào hàng đợi có giới hạn,
+ * một luồng nền gom các bản ghi đang chờ và INSERT theo lô (JDBC batch) trong một giao dịch.
+ * Hành động giống hệt nhau của cùng người dùng trong một lô được gộp thành một dòng.
+ */
+class SystemLogWriter {
+
+	private static final int QUEUE_CAPACITY = 10_000;
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final long POLL_TIMEOUT_MS = 200;
+	private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+	private static final long FLUSH_TIMEOUT_MS = 2_000;
+
+	private static final String INSERT_SQL = "INSERT INTO system_log (user_code, action, timestamp) VALUES (?, ?, ?)";
+
+	private static final SystemLogWriter INSTANCE = new SystemLogWriter();
+
+	private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final Thread worker;
+	private volatile boolean running = true;
+
+	// Bản ghi chờ ghi
+	private record Entry(String userCode, String action, LocalDateTime timestamp) {
+	}
+
+	// Mốc đánh dấu: được mở khi mọi bản ghi đứng trước nó đã được ghi xong
+	private record FlushBarrier(CountDownLatch latch) {
+	}
+
+	private SystemLogWriter() {
+		worker = new Thread(this::run, "system-log-writer");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	static SystemLogWriter getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Đẩy bản ghi vào hàng đợi; chỉ chờ khi hàng đợi đã đầy.
+	 * Sau khi đã shutdown thì ghi trực tiếp để không mất log.
+	 */
+	void submit(String userCode, String action) {
+		Entry entry = new Entry(userCode, action, LocalDateTime.now());
+		if (!running) {
+			writeBatch(List.of(entry));
+			return;
+		}
+		try {
+			queue.put(entry);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Chờ các bản ghi đã gửi trước đó được ghi xuống database (dùng trước khi đọc log)
+	void flush() {
+		if (!running) return;
+		FlushBarrier barrier = new FlushBarrier(new CountDownLatch(1));
+		try {
+			if (queue.offer(barrier, FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				barrier.latch().await(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Ghi nốt các bản ghi còn trong hàng đợi rồi dừng luồng nền
+	void shutdown() {
+		running = false;
+		try {
+			worker.join(SHUTDOWN_TIMEOUT_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		List<Object> drained = new ArrayList<>(MAX_BATCH_SIZE);
+		while (running || !queue.isEmpty()) {
+			try {
+				Object first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				if (first == null) continue;
+
+				// Gom tất cả những gì đã dồn lại trong lúc ghi lô trước (group commit)
+				drained.add(first);
+				queue.drainTo(drained, MAX_BATCH_SIZE - 1);
+				process(drained);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} finally {
+				drained.clear();
+			}
+		}
+	}
+
+	private void process(List<Object> drained) {
+		List<Entry> entries = new ArrayList<>(drained.size());
+		List<FlushBarrier> barriers = new ArrayList<>();
+		for (Object item : drained) {
+			if (item instanceof Entry entry) {
+				entries.add(entry);
+			} else if (item instanceof FlushBarrier barrier) {
+				barriers.add(barrier);
+			}
+		}
+
+		if (!entries.isEmpty()) {
+			writeBatch(coalesce(entries));
+		}
+		for (FlushBarrier barrier : barriers) {
+			barrier.latch().countDown();
+		}
+	}
+
+	// Gộp các hành động trùng (cùng user, cùng nội dung) trong lô, vd: "Search patient (x5)"
+	private List<Entry> coalesce(List<Entry> entries) {
+		Map<String, Entry> firstByKey = new LinkedHashMap<>();
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (Entry entry : entries) {
+			String key = entry.userCode() + '\u0000' + entry.action();
+			firstByKey.putIfAbsent(key, entry);
+			counts.merge(key, 1, Integer::sum);
+		}
+
+		List<Entry> result = new ArrayList<>(firstByKey.size());
+		firstByKey.forEach((key, entry) -> {
+			int count = counts.get(key);
+			String action = count > 1 ? entry.action() + " (x" + count + ")" : entry.action();
+			result.add(new Entry(entry.userCode(), action, entry.timestamp()));
+		});
+		return result;
+	}
+
+	// Lỗi lô (mất kết nối thoáng qua, một dòng hỏng...) thì thử lại cả lô một lần,
+	// vẫn lỗi thì ghi từng dòng để chỉ bỏ những dòng thực sự không ghi được
+	private void writeBatch(List<Entry> entries) {
+		try {
+			insertBatch(entries);
+			return;
+		} catch (Exception e) {
+			System.err.println("Error writing " + entries.size() + " system log entries. Retrying...");
+			e.printStackTrace();
+		}
+		try {
+			insertBatch(entries);
+			return;
+		} catch (Exception e) {
+			System.err.println("Retry failed. Writing " + entries.size() + " system log entries one by one...");
+			e.printStackTrace();
+		}
+
+		int lost = insertOneByOne(entries);
+		if (lost > 0) {
+			System.err.println("❌ Lost " + lost + " of " + entries.size() + " system log entries.");
+		}
+	}
+
+	// Ghi cả lô trong một giao dịch; lỗi thì rollback và ném lại để nơi gọi quyết định
+	private void insertBatch(List<Entry> entries) throws Exception {
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			conn.setAutoCommit(false);
+
+			try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+				for (Entry entry : entries) {
+					setParameters(stmt, entry);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	// Ghi từng dòng (autocommit); trả về số dòng không ghi được
+	private int insertOneByOne(List<Entry> entries) {
+		int written = 0;
+		try (Connection conn = ConnectionDatabase.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+			for (Entry entry : entries) {
+				try {
+					setParameters(stmt, entry);
+					stmt.executeUpdate();
+					written++;
+				} catch (Exception e) {
+					System.err.println("Dropping system log entry: " + entry);
+					e.printStackTrace();
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return entries.size() - written;
+	}
+
+	private void setParameters(PreparedStatement stmt, Entry entry) throws SQLException {
+		stmt.setString(1, entry.userCode());
+		stmt.setString(2, entry.action());
+		stmt.setTimestamp(3, Timestamp.valueOf(entry.timestamp()));
+	}
+}
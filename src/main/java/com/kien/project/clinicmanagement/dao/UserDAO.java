@@ -10,11 +10,15 @@ import java.util.List;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.utils.ConnectionDatabase;
 
 public class UserDAO {
 
+	private final SequenceDAO sequenceDAO = new SequenceDAO();
+	private final NameResolver nameResolver = NameResolver.getInstance();
+
 	// Code Auth
 	private static final String USERNAME_QUERY = """
 				SELECT a.*, p.name, p.email, p.phone_number, p.address,
@@ -88,6 +92,15 @@ public class UserDAO {
 			    JOIN profile p ON a.code = p.user_code
 			""";
 
+	// Như BASE_SELECT nhưng kèm tổng số dòng khớp điều kiện (window count)
+	private static final String BASE_PAGED_SELECT = """
+			    SELECT a.*, COUNT(*) OVER() AS total_count,
+			           p.name, p.email, p.phone_number, p.address,
+			           p.date_of_birth, p.gender, p.citizen_id, p.profile_image
+			    FROM account a
+			    JOIN profile p ON a.code = p.user_code
+			""";
+
 	private static final String BASE_COUNT = """
 			    SELECT COUNT(*)
 			    FROM account a
@@ -111,9 +124,15 @@ public class UserDAO {
 	
 	// Lấy danh sách người dùng
 	public List<User> getUsers(String role, int offset, int limit) {
+		return getUsersPage(role, offset, limit).getRows();
+	}
+
+	// Trang người dùng kèm tổng số dòng trong một truy vấn
+	public PagedResult<User> getUsersPage(String role, int offset, int limit) {
 		List<User> list = new ArrayList<>();
+		int total = 0;
 
-		StringBuilder sql = new StringBuilder(BASE_SELECT);
+		StringBuilder sql = new StringBuilder(BASE_PAGED_SELECT);
 		if (hasRoleFilter(role))
 			sql.append(" WHERE a.role = ?");
 		sql.append(" ORDER BY a.id DESC LIMIT ? OFFSET ?");
@@ -128,14 +147,19 @@ public class UserDAO {
 			stmt.setInt(i, offset);
 
 			try (ResultSet rs = stmt.executeQuery()) {
-				while (rs.next())
+				while (rs.next()) {
+					total = rs.getInt("total_count");
 					list.add(extractUserFromResultSet(rs));
+				}
 			}
 
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		return list;
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countUsers(role);
+		return new PagedResult<>(list, total, offset, limit);
 	}
 
 	// Hàm lấy tổng số người dùng
@@ -162,11 +186,16 @@ public class UserDAO {
 	}
 
 	public List<User> searchUsers(String keyword, String field, String role, int offset, int limit) {
+		return searchUsersPage(keyword, field, role, offset, limit).getRows();
+	}
+
+	public PagedResult<User> searchUsersPage(String keyword, String field, String role, int offset, int limit) {
 		List<User> list = new ArrayList<>();
+		int total = 0;
 
 		String column = mapSearchField(field);
 
-		StringBuilder sql = new StringBuilder(BASE_SELECT).append(" WHERE ").append(column).append(" LIKE ?");
+		StringBuilder sql = new StringBuilder(BASE_PAGED_SELECT).append(" WHERE ").append(column).append(" LIKE ?");
 
 		if (hasRoleFilter(role))
 			sql.append(" AND a.role = ?");
@@ -183,14 +212,19 @@ public class UserDAO {
 			stmt.setInt(i, offset);
 
 			try (ResultSet rs = stmt.executeQuery()) {
-				while (rs.next())
+				while (rs.next()) {
+					total = rs.getInt("total_count");
 					list.add(extractUserFromResultSet(rs));
+				}
 			}
 
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		return list;
+		// Trang vượt quá số dòng thì không có total_count, đếm lại riêng
+		if (list.isEmpty() && offset > 0)
+			total = countSearchUsers(keyword, field, role);
+		return new PagedResult<>(list, total, offset, limit);
 	}
 
 	public int countSearchUsers(String keyword, String field, String role) {
@@ -281,6 +315,7 @@ public class UserDAO {
 				proStmt.executeUpdate();
 
 				conn.commit(); // Commit nếu mọi thứ thành công
+				nameResolver.invalidateUser(user.getCode());
 			} catch (Exception e) {
 				conn.rollback(); // Rollback nếu có lỗi
 				System.err.println("Error during addUser transaction. Rolling back...");
@@ -330,6 +365,7 @@ public class UserDAO {
 				proStmt.executeUpdate();
 
 				conn.commit(); // Giao dịch thành công
+				nameResolver.invalidateUser(user.getCode());
 
 			} catch (Exception e) {
 				conn.rollback(); // Lỗi thì rollback
@@ -368,6 +404,7 @@ public class UserDAO {
 				accountStmt.executeUpdate();
 
 				conn.commit();
+				nameResolver.invalidateUser(userCode);
 				return null; // success
 
 			} catch (Exception e) {
@@ -504,6 +541,7 @@ public class UserDAO {
 	public List<String> getActivityLogs(String userCode) {
 		List<String> logs = new ArrayList<>();
 		String sql = "SELECT action, timestamp FROM system_log WHERE user_code = ? ORDER BY timestamp DESC";
+		SystemLogDAO.flush(); // Đảm bảo log còn trong hàng đợi đã được ghi
 
 		try (Connection conn = ConnectionDatabase.getConnection();
 				PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -523,21 +561,8 @@ public class UserDAO {
 	}
 
 	public String generateNextUserCode() {
-		String sql = "SELECT MAX(code) FROM account WHERE code LIKE 'U%'";
-		try (Connection conn = ConnectionDatabase.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql);
-				ResultSet rs = stmt.executeQuery()) {
-
-			if (rs.next() && rs.getString(1) != null) {
-				String lastCode = rs.getString(1);
-				// Lấy last code và cộng thêm 1 cho user_code mới
-				int number = Integer.parseInt(lastCode.substring(1));
-				return String.format("U%03d", number + 1);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return "U001";
+		// Cấp từ khối sequence trong bộ nhớ, không còn quét MAX(code)
+		return sequenceDAO.nextCode(SequenceDAO.USER_CODE, "U");
 	}
 
 	public List<User> getUsersByRole(String role) {
@@ -0,0 +1,53 @@
+package com.kien.project.clinicmanagement.dto;
+
+/**
+ * Ảnh chụp số liệu của một bộ nhớ đệm trong ứng dụng tại một thời điểm.
+ */
+public class CacheStatistics {
+    private final String name;
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final int size;
+
+    public CacheStatistics(String name, long hits, long misses, long loads, int size) {
+        this.name = name;
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.size = size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // Số lần nạp lại toàn bộ từ database
+    public long getLoads() {
+        return loads;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics[" + name + ": hits=" + hits + ", misses=" + misses
+                + ", hitRatio=" + String.format("%.2f", getHitRatio())
+                + ", loads=" + loads + ", size=" + size + "]";
+    }
+}
@@ -0,0 +1,78 @@
+package com.kien.project.clinicmanagement.dto;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Số liệu đếm của Dashboard (trừ doanh thu), được tổng hợp sẵn bằng GROUP BY phía MySQL.
+ * Khóa nhóm (giới tính, trạng thái) không phân biệt hoa thường.
+ */
+public class DashboardStatistics {
+
+    public static final String USER_GENDER = "user_gender";
+    public static final String PATIENT_GENDER = "patient_gender";
+    public static final String APPOINTMENT_STATUS = "appointment_status";
+    public static final String EXAM_QUEUE_STATUS = "exam_queue_status";
+
+    private final Map<String, Map<String, Integer>> counts = new HashMap<>();
+    private int lowStockMedicines;
+    private int normalStockMedicines;
+    private int totalStock;
+
+    public void addCount(String metric, String group, int count) {
+        if (group == null) return;
+        counts.computeIfAbsent(metric, k -> new HashMap<>())
+              .merge(group.toUpperCase(Locale.ROOT), count, Integer::sum);
+    }
+
+    public int getCount(String metric, String group) {
+        Map<String, Integer> groups = counts.get(metric);
+        if (groups == null || group == null) return 0;
+        return groups.getOrDefault(group.toUpperCase(Locale.ROOT), 0);
+    }
+
+    public int getUserCountByGender(String gender) {
+        return getCount(USER_GENDER, gender);
+    }
+
+    public int getPatientCountByGender(String gender) {
+        return getCount(PATIENT_GENDER, gender);
+    }
+
+    public int getAppointmentCountByStatus(String status) {
+        return getCount(APPOINTMENT_STATUS, status);
+    }
+
+    public int getExamQueueCountByStatus(String status) {
+        return getCount(EXAM_QUEUE_STATUS, status);
+    }
+
+    public int getLowStockMedicines() {
+        return lowStockMedicines;
+    }
+
+    public void setLowStockMedicines(int lowStockMedicines) {
+        this.lowStockMedicines = lowStockMedicines;
+    }
+
+    public int getNormalStockMedicines() {
+        return normalStockMedicines;
+    }
+
+    public void setNormalStockMedicines(int normalStockMedicines) {
+        this.normalStockMedicines = normalStockMedicines;
+    }
+
+    public int getTotalMedicines() {
+        return lowStockMedicines + normalStockMedicines;
+    }
+
+    public int getTotalStock() {
+        return totalStock;
+    }
+
+    public void setTotalStock(int totalStock) {
+        this.totalStock = totalStock;
+    }
+}
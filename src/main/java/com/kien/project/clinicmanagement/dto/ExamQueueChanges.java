@@ -0,0 +1,61 @@
+package com.kien.project.clinicmanagement.dto;
+
+import java.util.List;
+import java.util.Set;
+
+import com.kien.project.clinicmanagement.model.ExamQueue;
+
+/**
+ * Các thay đổi của exam_queue kể từ một phiên bản (version stamp) trước đó.
+ * changed chứa trạng thái hiện tại của những dòng bị thêm / sửa, removedIds là các dòng đã bị xóa.
+ * Nếu fullReload = true thì nhật ký không còn đủ dữ liệu, client phải tải lại toàn bộ.
+ */
+public class ExamQueueChanges {
+    private final long version;
+    private final long count;
+    private final boolean fullReload;
+    private final List<ExamQueue> changed;
+    private final Set<Long> removedIds;
+
+    public ExamQueueChanges(long version, long count, boolean fullReload, List<ExamQueue> changed, Set<Long> removedIds) {
+        this.version = version;
+        this.count = count;
+        this.fullReload = fullReload;
+        this.changed = (changed != null) ? changed : List.of();
+        this.removedIds = (removedIds != null) ? removedIds : Set.of();
+    }
+
+    // Chỉ có version stamp, không kèm dữ liệu
+    public static ExamQueueChanges stamp(long version, long count) {
+        return new ExamQueueChanges(version, count, false, List.of(), Set.of());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isFullReload() {
+        return fullReload;
+    }
+
+    public List<ExamQueue> getChanged() {
+        return changed;
+    }
+
+    public Set<Long> getRemovedIds() {
+        return removedIds;
+    }
+
+    public boolean isEmpty() {
+        return !fullReload && changed.isEmpty() && removedIds.isEmpty();
+    }
+
+    // Hai stamp khác nhau nghĩa là đã có thay đổi mới
+    public boolean isSameStamp(ExamQueueChanges other) {
+        return other != null && version == other.version && count == other.count;
+    }
+}
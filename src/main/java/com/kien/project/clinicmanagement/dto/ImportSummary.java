@@ -0,0 +1,45 @@
+package com.kien.project.clinicmanagement.dto;
+
+import java.nio.file.Path;
+
+/**
+ * Kết quả một lần nhập dữ liệu từ Excel; chi tiết từng dòng nằm trong file kết quả.
+ */
+public class ImportSummary {
+    private final long inserted;
+    private final long updated;
+    private final long failed;
+    private final Path resultFile;
+
+    public ImportSummary(long inserted, long updated, long failed, Path resultFile) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.failed = failed;
+        this.resultFile = resultFile;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getTotal() {
+        return inserted + updated + failed;
+    }
+
+    public Path getResultFile() {
+        return resultFile;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportSummary[inserted=" + inserted + ", updated=" + updated + ", failed=" + failed + "]";
+    }
+}
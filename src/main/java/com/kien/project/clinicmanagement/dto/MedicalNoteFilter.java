@@ -0,0 +1,45 @@
+package com.kien.project.clinicmanagement.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Điều kiện lọc đi kèm tìm kiếm toàn văn trong ghi chú khám.
+ * Trường null (hoặc rỗng) nghĩa là không lọc theo trường đó; khoảng ngày tính cả hai đầu.
+ */
+public class MedicalNoteFilter {
+    private final String patientCode;
+    private final String doctorCode;
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+
+    public MedicalNoteFilter(String patientCode, String doctorCode, LocalDate fromDate, LocalDate toDate) {
+        this.patientCode = blankToNull(patientCode);
+        this.doctorCode = blankToNull(doctorCode);
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+    }
+
+    public static MedicalNoteFilter none() {
+        return new MedicalNoteFilter(null, null, null, null);
+    }
+
+    public String getPatientCode() {
+        return patientCode;
+    }
+
+    public String getDoctorCode() {
+        return doctorCode;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value.trim();
+    }
+}
@@ -0,0 +1,49 @@
+package com.kien.project.clinicmanagement.dto;
+
+import java.util.List;
+
+/**
+ * Một trang dữ liệu kèm tổng số dòng khớp điều kiện lọc,
+ * lấy về trong cùng một truy vấn (COUNT(*) OVER()).
+ */
+public class PagedResult<T> {
+    private final List<T> rows;
+    private final int total;
+    private final int offset;
+    private final int limit;
+
+    public PagedResult(List<T> rows, int total, int offset, int limit) {
+        this.rows = (rows != null) ? rows : List.of();
+        this.total = total;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public static <T> PagedResult<T> empty(int offset, int limit) {
+        return new PagedResult<>(List.of(), 0, offset, limit);
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasNext() {
+        return offset + rows.size() < total;
+    }
+
+    public int getTotalPages() {
+        return (limit <= 0) ? 1 : Math.max(1, (int) Math.ceil((double) total / limit));
+    }
+}
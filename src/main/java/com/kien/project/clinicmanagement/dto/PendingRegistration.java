@@ -0,0 +1,51 @@
+package com.kien.project.clinicmanagement.dto;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import com.kien.project.clinicmanagement.model.Patient;
+
+/**
+ * Một bệnh nhân đọc được từ ảnh QR trong thư mục quét, chờ lễ tân xác nhận đăng ký.
+ */
+public class PendingRegistration {
+    private final long id;
+    private final Path sourceFile;
+    private final Patient patient;
+    // Mã bệnh nhân đã có cùng CCCD; null nếu là bệnh nhân mới
+    private final String existingPatientCode;
+    private final LocalDateTime receivedAt;
+
+    public PendingRegistration(long id, Path sourceFile, Patient patient, String existingPatientCode,
+            LocalDateTime receivedAt) {
+        this.id = id;
+        this.sourceFile = sourceFile;
+        this.patient = patient;
+        this.existingPatientCode = existingPatientCode;
+        this.receivedAt = receivedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Path getSourceFile() {
+        return sourceFile;
+    }
+
+    public Patient getPatient() {
+        return patient;
+    }
+
+    public String getExistingPatientCode() {
+        return existingPatientCode;
+    }
+
+    public boolean isAlreadyRegistered() {
+        return existingPatientCode != null;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+}
@@ -0,0 +1,48 @@
+package com.kien.project.clinicmanagement.dto;
+
+/**
+ * Ảnh chụp trạng thái connection pool tại một thời điểm.
+ */
+public class PoolStatistics {
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int threadsAwaitingConnection;
+    private final int maximumPoolSize;
+
+    public PoolStatistics(int activeConnections, int idleConnections, int totalConnections,
+                          int threadsAwaitingConnection, int maximumPoolSize) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStatistics[active=" + activeConnections + ", idle=" + idleConnections
+                + ", total=" + totalConnections + "/" + maximumPoolSize
+                + ", waiting=" + threadsAwaitingConnection + "]";
+    }
+}
@@ -0,0 +1,79 @@
+package com.kien.project.clinicmanagement.model;
+
+import java.time.LocalDateTime;
+
+public class InventoryMovement {
+
+    // Loại phát sinh kho; quantityDelta dương là nhập, âm là xuất
+    public enum Type {
+        OPENING, STOCK_IN, DISPENSE, ADJUSTMENT
+    }
+
+    private Long id;
+    private String medicineCode;
+    private Type type;
+    private int quantityDelta;
+    private String reference;
+    private LocalDateTime createdAt;
+
+    public InventoryMovement() {
+    }
+
+    public InventoryMovement(Long id, String medicineCode, Type type, int quantityDelta, String reference,
+                             LocalDateTime createdAt) {
+        this.id = id;
+        this.medicineCode = medicineCode;
+        this.type = type;
+        this.quantityDelta = quantityDelta;
+        this.reference = reference;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMedicineCode() {
+        return medicineCode;
+    }
+
+    public void setMedicineCode(String medicineCode) {
+        this.medicineCode = medicineCode;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getQuantityDelta() {
+        return quantityDelta;
+    }
+
+    public void setQuantityDelta(int quantityDelta) {
+        this.quantityDelta = quantityDelta;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,78 @@
+package com.kien.project.clinicmanagement.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class MedicineLot {
+
+    // Lô dùng cho hàng không rõ số lô/hạn dùng (tồn kho cũ, hàng trả lại, điều chỉnh kiểm kê)
+    public static final String UNASSIGNED = "UNASSIGNED";
+
+    private long id;
+    private String medicineCode;
+    private String lotNumber;
+    private LocalDate expiryDate; // null = không rõ hạn, xuất sau cùng
+    private int quantity;
+    private LocalDateTime receivedAt;
+
+    public MedicineLot() {
+    }
+
+    public MedicineLot(long id, String medicineCode, String lotNumber, LocalDate expiryDate, int quantity,
+                       LocalDateTime receivedAt) {
+        this.id = id;
+        this.medicineCode = medicineCode;
+        this.lotNumber = lotNumber;
+        this.expiryDate = expiryDate;
+        this.quantity = quantity;
+        this.receivedAt = receivedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getMedicineCode() {
+        return medicineCode;
+    }
+
+    public void setMedicineCode(String medicineCode) {
+        this.medicineCode = medicineCode;
+    }
+
+    public String getLotNumber() {
+        return lotNumber;
+    }
+
+    public void setLotNumber(String lotNumber) {
+        this.lotNumber = lotNumber;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(LocalDateTime receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+}
@@ -0,0 +1,115 @@
+package com.kien.project.clinicmanagement.model;
+
+import java.time.LocalDateTime;
+
+public class OutgoingMail {
+
+    // PENDING: chờ gửi (kể cả chờ thử lại), SENDING: đã được một luồng gửi nhận, SENT/FAILED: kết thúc
+    public enum Status {
+        PENDING, SENDING, SENT, FAILED
+    }
+
+    private long id;
+    private String recipient;
+    private String subject;
+    private String body;
+    // Nội dung có chỗ trống cho bí mật (mật khẩu mới, mã xác minh) không lưu trong database
+    private boolean holdsSecret;
+    private Status status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    public OutgoingMail() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public boolean isHoldsSecret() {
+        return holdsSecret;
+    }
+
+    public void setHoldsSecret(boolean holdsSecret) {
+        this.holdsSecret = holdsSecret;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+}
@@ -6,7 +6,9 @@ import java.util.List;
 
 import com.kien.project.clinicmanagement.dao.AppointmentDAO;
 import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.Appointment;
+import com.kien.project.clinicmanagement.utils.PageHelper;
 import com.kien.project.clinicmanagement.utils.Session;
 
 public class AppointmentService {
@@ -22,10 +24,23 @@ public class AppointmentService {
 		return appointmentDAO.getAppointments(offset, limit);
 	}
 	
+	public PagedResult<Appointment> getAppointmentsPage(int offset, int limit) {
+		return appointmentDAO.getAppointmentsPage(offset, limit);
+	}
+	
+	public List<Appointment> getAppointmentsSeek(Date anchorDate, long anchorId, PageHelper.Direction direction,
+			int limit) {
+		return appointmentDAO.getAppointmentsSeek(anchorDate, anchorId, direction, limit);
+	}
+	
 	public List<Appointment> searchAppointments(String keyword, String field, int offset, int limit) {
 		return appointmentDAO.searchAppointments(keyword, field, offset, limit);
 	}
 	
+	public PagedResult<Appointment> searchAppointmentsPage(String keyword, String field, int offset, int limit) {
+		return appointmentDAO.searchAppointmentsPage(keyword, field, offset, limit);
+	}
+	
 	public int countSearchAppointments(String keyword, String field) {
 		return appointmentDAO.countSearchAppointments(keyword, field);
 	}
@@ -39,6 +54,15 @@ public class AppointmentService {
 	    return appointmentDAO.getAppointmentsByUser(userCode, role, offset, limit);
 	}
 
+	public PagedResult<Appointment> getAppointmentsByUserPage(String userCode, String role, int offset, int limit) {
+	    return appointmentDAO.getAppointmentsByUserPage(userCode, role, offset, limit);
+	}
+
+	public List<Appointment> getAppointmentsByUserSeek(String userCode, String role, Date anchorDate, long anchorId,
+			PageHelper.Direction direction, int limit) {
+	    return appointmentDAO.getAppointmentsByUserSeek(userCode, role, anchorDate, anchorId, direction, limit);
+	}
+
 	public int countSearchAppointmentsByUser(String userCode, String role, String keyword, String field) {
 	    return appointmentDAO.countSearchAppointmentsByUser(userCode, role, keyword, field);
 	}
@@ -47,6 +71,10 @@ public class AppointmentService {
 	    return appointmentDAO.searchAppointmentsByUser(userCode, role, keyword, field, offset, limit);
 	}
 
+	public PagedResult<Appointment> searchAppointmentsByUserPage(String userCode, String role, String keyword, String field, int offset, int limit) {
+	    return appointmentDAO.searchAppointmentsByUserPage(userCode, role, keyword, field, offset, limit);
+	}
+
 	public boolean cancelAppointment(Long id, String reason) {
 		if (id == null)
 			return false;
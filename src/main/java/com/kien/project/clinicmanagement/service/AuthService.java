@@ -1,18 +1,21 @@
 package com.kien.project.clinicmanagement.service;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.kien.project.clinicmanagement.dao.UserDAO;
 import com.kien.project.clinicmanagement.dto.ServiceResult;
+import com.kien.project.clinicmanagement.model.OutgoingMail;
 import com.kien.project.clinicmanagement.model.User;
-import com.kien.project.clinicmanagement.utils.MailAPI;
 import com.kien.project.clinicmanagement.utils.Validator;
 
 public class AuthService {
 
     private final UserDAO userDAO;
-    private String verificationCode;
-    private String currentUsername;
+    // Chỉ được gán khi thư chứa mã đã gửi thành công (trên luồng gửi thư), đọc trên luồng giao diện
+    private volatile String verificationCode;
+    private volatile String currentUsername;
+    private volatile boolean codeVerified;
     
     
     public AuthService() {
@@ -33,7 +36,11 @@ public class AuthService {
 
     
     
-    public ServiceResult<Void> sendVerificationCode(String username, String email) {
+    /**
+     * Thư được đưa vào hộp thư đi và gửi nền; data là kết quả giao thư (SENT/FAILED).
+     * Mã chỉ có hiệu lực sau khi thư đã gửi thành công, giao diện chờ kết quả rồi mới sang bước nhập mã.
+     */
+    public ServiceResult<CompletableFuture<OutgoingMail.Status>> sendVerificationCode(String username, String email) {
         User user = userDAO.findByUsername(username);
         if (user == null) {
             return ServiceResult.failure("User not found");
@@ -43,14 +50,23 @@ public class AuthService {
         }
 
         String code = generateVerificationCode();
-        verificationCode = code;
-        currentUsername = username;
-
-        boolean sent = MailAPI.sendVerificationCode(email, code);
-        if (!sent) {
+        // Mã cũ hết hiệu lực ngay khi yêu cầu mã mới
+        verificationCode = null;
+        currentUsername = null;
+        codeVerified = false;
+
+        CompletableFuture<OutgoingMail.Status> delivery = MailOutbox.getInstance().sendVerificationCode(email, code)
+                .thenApply(status -> {
+                    if (status == OutgoingMail.Status.SENT) {
+                        verificationCode = code;
+                        currentUsername = username;
+                    }
+                    return status;
+                });
+        if (delivery.isDone() && delivery.join() == OutgoingMail.Status.FAILED) {
             return ServiceResult.failure("Failed to send verification code");
         }
-        return ServiceResult.success(null, "Verification code has been sent to your email");
+        return ServiceResult.success(delivery, "Verification code is being sent to your email");
     }
     
 
@@ -61,6 +77,7 @@ public class AuthService {
         }
 
         if (verificationCode != null && verificationCode.equals(code)) {
+            codeVerified = true;
             return ServiceResult.success(null, "Verification successful");
         }
         return ServiceResult.failure("Invalid verification code");
@@ -68,8 +85,8 @@ public class AuthService {
     
 
     public ServiceResult<Void> changePassword(String newPassword) {
-        if (currentUsername == null) {
-            return ServiceResult.failure("No user found to change password");
+        if (currentUsername == null || !codeVerified) {
+            return ServiceResult.failure("Please verify the code sent to your email first");
         }
 
         User user = userDAO.findByUsername(currentUsername);
@@ -77,15 +94,24 @@ public class AuthService {
             return ServiceResult.failure("User does not exist");
         }
 
-        userDAO.updatePassword(user.getId(), newPassword);
-        
+        if (!userDAO.updatePassword(user.getId(), newPassword)) {
+            return ServiceResult.failure("Unable to change password");
+        }
+
         currentUsername = null;
+        verificationCode = null;
+        codeVerified = false;
 
         return ServiceResult.success(null, "Password changed successfully");
     }
     
 
-    public ServiceResult<Void> resetPassword(String username, String email, String citizenId) {
+    /**
+     * Mật khẩu chỉ được đổi sau khi thư chứa mật khẩu mới đã gửi thành công, để tài khoản không bị khóa
+     * với một mật khẩu người dùng không nhận được. data hoàn tất với SENT khi đã gửi thư và đổi mật khẩu.
+     */
+    public ServiceResult<CompletableFuture<OutgoingMail.Status>> resetPassword(String username, String email,
+            String citizenId) {
         User user = userDAO.findByUsername(username);
         if (user == null) {
             return ServiceResult.failure("User not found");
@@ -93,13 +119,20 @@ public class AuthService {
 
         String newPassword = generateRandomPassword();
 
-        boolean emailSent = MailAPI.sendResetPasswordEmail(email, newPassword);
-        if (!emailSent) {
+        CompletableFuture<OutgoingMail.Status> delivery = MailOutbox.getInstance()
+                .sendResetPasswordEmail(email, newPassword)
+                .thenApply(status -> {
+                    if (status != OutgoingMail.Status.SENT) {
+                        return status;
+                    }
+                    return userDAO.updatePassword(user.getId(), newPassword)
+                            ? OutgoingMail.Status.SENT
+                            : OutgoingMail.Status.FAILED;
+                });
+        if (delivery.isDone() && delivery.join() == OutgoingMail.Status.FAILED) {
             return ServiceResult.failure("Unable to send password reset email");
         }
-
-        userDAO.updatePassword(user.getId(), newPassword);
-        return ServiceResult.success(null, "A new password has been sent to your email");
+        return ServiceResult.success(delivery, "A new password is being sent to your email");
     }
     
 
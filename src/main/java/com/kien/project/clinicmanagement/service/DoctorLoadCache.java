@@ -0,0 +1,47 @@
+package com.kien.project.clinicmanagement.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bộ nhớ đệm ngắn hạn cho số bệnh nhân trong ngày của từng bác sĩ.
+ * Mục bị xóa ngay khi máy này thêm / sửa / xóa / hoàn tất hàng đợi;
+ * thay đổi từ máy khác được thấy sau tối đa TTL_MS.
+ */
+class DoctorLoadCache {
+
+    private static final long TTL_MS = 15_000;
+
+    private record Entry(int load, LocalDate day, long loadedAt) {
+    }
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private DoctorLoadCache() {
+    }
+
+    // null nếu chưa có, đã hết hạn hoặc thuộc ngày khác
+    static Integer get(String doctorCode, LocalDate day) {
+        Entry entry = ENTRIES.get(doctorCode);
+        if (entry == null || !entry.day().equals(day)
+                || System.currentTimeMillis() - entry.loadedAt() > TTL_MS) {
+            return null;
+        }
+        return entry.load();
+    }
+
+    static void put(String doctorCode, LocalDate day, int load) {
+        ENTRIES.put(doctorCode, new Entry(load, day, System.currentTimeMillis()));
+    }
+
+    static void invalidate(String doctorCode) {
+        if (doctorCode != null) {
+            ENTRIES.remove(doctorCode);
+        }
+    }
+
+    static void invalidateAll() {
+        ENTRIES.clear();
+    }
+}
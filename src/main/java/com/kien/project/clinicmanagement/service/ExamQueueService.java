@@ -1,17 +1,32 @@
 package com.kien.project.clinicmanagement.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.kien.project.clinicmanagement.dao.ExamQueueChangeDAO;
 import com.kien.project.clinicmanagement.dao.ExamQueueDAO;
+import com.kien.project.clinicmanagement.dao.QueueCounterDAO;
 import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.ExamQueueChanges;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.ExamQueue;
+import com.kien.project.clinicmanagement.utils.PageHelper;
 import com.kien.project.clinicmanagement.utils.Session;
 
 public class ExamQueueService {
 
     private final ExamQueueDAO examQueueDAO = new ExamQueueDAO();
+    private final QueueCounterDAO queueCounterDAO = new QueueCounterDAO();
+    private final ExamQueueChangeDAO examQueueChangeDAO = new ExamQueueChangeDAO();
+    // Nhật ký thay đổi chỉ cần dọn một lần mỗi lần chạy ứng dụng
+    private static final AtomicBoolean changeLogPurged = new AtomicBoolean(false);
     private final SystemLogDAO logDAO = new SystemLogDAO();
 
     
@@ -24,10 +39,22 @@ public class ExamQueueService {
     		return examQueueDAO.getExamQueues(offset, limit);
     }
     
+    public PagedResult<ExamQueue> getExamQueuesPage(int offset, int limit) {
+    		return examQueueDAO.getExamQueuesPage(offset, limit);
+    }
+    
+    public List<ExamQueue> getExamQueuesSeek(long anchorId, PageHelper.Direction direction, int limit) {
+    		return examQueueDAO.getExamQueuesSeek(anchorId, direction, limit);
+    }
+    
     public List<ExamQueue> searchExamQueues(String keyword, String field, int offset, int limit) {
     		return examQueueDAO.searchExamQueues(keyword, field, offset, limit);
     }
     
+    public PagedResult<ExamQueue> searchExamQueuesPage(String keyword, String field, int offset, int limit) {
+    		return examQueueDAO.searchExamQueuesPage(keyword, field, offset, limit);
+    }
+    
     public int countSearchExamQueues(String keyword, String field) {
     		return examQueueDAO.countSearchExamQueues(keyword, field);
     }
@@ -41,6 +68,15 @@ public class ExamQueueService {
 	    return examQueueDAO.getExamQueuesByUser(userCode, role, offset, limit);
 	}
 
+	public PagedResult<ExamQueue> getExamQueuesByUserPage(String userCode, String role, int offset, int limit) {
+	    return examQueueDAO.getExamQueuesByUserPage(userCode, role, offset, limit);
+	}
+
+	public List<ExamQueue> getExamQueuesByUserSeek(String userCode, String role, long anchorId,
+			PageHelper.Direction direction, int limit) {
+	    return examQueueDAO.getExamQueuesByUserSeek(userCode, role, anchorId, direction, limit);
+	}
+
 	public int countSearchExamQueuesByUser(String userCode, String role, String keyword, String field) {
 	    return examQueueDAO.countSearchExamQueuesByUser(userCode, role, keyword, field);
 	}
@@ -49,6 +85,10 @@ public class ExamQueueService {
 	    return examQueueDAO.searchExamQueuesByUser(userCode, role, keyword, field, offset, limit);
 	}
     
+	public PagedResult<ExamQueue> searchExamQueuesByUserPage(String userCode, String role, String keyword, String field, int offset, int limit) {
+	    return examQueueDAO.searchExamQueuesByUserPage(userCode, role, keyword, field, offset, limit);
+	}
+    
     public List<ExamQueue> getAllWaitingExamQueues() {
         return examQueueDAO.getWaitingExamQueues(); 
     }
@@ -82,9 +122,45 @@ public class ExamQueueService {
         return examQueueDAO.searchExamQueues(keyword, field);
     }
     
+    // Đọc thẳng database (dùng khi kiểm tra giới hạn bệnh nhân trước khi chọn bác sĩ)
     public int countPatientsForDoctorToday(String doctorCode) {
         LocalDate today = LocalDate.now();
-        return examQueueDAO.countPatientsForDoctorToday(doctorCode, today);
+        int load = examQueueDAO.countPatientsForDoctorToday(doctorCode, today);
+        DoctorLoadCache.put(doctorCode, today, load);
+        return load;
+    }
+
+    /**
+     * Số bệnh nhân hôm nay của nhiều bác sĩ: lấy từ cache nếu còn hạn,
+     * các bác sĩ còn lại được đếm chung trong một truy vấn GROUP BY.
+     */
+    public Map<String, Integer> getTodayLoadForDoctors(Collection<String> doctorCodes) {
+        LocalDate today = LocalDate.now();
+        Map<String, Integer> loads = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String code : doctorCodes) {
+            Integer cached = DoctorLoadCache.get(code, today);
+            if (cached != null) {
+                loads.put(code, cached);
+            } else {
+                misses.add(code);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<String, Integer> counted = examQueueDAO.countPatientsForDoctorsToday(misses, today);
+            for (String code : misses) {
+                int load = counted.getOrDefault(code, 0);
+                DoctorLoadCache.put(code, today, load);
+                loads.put(code, load);
+            }
+        }
+        return loads;
+    }
+
+    // Gọi sau khi hàng đợi của bác sĩ thay đổi ngoài service này (vd: hoàn tất lượt khám)
+    public void invalidateDoctorLoad(String doctorCode) {
+        DoctorLoadCache.invalidate(doctorCode);
     }
 
     public boolean deleteExamQueue(Long id) {
@@ -92,7 +168,11 @@ public class ExamQueueService {
         if (Session.getCurrentUser() != null) {
             logDAO.logAction(Session.getCurrentUser().getCode(), "Delete exam queue");
         }
-        return examQueueDAO.deleteExamQueue(id);
+        boolean deleted = examQueueDAO.deleteExamQueue(id);
+        // Bỏ cache sau khi xóa xong, để lượt đọc chen vào giữa không đưa dòng cũ trở lại cache.
+        // Không biết bác sĩ của dòng bị xóa nên bỏ toàn bộ cache số bệnh nhân
+        DoctorLoadCache.invalidateAll();
+        return deleted;
     }
 
     public ExamQueue getByExamQueueId(Long id) {
@@ -103,15 +183,35 @@ public class ExamQueueService {
         return id != null && examQueueDAO.isExistingExamQueue(id);
     }
 
+    // Version stamp hiện tại của exam_queue; lấy trước khi tải danh sách để không bỏ sót thay đổi
+    public ExamQueueChanges getExamQueueChangeStamp() {
+        if (changeLogPurged.compareAndSet(false, true)) {
+            examQueueChangeDAO.purgeOldChanges();
+        }
+        return examQueueChangeDAO.getStamp();
+    }
+
+    public CacheStatistics getNameCacheStatistics() {
+        return examQueueDAO.getNameCacheStatistics();
+    }
+
+    public ExamQueueChanges getExamQueueChangesSince(ExamQueueChanges since) {
+        return examQueueChangeDAO.getChangesSince(since);
+    }
+
     /**
-     * Tính queueNumber tiếp theo cho bác sĩ (dựa trên toàn bộ queue hiện tại
-     * của bác sĩ). Nếu bạn muốn giới hạn theo ngày thì thay DAO method tương ứng.
+     * Cấp queueNumber tiếp theo trong ngày cho bác sĩ từ bộ đếm queue_counter.
+     * Số đã cấp không bị thu hồi (hủy form sau khi cấp có thể làm nhảy số).
      */
     public int getNextQueueNumberForDoctor(String doctorCode) {
         if (doctorCode == null || doctorCode.isBlank()) return 1;
 
-        int maxNumber = examQueueDAO.getMaxQueueNumberForDoctorToday(doctorCode, LocalDate.now());
-        return maxNumber + 1;
+        LocalDate today = LocalDate.now();
+        int number = queueCounterDAO.nextQueueNumber(doctorCode, today);
+        if (number > 0) return number;
+
+        // Không cấp được từ bộ đếm (chưa migrate, lỗi kết nối...): quay về cách cũ
+        return examQueueDAO.getMaxQueueNumberForDoctorToday(doctorCode, today) + 1;
     }
 
     /**
@@ -149,11 +249,14 @@ public class ExamQueueService {
                     logDAO.logAction(Session.getCurrentUser().getCode(), "Update exam queue");
                 }
                 examQueueDAO.updateExamQueue(examQueue);
+                // Có thể đã đổi bác sĩ: bác sĩ cũ cũng bị ảnh hưởng
+                DoctorLoadCache.invalidateAll();
             } else {
                 if (Session.getCurrentUser() != null) {
                     logDAO.logAction(Session.getCurrentUser().getCode(), "Add new exam queue");
                 }
                 examQueueDAO.insertExamQueue(examQueue);
+                DoctorLoadCache.invalidate(examQueue.getDoctorCode());
             }
         } catch (Exception ex) {
             // Bắt và trả message lỗi (ví dụ: constraint violation)
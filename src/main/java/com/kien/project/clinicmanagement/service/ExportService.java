@@ -0,0 +1,133 @@
+package com.kien.project.clinicmanagement.service;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import com.kien.project.clinicmanagement.dao.AppointmentDAO;
+import com.kien.project.clinicmanagement.dao.PatientDAO;
+import com.kien.project.clinicmanagement.dao.PrescriptionDetailDAO;
+import com.kien.project.clinicmanagement.dao.RevenueRollupDAO;
+import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.utils.ExcelExporter;
+import com.kien.project.clinicmanagement.utils.Session;
+
+/**
+ * Xuất dữ liệu ra Excel trên luồng nền: DAO đọc bằng result set streaming và đẩy từng dòng
+ * thẳng vào ExcelExporter (SXSSF), nên bộ nhớ không tăng theo số dòng.
+ * Các lần xuất chạy lần lượt trên một luồng riêng để không chiếm thread pool truy vấn của giao diện.
+ */
+public class ExportService {
+
+    // Mốc đầu cho doanh thu theo ngày khi xuất toàn bộ lịch sử
+    private static final LocalDate REVENUE_START = LocalDate.of(2000, 1, 1);
+
+    private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "clinic-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final PrescriptionDetailDAO prescriptionDetailDAO = new PrescriptionDetailDAO();
+    private final RevenueRollupDAO revenueRollupDAO = new RevenueRollupDAO();
+    private final SystemLogDAO logDAO = new SystemLogDAO();
+
+    private interface ExportBody {
+        void write(ExcelExporter exporter) throws Exception;
+    }
+
+    public CompletableFuture<Long> exportPatients(Path file, ExcelExporter.ProgressListener listener,
+            BooleanSupplier cancelled) {
+        return runExport("Export patients", file, listener, cancelled, exporter -> {
+            exporter.addExpectedRows(patientDAO.countPatients());
+            exporter.startSheet("Patients", "Code", "Name", "Gender", "Date of Birth", "Phone Number", "Email",
+                    "Citizen ID", "Address", "Created At");
+            patientDAO.scanAllPatients(p -> exporter.row(p.getCode(), p.getName(), p.getGender(),
+                    p.getDateOfBirth(), p.getPhoneNumber(), p.getEmail(), p.getCitizenId(), p.getAddress(),
+                    p.getCreatedAt()));
+        });
+    }
+
+    public CompletableFuture<Long> exportAppointments(Path file, ExcelExporter.ProgressListener listener,
+            BooleanSupplier cancelled) {
+        return runExport("Export appointments", file, listener, cancelled, exporter -> {
+            exporter.addExpectedRows(appointmentDAO.countAppointments());
+            exporter.startSheet("Appointments", "ID", "Scheduled Date", "Patient Code", "Patient Name",
+                    "Doctor Code", "Doctor Name", "Status", "Note", "Created By", "Created At");
+            appointmentDAO.streamAppointments(a -> exporter.row(a.getId(), a.getScheduledDate(),
+                    a.getPatientCode(), a.getPatientName(), a.getDoctorCode(), a.getDoctorName(), a.getStatus(),
+                    a.getNote(), a.getCreatedByName(), a.getCreatedAt()));
+        });
+    }
+
+    // Chi tiết đơn thuốc có ngày kê trong [from, to]; null = không giới hạn
+    public CompletableFuture<Long> exportPrescriptionDetails(LocalDate from, LocalDate to, Path file,
+            ExcelExporter.ProgressListener listener, BooleanSupplier cancelled) {
+        return runExport("Export prescription details", file, listener, cancelled, exporter -> {
+            int expected = prescriptionDetailDAO.countPrescriptionDetails(from, to);
+            if (expected >= 0) {
+                exporter.addExpectedRows(expected);
+            }
+            exporter.startSheet("Prescription Details", "Detail ID", "Prescription ID", "Prescription Date",
+                    "Patient Code", "Medicine Code", "Medicine Name", "Dosage", "Quantity", "Unit Price",
+                    "Total Price", "Usage Instructions");
+            prescriptionDetailDAO.streamPrescriptionDetails(from, to, (p, d) -> exporter.row(d.getId(),
+                    p.getId(), p.getPrescriptionDate(), p.getPatientCode(), d.getMedicineCode(),
+                    d.getMedicineName(), d.getDosage(), d.getQuantity(), d.getUnitPrice(), d.getTotalPrice(),
+                    d.getUsageInstructions()));
+        });
+    }
+
+    // Doanh thu đọc từ các bảng tổng hợp (mỗi ngày/tháng một dòng) nên không cần streaming
+    public CompletableFuture<Long> exportRevenue(Path file, ExcelExporter.ProgressListener listener,
+            BooleanSupplier cancelled) {
+        return runExport("Export revenue", file, listener, cancelled, exporter -> {
+            LocalDate today = LocalDate.now();
+            Map<String, BigDecimal> monthly = revenueRollupDAO.getRevenueByMonth();
+            Map<LocalDate, BigDecimal> daily = revenueRollupDAO.getRevenueByDay(REVENUE_START, today);
+            Map<String, BigDecimal> byDoctor = revenueRollupDAO.getRevenueByDoctor(REVENUE_START, today);
+            exporter.addExpectedRows(monthly.size() + daily.size() + byDoctor.size());
+
+            exporter.startSheet("Monthly", "Month", "Revenue");
+            monthly.forEach((month, revenue) -> exporter.row(month, revenue));
+            exporter.startSheet("Daily", "Date", "Revenue");
+            daily.forEach((date, revenue) -> exporter.row(date, revenue));
+            exporter.startSheet("By Doctor", "Doctor Code", "Revenue");
+            byDoctor.forEach((doctorCode, revenue) -> exporter.row(doctorCode, revenue));
+        });
+    }
+
+    /**
+     * Chạy một lần xuất trên luồng xuất; file đích chỉ được thay khi ghi xong.
+     * @return future hoàn tất với số dòng đã ghi, hoặc bị hủy (CancellationException) khi cancelled trả về true
+     */
+    private CompletableFuture<Long> runExport(String action, Path file, ExcelExporter.ProgressListener listener,
+            BooleanSupplier cancelled, ExportBody body) {
+        String userCode = Session.getCurrentUser().getCode();
+        return CompletableFuture.supplyAsync(() -> {
+            try (ExcelExporter exporter = new ExcelExporter(listener, cancelled)) {
+                body.write(exporter);
+                long rows = exporter.writeTo(file);
+                logDAO.logAction(userCode, action + " (" + rows + " rows)");
+                return rows;
+            } catch (Exception e) {
+                // DAO bọc lỗi trong IllegalStateException; hủy giữa chừng nằm ở cause
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof CancellationException cancellation) {
+                        throw cancellation;
+                    }
+                }
+                throw new CompletionException(e);
+            }
+        }, EXPORT_EXECUTOR);
+    }
+}
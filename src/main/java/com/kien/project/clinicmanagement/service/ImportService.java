@@ -0,0 +1,570 @@
+package com.kien.project.clinicmanagement.service;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import com.kien.project.clinicmanagement.dao.MedicineDAO;
+import com.kien.project.clinicmanagement.dao.PatientDAO;
+import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.ImportSummary;
+import com.kien.project.clinicmanagement.model.Medicine;
+import com.kien.project.clinicmanagement.model.Patient;
+import com.kien.project.clinicmanagement.utils.ExcelExporter;
+import com.kien.project.clinicmanagement.utils.ExcelRowReader;
+import com.kien.project.clinicmanagement.utils.Session;
+import com.kien.project.clinicmanagement.utils.TextNormalizer;
+import com.kien.project.clinicmanagement.utils.Validator;
+
+/**
+ * Nhập bệnh nhân / thuốc hàng loạt từ file .xlsx (chuyển dữ liệu khi phòng khám bắt đầu dùng hệ thống).
+ * File được đọc bằng SAX (ExcelRowReader) và xử lý theo lô CHUNK_SIZE dòng: kiểm tra hợp lệ song song,
+ * đối chiếu trùng với database bằng một truy vấn cho cả lô, rồi ghi bằng JDBC batch trong một giao dịch mỗi lô.
+ * Mỗi dòng có một dòng kết quả (Inserted / Updated / Error kèm lý do) trong file kết quả .xlsx.
+ * Hủy giữa chừng thì các lô đã commit được giữ lại.
+ */
+public class ImportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String DEFAULT_PROFILE_IMAGE = "/images/for_avatar/avt_default.png";
+    private static final DateTimeFormatter DAY_FIRST = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    private static final String INSERTED = "Inserted";
+    private static final String UPDATED = "Updated";
+    private static final String ERROR = "Error";
+    private static final String CHUNK_FAILED = "Could not save the rows of this chunk (database error); none of them was written.";
+
+    private static final ExecutorService IMPORT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "clinic-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final MedicineDAO medicineDAO = new MedicineDAO();
+    private final SystemLogDAO logDAO = new SystemLogDAO();
+
+    // Dòng đọc từ file, chưa kiểm tra
+    private record RawRow(int rowNumber, Map<String, String> values) {
+    }
+
+    // Dòng đã chuyển kiểu; error khác null nếu không hợp lệ
+    private record ParsedRow<T>(int rowNumber, T value, String error) {
+    }
+
+    // Kết quả của một dòng, thành một dòng trong file kết quả
+    private record RowOutcome(int rowNumber, String status, String code, String message) {
+    }
+
+    // Phần riêng của từng loại dữ liệu; mỗi lần nhập dùng một instance mới (giữ các khóa đã gặp trong file)
+    private interface RowImporter<T> {
+        List<String> requiredColumns();
+
+        // Chạy song song trên nhiều luồng nên không được đụng tới trạng thái dùng chung
+        ParsedRow<T> parse(int rowNumber, Map<String, String> values);
+
+        // Các dòng hợp lệ của một lô, theo thứ tự trong file; chạy trên luồng nhập
+        List<RowOutcome> write(List<ParsedRow<T>> rows);
+    }
+
+    /**
+     * Nhập bệnh nhân. Cột: Name, Gender, Date of Birth, Phone Number, Email, Citizen ID, Address
+     * (cùng tiêu đề với file xuất nên có thể nhập lại file đã xuất). Bệnh nhân trùng CCCD được cập nhật,
+     * còn lại được thêm mới với mã cấp từ sequence.
+     */
+    public CompletableFuture<ImportSummary> importPatients(Path source, Path resultFile,
+            ExcelExporter.ProgressListener listener, BooleanSupplier cancelled) {
+        return runImport("Import patients", source, resultFile, listener, cancelled, new PatientImporter());
+    }
+
+    /**
+     * Nhập thuốc. Cột: Code (không bắt buộc), Name, Description, Unit, Price, Min Age, Max Age, Quantity.
+     * Thuốc được nhận ra theo mã nếu có, không thì theo tên; Quantity của thuốc đã có là số kiểm kê.
+     */
+    public CompletableFuture<ImportSummary> importMedicines(Path source, Path resultFile,
+            ExcelExporter.ProgressListener listener, BooleanSupplier cancelled) {
+        return runImport("Import medicines", source, resultFile, listener, cancelled, new MedicineImporter());
+    }
+
+    private <T> CompletableFuture<ImportSummary> runImport(String action, Path source, Path resultFile,
+            ExcelExporter.ProgressListener listener, BooleanSupplier cancelled, RowImporter<T> importer) {
+        String userCode = Session.getCurrentUser().getCode();
+        return CompletableFuture.supplyAsync(() -> {
+            try (ExcelExporter result = new ExcelExporter(listener, cancelled)) {
+                result.startSheet("Import Result", "Row", "Status", "Code", "Message");
+                ImportRun<T> run = new ImportRun<>(importer, result, cancelled);
+                ExcelRowReader.read(source, run::add);
+                run.flush();
+                result.writeTo(resultFile);
+
+                ImportSummary summary = new ImportSummary(run.inserted, run.updated, run.failed, resultFile);
+                logDAO.logAction(userCode, action + " (inserted " + summary.getInserted() + ", updated "
+                        + summary.getUpdated() + ", failed " + summary.getFailed() + ")");
+                return summary;
+            } catch (Exception e) {
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof CancellationException cancellation) {
+                        logDAO.logAction(userCode, action + " (cancelled)");
+                        throw cancellation;
+                    }
+                }
+                throw new CompletionException(e);
+            }
+        }, IMPORT_EXECUTOR);
+    }
+
+    // Gom dòng thành lô, kiểm tra song song, ghi lô rồi đẩy kết quả vào file kết quả
+    private static class ImportRun<T> {
+
+        private final RowImporter<T> importer;
+        private final ExcelExporter result;
+        private final BooleanSupplier cancelled;
+        private final List<RawRow> pending = new ArrayList<>(CHUNK_SIZE);
+        private boolean columnsChecked = false;
+        private long inserted = 0;
+        private long updated = 0;
+        private long failed = 0;
+
+        ImportRun(RowImporter<T> importer, ExcelExporter result, BooleanSupplier cancelled) {
+            this.importer = importer;
+            this.result = result;
+            this.cancelled = cancelled;
+        }
+
+        void add(int rowNumber, Map<String, String> values) {
+            if (!columnsChecked) {
+                checkColumns(values.keySet());
+                columnsChecked = true;
+            }
+            pending.add(new RawRow(rowNumber, values));
+            if (pending.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty())
+                return;
+            if (cancelled.getAsBoolean())
+                throw new CancellationException("Import cancelled");
+
+            List<ParsedRow<T>> parsed = pending.parallelStream()
+                    .map(row -> importer.parse(row.rowNumber(), row.values()))
+                    .toList();
+            pending.clear();
+
+            List<RowOutcome> outcomes = new ArrayList<>();
+            List<ParsedRow<T>> valid = new ArrayList<>();
+            for (ParsedRow<T> row : parsed) {
+                if (row.error() != null) {
+                    outcomes.add(new RowOutcome(row.rowNumber(), ERROR, null, row.error()));
+                } else {
+                    valid.add(row);
+                }
+            }
+            if (!valid.isEmpty()) {
+                outcomes.addAll(importer.write(valid));
+            }
+
+            outcomes.sort(Comparator.comparingInt(RowOutcome::rowNumber));
+            for (RowOutcome outcome : outcomes) {
+                switch (outcome.status()) {
+                case INSERTED -> inserted++;
+                case UPDATED -> updated++;
+                default -> failed++;
+                }
+                result.row(outcome.rowNumber(), outcome.status(), outcome.code(), outcome.message());
+            }
+        }
+
+        // Thiếu cột bắt buộc thì dừng ngay thay vì báo lỗi cho từng dòng
+        private void checkColumns(Set<String> columns) {
+            List<String> missing = new ArrayList<>();
+            for (String column : importer.requiredColumns()) {
+                if (!columns.contains(ExcelRowReader.normalizeHeader(column))) {
+                    missing.add(column);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Missing column(s): " + String.join(", ", missing));
+            }
+        }
+    }
+
+    // ==================== Bệnh nhân ====================
+
+    private class PatientImporter implements RowImporter<Patient> {
+
+        // Khóa đã gặp trong file -> số dòng đầu tiên, để báo dòng trùng với dòng nào
+        private final Map<String, Integer> citizenIdRows = new HashMap<>();
+        private final Map<String, Integer> phoneRows = new HashMap<>();
+        private final Map<String, Integer> emailRows = new HashMap<>();
+
+        @Override
+        public List<String> requiredColumns() {
+            return List.of("Name", "Gender", "Date of Birth", "Phone Number", "Email", "Citizen ID", "Address");
+        }
+
+        @Override
+        public ParsedRow<Patient> parse(int rowNumber, Map<String, String> values) {
+            String name = value(values, "name");
+            String email = value(values, "email");
+            String phone = normalizePhone(value(values, "phonenumber"));
+            String address = value(values, "address");
+            String citizenId = value(values, "citizenid");
+            String gender = normalizeGender(value(values, "gender"));
+            String dobText = value(values, "dateofbirth");
+
+            List<String> errors = new ArrayList<>();
+            if (name.isEmpty() || email.isEmpty() || phone.isEmpty() || address.isEmpty() || citizenId.isEmpty()
+                    || dobText.isEmpty()) {
+                errors.add("Please fill in all fields.");
+            }
+            if (!Validator.isValidName(name) || name.length() > 100) {
+                errors.add("Full name must not be empty, contain digits or exceed 100 characters.");
+            }
+            if (!Validator.isValidEmail(email) || email.length() > 100) {
+                errors.add("Invalid email format.");
+            }
+            if (!Validator.isValidPhone(phone)) {
+                errors.add("Phone number must start with 0 and be 10 digits.");
+            }
+            if (!Validator.isValidCitizenId(citizenId)) {
+                errors.add("Citizen ID must be 9 or 12 digits.");
+            }
+            if (gender == null) {
+                errors.add("Gender must be Male, Female or Other.");
+            }
+            if (address.length() > 255) {
+                errors.add("Address must be at most 255 characters.");
+            }
+            LocalDate dob = parseDate(dobText);
+            if (!dobText.isEmpty() && dob == null) {
+                errors.add("Date of birth must be in the format yyyy-MM-dd.");
+            } else if (dob != null && !Validator.isValidDob(dob)) {
+                errors.add("Date of birth cannot be in the future.");
+            }
+            if (!errors.isEmpty()) {
+                return new ParsedRow<>(rowNumber, null, String.join(" ", errors));
+            }
+
+            Patient patient = new Patient();
+            patient.setName(name);
+            patient.setEmail(email);
+            patient.setPhoneNumber(phone);
+            patient.setAddress(address);
+            patient.setDateOfBirth(dob);
+            patient.setGender(gender);
+            patient.setCitizenId(citizenId);
+            patient.setProfileImage(DEFAULT_PROFILE_IMAGE);
+            return new ParsedRow<>(rowNumber, patient, null);
+        }
+
+        @Override
+        public List<RowOutcome> write(List<ParsedRow<Patient>> rows) {
+            List<RowOutcome> outcomes = new ArrayList<>();
+
+            // Trùng ngay trong file: dòng sau bị từ chối, giữ dòng đầu tiên
+            List<ParsedRow<Patient>> accepted = new ArrayList<>();
+            for (ParsedRow<Patient> row : rows) {
+                Patient patient = row.value();
+                String emailKey = patient.getEmail().toLowerCase();
+                String error = null;
+                if (citizenIdRows.containsKey(patient.getCitizenId())) {
+                    error = "Citizen ID is repeated from row " + citizenIdRows.get(patient.getCitizenId()) + ".";
+                } else if (phoneRows.containsKey(patient.getPhoneNumber())) {
+                    error = "Phone number is repeated from row " + phoneRows.get(patient.getPhoneNumber()) + ".";
+                } else if (emailRows.containsKey(emailKey)) {
+                    error = "Email is repeated from row " + emailRows.get(emailKey) + ".";
+                }
+                if (error != null) {
+                    outcomes.add(new RowOutcome(row.rowNumber(), ERROR, null, error));
+                    continue;
+                }
+                citizenIdRows.put(patient.getCitizenId(), row.rowNumber());
+                phoneRows.put(patient.getPhoneNumber(), row.rowNumber());
+                emailRows.put(emailKey, row.rowNumber());
+                accepted.add(row);
+            }
+            if (accepted.isEmpty())
+                return outcomes;
+
+            // Trùng với database: một truy vấn cho cả lô
+            Set<String> citizenIds = new LinkedHashSet<>();
+            Set<String> phones = new LinkedHashSet<>();
+            Set<String> emails = new LinkedHashSet<>();
+            for (ParsedRow<Patient> row : accepted) {
+                citizenIds.add(row.value().getCitizenId());
+                phones.add(row.value().getPhoneNumber());
+                emails.add(row.value().getEmail());
+            }
+            Map<String, String> codeByCitizenId = new HashMap<>();
+            Map<String, String> codeByPhone = new HashMap<>();
+            Map<String, String> codeByEmail = new HashMap<>();
+            for (Patient existing : patientDAO.findByIdentities(citizenIds, phones, emails)) {
+                codeByCitizenId.putIfAbsent(existing.getCitizenId(), existing.getCode());
+                codeByPhone.putIfAbsent(existing.getPhoneNumber(), existing.getCode());
+                if (existing.getEmail() != null) {
+                    codeByEmail.putIfAbsent(existing.getEmail().toLowerCase(), existing.getCode());
+                }
+            }
+
+            List<Patient> inserts = new ArrayList<>();
+            List<Patient> updates = new ArrayList<>();
+            List<RowOutcome> written = new ArrayList<>();
+            for (ParsedRow<Patient> row : accepted) {
+                Patient patient = row.value();
+                String target = codeByCitizenId.get(patient.getCitizenId());
+                String phoneOwner = codeByPhone.get(patient.getPhoneNumber());
+                String emailOwner = codeByEmail.get(patient.getEmail().toLowerCase());
+                if (phoneOwner != null && !phoneOwner.equals(target)) {
+                    outcomes.add(new RowOutcome(row.rowNumber(), ERROR, null,
+                            "Phone number already belongs to patient " + phoneOwner + "."));
+                } else if (emailOwner != null && !emailOwner.equals(target)) {
+                    outcomes.add(new RowOutcome(row.rowNumber(), ERROR, null,
+                            "Email already belongs to patient " + emailOwner + "."));
+                } else if (target != null) {
+                    patient.setCode(target);
+                    updates.add(patient);
+                    written.add(new RowOutcome(row.rowNumber(), UPDATED, target, ""));
+                } else {
+                    patient.setCode(patientDAO.generateNextPatientCode());
+                    inserts.add(patient);
+                    written.add(new RowOutcome(row.rowNumber(), INSERTED, patient.getCode(), ""));
+                }
+            }
+
+            if (!written.isEmpty()) {
+                outcomes.addAll(patientDAO.importPatients(inserts, updates) ? written : failChunk(written));
+            }
+            return outcomes;
+        }
+    }
+
+    // ==================== Thuốc ====================
+
+    private class MedicineImporter implements RowImporter<Medicine> {
+
+        private final Map<String, Integer> codeRows = new HashMap<>();
+        private final Map<String, Integer> nameRows = new HashMap<>();
+
+        @Override
+        public List<String> requiredColumns() {
+            return List.of("Name", "Description", "Unit", "Price", "Min Age", "Max Age", "Quantity");
+        }
+
+        @Override
+        public ParsedRow<Medicine> parse(int rowNumber, Map<String, String> values) {
+            String code = value(values, "code");
+            String name = value(values, "name");
+            String description = value(values, "description");
+            String unit = value(values, "unit");
+            String priceText = value(values, "price");
+            String minAgeText = value(values, "minage");
+            String maxAgeText = value(values, "maxage");
+            String quantityText = value(values, "quantity");
+
+            List<String> errors = new ArrayList<>();
+            if (name.isEmpty() || unit.isEmpty() || description.isEmpty() || priceText.isEmpty()
+                    || minAgeText.isEmpty() || maxAgeText.isEmpty() || quantityText.isEmpty()) {
+                errors.add("Please fill in all required fields.");
+            }
+            if (!name.matches("^[\\p{L}0-9 .,'-]{2,100}$")) {
+                errors.add("Medicine name must be 2–100 characters and cannot contain invalid characters.");
+            }
+            if (!unit.matches("^[\\p{L}0-9 ]{1,20}$")) {
+                errors.add("Unit must be 1–20 characters.");
+            }
+            if (description.length() > 255) {
+                errors.add("Description must be at most 255 characters.");
+            }
+
+            BigDecimal price = null;
+            try {
+                price = new BigDecimal(priceText.replace(",", ""));
+                if (price.compareTo(BigDecimal.ZERO) < 0)
+                    throw new NumberFormatException();
+            } catch (NumberFormatException e) {
+                errors.add("Price must be a positive number.");
+            }
+
+            int minAge = -1, maxAge = -1;
+            try {
+                minAge = Integer.parseInt(minAgeText);
+                maxAge = Integer.parseInt(maxAgeText);
+                if (minAge < 0 || maxAge < 0 || maxAge > 150 || maxAge < minAge)
+                    throw new NumberFormatException();
+            } catch (NumberFormatException e) {
+                errors.add("Min age must be ≥ 0, Max age ≤ 150, and Max age ≥ Min age.");
+            }
+
+            int quantity = -1;
+            try {
+                quantity = Integer.parseInt(quantityText);
+                if (quantity < 0)
+                    throw new NumberFormatException();
+            } catch (NumberFormatException e) {
+                errors.add("Quantity must be a non-negative number.");
+            }
+            if (!errors.isEmpty()) {
+                return new ParsedRow<>(rowNumber, null, String.join(" ", errors));
+            }
+
+            Medicine medicine = new Medicine();
+            medicine.setCode(code.isEmpty() ? null : code);
+            medicine.setName(name);
+            medicine.setDescription(description);
+            medicine.setUnit(unit);
+            medicine.setPrice(price);
+            medicine.setMinAge(minAge);
+            medicine.setMaxAge(maxAge);
+            medicine.setQuantity(quantity);
+            return new ParsedRow<>(rowNumber, medicine, null);
+        }
+
+        @Override
+        public List<RowOutcome> write(List<ParsedRow<Medicine>> rows) {
+            List<RowOutcome> outcomes = new ArrayList<>();
+
+            // So khớp tên/mã như collation của database (không dấu, không phân biệt hoa thường)
+            List<ParsedRow<Medicine>> accepted = new ArrayList<>();
+            for (ParsedRow<Medicine> row : rows) {
+                Medicine medicine = row.value();
+                String codeKey = medicine.getCode() == null ? null : TextNormalizer.fold(medicine.getCode());
+                String nameKey = TextNormalizer.fold(medicine.getName());
+                String error = null;
+                if (codeKey != null && codeRows.containsKey(codeKey)) {
+                    error = "Code is repeated from row " + codeRows.get(codeKey) + ".";
+                } else if (nameRows.containsKey(nameKey)) {
+                    error = "Medicine name is repeated from row " + nameRows.get(nameKey) + ".";
+                }
+                if (error != null) {
+                    outcomes.add(new RowOutcome(row.rowNumber(), ERROR, medicine.getCode(), error));
+                    continue;
+                }
+                if (codeKey != null) {
+                    codeRows.put(codeKey, row.rowNumber());
+                }
+                nameRows.put(nameKey, row.rowNumber());
+                accepted.add(row);
+            }
+            if (accepted.isEmpty())
+                return outcomes;
+
+            Set<String> codes = new LinkedHashSet<>();
+            Set<String> names = new LinkedHashSet<>();
+            for (ParsedRow<Medicine> row : accepted) {
+                if (row.value().getCode() != null) {
+                    codes.add(row.value().getCode());
+                }
+                names.add(row.value().getName());
+            }
+            Map<String, String> codeByCode = new HashMap<>();
+            Map<String, String> codeByName = new HashMap<>();
+            for (Medicine existing : medicineDAO.findByCodesOrNames(codes, names)) {
+                codeByCode.put(TextNormalizer.fold(existing.getCode()), existing.getCode());
+                if (existing.getName() != null) {
+                    codeByName.putIfAbsent(TextNormalizer.fold(existing.getName()), existing.getCode());
+                }
+            }
+
+            List<Medicine> inserts = new ArrayList<>();
+            List<Medicine> updates = new ArrayList<>();
+            List<RowOutcome> written = new ArrayList<>();
+            for (ParsedRow<Medicine> row : accepted) {
+                Medicine medicine = row.value();
+                String nameOwner = codeByName.get(TextNormalizer.fold(medicine.getName()));
+                String target;
+                if (medicine.getCode() != null) {
+                    target = codeByCode.get(TextNormalizer.fold(medicine.getCode()));
+                    if (target == null) {
+                        // Mã do sequence cấp; nhận mã tự đặt sẽ đụng với mã cấp sau này
+                        outcomes.add(new RowOutcome(row.rowNumber(), ERROR, medicine.getCode(),
+                                "Medicine code does not exist; leave Code empty to add a new medicine."));
+                        continue;
+                    }
+                } else {
+                    target = nameOwner;
+                }
+
+                if (nameOwner != null && !nameOwner.equals(target)) {
+                    outcomes.add(new RowOutcome(row.rowNumber(), ERROR, target,
+                            "Medicine name already belongs to " + nameOwner + "."));
+                } else if (target != null) {
+                    medicine.setCode(target);
+                    updates.add(medicine);
+                    written.add(new RowOutcome(row.rowNumber(), UPDATED, target, ""));
+                } else {
+                    medicine.setCode(medicineDAO.generateNextMedicineCode());
+                    inserts.add(medicine);
+                    written.add(new RowOutcome(row.rowNumber(), INSERTED, medicine.getCode(), ""));
+                }
+            }
+
+            if (!written.isEmpty()) {
+                outcomes.addAll(medicineDAO.importMedicines(inserts, updates) ? written : failChunk(written));
+            }
+            return outcomes;
+        }
+    }
+
+    // ==================== Chuyển đổi giá trị ô ====================
+
+    private static List<RowOutcome> failChunk(List<RowOutcome> written) {
+        List<RowOutcome> failed = new ArrayList<>();
+        for (RowOutcome outcome : written) {
+            failed.add(new RowOutcome(outcome.rowNumber(), ERROR, null, CHUNK_FAILED));
+        }
+        return failed;
+    }
+
+    private static String value(Map<String, String> values, String column) {
+        String value = values.get(column);
+        return value == null ? "" : value.trim();
+    }
+
+    // Ô kiểu số làm mất số 0 đầu của số điện thoại (0901234567 -> 901234567)
+    private static String normalizePhone(String phone) {
+        return phone.matches("\\d{9}") ? "0" + phone : phone;
+    }
+
+    // Nhận cả tiếng Việt: Nam / Nữ / Khác
+    private static String normalizeGender(String gender) {
+        return switch (TextNormalizer.fold(gender)) {
+        case "male", "nam" -> "Male";
+        case "female", "nu" -> "Female";
+        case "other", "khac" -> "Other";
+        default -> null;
+        };
+    }
+
+    // Ô ngày đã được ExcelRowReader đổi sang yyyy-MM-dd; ô văn bản có thể là yyyy-MM-dd hoặc dd/MM/yyyy
+    private static LocalDate parseDate(String text) {
+        if (text.isEmpty())
+            return null;
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(text, DAY_FIRST);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.kien.project.clinicmanagement.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.kien.project.clinicmanagement.dao.MailOutboxDAO;
+import com.kien.project.clinicmanagement.model.OutgoingMail;
+import com.kien.project.clinicmanagement.utils.MailAPI;
+
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Hộp thư đi: service chỉ ghi thư vào mail_outbox (vài ms) rồi trả về, không chờ SMTP trên luồng giao diện.
+ * Một luồng nền nhận các thư đến hạn theo lô, gửi cả lô qua một kết nối SMTP, thử lại lỗi tạm thời với
+ * thời gian chờ tăng gấp đôi và đánh dấu FAILED khi địa chỉ sai hoặc hết số lần thử.
+ * Thư còn lại khi tắt ứng dụng vẫn nằm trong bảng và được gửi ở lần chạy sau (hoặc bởi máy trạm khác).
+ * Mật khẩu mới và mã xác minh không được ghi vào bảng: chỉ giữ trong bộ nhớ của máy tạo thư và điền vào lúc gửi,
+ * nên thư loại này chỉ do máy đó gửi và bị hủy khi máy đó tắt ứng dụng trước khi gửi xong.
+ * Thư có bí mật do người dùng đang chờ trên giao diện nên không thử lại: lỗi ở lần gửi đầu tiên là FAILED ngay,
+ * và thư chưa được gửi sau INTERACTIVE_TIMEOUT_SECONDS thì bị rút lại (FAILED) để giao diện không chờ theo lịch thử lại.
+ */
+public class MailOutbox {
+
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long BASE_RETRY_DELAY_SECONDS = 30;
+    private static final long MAX_RETRY_DELAY_SECONDS = 3_600;
+    // Chu kỳ kiểm tra thư đến hạn thử lại khi không có thư mới
+    private static final long POLL_INTERVAL_MS = 15_000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+    // Thời gian tối đa người dùng chờ thư có bí mật được đưa cho máy chủ SMTP
+    private static final long INTERACTIVE_TIMEOUT_SECONDS = 60;
+
+    private static volatile MailOutbox instance;
+
+    private final MailOutboxDAO outboxDAO = new MailOutboxDAO();
+    // Kết quả giao thư cho các thư được tạo từ máy này, hoàn tất khi thư SENT hoặc FAILED
+    // (kể cả khi máy trạm khác gửi thư đó, xem resolveFinishedElsewhere)
+    private final Map<Long, CompletableFuture<OutgoingMail.Status>> deliveries = new ConcurrentHashMap<>();
+    // Bí mật của các thư chưa bắt đầu gửi, theo id thư; luồng gửi lấy ra (remove) ngay trước khi gửi,
+    // nên ai lấy được bí mật trước (luồng gửi hay lần hết giờ chờ) là người quyết định kết quả của thư
+    private final Map<Long, String> secrets = new ConcurrentHashMap<>();
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private MailOutbox() {
+        worker = new Thread(this::run, "mail-outbox-sender");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Lần gọi đầu tiên khởi động luồng gửi (gọi khi mở ứng dụng để gửi nốt thư còn tồn)
+    public static MailOutbox getInstance() {
+        MailOutbox outbox = instance;
+        if (outbox == null) {
+            synchronized (MailOutbox.class) {
+                outbox = instance;
+                if (outbox == null) {
+                    outbox = new MailOutbox();
+                    instance = outbox;
+                }
+            }
+        }
+        return outbox;
+    }
+
+    // Dùng khi tắt ứng dụng: không khởi động luồng gửi chỉ để dừng nó
+    public static void shutdownIfStarted() {
+        MailOutbox outbox = instance;
+        if (outbox != null) {
+            outbox.shutdown();
+        }
+    }
+
+    public CompletableFuture<OutgoingMail.Status> sendResetPasswordEmail(String toEmail, String newPassword) {
+        return enqueue(toEmail, MailAPI.resetPasswordContent(), newPassword);
+    }
+
+    public CompletableFuture<OutgoingMail.Status> sendVerificationCode(String toEmail, String verificationCode) {
+        return enqueue(toEmail, MailAPI.verificationCodeContent(), verificationCode);
+    }
+
+    // Trạng thái đã lưu của một thư (kể cả thư gửi từ máy khác / lần chạy trước)
+    public OutgoingMail getMail(long id) {
+        return outboxDAO.getById(id);
+    }
+
+    /**
+     * Ghi thư vào hộp thư đi (nội dung còn chỗ trống, bí mật chỉ giữ trong bộ nhớ) và đánh thức luồng gửi.
+     * @return future hoàn tất với SENT/FAILED sau một lần gửi hoặc khi hết giờ chờ;
+     *         hoàn tất ngay với FAILED nếu không ghi được vào database
+     */
+    private CompletableFuture<OutgoingMail.Status> enqueue(String toEmail, MailAPI.Content content, String secret) {
+        long id = outboxDAO.enqueue(toEmail, content.subject(), content.body(), true);
+        if (id < 0) {
+            return CompletableFuture.completedFuture(OutgoingMail.Status.FAILED);
+        }
+        CompletableFuture<OutgoingMail.Status> delivery = new CompletableFuture<>();
+        secrets.put(id, secret);
+        deliveries.put(id, delivery);
+        wakeUp.release();
+        CompletableFuture.delayedExecutor(INTERACTIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS).execute(() -> withdraw(id));
+        return delivery;
+    }
+
+    // Hết giờ chờ: nếu luồng gửi chưa lấy bí mật thì thư không thể được gửi nữa, hủy dòng và báo FAILED.
+    // Luồng gửi đã lấy bí mật thì thư đang được gửi, kết quả sẽ có sau tối đa các timeout SMTP
+    private void withdraw(long id) {
+        if (secrets.remove(id) == null)
+            return;
+        outboxDAO.cancelPending(List.of(id), "Not sent within " + INTERACTIVE_TIMEOUT_SECONDS + " seconds");
+        complete(id, OutgoingMail.Status.FAILED);
+    }
+
+    // Dừng luồng gửi; thư thường đang chờ vẫn nằm trong bảng, thư có bí mật chưa gửi được thì bị hủy
+    public void shutdown() {
+        running = false;
+        wakeUp.release();
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Long> unsent = new ArrayList<>(secrets.keySet());
+        outboxDAO.cancelPending(unsent, "Application closed before delivery");
+        for (Long id : unsent) {
+            complete(id, OutgoingMail.Status.FAILED);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<OutgoingMail> batch = outboxDAO.claimDue(BATCH_SIZE, new ArrayList<>(secrets.keySet()));
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                    continue; // Có thể còn thư đến hạn, nhận tiếp ngay
+                }
+                resolveFinishedElsewhere();
+                wakeUp.tryAcquire(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Gửi cả lô qua một kết nối SMTP; mất kết nối giữa chừng thì các thư chưa gửi được trả lại hàng đợi
+    private void deliver(List<OutgoingMail> batch) {
+        Session session = MailAPI.createSession();
+        Transport transport;
+        try {
+            transport = MailAPI.connect(session);
+        } catch (Exception e) {
+            for (OutgoingMail mail : batch) {
+                handleFailure(mail, e);
+            }
+            return;
+        }
+
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                OutgoingMail mail = batch.get(i);
+                if (!running || !transport.isConnected()) {
+                    releaseRemaining(batch, i);
+                    return;
+                }
+                int attempts = mail.getAttempts() + 1;
+                String body = mail.getBody();
+                if (mail.isHoldsSecret()) {
+                    String secret = secrets.remove(mail.getId());
+                    if (secret == null) {
+                        // Thư đã bị rút lại do hết giờ chờ (hoặc bị nhận lại sau khi bí mật đã bị xóa); không thể gửi nữa
+                        outboxDAO.markFailed(mail.getId(), attempts, "Secret is no longer available");
+                        complete(mail.getId(), OutgoingMail.Status.FAILED);
+                        continue;
+                    }
+                    body = MailAPI.fillSecret(body, secret);
+                }
+                try {
+                    MimeMessage message = MailAPI.createMessage(session, mail.getRecipient(), mail.getSubject(),
+                            body);
+                    transport.sendMessage(message, message.getAllRecipients());
+                    outboxDAO.markSent(mail.getId(), attempts);
+                    complete(mail.getId(), OutgoingMail.Status.SENT);
+                } catch (Exception e) {
+                    handleFailure(mail, e);
+                }
+            }
+        } finally {
+            try {
+                transport.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void handleFailure(OutgoingMail mail, Exception e) {
+        int attempts = mail.getAttempts() + 1;
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        // Thư có bí mật không thử lại: người gửi đang chờ và bí mật đã được lấy ra khỏi bộ nhớ
+        if (mail.isHoldsSecret() || MailAPI.isPermanentFailure(e) || attempts >= MAX_ATTEMPTS) {
+            System.err.println("❌ Mail #" + mail.getId() + " to " + mail.getRecipient() + " failed: " + error);
+            outboxDAO.markFailed(mail.getId(), attempts, error);
+            complete(mail.getId(), OutgoingMail.Status.FAILED);
+        } else {
+            outboxDAO.markRetry(mail.getId(), attempts, retryDelaySeconds(attempts), error);
+        }
+    }
+
+    private void releaseRemaining(List<OutgoingMail> batch, int fromIndex) {
+        List<Long> ids = new ArrayList<>();
+        for (OutgoingMail mail : batch.subList(fromIndex, batch.size())) {
+            ids.add(mail.getId());
+        }
+        outboxDAO.release(ids);
+    }
+
+    // 30s, 60s, 120s... tối đa 1 giờ
+    private static long retryDelaySeconds(int attempts) {
+        long delay = BASE_RETRY_DELAY_SECONDS << Math.min(attempts - 1, 20);
+        return Math.min(delay, MAX_RETRY_DELAY_SECONDS);
+    }
+
+    /**
+     * Hoàn tất future của các thư đã kết thúc mà máy này không tự gửi (máy trạm khác nhận thư, hoặc thư bị hủy).
+     * Gọi khi luồng gửi rảnh, lúc đó không có thư nào của máy này đang được gửi dở.
+     */
+    private void resolveFinishedElsewhere() {
+        if (deliveries.isEmpty())
+            return;
+        List<Long> ids = new ArrayList<>(deliveries.keySet());
+        Map<Long, OutgoingMail.Status> statuses = outboxDAO.getStatuses(ids);
+        if (statuses == null)
+            return;
+        for (Long id : ids) {
+            OutgoingMail.Status status = statuses.get(id);
+            if (status == null) {
+                complete(id, OutgoingMail.Status.FAILED); // Dòng đã bị xóa khỏi bảng
+            } else if (status == OutgoingMail.Status.SENT || status == OutgoingMail.Status.FAILED) {
+                complete(id, status);
+            }
+        }
+    }
+
+    private void complete(long id, OutgoingMail.Status status) {
+        secrets.remove(id);
+        CompletableFuture<OutgoingMail.Status> delivery = deliveries.remove(id);
+        if (delivery != null) {
+            delivery.complete(status);
+        }
+    }
+}
@@ -3,16 +3,67 @@ package com.kien.project.clinicmanagement.service;
 import java.time.LocalDate;
 import java.util.List;
 
+import com.kien.project.clinicmanagement.dao.ExaminationDAO;
 import com.kien.project.clinicmanagement.dao.MedicalResultDAO;
+import com.kien.project.clinicmanagement.dao.SequenceDAO;
+import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.MedicalNoteFilter;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.MedicalResult;
+import com.kien.project.clinicmanagement.model.Prescription;
+import com.kien.project.clinicmanagement.model.PrescriptionDetail;
+import com.kien.project.clinicmanagement.utils.Session;
 
 public class MedicalResultService {
 	private final MedicalResultDAO medicalResultDAO = new MedicalResultDAO();
+	private final ExaminationDAO examinationDAO = new ExaminationDAO();
+	private final SequenceDAO sequenceDAO = new SequenceDAO();
+	private final SystemLogDAO logDAO = new SystemLogDAO();
+
+	/**
+	 * Kết thúc khám: lưu kết quả, đóng hàng đợi, trừ kho và lưu đơn thuốc trong một giao dịch.
+	 * @return null nếu thành công, ngược lại là thông báo lỗi
+	 */
+	public String finalizeExamination(MedicalResult result, Prescription prescription, List<PrescriptionDetail> details) {
+		String error = examinationDAO.finalizeExamination(result, prescription, details);
+		if (error == null) {
+			DoctorLoadCache.invalidate(result.getDoctorCode());
+		}
+		if (error == null && Session.getCurrentUser() != null) {
+			String userCode = Session.getCurrentUser().getCode();
+			logDAO.logAction(userCode, "Finalize examination for exam queue: " + result.getExamQueueId());
+			if (details != null) {
+				for (PrescriptionDetail detail : details) {
+					logDAO.logAction(userCode, "Reduced medicine stock: " + detail.getMedicineCode()
+							+ ", quantity: " + detail.getQuantity());
+				}
+			}
+		}
+		return error;
+	}
 	
 	public void saveMedicalResult(MedicalResult medicalResult) {
         medicalResultDAO.addMedicalResult(medicalResult);
     }
 	
+	/**
+	 * Tìm kiếm toàn văn trong ghi chú khám. Không ghi nhật ký hệ thống cho từng lần tìm
+	 * (thao tác chỉ đọc, gọi thường xuyên).
+	 * @return null nếu chỉ mục chưa dựng xong (ngay sau khởi động); gọi lại sau vài giây
+	 */
+	public PagedResult<MedicalResult> searchMedicalNotes(String query, MedicalNoteFilter filter, int offset, int limit) {
+		return medicalResultDAO.searchNotes(query, filter, offset, limit);
+	}
+
+	public void warmUpNoteIndex() {
+		medicalResultDAO.warmUpNoteIndex();
+	}
+
+	public CacheStatistics getNoteIndexStatistics() {
+		return medicalResultDAO.getNoteIndexStatistics();
+	}
+
 	public List<MedicalResult> getResultsByPatientCode(String patientCode) {
 	    return medicalResultDAO.getByPatientCode(patientCode);
 	}
@@ -22,10 +73,6 @@ public class MedicalResultService {
 	}
 	
 	public Long generateNewMedicalResultId() {
-        Long lastId = medicalResultDAO.getLastMedicalResultId();
-        if (lastId == null) {
-            return 1L;
-        }
-        return lastId + 1;
+        return sequenceDAO.nextValue(SequenceDAO.MEDICAL_RESULT);
     }
 }
@@ -2,13 +2,22 @@ package com.kien.project.clinicmanagement.service;
 
 import java.awt.Component;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import javax.swing.JTextField;
 
+import com.kien.project.clinicmanagement.dao.InventoryLedgerDAO;
 import com.kien.project.clinicmanagement.dao.MedicineDAO;
 import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.InventoryMovement;
 import com.kien.project.clinicmanagement.model.Medicine;
+import com.kien.project.clinicmanagement.model.MedicineLot;
+import com.kien.project.clinicmanagement.utils.PageHelper;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
 import com.kien.project.clinicmanagement.utils.Session;
 
 /**
@@ -17,6 +26,7 @@ import com.kien.project.clinicmanagement.utils.Session;
  */
 public class MedicineService {
 
+    private final InventoryLedgerDAO ledgerDAO = new InventoryLedgerDAO();
     private final MedicineDAO medicineDAO = new MedicineDAO();
     private final SystemLogDAO logDAO = new SystemLogDAO();
 
@@ -28,13 +38,34 @@ public class MedicineService {
     public List<Medicine> getMedicines(int offset, int limit) {
     		return medicineDAO.getMedicines(offset, limit);
     }
+
+    public PagedResult<Medicine> getMedicinesPage(int offset, int limit) {
+    		return medicineDAO.getMedicinesPage(offset, limit);
+    }
     
+    public List<Medicine> getMedicinesSeek(long anchorId, PageHelper.Direction direction, int limit) {
+    		return medicineDAO.getMedicinesSeek(anchorId, direction, limit);
+    }    
     // Hàm tìm kiếm thuốc
     public List<Medicine> searchMedicines(String keyword, String field, int offset, int limit) {
     		logDAO.logAction(Session.getCurrentUser().getCode(), "Search medicine");
     		return medicineDAO.searchMedicines(keyword, field, offset, limit);
     }
     
+    // Bảng tải từng trang khi cuộn: chỉ ghi log ở trang đầu của mỗi lần tìm
+    public PagedResult<Medicine> searchMedicinesPage(String keyword, String field, int offset, int limit) {
+    		if (offset == 0) {
+    			logDAO.logAction(Session.getCurrentUser().getCode(), "Search medicine");
+    		}
+    		return medicineDAO.searchMedicinesPage(keyword, field, offset, limit);
+    }
+    
+    // Gọi liên tục khi người dùng gõ nên không ghi log từng lần
+    public List<Medicine> searchMedicinesForLookup(String keyword, String field, int limit,
+    		QueryCancellation cancellation) {
+    		return medicineDAO.searchMedicinesForLookup(keyword, field, limit, cancellation);
+    }
+
     public int countSearchMedicines(String keyword, String field) {
     		return medicineDAO.countSearchMedicines(keyword, field);
     }
@@ -45,6 +76,14 @@ public class MedicineService {
         return medicineDAO.getByMedicineCode(code);
     }
 
+    public CacheStatistics getCatalogCacheStatistics() {
+        return medicineDAO.getCacheStatistics();
+    }
+
+    public CacheStatistics getLotCacheStatistics() {
+        return medicineDAO.getLotCacheStatistics();
+    }
+
     public boolean isExistingMedicine(String code) {
         return medicineDAO.isExistingMedicine(code);
     }
@@ -53,18 +92,21 @@ public class MedicineService {
     		return medicineDAO.isExistingName(name, excludeCode);
     }
     
-    // Thêm hoặc sửa thuốc
-    public void saveOrUpdateMedicine(Medicine medicine) {
+    // Thêm hoặc sửa thuốc; false nếu sửa không thành công (đã rollback, không ghi log)
+    public boolean saveOrUpdateMedicine(Medicine medicine) {
         boolean isUpdate = isExistingMedicine(medicine.getCode());
         String usserCode = Session.getCurrentUser().getCode();
 
         if (isUpdate) {
+            if (!medicineDAO.updateMedicine(medicine)) {
+                return false;
+            }
             logDAO.logAction(usserCode, "Update medicine");
-            medicineDAO.updateMedicine(medicine);
         } else {
             logDAO.logAction(usserCode, "Add new medicine");
             medicineDAO.addMedicine(medicine);
         }
+        return true;
     }
     
     public String generateNextMedicineCode() {
@@ -96,18 +138,26 @@ public class MedicineService {
             return false;
         }
     }
-    
-    public boolean reduceStock(String medicineCode, int quantity) {
-        Medicine medicine = medicineDAO.getByMedicineCode(medicineCode);
-        if (medicine == null) {
+
+    // Nhập hàng theo lô; lotNumber rỗng thì hàng vào lô không rõ số lô (UNASSIGNED)
+    public boolean addStock(String code, int quantity, String lotNumber, LocalDate expiryDate) {
+        if (quantity <= 0) {
             return false;
         }
-        if (medicine.getQuantity() < quantity) {
-            return false; // không đủ thuốc trong kho
+        if (!medicineDAO.addStock(code, quantity, lotNumber, expiryDate)) {
+            return false;
         }
 
-        int newQuantity = medicine.getQuantity() - quantity;
-        medicineDAO.updateQuantity(medicineCode, newQuantity);
+        logDAO.logAction(Session.getCurrentUser().getCode(),
+            "Add medicine stock: " + code + ", quantity: " + quantity + ", lot: " + lotNumber);
+        return true;
+    }
+    
+    public boolean reduceStock(String medicineCode, int quantity) {
+        // Trừ kho nguyên tử: không tồn tại hoặc không đủ thuốc thì không có dòng nào bị cập nhật
+        if (!medicineDAO.decreaseQuantity(medicineCode, quantity)) {
+            return false;
+        }
         
         logDAO.logAction(Session.getCurrentUser().getCode(),
             "Reduced medicine stock: " + medicineCode + ", quantity: " + quantity);
@@ -116,12 +166,9 @@ public class MedicineService {
     }
 
     public boolean increaseStock(String medicineCode, int quantity) {
-        Medicine medicine = medicineDAO.getByMedicineCode(medicineCode);
-        if (medicine == null) {
+        if (!medicineDAO.increaseQuantity(medicineCode, quantity)) {
             return false;
         }
-        int newQuantity = medicine.getQuantity() + quantity;
-        medicineDAO.updateQuantity(medicineCode, newQuantity);
 
         logDAO.logAction(Session.getCurrentUser().getCode(),
             "Increased medicine stock: " + medicineCode + ", quantity: " + quantity);
@@ -129,6 +176,40 @@ public class MedicineService {
         return true;
     }
 
+    // ==================== Lô thuốc ====================
+
+    // Các lô còn hàng theo thứ tự sẽ được xuất (hết hạn trước xuất trước)
+    public List<MedicineLot> getLots(String medicineCode) {
+        return medicineDAO.getLots(medicineCode);
+    }
+
+    // Lô còn hàng sẽ hết hạn trong vòng days ngày tới (kể cả hôm nay)
+    public List<MedicineLot> getExpiringLots(int days) {
+        LocalDate today = LocalDate.now();
+        return medicineDAO.getExpiringLots(today, today.plusDays(days));
+    }
+
+    // ==================== Sổ kho ====================
+
+    // Tồn kho tại một thời điểm trong quá khứ (ảnh chụp gần nhất + phát sinh sau đó)
+    public Integer getStockAt(String medicineCode, LocalDateTime at) {
+        return ledgerDAO.getStockAt(medicineCode, at);
+    }
+
+    public PagedResult<InventoryMovement> getInventoryMovements(String medicineCode, LocalDateTime from,
+            LocalDateTime to, int offset, int limit) {
+        return ledgerDAO.getMovementsPage(medicineCode, from, to, offset, limit);
+    }
+
+    // Chạy nền khi khởi động: chụp tồn kho nếu ảnh chụp gần nhất đã cũ hơn một ngày
+    public void takeInventorySnapshotIfDue() {
+        if (ledgerDAO.isSnapshotDue()) {
+            int count = ledgerDAO.takeSnapshots();
+            if (count >= 0)
+                System.out.println("✅ Inventory snapshot taken for " + count + " medicine(s)");
+        }
+    }
+
     public void fillMedicineData(Medicine medicine,
                                  JTextField nameField,
                                  JTextField descriptionField,
@@ -0,0 +1,376 @@
+package com.kien.project.clinicmanagement.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kien.project.clinicmanagement.dao.PatientDAO;
+import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.PendingRegistration;
+import com.kien.project.clinicmanagement.model.Patient;
+import com.kien.project.clinicmanagement.utils.PatientQrDecoder;
+import com.kien.project.clinicmanagement.utils.Session;
+
+/**
+ * Tiếp nhận bệnh nhân qua thư mục quét: máy scan thả ảnh QR vào thư mục, WatchService báo file mới,
+ * một nhóm luồng giải mã song song (ZXing + Jackson), một luồng đối chiếu CCCD với database theo lô
+ * rồi đưa vào hàng chờ để lễ tân xác nhận đăng ký. Giao diện chỉ đọc hàng chờ nên không bị chặn khi có nhiều ảnh.
+ * Ảnh đang chờ vẫn nằm trong thư mục (mở lại ứng dụng sẽ đọc lại); đã xử lý thì chuyển vào processed/,
+ * không đọc được thì chuyển vào failed/.
+ */
+public class PatientIntakeService {
+
+    private static final String FOLDER_PROPERTY = "clinic.intake.dir";
+    private static final String PROCESSED_DIR = "processed";
+    private static final String FAILED_DIR = "failed";
+
+    private static final int DECODER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // File vừa được tạo có thể chưa ghi xong: đợi một chút rồi mới đọc, đọc lỗi thì thử lại vài lần
+    private static final long SETTLE_DELAY_MS = 300;
+    private static final long RETRY_DELAY_MS = 700;
+    private static final int MAX_DECODE_ATTEMPTS = 3;
+    private static final int RESOLVE_BATCH_SIZE = 50;
+    private static final long DATABASE_RETRY_MS = 5_000;
+
+    // Gọi trên luồng nền; giao diện tự chuyển sang EDT
+    public interface Listener {
+        void onPendingChanged();
+
+        void onFailed(String fileName, String reason);
+    }
+
+    private static final PatientIntakeService INSTANCE = new PatientIntakeService();
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final SystemLogDAO logDAO = new SystemLogDAO();
+    private final Map<Long, PendingRegistration> pending = new LinkedHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private volatile Run current;
+
+    private PatientIntakeService() {
+    }
+
+    public static PatientIntakeService getInstance() {
+        return INSTANCE;
+    }
+
+    // Thư mục mặc định: -Dclinic.intake.dir hoặc ~/clinic-intake
+    public static Path defaultFolder() {
+        String configured = System.getProperty(FOLDER_PROPERTY);
+        return configured != null ? Path.of(configured) : Path.of(System.getProperty("user.home"), "clinic-intake");
+    }
+
+    /**
+     * Bắt đầu theo dõi thư mục (đang theo dõi thư mục khác thì dừng trước).
+     * Ảnh đã có sẵn trong thư mục cũng được đọc.
+     */
+    public synchronized void start(Path folder) throws IOException {
+        stop();
+        Files.createDirectories(folder.resolve(PROCESSED_DIR));
+        Files.createDirectories(folder.resolve(FAILED_DIR));
+        failedCount.set(0);
+        Run run = new Run(folder.toAbsolutePath());
+        try {
+            run.start();
+        } catch (IOException e) {
+            run.stop();
+            throw e;
+        }
+        current = run;
+    }
+
+    // Dừng theo dõi; các ảnh đang chờ vẫn nằm trong thư mục và được đọc lại ở lần start sau
+    public synchronized void stop() {
+        Run run = current;
+        if (run == null)
+            return;
+        current = null;
+        run.stop();
+        synchronized (pending) {
+            pending.clear();
+        }
+        notifyPendingChanged();
+    }
+
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    public Path getFolder() {
+        Run run = current;
+        return run != null ? run.folder : null;
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    public List<PendingRegistration> getPending() {
+        synchronized (pending) {
+            return new ArrayList<>(pending.values());
+        }
+    }
+
+    // Gọi sau khi lễ tân đã lưu bệnh nhân từ hàng chờ
+    public void complete(long id) {
+        finish(id);
+    }
+
+    public void discard(long id) {
+        PendingRegistration registration = finish(id);
+        if (registration != null) {
+            logDAO.logAction(Session.getCurrentUser().getCode(),
+                    "Discard QR intake " + registration.getSourceFile().getFileName());
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private PendingRegistration finish(long id) {
+        PendingRegistration registration;
+        synchronized (pending) {
+            registration = pending.remove(id);
+        }
+        if (registration == null)
+            return null;
+        Run run = current;
+        if (run != null) {
+            run.release(registration.getSourceFile(), PROCESSED_DIR);
+        }
+        notifyPendingChanged();
+        return registration;
+    }
+
+    private void notifyPendingChanged() {
+        for (Listener listener : listeners) {
+            listener.onPendingChanged();
+        }
+    }
+
+    // Một lần theo dõi thư mục: các luồng và hàng đợi riêng, để start/stop liên tiếp không lẫn kết quả của nhau
+    private class Run {
+
+        private record Decoded(Path file, Patient patient) {
+        }
+
+        private final Path folder;
+        // Ảnh đang giải mã hoặc đang chờ xác nhận; CREATE rồi MODIFY của cùng một file chỉ được xử lý một lần
+        private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+        private final BlockingQueue<Decoded> decoded = new LinkedBlockingQueue<>();
+        private final ScheduledExecutorService decoders;
+        private final Thread watcher;
+        private final Thread resolver;
+        private WatchService watchService;
+        private volatile boolean active = true;
+
+        Run(Path folder) {
+            this.folder = folder;
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            decoders = Executors.newScheduledThreadPool(DECODER_THREADS, r -> {
+                Thread thread = new Thread(r, "qr-intake-decoder-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            watcher = new Thread(this::watch, "qr-intake-watcher");
+            watcher.setDaemon(true);
+            resolver = new Thread(this::resolve, "qr-intake-resolver");
+            resolver.setDaemon(true);
+        }
+
+        void start() throws IOException {
+            watchService = folder.getFileSystem().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watcher.start();
+            resolver.start();
+            scanFolder(0);
+        }
+
+        void stop() {
+            active = false;
+            try {
+                if (watchService != null)
+                    watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            decoders.shutdownNow();
+            resolver.interrupt();
+        }
+
+        private void watch() {
+            while (active) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Mất sự kiện khi quá nhiều file cùng lúc: quét lại cả thư mục
+                        scanFolder(SETTLE_DELAY_MS);
+                    } else {
+                        submit(folder.resolve((Path) event.context()), SETTLE_DELAY_MS);
+                    }
+                }
+                if (!key.reset()) {
+                    System.err.println("❌ QR intake folder is no longer accessible: " + folder);
+                    return;
+                }
+            }
+        }
+
+        private void scanFolder(long delayMs) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+                for (Path file : files) {
+                    submit(file, delayMs);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void submit(Path file, long delayMs) {
+            if (!active || !PatientQrDecoder.isImageFile(file) || !Files.isRegularFile(file))
+                return;
+            if (!inFlight.add(file))
+                return;
+            try {
+                decoders.schedule(() -> decode(file, 1), delayMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                inFlight.remove(file); // Đã dừng
+            }
+        }
+
+        private void decode(Path file, int attempt) {
+            if (!active)
+                return;
+            try {
+                Patient patient = PatientQrDecoder.decode(file);
+                if (patient.getCitizenId() == null || patient.getCitizenId().isBlank())
+                    throw new IllegalArgumentException("QR code has no citizen ID");
+                decoded.add(new Decoded(file, patient));
+            } catch (Exception e) {
+                if (!Files.exists(file)) {
+                    inFlight.remove(file);
+                } else if (attempt < MAX_DECODE_ATTEMPTS) {
+                    decoders.schedule(() -> decode(file, attempt + 1), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+                } else {
+                    String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                    System.err.println("❌ Unable to read QR image " + file.getFileName() + ": " + reason);
+                    release(file, FAILED_DIR);
+                    failedCount.incrementAndGet();
+                    for (Listener listener : listeners) {
+                        listener.onFailed(file.getFileName().toString(), reason);
+                    }
+                }
+            }
+        }
+
+        // Gom các ảnh đã giải mã thành lô: một truy vấn CCCD cho cả lô thay vì một truy vấn mỗi ảnh
+        private void resolve() {
+            while (active) {
+                List<Decoded> batch = new ArrayList<>();
+                try {
+                    batch.add(decoded.take());
+                    decoded.drainTo(batch, RESOLVE_BATCH_SIZE - 1);
+                    resolveBatch(batch);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    // Database lỗi: trả lô về hàng đợi và thử lại sau
+                    e.printStackTrace();
+                    decoded.addAll(batch);
+                    try {
+                        Thread.sleep(DATABASE_RETRY_MS);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void resolveBatch(List<Decoded> batch) {
+            Set<String> citizenIds = new LinkedHashSet<>();
+            for (Decoded item : batch) {
+                citizenIds.add(item.patient().getCitizenId());
+            }
+            Map<String, String> existingCodes = new HashMap<>();
+            for (Patient existing : patientDAO.findByIdentities(citizenIds, Set.of(), Set.of())) {
+                existingCodes.putIfAbsent(existing.getCitizenId(), existing.getCode());
+            }
+
+            List<Path> duplicates = new ArrayList<>();
+            synchronized (pending) {
+                if (!active)
+                    return;
+                Set<String> pendingCitizenIds = new HashSet<>();
+                for (PendingRegistration registration : pending.values()) {
+                    pendingCitizenIds.add(registration.getPatient().getCitizenId());
+                }
+                for (Decoded item : batch) {
+                    String citizenId = item.patient().getCitizenId();
+                    // Cùng một người được quét nhiều lần: chỉ giữ lần đầu trong hàng chờ
+                    if (!pendingCitizenIds.add(citizenId)) {
+                        duplicates.add(item.file());
+                        continue;
+                    }
+                    long id = nextId.getAndIncrement();
+                    pending.put(id, new PendingRegistration(id, item.file(), item.patient(),
+                            existingCodes.get(citizenId), LocalDateTime.now()));
+                }
+            }
+            for (Path file : duplicates) {
+                release(file, PROCESSED_DIR);
+            }
+            notifyPendingChanged();
+        }
+
+        // Chuyển ảnh ra khỏi thư mục theo dõi (trùng tên thì thêm mốc thời gian)
+        void release(Path file, String subfolder) {
+            try {
+                Path target = folder.resolve(subfolder).resolve(file.getFileName());
+                if (Files.exists(target)) {
+                    target = target.resolveSibling(System.currentTimeMillis() + "-" + file.getFileName());
+                }
+                Files.move(file, target);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                inFlight.remove(file);
+            }
+        }
+    }
+}
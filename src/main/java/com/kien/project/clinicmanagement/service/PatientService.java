@@ -8,7 +8,11 @@ import javax.swing.JTextField;
 
 import com.kien.project.clinicmanagement.dao.PatientDAO;
 import com.kien.project.clinicmanagement.dao.SystemLogDAO;
+import com.kien.project.clinicmanagement.dto.CacheStatistics;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.Patient;
+import com.kien.project.clinicmanagement.utils.PageHelper;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.toedter.calendar.JDateChooser;
 
@@ -32,12 +36,37 @@ public class PatientService {
     }
 
     
+    public PagedResult<Patient> getPatientsPage(int offset, int limit) {
+    		return patientDAO.getPatientsPage(offset, limit);
+    }    
+    public List<Patient> getPatientsSeek(long anchorId, PageHelper.Direction direction, int limit) {
+    		return patientDAO.getPatientsSeek(anchorId, direction, limit);
+    }
+    
     // Hàm tìm kiếm bệnh nhân
     public List<Patient> searchPatients(String keyword, String field, int offset, int limit) {
         logDAO.logAction(Session.getCurrentUser().getCode(), "Search patient");
         return patientDAO.searchPatients(keyword, field, offset, limit);
     }
     
+    public PagedResult<Patient> searchPatientsPage(String keyword, String field, int offset, int limit) {
+        logDAO.logAction(Session.getCurrentUser().getCode(), "Search patient");
+        return patientDAO.searchPatientsPage(keyword, field, offset, limit);
+    }
+    
+    // Gọi liên tục khi người dùng gõ nên không ghi log từng lần
+    public List<Patient> searchPatientsForLookup(String keyword, String field, int limit, QueryCancellation cancellation) {
+        return patientDAO.searchPatientsForLookup(keyword, field, limit, cancellation);
+    }
+
+    public void warmUpSearchIndex() {
+        patientDAO.warmUpSearchIndex();
+    }
+
+    public CacheStatistics getSearchIndexStatistics() {
+        return patientDAO.getSearchIndexStatistics();
+    }
+
     public int countSearchPatients(String keyword, String field) {
     		return patientDAO.countSearchPatient(keyword, field);
     }
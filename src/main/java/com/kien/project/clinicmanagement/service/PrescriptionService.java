@@ -1,9 +1,9 @@
 package com.kien.project.clinicmanagement.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,8 +11,11 @@ import javax.swing.JTextField;
 
 import com.kien.project.clinicmanagement.dao.PrescriptionDAO;
 import com.kien.project.clinicmanagement.dao.PrescriptionDetailDAO;
+import com.kien.project.clinicmanagement.dao.RevenueRollupDAO;
+import com.kien.project.clinicmanagement.dao.SequenceDAO;
 import com.kien.project.clinicmanagement.dao.SystemLogDAO;
 import com.kien.project.clinicmanagement.model.Prescription;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.toedter.calendar.JDateChooser;
 
@@ -24,6 +27,8 @@ public class PrescriptionService {
 
     private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
     private final PrescriptionDetailDAO prescriptionDetailDAO = new PrescriptionDetailDAO();
+    private final RevenueRollupDAO revenueRollupDAO = new RevenueRollupDAO();
+    private final SequenceDAO sequenceDAO = new SequenceDAO();
     private final SystemLogDAO logDAO = new SystemLogDAO();
 
     public List<Prescription> getAllPrescriptions() {
@@ -34,19 +39,11 @@ public class PrescriptionService {
         return prescriptionDAO.getById(id);
     }
     
+    /**
+     * Tổng doanh thu, đọc từ bảng tổng hợp theo tháng thay vì cộng từng đơn thuốc.
+     */
     public BigDecimal calculateTotalPriceOfAllPrescriptions() {
-        List<Prescription> prescriptions = prescriptionDAO.getAllPrescriptions();
-        if (prescriptions == null || prescriptions.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal total = BigDecimal.ZERO;
-        for (Prescription p : prescriptions) {
-            if (p.getTotalPrice() != null) {
-                total = total.add(p.getTotalPrice());
-            }
-        }
-        return total;
+        return revenueRollupDAO.getTotalRevenue();
     }
 
     public String savePrescription(Prescription prescription) {
@@ -82,11 +79,7 @@ public class PrescriptionService {
     }
     
     public Long generateNewPrescriptionId() {
-        Long lastId = prescriptionDAO.getLastPrescriptionId();
-        if (lastId == null) {
-            return 1L;
-        }
-        return lastId + 1;
+        return sequenceDAO.nextValue(SequenceDAO.PRESCRIPTION);
     }
     
 
@@ -134,24 +127,33 @@ public class PrescriptionService {
     
     /**
      * Thống kê doanh thu theo tháng (yyyy-MM dạng key, giá trị là tổng tiền).
+     * @param cancellation dùng để hủy truy vấn đang chạy khi kết quả không còn cần
      */
-    public Map<String, BigDecimal> getRevenueByMonth() {
-        List<Prescription> prescriptions = prescriptionDAO.getAllPrescriptions();
-        Map<String, BigDecimal> revenueMap = new HashMap<>();
-
-        if (prescriptions != null) {
-            for (Prescription p : prescriptions) {
-                if (p.getPrescriptionDate() != null && p.getTotalPrice() != null) {
-                    // Lấy key theo dạng "YYYY-MM"
-                    String monthKey = p.getPrescriptionDate().getYear() + "-" 
-                                    + String.format("%02d", p.getPrescriptionDate().getMonthValue());
-
-                    // Cộng dồn vào doanh thu tháng
-                    revenueMap.merge(monthKey, p.getTotalPrice(), BigDecimal::add);
-                }
-            }
-        }
-        return revenueMap;
+    public Map<String, BigDecimal> getRevenueByMonth(QueryCancellation cancellation) {
+        return revenueRollupDAO.getRevenueByMonth(cancellation);
+    }
+
+    /**
+     * Doanh thu từng ngày trong khoảng [from, to].
+     */
+    public Map<LocalDate, BigDecimal> getRevenueByDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null) return Map.of();
+        return revenueRollupDAO.getRevenueByDay(from, to);
+    }
+
+    /**
+     * Doanh thu theo bác sĩ (doctor_code) trong khoảng [from, to].
+     */
+    public Map<String, BigDecimal> getRevenueByDoctor(LocalDate from, LocalDate to) {
+        if (from == null || to == null) return Map.of();
+        return revenueRollupDAO.getRevenueByDoctor(from, to);
+    }
+
+    /**
+     * Dựng lại bảng doanh thu tổng hợp từ toàn bộ đơn thuốc (backfill).
+     */
+    public boolean rebuildRevenueRollups() {
+        return revenueRollupDAO.rebuild();
     }
 
 }
@@ -0,0 +1,23 @@
+package com.kien.project.clinicmanagement.service;
+
+import com.kien.project.clinicmanagement.dao.StatisticsDAO;
+import com.kien.project.clinicmanagement.dto.DashboardStatistics;
+import com.kien.project.clinicmanagement.utils.QueryCancellation;
+
+/**
+ * Lớp xử lý nghiệp vụ thống kê cho Dashboard.
+ * Số liệu được tổng hợp phía database thay vì tải toàn bộ bảng về Java.
+ */
+public class StatisticsService {
+
+    private final StatisticsDAO statisticsDAO = new StatisticsDAO();
+
+    /**
+     * Lấy toàn bộ số liệu Dashboard trong một lần truy vấn.
+     * @param lowStockThreshold thuốc có số lượng <= ngưỡng này được tính là sắp hết
+     * @param cancellation dùng để hủy truy vấn đang chạy khi kết quả không còn cần
+     */
+    public DashboardStatistics getDashboardStatistics(int lowStockThreshold, QueryCancellation cancellation) {
+        return statisticsDAO.getDashboardStatistics(lowStockThreshold, cancellation);
+    }
+}
@@ -3,17 +3,18 @@ package com.kien.project.clinicmanagement.service;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.JComboBox;
-import javax.swing.JPanel;
 import javax.swing.JTextField;
 
 import org.mindrot.jbcrypt.BCrypt;
 
 import com.kien.project.clinicmanagement.dao.SystemLogDAO;
 import com.kien.project.clinicmanagement.dao.UserDAO;
+import com.kien.project.clinicmanagement.dto.PagedResult;
+import com.kien.project.clinicmanagement.model.OutgoingMail;
 import com.kien.project.clinicmanagement.model.User;
-import com.kien.project.clinicmanagement.utils.MailAPI;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.toedter.calendar.JDateChooser;
 
@@ -33,12 +34,21 @@ public class UserService {
 		return userDAO.getUsers(role, offset, limit);
 	}
 
+	public PagedResult<User> getUsersPage(String role, int offset, int limit) {
+		return userDAO.getUsersPage(role, offset, limit);
+	}
+
 	// Hàm tìm kiếm người dùng
 	public List<User> searchUsers(String keyword, String field, String role, int offset, int limit) {
 		logDAO.logAction(Session.getCurrentUser().getCode(), "Search user");
 		return userDAO.searchUsers(keyword, field, role, offset, limit);
 	}
 
+	public PagedResult<User> searchUsersPage(String keyword, String field, String role, int offset, int limit) {
+		logDAO.logAction(Session.getCurrentUser().getCode(), "Search user");
+		return userDAO.searchUsersPage(keyword, field, role, offset, limit);
+	}
+
 	public int countSearchUsers(String keyword, String field, String role) {
 		return userDAO.countSearchUsers(keyword, field, role);
 	}
@@ -47,6 +57,10 @@ public class UserService {
 	    return userDAO.getUsers(role, offset, limit);
 	}
 
+	public PagedResult<User> filterUsersByRolePage(String role, int offset, int limit) {
+	    return userDAO.getUsersPage(role, offset, limit);
+	}
+
 	public int countUsersByRole(String role) {
 	    return userDAO.countUsers(role);
 	}
@@ -104,18 +118,22 @@ public class UserService {
 	    }
 	}
 
-	// Reset mật khẩu
-	public boolean resetPassword(User user, JPanel parentPanel) {
+	/**
+	 * Reset mật khẩu: gửi mật khẩu mới qua hộp thư đi, chỉ đổi mật khẩu trong database sau khi thư đã gửi thành công.
+	 * @return hoàn tất với SENT khi đã gửi thư và đổi mật khẩu, FAILED nếu không gửi được hoặc không đổi được
+	 */
+	public CompletableFuture<OutgoingMail.Status> resetPassword(User user) {
 		String newPassword = generateRandomPassword();
-		String hashedPassword = hashPassword(newPassword);
-
-		boolean success = userDAO.updatePasswordByUserCode(user.getCode(), hashedPassword);
-		logDAO.logAction(Session.getCurrentUser().getCode(), "Reset user password");
-
-		if (success) {
-			MailAPI.sendResetPasswordEmail(user.getEmail(), newPassword);
-		}
-		return success;
+		String adminCode = Session.getCurrentUser().getCode();
+		logDAO.logAction(adminCode, "Reset user password");
+
+		return MailOutbox.getInstance().sendResetPasswordEmail(user.getEmail(), newPassword).thenApply(status -> {
+			boolean success = status == OutgoingMail.Status.SENT
+					&& userDAO.updatePasswordByUserCode(user.getCode(), hashPassword(newPassword));
+			if (!success)
+				logDAO.logAction(adminCode, "Reset password for " + user.getUsername() + " failed");
+			return success ? OutgoingMail.Status.SENT : OutgoingMail.Status.FAILED;
+		});
 	}
 
 	public String hashPassword(String rawPassword) {
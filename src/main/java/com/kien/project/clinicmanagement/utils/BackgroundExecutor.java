@@ -0,0 +1,42 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool dùng chung cho các tác vụ truy vấn chạy nền, tránh làm đơ Event Dispatch Thread.
+ * Kết quả phải được đưa lại giao diện qua SwingUtilities.invokeLater.
+ */
+public class BackgroundExecutor {
+
+	// Giữ nhỏ hơn kích thước connection pool để luồng giao diện vẫn còn kết nối dùng
+	private static final int THREADS = 4;
+
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+		private final AtomicInteger counter = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "clinic-background-" + counter.getAndIncrement());
+			thread.setDaemon(true); // Không giữ JVM khi đóng ứng dụng
+			return thread;
+		}
+	});
+
+	public static ExecutorService get() {
+		return EXECUTOR;
+	}
+
+	// Dừng nhận tác vụ mới và chờ tác vụ đang chạy kết thúc trong thời gian ngắn
+	public static void shutdown() {
+		EXECUTOR.shutdown();
+		try {
+			EXECUTOR.awaitTermination(2, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
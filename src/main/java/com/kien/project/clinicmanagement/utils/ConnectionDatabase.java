@@ -1,15 +1,149 @@
 package com.kien.project.clinicmanagement.utils;
 
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
 
+import com.kien.project.clinicmanagement.dto.PoolStatistics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Cấp phát kết nối MySQL từ một connection pool dùng chung (HikariCP).
+ * Cấu hình đọc từ database.properties trong classpath, có thể ghi đè bằng
+ * file ngoài (-Dclinic.db.config=...) hoặc System property cùng tên khóa.
+ */
 public class ConnectionDatabase {
-	
+
+	private static final String DEFAULT_CONFIG = "/database.properties";
+	private static final String EXTERNAL_CONFIG_PROPERTY = "clinic.db.config";
+
+	private static volatile HikariDataSource dataSource;
+	// Đã shutdown: không tạo lại pool (các luồng nền còn ghi nốt lúc thoát sẽ nhận lỗi thay vì mở pool mới)
+	private static volatile boolean closed;
+
+	// Lấy kết nối từ pool; close() sẽ trả kết nối về pool thay vì đóng hẳn
 	public static Connection getConnection() throws Exception {
-		String url = "jdbc:mysql://localhost:3306/clinic_management";
-		String user = "root";
-		String password = "230104";
-		Class.forName("com.mysql.cj.jdbc.Driver");
-		return DriverManager.getConnection(url, user, password);
+		return getDataSource().getConnection();
+	}
+
+	private static HikariDataSource getDataSource() throws SQLException {
+		if (closed)
+			throw new SQLException("pool closed");
+		HikariDataSource ds = dataSource;
+		if (ds == null) {
+			synchronized (ConnectionDatabase.class) {
+				if (closed)
+					throw new SQLException("pool closed");
+				ds = dataSource;
+				if (ds == null) {
+					ds = new HikariDataSource(buildConfig(loadProperties()));
+					dataSource = ds;
+				}
+			}
+		}
+		return ds;
+	}
+
+	private static HikariConfig buildConfig(Properties props) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("clinic-pool");
+		config.setJdbcUrl(props.getProperty("db.url"));
+		config.setUsername(props.getProperty("db.username"));
+		config.setPassword(props.getProperty("db.password"));
+		config.setDriverClassName(props.getProperty("db.driver", "com.mysql.cj.jdbc.Driver"));
+
+		// Giới hạn kích thước pool và thời gian sống của kết nối nhàn rỗi
+		config.setMaximumPoolSize(intProp(props, "pool.maximumPoolSize", 10));
+		config.setMinimumIdle(intProp(props, "pool.minimumIdle", 2));
+		config.setConnectionTimeout(longProp(props, "pool.connectionTimeoutMs", 10_000));
+		config.setIdleTimeout(longProp(props, "pool.idleTimeoutMs", 300_000));
+		config.setMaxLifetime(longProp(props, "pool.maxLifetimeMs", 1_800_000));
+		// Kiểm tra kết nối còn sống (Connection.isValid) trước khi cho mượn
+		config.setValidationTimeout(longProp(props, "pool.validationTimeoutMs", 3_000));
+
+		// Cache PreparedStatement ở driver để không phải parse lại SQL mỗi lần
+		config.addDataSourceProperty("cachePrepStmts", props.getProperty("pool.cachePrepStmts", "true"));
+		config.addDataSourceProperty("prepStmtCacheSize", props.getProperty("pool.prepStmtCacheSize", "250"));
+		config.addDataSourceProperty("prepStmtCacheSqlLimit", props.getProperty("pool.prepStmtCacheSqlLimit", "2048"));
+		config.addDataSourceProperty("useServerPrepStmts", props.getProperty("pool.useServerPrepStmts", "true"));
+		// Gộp các lệnh addBatch() thành INSERT nhiều dòng khi executeBatch()
+		config.addDataSourceProperty("rewriteBatchedStatements", props.getProperty("pool.rewriteBatchedStatements", "true"));
+		return config;
+	}
+
+	private static Properties loadProperties() {
+		Properties props = new Properties();
+		try (InputStream in = ConnectionDatabase.class.getResourceAsStream(DEFAULT_CONFIG)) {
+			if (in != null) {
+				props.load(in);
+			}
+		} catch (Exception e) {
+			System.err.println("❌ Unable to read " + DEFAULT_CONFIG + ": " + e.getMessage());
+		}
+
+		String externalPath = System.getProperty(EXTERNAL_CONFIG_PROPERTY);
+		if (externalPath != null && Files.isRegularFile(Path.of(externalPath))) {
+			try (InputStream in = new FileInputStream(externalPath)) {
+				props.load(in);
+			} catch (Exception e) {
+				System.err.println("❌ Unable to read " + externalPath + ": " + e.getMessage());
+			}
+		}
+
+		// System property có độ ưu tiên cao nhất
+		for (String key : props.stringPropertyNames()) {
+			String override = System.getProperty(key);
+			if (override != null) {
+				props.setProperty(key, override);
+			}
+		}
+		return props;
+	}
+
+	private static int intProp(Properties props, String key, int defaultValue) {
+		try {
+			return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)).trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private static long longProp(Properties props, String key, long defaultValue) {
+		try {
+			return Long.parseLong(props.getProperty(key, String.valueOf(defaultValue)).trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	// Thống kê pool hiện tại (trả về null nếu pool chưa được khởi tạo)
+	public static PoolStatistics getPoolStatistics() {
+		HikariDataSource ds = dataSource;
+		if (ds == null || ds.isClosed()) {
+			return null;
+		}
+		HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+		if (pool == null) {
+			return null;
+		}
+		return new PoolStatistics(pool.getActiveConnections(), pool.getIdleConnections(),
+				pool.getTotalConnections(), pool.getThreadsAwaitingConnection(), ds.getMaximumPoolSize());
+	}
+
+	// Đóng toàn bộ kết nối khi thoát ứng dụng
+	public static void shutdown() {
+		synchronized (ConnectionDatabase.class) {
+			closed = true;
+			if (dataSource != null) {
+				dataSource.close();
+				dataSource = null;
+			}
+		}
 	}
 }
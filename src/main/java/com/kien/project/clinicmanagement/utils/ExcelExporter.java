@@ -0,0 +1,180 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Ghi file Excel theo kiểu streaming (SXSSF): chỉ giữ ROW_WINDOW dòng cuối trong bộ nhớ,
+ * các dòng cũ hơn được xả ra file tạm nén, nên xuất hàng triệu dòng với bộ nhớ không đổi.
+ * Nơi gọi đọc dữ liệu bằng result set streaming và đẩy từng dòng vào row(...).
+ * Sheet đầy (giới hạn của Excel) thì tự mở sheet tiếp theo với cùng tiêu đề.
+ */
+public class ExcelExporter implements AutoCloseable {
+
+	private static final int ROW_WINDOW = 100;
+	// Excel cho tối đa 1.048.576 dòng/sheet; chừa dòng tiêu đề và làm tròn cho dễ đọc
+	private static final int MAX_ROWS_PER_SHEET = 1_000_000;
+	private static final int PROGRESS_EVERY_ROWS = 1_000;
+
+	// rowsWritten: số dòng dữ liệu đã ghi; expectedRows: -1 nếu không biết trước
+	public interface ProgressListener {
+		void onProgress(long rowsWritten, long expectedRows);
+	}
+
+	private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+	private final ProgressListener listener;
+	private final BooleanSupplier cancelled;
+	private final CellStyle headerStyle;
+	private final CellStyle dateStyle;
+	private final CellStyle dateTimeStyle;
+	private final CellStyle moneyStyle;
+
+	private SXSSFSheet sheet;
+	private String sheetName;
+	private String[] headers;
+	private int sheetCount = 0;
+	private int rowIndex = 0;
+	private long rowsWritten = 0;
+	private long expectedRows = -1;
+
+	public ExcelExporter(ProgressListener listener, BooleanSupplier cancelled) {
+		this.listener = listener;
+		this.cancelled = cancelled;
+		workbook.setCompressTempFiles(true);
+
+		Font bold = workbook.createFont();
+		bold.setBold(true);
+		headerStyle = workbook.createCellStyle();
+		headerStyle.setFont(bold);
+
+		short dateFormat = workbook.createDataFormat().getFormat("yyyy-mm-dd");
+		dateStyle = workbook.createCellStyle();
+		dateStyle.setDataFormat(dateFormat);
+		dateTimeStyle = workbook.createCellStyle();
+		dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+		moneyStyle = workbook.createCellStyle();
+		moneyStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0"));
+	}
+
+	// Tổng số dòng dự kiến (cho thanh tiến trình); cộng dồn khi xuất nhiều sheet
+	public void addExpectedRows(long rows) {
+		expectedRows = (expectedRows < 0 ? 0 : expectedRows) + rows;
+	}
+
+	// Bắt đầu một sheet mới với dòng tiêu đề
+	public void startSheet(String name, String... headers) {
+		this.sheetName = name;
+		this.headers = headers;
+		openSheet(name);
+	}
+
+	/**
+	 * Ghi một dòng; kiểu giá trị quyết định kiểu ô (số, ngày, chuỗi).
+	 * @throws CancellationException khi người dùng đã hủy, để dừng vòng đọc dữ liệu
+	 */
+	public void row(Object... values) {
+		if (rowIndex > MAX_ROWS_PER_SHEET) {
+			openSheet(sheetName + " (" + (sheetCount + 1) + ")");
+		}
+
+		Row row = sheet.createRow(rowIndex++);
+		for (int i = 0; i < values.length; i++) {
+			setCell(row.createCell(i), values[i]);
+		}
+
+		rowsWritten++;
+		if (rowsWritten % PROGRESS_EVERY_ROWS == 0) {
+			if (cancelled.getAsBoolean())
+				throw new CancellationException("Export cancelled");
+			listener.onProgress(rowsWritten, expectedRows);
+		}
+	}
+
+	/**
+	 * Ghi workbook ra file tạm cạnh file đích rồi đổi tên, để không để lại file dở dang khi lỗi.
+	 * @return số dòng dữ liệu đã ghi
+	 */
+	public long writeTo(Path target) throws Exception {
+		if (cancelled.getAsBoolean())
+			throw new CancellationException("Export cancelled");
+
+		Path absolute = target.toAbsolutePath();
+		Path temp = Files.createTempFile(absolute.getParent(), ".export-", ".xlsx");
+		try {
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				workbook.write(out);
+			}
+			Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		listener.onProgress(rowsWritten, rowsWritten);
+		return rowsWritten;
+	}
+
+	// Xóa các file tạm của SXSSF
+	@Override
+	public void close() {
+		try {
+			workbook.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		workbook.dispose();
+	}
+
+	private void openSheet(String name) {
+		sheet = workbook.createSheet(name);
+		sheetCount++;
+		rowIndex = 0;
+		// Độ rộng cột cố định: autoSizeColumn phải theo dõi mọi dòng, trái với mục đích streaming
+		for (int i = 0; i < headers.length; i++) {
+			sheet.setColumnWidth(i, 20 * 256);
+		}
+		sheet.createFreezePane(0, 1);
+
+		Row header = sheet.createRow(rowIndex++);
+		for (int i = 0; i < headers.length; i++) {
+			Cell cell = header.createCell(i);
+			cell.setCellValue(headers[i]);
+			cell.setCellStyle(headerStyle);
+		}
+	}
+
+	private void setCell(Cell cell, Object value) {
+		if (value == null) {
+			cell.setBlank();
+		} else if (value instanceof BigDecimal decimal) {
+			cell.setCellValue(decimal.doubleValue());
+			cell.setCellStyle(moneyStyle);
+		} else if (value instanceof Number number) {
+			cell.setCellValue(number.doubleValue());
+		} else if (value instanceof LocalDate date) {
+			cell.setCellValue(date);
+			cell.setCellStyle(dateStyle);
+		} else if (value instanceof LocalDateTime dateTime) {
+			cell.setCellValue(dateTime);
+			cell.setCellStyle(dateTimeStyle);
+		} else if (value instanceof Date date) {
+			cell.setCellValue(date);
+			cell.setCellStyle(dateTimeStyle);
+		} else {
+			cell.setCellValue(value.toString());
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Đọc sheet đầu tiên của file .xlsx bằng API sự kiện (SAX) của POI: từng dòng được phân tích
+ * rồi bỏ đi, không dựng cả workbook trong bộ nhớ như XSSFWorkbook, nên đọc được file rất lớn.
+ * Dòng đầu là tiêu đề; mỗi dòng sau được trả về dạng map tiêu đề (đã chuẩn hóa) -> giá trị chuỗi.
+ */
+public class ExcelRowReader {
+
+	// rowNumber: số dòng như Excel hiển thị (bắt đầu từ 1), dùng để báo lỗi theo dòng
+	public interface RowHandler {
+		void onRow(int rowNumber, Map<String, String> values);
+	}
+
+	/**
+	 * Đọc lần lượt các dòng dữ liệu, bỏ qua dòng trống.
+	 * Ngoại lệ runtime ném ra từ handler (vd: CancellationException) dừng việc đọc và được ném lại nguyên vẹn.
+	 */
+	public static void read(Path file, RowHandler handler) throws Exception {
+		OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+		try {
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+			XSSFReader reader = new XSSFReader(pkg);
+			StylesTable styles = reader.getStylesTable();
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			if (!sheets.hasNext())
+				return;
+
+			try (InputStream sheet = sheets.next()) {
+				XMLReader parser = XMLHelper.newXMLReader();
+				parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, new RowCollector(handler),
+						new ImportDataFormatter(), false));
+				parser.parse(new InputSource(sheet));
+			}
+		} finally {
+			// Gói mở chỉ đọc: revert() đóng file mà không ghi lại (close() sẽ cố lưu gói)
+			pkg.revert();
+		}
+	}
+
+	// Chuẩn hóa tên cột: "Date of Birth", "date_of_birth" và "DATE OF BIRTH" đều thành "dateofbirth"
+	public static String normalizeHeader(String header) {
+		return header == null ? "" : header.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}0-9]", "");
+	}
+
+	// Gom các ô của một dòng; ô trống không phát sinh sự kiện nên vị trí cột lấy từ tham chiếu ô (A1, C1...)
+	private static class RowCollector implements SheetContentsHandler {
+
+		private final RowHandler handler;
+		private final List<String> cells = new ArrayList<>();
+		private List<String> headers;
+
+		RowCollector(RowHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void startRow(int rowNum) {
+			cells.clear();
+		}
+
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			if (cellReference == null)
+				return;
+			int column = new CellReference(cellReference).getCol();
+			while (cells.size() <= column) {
+				cells.add("");
+			}
+			cells.set(column, formattedValue == null ? "" : formattedValue.trim());
+		}
+
+		@Override
+		public void endRow(int rowNum) {
+			if (cells.stream().allMatch(String::isEmpty))
+				return;
+
+			if (headers == null) {
+				headers = new ArrayList<>();
+				for (String cell : cells) {
+					headers.add(normalizeHeader(cell));
+				}
+				return;
+			}
+
+			Map<String, String> values = new LinkedHashMap<>();
+			for (int i = 0; i < headers.size(); i++) {
+				if (!headers.get(i).isEmpty()) {
+					values.put(headers.get(i), i < cells.size() ? cells.get(i) : "");
+				}
+			}
+			handler.onRow(rowNum + 1, values);
+		}
+	}
+
+	/**
+	 * Ô số được đọc theo giá trị, không theo định dạng hiển thị: ô ngày thành yyyy-MM-dd, số giữ đủ chữ số
+	 * (CCCD 12 số không bị thành 2.11111E+11, giá "#,##0" không bị làm tròn).
+	 */
+	private static class ImportDataFormatter extends DataFormatter {
+
+		@Override
+		public String formatRawCellContents(double value, int formatIndex, String formatString) {
+			if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+				return DateUtil.getLocalDateTime(value).toLocalDate().toString();
+			}
+			if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+				return Long.toString((long) value);
+			}
+			return BigDecimal.valueOf(value).toPlainString();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.awt.Component;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Chọn file .xlsx rồi hiển thị tiến trình của một lần xuất Excel chạy nền, có nút hủy.
+ * Hộp thoại không chặn (modeless) nên người dùng vẫn thao tác được trong lúc xuất.
+ */
+public class ExportProgressDialog {
+
+	// Bắt đầu lần xuất và trả về future số dòng đã ghi
+	public interface ExportStarter {
+		CompletableFuture<Long> start(Path file, ExcelExporter.ProgressListener listener, BooleanSupplier cancelled);
+	}
+
+	public static void run(Component parent, String title, String defaultFileName, ExportStarter starter) {
+		Path file = chooseFile(parent, defaultFileName);
+		if (file == null)
+			return;
+
+		ProgressDialog dialog = new ProgressDialog(parent, title);
+
+		ExcelExporter.ProgressListener listener = (rows, expected) -> SwingUtilities.invokeLater(() -> dialog.update(
+				expected > 0 ? "Exported " + rows + " / " + expected + " rows" : "Exported " + rows + " rows", rows,
+				expected));
+
+		starter.start(file, listener, dialog::isCancelled).whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+			dialog.dispose();
+			if (error == null) {
+				ShowMessage.showInfo(parent, "Exported " + rows + " rows to " + file.getFileName() + ".");
+			} else if (ProgressDialog.isCancellation(error)) {
+				ShowMessage.showWarning(parent, "Export cancelled.");
+			} else {
+				Throwable cause = error.getCause() != null ? error.getCause() : error;
+				ShowMessage.showError(parent, "Export failed: " + cause.getMessage());
+			}
+		}));
+	}
+
+	// null nếu người dùng hủy; tự thêm đuôi .xlsx và hỏi trước khi ghi đè
+	private static Path chooseFile(Component parent, String defaultFileName) {
+		JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setDialogTitle("Export to Excel");
+		fileChooser.setFileFilter(new FileNameExtensionFilter("Excel Workbook (*.xlsx)", "xlsx"));
+		fileChooser.setSelectedFile(new File(defaultFileName));
+		if (fileChooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION)
+			return null;
+
+		File selected = fileChooser.getSelectedFile();
+		if (!selected.getName().toLowerCase().endsWith(".xlsx")) {
+			selected = new File(selected.getParentFile(), selected.getName() + ".xlsx");
+		}
+		if (selected.exists()) {
+			int option = JOptionPane.showConfirmDialog(parent, selected.getName() + " already exists. Replace it?",
+					"Export to Excel", JOptionPane.YES_NO_OPTION);
+			if (option != JOptionPane.YES_OPTION)
+				return null;
+		}
+		return selected.toPath();
+	}
+}
@@ -8,6 +8,7 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.Image;
 import java.awt.Insets;
+import java.awt.Point;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -22,10 +23,11 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
 import javax.swing.SwingConstants;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
+import javax.swing.table.TableModel;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -148,7 +150,7 @@ public class FormUtilities {
 	/**
 	 * Tạo bảng đã định dạng (header, màu, căn lề)
 	 */
-	public static JTable createStyledTable(DefaultTableModel model) {
+	public static JTable createStyledTable(TableModel model) {
 		JTable table = new JTable(model);
 		table.setRowHeight(24);
 		table.setFont(new Font("SansSerif", Font.PLAIN, 13));
@@ -188,6 +190,22 @@ public class FormUtilities {
 		return panel;
 	}
 
+	// Dòng đầu tiên đang hiển thị của bảng nằm trong JScrollPane (bảng tải dữ liệu theo trang khi cuộn)
+	public static int getFirstVisibleRow(JTable table) {
+		if (!(table.getParent() instanceof JViewport viewport))
+			return 0;
+		return Math.max(table.rowAtPoint(viewport.getViewPosition()), 0);
+	}
+
+	// Cuộn để dòng rowIndex nằm ở đầu vùng hiển thị; dữ liệu sẽ được nạp nền nếu chưa có
+	public static void scrollToRow(JTable table, int rowIndex) {
+		if (rowIndex < 0 || rowIndex >= table.getRowCount() || !(table.getParent() instanceof JViewport viewport))
+			return;
+		int y = table.getCellRect(rowIndex, 0, true).y;
+		int maxY = Math.max(0, table.getHeight() - viewport.getExtentSize().height);
+		viewport.setViewPosition(new Point(0, Math.min(y, maxY)));
+	}
+
 	// Helper: safely get string from cell
 	public static String getCellString(Cell cell) {
 		if (cell == null)
@@ -0,0 +1,77 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.awt.Component;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import com.kien.project.clinicmanagement.dto.ImportSummary;
+
+/**
+ * Chọn file .xlsx cần nhập rồi hiển thị tiến trình của lần nhập chạy nền, có nút hủy.
+ * Kết quả từng dòng được ghi ra file "<tên file>-result.xlsx" cạnh file nguồn.
+ */
+public class ImportProgressDialog {
+
+	// Bắt đầu lần nhập và trả về future tổng kết
+	public interface ImportStarter {
+		CompletableFuture<ImportSummary> start(Path source, Path resultFile, ExcelExporter.ProgressListener listener,
+				BooleanSupplier cancelled);
+	}
+
+	// onFinished chạy trên EDT khi lần nhập kết thúc (kể cả bị hủy/lỗi, vì các lô trước đó có thể đã được ghi)
+	public static void run(Component parent, String title, ImportStarter starter, Runnable onFinished) {
+		Path source = chooseFile(parent);
+		if (source == null)
+			return;
+		Path resultFile = resultFileFor(source);
+
+		ProgressDialog dialog = new ProgressDialog(parent, title);
+
+		ExcelExporter.ProgressListener listener = (rows, expected) -> SwingUtilities
+				.invokeLater(() -> dialog.update("Processed " + rows + " rows", rows, expected));
+
+		starter.start(source, resultFile, listener, dialog::isCancelled).whenComplete((summary, error) -> SwingUtilities.invokeLater(() -> {
+			dialog.dispose();
+			onFinished.run();
+			if (error == null) {
+				String message = "Inserted " + summary.getInserted() + ", updated " + summary.getUpdated()
+						+ ", failed " + summary.getFailed() + " of " + summary.getTotal() + " rows.\n"
+						+ "Details: " + summary.getResultFile();
+				if (summary.getFailed() > 0) {
+					ShowMessage.showWarning(parent, message);
+				} else {
+					ShowMessage.showInfo(parent, message);
+				}
+			} else if (ProgressDialog.isCancellation(error)) {
+				ShowMessage.showWarning(parent, "Import cancelled. Rows saved before cancelling were kept.");
+			} else {
+				Throwable cause = error.getCause() != null ? error.getCause() : error;
+				ShowMessage.showError(parent, "Import failed: " + cause.getMessage());
+			}
+		}));
+	}
+
+	private static Path chooseFile(Component parent) {
+		JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setDialogTitle("Import from Excel");
+		fileChooser.setFileFilter(new FileNameExtensionFilter("Excel Workbook (*.xlsx)", "xlsx"));
+		if (fileChooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION)
+			return null;
+		return fileChooser.getSelectedFile().toPath();
+	}
+
+	// patients.xlsx -> patients-result.xlsx trong cùng thư mục
+	private static Path resultFileFor(Path source) {
+		String name = source.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		String base = dot > 0 ? name.substring(0, dot) : name;
+		File directory = source.toAbsolutePath().getParent().toFile();
+		return new File(directory, base + "-result.xlsx").toPath();
+	}
+}
@@ -0,0 +1,227 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.JComboBox;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Tìm kiếm khi đang gõ: gom các phím gõ liên tiếp (debounce), chạy truy vấn trên BackgroundExecutor,
+ * hủy truy vấn cũ còn đang chạy khi có từ khóa mới và trả kết quả về giao diện trên EDT.
+ * Kết quả đầy đủ (không bị cắt bởi giới hạn) được giữ lại trong một thời gian ngắn: khi từ khóa mới
+ * chứa từ khóa cũ (gõ thêm ký tự) thì chỉ lọc lại trong bộ nhớ, không truy vấn MySQL nữa.
+ * Mọi trạng thái chỉ được đọc/ghi trên Event Dispatch Thread.
+ */
+public class IncrementalSearch<T> {
+
+	private static final int DEBOUNCE_MS = 300;
+	private static final long CACHE_TTL_MS = 30_000;
+	private static final int MAX_CACHED_QUERIES = 20;
+
+	/** Chạy trên luồng nền; trả về tối đa limit dòng khớp từ khóa. */
+	@FunctionalInterface
+	public interface Query<T> {
+		List<T> search(String keyword, String field, int limit, QueryCancellation cancellation);
+	}
+
+	/** So khớp trong bộ nhớ, phải cho cùng kết quả với điều kiện LIKE của truy vấn. */
+	@FunctionalInterface
+	public interface Matcher<T> {
+		boolean matches(T item, String foldedKeyword, String field);
+	}
+
+	@FunctionalInterface
+	public interface ResultListener<T> {
+		// keyword rỗng nghĩa là người dùng đã xóa ô tìm kiếm
+		void onResults(String keyword, String field, List<T> rows, boolean truncated);
+	}
+
+	private record CachedResult<T>(List<T> rows, long loadedAt) {
+	}
+
+	private final JTextField searchField;
+	private final JComboBox<String> fieldCombo;
+	private final int maxResults;
+	private final Query<T> query;
+	private final Matcher<T> matcher;
+	private final ResultListener<T> listener;
+	private final Timer debounceTimer;
+
+	// Kết quả đầy đủ theo "field|keyword đã chuẩn hóa", LRU theo thứ tự truy cập
+	private final Map<String, CachedResult<T>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedResult<T>> eldest) {
+			return size() > MAX_CACHED_QUERIES;
+		}
+	};
+
+	private QueryCancellation inFlight;
+	private int sequence;
+	private String lastKeyword = "";
+	private String lastField;
+
+	public IncrementalSearch(JTextField searchField, JComboBox<String> fieldCombo, int maxResults, Query<T> query,
+			Matcher<T> matcher, ResultListener<T> listener) {
+		this.searchField = searchField;
+		this.fieldCombo = fieldCombo;
+		this.maxResults = maxResults;
+		this.query = query;
+		this.matcher = matcher;
+		this.listener = listener;
+		this.lastField = currentField();
+
+		debounceTimer = new Timer(DEBOUNCE_MS, e -> run(false));
+		debounceTimer.setRepeats(false);
+
+		searchField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				debounceTimer.restart();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				debounceTimer.restart();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				// Chỉ thay đổi thuộc tính, không đổi nội dung
+			}
+		});
+		if (fieldCombo != null) {
+			fieldCombo.addActionListener(e -> debounceTimer.restart());
+		}
+	}
+
+	// Enter / nút Search: chạy ngay, kể cả khi từ khóa không đổi
+	public void searchNow() {
+		debounceTimer.stop();
+		run(true);
+	}
+
+	// Gọi khi controller tự đưa màn hình về trạng thái ban đầu (Refresh)
+	public void reset() {
+		debounceTimer.stop();
+		cancelInFlight();
+		sequence++;
+		lastKeyword = "";
+		lastField = currentField();
+	}
+
+	// Dữ liệu vừa thay đổi (thêm/sửa/xóa): bỏ các kết quả đã giữ
+	public void invalidateCache() {
+		cache.clear();
+	}
+
+	public void dispose() {
+		reset();
+		cache.clear();
+	}
+
+	private void run(boolean force) {
+		String keyword = searchField.getText().trim();
+		String field = currentField();
+		if (!force && keyword.equals(lastKeyword) && field.equals(lastField))
+			return;
+
+		lastKeyword = keyword;
+		lastField = field;
+		cancelInFlight();
+		int requestSequence = ++sequence;
+
+		if (keyword.isEmpty()) {
+			listener.onResults(keyword, field, List.of(), false);
+			return;
+		}
+
+		String folded = TextNormalizer.fold(keyword);
+		// % và _ là ký tự đại diện của LIKE, lọc bằng contains sẽ không khớp nên luôn hỏi database
+		boolean cacheable = folded.indexOf('%') < 0 && folded.indexOf('_') < 0;
+		List<T> local = cacheable ? filterFromCache(folded, field) : null;
+		if (local != null) {
+			listener.onResults(keyword, field, local, false);
+			return;
+		}
+
+		QueryCancellation cancellation = new QueryCancellation();
+		inFlight = cancellation;
+		// Lấy dư một dòng để biết kết quả có bị cắt hay không
+		CompletableFuture.supplyAsync(() -> query.search(keyword, field, maxResults + 1, cancellation),
+				BackgroundExecutor.get())
+				.whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+					if (requestSequence != sequence || cancellation.isCancelled())
+						return; // Đã có từ khóa mới hơn
+					inFlight = null;
+					if (error != null) {
+						error.printStackTrace();
+						return;
+					}
+					List<T> result = (rows != null) ? rows : List.of();
+					boolean truncated = result.size() > maxResults;
+					if (truncated) {
+						result = result.subList(0, maxResults);
+					} else if (cacheable) {
+						cache.put(cacheKey(field, folded), new CachedResult<>(result, System.currentTimeMillis()));
+					}
+					listener.onResults(keyword, field, result, truncated);
+				}));
+	}
+
+	// Tìm kết quả đầy đủ của một từ khóa nằm trong từ khóa mới; ưu tiên từ khóa dài nhất (ít dòng nhất)
+	private List<T> filterFromCache(String folded, String field) {
+		long now = System.currentTimeMillis();
+		String prefix = field + "|";
+		CachedResult<T> best = null;
+		int bestLength = -1;
+
+		for (Map.Entry<String, CachedResult<T>> entry : cache.entrySet()) {
+			String key = entry.getKey();
+			if (!key.startsWith(prefix) || now - entry.getValue().loadedAt() > CACHE_TTL_MS)
+				continue;
+			String cachedKeyword = key.substring(prefix.length());
+			if (cachedKeyword.length() > bestLength && folded.contains(cachedKeyword)) {
+				best = entry.getValue();
+				bestLength = cachedKeyword.length();
+			}
+		}
+		if (best == null)
+			return null;
+
+		List<T> filtered = new ArrayList<>();
+		for (T item : best.rows()) {
+			if (matcher.matches(item, folded, field))
+				filtered.add(item);
+		}
+		cache.put(cacheKey(field, folded), new CachedResult<>(filtered, best.loadedAt()));
+		return filtered;
+	}
+
+	private void cancelInFlight() {
+		if (inFlight != null) {
+			QueryCancellation cancellation = inFlight;
+			inFlight = null;
+			// Statement.cancel mở kết nối riêng để KILL QUERY, không chạy trên EDT
+			BackgroundExecutor.get().execute(cancellation::cancel);
+		}
+	}
+
+	private String currentField() {
+		Object selected = (fieldCombo != null) ? fieldCombo.getSelectedItem() : null;
+		return (selected != null) ? selected.toString() : "";
+	}
+
+	private static String cacheKey(String field, String foldedKeyword) {
+		return field + "|" + foldedKeyword;
+	}
+}
@@ -0,0 +1,333 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import com.kien.project.clinicmanagement.dto.PagedResult;
+
+/**
+ * TableModel ảo: chỉ nạp trang dữ liệu khi dòng tương ứng được hiển thị (cuộn tới),
+ * truy vấn chạy trên BackgroundExecutor, trang kế tiếp được nạp trước, và chỉ giữ
+ * tối đa maxPages trang gần nhất trong bộ nhớ (LRU). Dòng chưa có dữ liệu hiển thị placeholder.
+ * Khi có SeekLoader và trang liền trước đã nạp đủ, trang kế tiếp được lấy theo keyset (dòng cuối
+ * của trang trước) thay vì OFFSET. Trang nạp lỗi được ghi nhớ và chỉ thử lại sau một khoảng chờ tăng dần.
+ * Mọi trạng thái chỉ được đọc/ghi trên Event Dispatch Thread nên không cần khóa.
+ */
+public class LazyPagedTableModel<T> extends AbstractTableModel {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String LOADING_TEXT = "Loading...";
+	public static final String FAILED_TEXT = "Unable to load, retrying...";
+
+	private static final int FIRST_RETRY_DELAY_MS = 1_000;
+	private static final int MAX_RETRY_DELAY_MS = 30_000;
+	// Trang lấy theo keyset không biết tổng số dòng
+	private static final int UNKNOWN_TOTAL = -1;
+
+	/** Chạy trên luồng nền, trả về một trang cùng tổng số dòng. */
+	@FunctionalInterface
+	public interface PageLoader<T> {
+		PagedResult<T> load(int offset, int limit);
+	}
+
+	/**
+	 * Chạy trên luồng nền, trả về tối đa limit bản ghi đứng ngay sau anchor theo cùng thứ tự với PageLoader.
+	 * Trả về null nếu không seek được từ anchor này (vd: thiếu giá trị khóa), khi đó trang được nạp bằng OFFSET.
+	 */
+	@FunctionalInterface
+	public interface SeekLoader<T> {
+		List<T> loadAfter(T anchor, int limit);
+	}
+
+	/** Chuyển một bản ghi thành các ô của dòng; rowIndex là vị trí tuyệt đối trong danh sách. */
+	@FunctionalInterface
+	public interface RowMapper<T> {
+		Object[] toRow(T item, int rowIndex);
+	}
+
+	private final String[] columnNames;
+	private final int pageSize;
+	private final RowMapper<T> rowMapper;
+
+	private final Map<Integer, List<T>> pages;
+	private final Set<Integer> pendingPages = new HashSet<>();
+	// Trang vẫn hiển thị dữ liệu cũ nhưng cần nạp lại (sau refresh)
+	private final Set<Integer> stalePages = new HashSet<>();
+	// Trang nạp lỗi -> thời điểm (ms) được phép thử lại
+	private final Map<Integer, Long> failedPages = new HashMap<>();
+	private int consecutiveFailures;
+
+	private PageLoader<T> pageLoader;
+	private SeekLoader<T> seekLoader;
+	private IntConsumer totalListener;
+	private int rowCount;
+	// Tăng mỗi lần reload/cancel để bỏ qua kết quả của các truy vấn cũ
+	private int generation;
+	private boolean awaitingFirstPage;
+
+	public LazyPagedTableModel(String[] columnNames, int pageSize, int maxPages, RowMapper<T> rowMapper) {
+		this.columnNames = columnNames;
+		this.pageSize = pageSize;
+		this.rowMapper = rowMapper;
+		this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+				return size() > maxPages;
+			}
+		};
+	}
+
+	// Gọi khi tổng số dòng thay đổi (sau lần nạp đầu tiên của mỗi reload)
+	public void setTotalListener(IntConsumer totalListener) {
+		this.totalListener = totalListener;
+	}
+
+	/** Bỏ toàn bộ trang đã nạp và nạp lại từ đầu với nguồn dữ liệu mới. */
+	public void reload(PageLoader<T> pageLoader) {
+		reload(pageLoader, null);
+	}
+
+	/** Như reload(pageLoader), các trang sau trang đầu được lấy theo keyset bằng seekLoader khi có thể. */
+	public void reload(PageLoader<T> pageLoader, SeekLoader<T> seekLoader) {
+		this.pageLoader = pageLoader;
+		this.seekLoader = seekLoader;
+		reload();
+	}
+
+	public void reload() {
+		resetLoading();
+		pages.clear();
+		awaitingFirstPage = true;
+		if (pageLoader != null) {
+			requestPage(0);
+		}
+	}
+
+	/**
+	 * Nạp lại dữ liệu nhưng vẫn hiển thị các trang cũ cho tới khi trang mới về
+	 * (không nháy "Loading..." và không mất dòng đang chọn), dùng cho tự động làm mới.
+	 */
+	public void refresh() {
+		if (pageLoader == null)
+			return;
+		resetLoading();
+		stalePages.addAll(pages.keySet());
+		requestPage(0);
+		// Vẽ lại các dòng đang hiển thị để trang cũ của chúng được nạp lại
+		if (rowCount > 0)
+			fireTableRowsUpdated(0, rowCount - 1);
+	}
+
+	// Hủy các truy vấn đang chờ (khi rời màn hình)
+	public void cancelLoading() {
+		resetLoading();
+	}
+
+	private void resetLoading() {
+		generation++;
+		pendingPages.clear();
+		stalePages.clear();
+		failedPages.clear();
+		consecutiveFailures = 0;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/** Bản ghi tại dòng, hoặc null nếu trang chứa dòng đó chưa được nạp. */
+	public T getRow(int rowIndex) {
+		if (rowIndex < 0 || rowIndex >= rowCount)
+			return null;
+		List<T> page = pages.get(rowIndex / pageSize);
+		int index = rowIndex % pageSize;
+		return (page != null && index < page.size()) ? page.get(index) : null;
+	}
+
+	@Override
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return columnNames[column];
+	}
+
+	@Override
+	public boolean isCellEditable(int row, int column) {
+		return false; // Chỉ đọc
+	}
+
+	@Override
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		int pageIndex = rowIndex / pageSize;
+		List<T> page = pages.get(pageIndex);
+		if (page == null) {
+			requestPage(pageIndex);
+			return placeholder(pageIndex, rowIndex, columnIndex);
+		}
+		if (stalePages.contains(pageIndex)) {
+			requestPage(pageIndex);
+		}
+
+		// Đã tới trang này thì nạp trước trang kế tiếp
+		if ((pageIndex + 1) * pageSize < rowCount) {
+			requestPage(pageIndex + 1);
+		}
+
+		int index = rowIndex % pageSize;
+		if (index >= page.size())
+			return placeholder(pageIndex, rowIndex, columnIndex);
+		return rowMapper.toRow(page.get(index), rowIndex)[columnIndex];
+	}
+
+	private Object placeholder(int pageIndex, int rowIndex, int columnIndex) {
+		if (columnIndex == 0)
+			return rowIndex + 1;
+		if (columnIndex != 1)
+			return "";
+		return failedPages.containsKey(pageIndex) ? FAILED_TEXT : LOADING_TEXT;
+	}
+
+	private void requestPage(int pageIndex) {
+		if (pages.containsKey(pageIndex) && !stalePages.contains(pageIndex))
+			return;
+		// Trang vừa lỗi: chờ hết thời gian backoff, không truy vấn lại mỗi lần vẽ lại bảng
+		Long retryAt = failedPages.get(pageIndex);
+		if (retryAt != null && System.currentTimeMillis() < retryAt)
+			return;
+		if (!pendingPages.add(pageIndex))
+			return;
+
+		int requestGeneration = generation;
+		PageLoader<T> loader = pageLoader;
+		SeekLoader<T> seek = seekLoader;
+		int offset = pageIndex * pageSize;
+		T anchor = seekAnchor(pageIndex);
+
+		CompletableFuture.supplyAsync(() -> loadPage(loader, seek, anchor, offset), BackgroundExecutor.get())
+				.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+					if (requestGeneration != generation)
+						return; // Kết quả của lần nạp cũ
+					pendingPages.remove(pageIndex);
+					if (error != null) {
+						error.printStackTrace();
+						onPageFailed(pageIndex);
+						return;
+					}
+					failedPages.remove(pageIndex);
+					consecutiveFailures = 0;
+					stalePages.remove(pageIndex);
+					applyPage(pageIndex, result);
+				}));
+	}
+
+	// Dòng cuối của trang liền trước, nếu trang đó đã nạp đủ và còn mới
+	private T seekAnchor(int pageIndex) {
+		if (seekLoader == null || pageIndex == 0 || stalePages.contains(pageIndex - 1))
+			return null;
+		List<T> previous = pages.get(pageIndex - 1);
+		return (previous != null && previous.size() == pageSize) ? previous.get(pageSize - 1) : null;
+	}
+
+	private PagedResult<T> loadPage(PageLoader<T> loader, SeekLoader<T> seek, T anchor, int offset) {
+		if (anchor != null) {
+			List<T> rows = seek.loadAfter(anchor, pageSize);
+			if (rows != null)
+				return new PagedResult<>(rows, UNKNOWN_TOTAL, offset, pageSize);
+		}
+		return loader.load(offset, pageSize);
+	}
+
+	private void onPageFailed(int pageIndex) {
+		consecutiveFailures++;
+		int delay = (int) Math.min(MAX_RETRY_DELAY_MS,
+				(long) FIRST_RETRY_DELAY_MS << Math.min(consecutiveFailures - 1, 5));
+		failedPages.put(pageIndex, System.currentTimeMillis() + delay);
+		repaintPage(pageIndex);
+
+		// Hết thời gian chờ thì vẽ lại các dòng của trang, getValueAt sẽ tự gửi lại truy vấn nếu dòng còn hiển thị
+		int failedGeneration = generation;
+		Timer retryTimer = new Timer(delay, e -> {
+			if (failedGeneration != generation)
+				return;
+			if (awaitingFirstPage && pageIndex == 0) {
+				requestPage(0);
+			} else {
+				repaintPage(pageIndex);
+			}
+		});
+		retryTimer.setRepeats(false);
+		retryTimer.start();
+	}
+
+	private void repaintPage(int pageIndex) {
+		int first = pageIndex * pageSize;
+		int last = Math.min(first + pageSize, rowCount) - 1;
+		if (first <= last)
+			fireTableRowsUpdated(first, last);
+	}
+
+	private void applyPage(int pageIndex, PagedResult<T> result) {
+		pages.put(pageIndex, result.getRows());
+
+		int total = result.getTotal();
+		int loaded = pageIndex * pageSize + result.getRows().size();
+		if (total == UNKNOWN_TOTAL) {
+			// Trang theo keyset: thiếu dòng nghĩa là đã tới cuối danh sách
+			total = result.getRows().size() < pageSize ? loaded : Math.max(rowCount, loaded);
+		}
+		// Trang ngoài phạm vi (dữ liệu vừa bị xóa ở máy khác) trả về total = 0: cắt danh sách tại đây
+		if (result.getRows().isEmpty() && pageIndex > 0) {
+			total = Math.min(rowCount, pageIndex * pageSize);
+		}
+
+		// Trang đầu tiên sau reload: dữ liệu mới hoàn toàn, luôn thông báo tổng số dòng cho controller
+		if (awaitingFirstPage) {
+			awaitingFirstPage = false;
+			rowCount = total;
+			fireTableDataChanged();
+			notifyTotal(total);
+			return;
+		}
+
+		// Tổng số dòng đổi khi đang cuộn hoặc refresh: chỉ báo phần thêm/bớt ở cuối
+		// (fireTableDataChanged sẽ xóa dòng đang chọn của JTable)
+		if (total != rowCount) {
+			int oldCount = rowCount;
+			rowCount = total;
+			if (total > oldCount) {
+				fireTableRowsInserted(oldCount, total - 1);
+			} else {
+				fireTableRowsDeleted(total, oldCount - 1);
+			}
+			notifyTotal(total);
+		}
+
+		repaintPage(pageIndex);
+	}
+
+	private void notifyTotal(int total) {
+		if (totalListener != null)
+			totalListener.accept(total);
+	}
+}
@@ -1,68 +1,163 @@
 package com.kien.project.clinicmanagement.utils;
 
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
 
 import jakarta.mail.Authenticator;
 import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
 import jakarta.mail.PasswordAuthentication;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.Session;
 import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 
+/**
+ * Nội dung email hệ thống và kết nối SMTP. Không gửi trực tiếp trên luồng gọi:
+ * thư được đưa vào hộp thư đi (MailOutbox) và gửi trên luồng nền.
+ * Cấu hình đọc từ mail.properties trong classpath (chỉ chứa giá trị mẫu, không có tài khoản thật),
+ * ghi đè lần lượt bởi file ngoài (-Dclinic.mail.config=...), biến môi trường (mail.username -> CLINIC_MAIL_USERNAME)
+ * và System property cùng tên khóa.
+ */
 public class MailAPI {
 
-    // Tài khoản Email và App password sau khi bật bảo mật 2 lớp
-    private static final String FROM_EMAIL = "20221608@eaut.edu.vn";
-    private static final String APP_PASSWORD = "fani ruby dnui fqho";
+    private static final String DEFAULT_CONFIG = "/mail.properties";
+    private static final String EXTERNAL_CONFIG_PROPERTY = "clinic.mail.config";
+    private static final String ENV_PREFIX = "CLINIC_";
 
-    public static boolean sendResetPasswordEmail(String toEmail, String newPassword) {
-        return sendEmail(toEmail,
-                "Your New Password - Clinic Management System",
+    // Chỗ trống cho mật khẩu mới / mã xác minh: nội dung lưu trong hộp thư đi không chứa bí mật,
+    // bí mật chỉ được điền vào lúc gửi (xem MailOutbox)
+    public static final String SECRET_PLACEHOLDER = "{{secret}}";
+
+    private static volatile Properties config;
+
+    // Tiêu đề và nội dung một email
+    public record Content(String subject, String body) {
+    }
+
+    public static Content resetPasswordContent() {
+        return new Content("Your New Password - Clinic Management System",
                 "Dear user,\n\n"
                         + "Your password has been reset.\n\n"
-                        + "New Password: " + newPassword
+                        + "New Password: " + SECRET_PLACEHOLDER
                         + "\n\nPlease login and change your password as soon as possible.\n\n"
                         + "Regards,\nClinic Management System Team");
     }
 
-    // ✅ Thêm hàm gửi mã xác minh
-    public static boolean sendVerificationCode(String toEmail, String verificationCode) {
-        return sendEmail(toEmail,
-                "Your Verification Code - Clinic Management System",
+    // ✅ Nội dung email gửi mã xác minh
+    public static Content verificationCodeContent() {
+        return new Content("Your Verification Code - Clinic Management System",
                 "Dear user,\n\n"
-                        + "Your verification code is: " + verificationCode
+                        + "Your verification code is: " + SECRET_PLACEHOLDER
                         + "\n\nPlease use this code to complete your verification.\n\n"
                         + "Regards,\nClinic Management System Team");
     }
 
-    // Hàm chung để gửi email
-    private static boolean sendEmail(String toEmail, String subject, String content) {
-        Properties properties = new Properties();
-        properties.put("mail.smtp.host", "smtp.gmail.com");
-        properties.put("mail.smtp.port", "587");
-        properties.put("mail.smtp.auth", "true");
-        properties.put("mail.smtp.starttls.enable", "true");
+    public static String fillSecret(String body, String secret) {
+        return body.replace(SECRET_PLACEHOLDER, secret);
+    }
+
+    // Session SMTP theo cấu hình; mọi khóa mail.smtp.* được chuyển thẳng cho Jakarta Mail
+    public static Session createSession() {
+        Properties props = getConfig();
+        Properties sessionProps = new Properties();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("mail.smtp.")) {
+                sessionProps.put(key, props.getProperty(key));
+            }
+        }
 
-        Session session = Session.getInstance(properties, new Authenticator() {
+        if (!Boolean.parseBoolean(props.getProperty("mail.smtp.auth", "false"))) {
+            return Session.getInstance(sessionProps);
+        }
+        String username = props.getProperty("mail.username");
+        String password = props.getProperty("mail.password");
+        return Session.getInstance(sessionProps, new Authenticator() {
             @Override
             protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(FROM_EMAIL, APP_PASSWORD);
+                return new PasswordAuthentication(username, password);
             }
         });
+    }
 
-        try {
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(FROM_EMAIL, "Clinic Management"));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
-            message.setSubject(subject);
-            message.setText(content);
+    // Mở một kết nối SMTP (STARTTLS + đăng nhập nếu được cấu hình) để gửi nhiều thư liên tiếp
+    public static Transport connect(Session session) throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        transport.connect();
+        return transport;
+    }
 
-            Transport.send(message);
+    public static MimeMessage createMessage(Session session, String toEmail, String subject, String content)
+            throws Exception {
+        Properties props = getConfig();
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(props.getProperty("mail.username"),
+                props.getProperty("mail.from.name", "Clinic Management")));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
+        message.setSubject(subject);
+        message.setText(content);
+        return message;
+    }
+
+    // Địa chỉ sai hoặc bị máy chủ từ chối: gửi lại cũng không thành công
+    public static boolean isPermanentFailure(Exception e) {
+        if (e instanceof AddressException)
             return true;
+        if (e instanceof SendFailedException sendFailed) {
+            return sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0;
+        }
+        return false;
+    }
+
+    private static Properties getConfig() {
+        Properties props = config;
+        if (props == null) {
+            synchronized (MailAPI.class) {
+                props = config;
+                if (props == null) {
+                    props = loadProperties();
+                    config = props;
+                }
+            }
+        }
+        return props;
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (InputStream in = MailAPI.class.getResourceAsStream(DEFAULT_CONFIG)) {
+            if (in != null) {
+                props.load(in);
+            }
         } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+            System.err.println("❌ Unable to read " + DEFAULT_CONFIG + ": " + e.getMessage());
+        }
+
+        String externalPath = System.getProperty(EXTERNAL_CONFIG_PROPERTY);
+        if (externalPath != null && Files.isRegularFile(Path.of(externalPath))) {
+            try (InputStream in = new FileInputStream(externalPath)) {
+                props.load(in);
+            } catch (Exception e) {
+                System.err.println("❌ Unable to read " + externalPath + ": " + e.getMessage());
+            }
+        }
+
+        // Biến môi trường rồi đến System property (ưu tiên cao nhất)
+        for (String key : props.stringPropertyNames()) {
+            String fromEnv = System.getenv(ENV_PREFIX + key.toUpperCase().replace('.', '_'));
+            if (fromEnv != null) {
+                props.setProperty(key, fromEnv);
+            }
+            String override = System.getProperty(key);
+            if (override != null) {
+                props.setProperty(key, override);
+            }
         }
+        return props;
     }
 }
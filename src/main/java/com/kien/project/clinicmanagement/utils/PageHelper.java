@@ -5,6 +5,11 @@ public class PageHelper {
 	public int currentPage;
 	public int rowsPerPage;
 	
+	// Hướng duyệt khi phân trang theo keyset (seek) từ dòng mốc của trang hiện tại
+	public enum Direction {
+		NEXT, PREVIOUS
+	}
+	
 	public PageHelper ( int currentPage, int rowsPerPage) {
 		this.currentPage = currentPage;
 		this.rowsPerPage = rowsPerPage;
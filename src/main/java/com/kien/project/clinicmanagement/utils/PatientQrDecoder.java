@@ -0,0 +1,56 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.kien.project.clinicmanagement.model.Patient;
+
+/**
+ * Đọc ảnh mã QR của bệnh nhân (JSON thông tin bệnh nhân, UTF-8, xem QrFromJsonFile) thành Patient.
+ * An toàn khi gọi song song: ObjectMapper dùng chung chỉ đọc, MultiFormatReader tạo mới cho mỗi ảnh.
+ */
+public class PatientQrDecoder {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule())
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+	// Chỉ tìm mã QR, không thử lần lượt mọi loại mã vạch
+	private static final Map<DecodeHintType, Object> HINTS = Map.of(DecodeHintType.CHARACTER_SET, "UTF-8",
+			DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+
+	public static Patient decode(Path imageFile) throws Exception {
+		BufferedImage image = ImageIO.read(imageFile.toFile());
+		if (image == null)
+			throw new IOException("Not a readable image: " + imageFile.getFileName());
+		return decode(image);
+	}
+
+	public static Patient decode(BufferedImage image) throws Exception {
+		LuminanceSource source = new BufferedImageLuminanceSource(image);
+		BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+		Result result = new MultiFormatReader().decode(bitmap, HINTS);
+		return MAPPER.readValue(result.getText(), Patient.class);
+	}
+
+	// Ảnh được nhận từ thư mục quét
+	public static boolean isImageFile(Path file) {
+		String name = file.getFileName().toString().toLowerCase();
+		return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg");
+	}
+}
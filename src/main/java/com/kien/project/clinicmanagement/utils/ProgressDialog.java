@@ -0,0 +1,82 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.border.EmptyBorder;
+
+/**
+ * Hộp thoại tiến trình không chặn (modeless) có nút hủy, dùng chung cho xuất và nhập Excel.
+ * Các phương thức gọi trên EDT, trừ isCancelled.
+ */
+class ProgressDialog {
+
+	private final AtomicBoolean cancelled = new AtomicBoolean(false);
+	private final JDialog dialog;
+	private final JLabel statusLabel = new JLabel("Preparing...");
+	private final JProgressBar progressBar = new JProgressBar();
+
+	ProgressDialog(Component parent, String title) {
+		dialog = new JDialog(SwingUtilities.getWindowAncestor(parent), title);
+		progressBar.setIndeterminate(true);
+		progressBar.setStringPainted(true);
+		progressBar.setString("");
+		JButton cancelButton = new JButton("Cancel");
+		cancelButton.addActionListener(e -> {
+			cancelled.set(true);
+			cancelButton.setEnabled(false);
+			statusLabel.setText("Cancelling...");
+		});
+
+		JPanel content = new JPanel(new BorderLayout(0, 8));
+		content.setBorder(new EmptyBorder(12, 12, 12, 12));
+		content.add(statusLabel, BorderLayout.NORTH);
+		content.add(progressBar, BorderLayout.CENTER);
+		JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+		buttons.add(cancelButton);
+		content.add(buttons, BorderLayout.SOUTH);
+		dialog.setContentPane(content);
+		dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+		dialog.setSize(380, 140);
+		dialog.setLocationRelativeTo(parent);
+		dialog.setVisible(true);
+	}
+
+	boolean isCancelled() {
+		return cancelled.get();
+	}
+
+	// expected <= 0: không biết tổng số, thanh tiến trình chạy vô định
+	void update(String status, long done, long expected) {
+		if (cancelled.get())
+			return;
+		if (expected > 0) {
+			progressBar.setIndeterminate(false);
+			progressBar.setMaximum(100);
+			progressBar.setValue((int) Math.min(100, done * 100 / expected));
+			progressBar.setString(progressBar.getValue() + "%");
+		}
+		statusLabel.setText(status);
+	}
+
+	void dispose() {
+		dialog.dispose();
+	}
+
+	static boolean isCancellation(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof CancellationException)
+				return true;
+		}
+		return false;
+	}
+}
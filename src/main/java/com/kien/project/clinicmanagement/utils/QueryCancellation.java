@@ -0,0 +1,37 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Cho phép hủy một truy vấn đang chạy từ luồng khác (vd: người dùng gõ tiếp khi kết quả cũ chưa về).
+ * DAO đăng ký Statement trước khi execute; cancel() gọi Statement.cancel() để MySQL dừng truy vấn.
+ */
+public class QueryCancellation {
+
+	private volatile Statement statement;
+	private volatile boolean cancelled;
+
+	public void register(Statement statement) throws SQLException {
+		this.statement = statement;
+		// Đã bị hủy trước khi kịp chạy thì dừng luôn
+		if (cancelled)
+			throw new SQLException("Query cancelled");
+	}
+
+	public void cancel() {
+		cancelled = true;
+		Statement current = statement;
+		if (current == null)
+			return;
+		try {
+			current.cancel();
+		} catch (SQLException e) {
+			// Truy vấn đã xong hoặc connection đã đóng, không cần xử lý
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
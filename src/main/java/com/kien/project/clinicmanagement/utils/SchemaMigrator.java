@@ -0,0 +1,211 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chạy các script nâng cấp schema (database/migration/V{n}__*.sql) khi khởi động.
+ * Phiên bản đã áp dụng được ghi vào bảng schema_version nên mỗi script chỉ chạy một lần.
+ * Có thể tắt bằng -Dclinic.migrate=false.
+ */
+public class SchemaMigrator {
+
+	private static final String MIGRATION_DIR = "/database/migration/";
+	private static final String DISABLE_PROPERTY = "clinic.migrate";
+	private static final String LOCK_NAME = "clinic_management.schema_migration";
+	private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+	// Danh sách script theo thứ tự phiên bản; thêm script mới vào cuối
+	private static final String[] MIGRATIONS = {
+			"V1__secondary_indexes.sql",
+			"V2__revenue_rollup.sql",
+			"V3__id_sequence.sql",
+			"V4__queue_counter.sql",
+			"V5__exam_queue_change.sql",
+			"V6__inventory_ledger.sql",
+			"V7__medicine_lot.sql",
+			"V8__mail_outbox.sql",
+			"V9__mail_outbox_secret.sql",
+	};
+
+	// Lỗi MySQL được coi là "đã áp dụng rồi" khi chạy lại script dở dang
+	private static final int ER_DUP_FIELDNAME = 1060;
+	private static final int ER_DUP_KEYNAME = 1061;
+	private static final int ER_TABLE_EXISTS = 1050;
+
+	private static final String CREATE_VERSION_TABLE = """
+			CREATE TABLE IF NOT EXISTS schema_version (
+			    version INT PRIMARY KEY,
+			    description VARCHAR(200) NOT NULL,
+			    script VARCHAR(200) NOT NULL,
+			    checksum CHAR(64) NOT NULL,
+			    execution_ms BIGINT NOT NULL,
+			    installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+			)
+			""";
+
+	public static void migrate() {
+		if ("false".equalsIgnoreCase(System.getProperty(DISABLE_PROPERTY))) {
+			return;
+		}
+
+		try (Connection conn = ConnectionDatabase.getConnection()) {
+			// Khóa mức server để hai máy trạm khởi động cùng lúc không chạy trùng script
+			if (!acquireLock(conn)) {
+				System.err.println("❌ Schema migration skipped: could not acquire migration lock");
+				return;
+			}
+			try {
+				try (Statement stmt = conn.createStatement()) {
+					stmt.execute(CREATE_VERSION_TABLE);
+				}
+				Set<Integer> applied = loadAppliedVersions(conn);
+				for (String script : MIGRATIONS) {
+					int version = parseVersion(script);
+					if (!applied.contains(version)) {
+						applyMigration(conn, version, script);
+					}
+				}
+			} finally {
+				releaseLock(conn);
+			}
+		} catch (Exception e) {
+			System.err.println("❌ Schema migration failed: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	private static void applyMigration(Connection conn, int version, String script) throws Exception {
+		String content = readScript(script);
+		long start = System.currentTimeMillis();
+
+		// DDL của MySQL tự commit nên từng lệnh được chạy riêng lẻ
+		try (Statement stmt = conn.createStatement()) {
+			for (String sql : splitStatements(content)) {
+				try {
+					stmt.execute(sql);
+				} catch (SQLException e) {
+					if (!isAlreadyApplied(e)) {
+						throw new SQLException("Migration " + script + " failed at: " + sql, e);
+					}
+				}
+			}
+		}
+
+		String sql = "INSERT INTO schema_version (version, description, script, checksum, execution_ms) VALUES (?, ?, ?, ?, ?)";
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			ps.setInt(1, version);
+			ps.setString(2, parseDescription(script));
+			ps.setString(3, script);
+			ps.setString(4, checksum(content));
+			ps.setLong(5, System.currentTimeMillis() - start);
+			ps.executeUpdate();
+		}
+		System.out.println("✅ Applied schema migration " + script);
+	}
+
+	private static Set<Integer> loadAppliedVersions(Connection conn) throws SQLException {
+		Set<Integer> versions = new HashSet<>();
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+			while (rs.next()) {
+				versions.add(rs.getInt(1));
+			}
+		}
+		return versions;
+	}
+
+	private static boolean isAlreadyApplied(SQLException e) {
+		int code = e.getErrorCode();
+		return code == ER_DUP_KEYNAME || code == ER_DUP_FIELDNAME || code == ER_TABLE_EXISTS;
+	}
+
+	private static boolean acquireLock(Connection conn) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+			ps.setString(1, LOCK_NAME);
+			ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() && rs.getInt(1) == 1;
+			}
+		}
+	}
+
+	private static void releaseLock(Connection conn) {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+			ps.setString(1, LOCK_NAME);
+			ps.executeQuery().close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static String readScript(String script) throws Exception {
+		try (InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_DIR + script)) {
+			if (in == null) {
+				throw new IllegalStateException("Missing migration script " + MIGRATION_DIR + script);
+			}
+			StringBuilder sb = new StringBuilder();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					sb.append(line).append('\n');
+				}
+			}
+			return sb.toString();
+		}
+	}
+
+	// Tách script theo dấu ';' cuối dòng, bỏ qua dòng chú thích "--"
+	private static List<String> splitStatements(String content) {
+		List<String> statements = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		for (String line : content.split("\n")) {
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+				continue;
+			}
+			current.append(line).append('\n');
+			if (trimmed.endsWith(";")) {
+				String sql = current.toString().trim();
+				statements.add(sql.substring(0, sql.length() - 1));
+				current.setLength(0);
+			}
+		}
+		if (!current.toString().isBlank()) {
+			statements.add(current.toString().trim());
+		}
+		return statements;
+	}
+
+	// "V1__secondary_indexes.sql" -> 1
+	private static int parseVersion(String script) {
+		return Integer.parseInt(script.substring(1, script.indexOf("__")));
+	}
+
+	// "V1__secondary_indexes.sql" -> "secondary indexes"
+	private static String parseDescription(String script) {
+		String name = script.substring(script.indexOf("__") + 2);
+		if (name.endsWith(".sql")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		return name.replace('_', ' ');
+	}
+
+	private static String checksum(String content) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,25 @@
+package com.kien.project.clinicmanagement.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Chuẩn hóa chuỗi để so khớp giống collation *_ai_ci của MySQL: bỏ dấu tiếng Việt và không phân biệt hoa thường
+public class TextNormalizer {
+
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	// "Nguyễn Văn Đức" -> "nguyen van duc"
+	public static String fold(String text) {
+		if (text == null || text.isEmpty())
+			return "";
+		// đ/Đ không tách được thành d + dấu nên phải thay riêng
+		String replaced = text.replace('đ', 'd').replace('Đ', 'D');
+		String decomposed = Normalizer.normalize(replaced, Normalizer.Form.NFD);
+		return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	public static boolean containsFolded(String text, String foldedKeyword) {
+		return fold(text).contains(foldedKeyword);
+	}
+}
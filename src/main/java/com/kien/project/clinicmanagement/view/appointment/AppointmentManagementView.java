@@ -4,7 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
-import java.util.List;
+import java.text.SimpleDateFormat;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -16,13 +16,14 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 
 import com.kien.project.clinicmanagement.controller.AppointmentController;
 import com.kien.project.clinicmanagement.model.Appointment;
 import com.kien.project.clinicmanagement.model.User;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
 import com.kien.project.clinicmanagement.utils.Session;
 import com.kien.project.clinicmanagement.utils.ShowMessage;
 import com.kien.project.clinicmanagement.utils.StyleConstants;
@@ -32,8 +33,13 @@ public class AppointmentManagementView extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 
+	// Mỗi lần truy vấn lấy 50 dòng, giữ tối đa 10 trang gần nhất trong bộ nhớ
+	private static final int FETCH_SIZE = 50;
+	private static final int MAX_CACHED_PAGES = 10;
+
 	private JTable appointmentTable;
-	private DefaultTableModel tableModel;
+	private JScrollPane tableScrollPane;
+	private LazyPagedTableModel<Appointment> tableModel;
 	private JTextField searchField;
 	private JComboBox<String> searchTypeCombo;
 	private JLabel pageInfoLabel;
@@ -45,7 +51,7 @@ public class AppointmentManagementView extends JPanel {
 
 	private JButton btnSearch, btnRefresh;
 
-	private JButton btnEdit, btnDelete, btnCancelAppointment, btnCheckIn, btnViewPatientProfile;
+	private JButton btnEdit, btnDelete, btnCancelAppointment, btnCheckIn, btnViewPatientProfile, btnExport;
 
 	private JButton btnPrevPage, btnNextPage;
 
@@ -104,14 +110,15 @@ public class AppointmentManagementView extends JPanel {
 		panel.setBorder(new EmptyBorder(0, 20, 10, 20));
 		String[] columnNames = new String[] { "No", "Patient Name", "Doctor Name", "Scheduled Date", "Note", "Status",
 				"Created By", "Created At" };
-		tableModel = new DefaultTableModel(columnNames, 0) {
-			@Override
-			public boolean isCellEditable(int row, int column) {
-				return false; // Chỉ đọc
-			}
-		};
+		SimpleDateFormat sdfDate = new SimpleDateFormat("yyyy-MM-dd"); // chỉ ngày tháng năm, dùng trên EDT
+		tableModel = new LazyPagedTableModel<>(columnNames, FETCH_SIZE, MAX_CACHED_PAGES,
+				(a, rowIndex) -> new Object[] { rowIndex + 1, a.getPatientName(), a.getDoctorName(),
+						a.getScheduledDate() != null ? sdfDate.format(a.getScheduledDate()) : "", a.getNote(),
+						a.getStatus(), a.getCreatedByName(),
+						a.getCreatedAt() != null ? sdfDate.format(a.getCreatedAt()) : "" });
 		appointmentTable = FormUtilities.createStyledTable(tableModel);
-		panel.add(new JScrollPane(appointmentTable), BorderLayout.CENTER);
+		tableScrollPane = new JScrollPane(appointmentTable);
+		panel.add(tableScrollPane, BorderLayout.CENTER);
 		return panel;
 	}
 
@@ -216,6 +223,8 @@ public class AppointmentManagementView extends JPanel {
 		btnViewPatientProfile = FormUtilities.styleButton(
 				createButton("View Patient Profile", "/images/for_button/patient_info.png"), StyleConstants.BUTTON_BG,
 				Color.BLACK);
+		btnExport = FormUtilities.styleButton(createButton("Export Excel", "/images/for_button/export_file.png"),
+				StyleConstants.BUTTON_BG, Color.BLACK);
 
 		crudPanel.add(new JLabel("Appointment Management:"));
 		crudPanel.add(btnEdit);
@@ -228,6 +237,10 @@ public class AppointmentManagementView extends JPanel {
 		}
 		crudPanel.add(new JLabel("Information:"));
 		crudPanel.add(btnViewPatientProfile);
+		// Bác sĩ chỉ xem lịch hẹn của mình nên không xuất toàn bộ lịch hẹn
+		if (!("Doctor".equalsIgnoreCase(user.getRole()))) {
+			crudPanel.add(btnExport);
+		}
 
 		pageInfoLabel = new JLabel("Page 1/1");
 		btnPrevPage = FormUtilities.styleButton(createButton("Prev", "/images/for_button/previous.png"),
@@ -252,26 +265,16 @@ public class AppointmentManagementView extends JPanel {
 		return FormUtilities.createIconButton(text, iconPath, 18);
 	}
 
-	public void renderAppointmentTable(List<Appointment> appointments, int startIndex) {
-	    tableModel.setRowCount(0);
-	    var sdfDate = new java.text.SimpleDateFormat("yyyy-MM-dd"); // chỉ ngày tháng năm
+	public int getFirstVisibleRow() {
+		return FormUtilities.getFirstVisibleRow(appointmentTable);
+	}
 
-	    for (int i = 0; i < appointments.size(); i++) {
-	        Appointment a = appointments.get(i);
-	        String scheduledStr = a.getScheduledDate() != null ? sdfDate.format(a.getScheduledDate()) : "";
-	        String createdAtStr = a.getCreatedAt() != null ? sdfDate.format(a.getCreatedAt()) : "";
+	public void scrollToRow(int rowIndex) {
+		FormUtilities.scrollToRow(appointmentTable, rowIndex);
+	}
 
-	        tableModel.addRow(new Object[] {
-	            startIndex + i + 1,
-	            a.getPatientName(),
-	            a.getDoctorName(),
-	            scheduledStr,
-	            a.getNote(),
-	            a.getStatus(),
-	            a.getCreatedByName(),
-	            createdAtStr
-	        });
-	    }
+	public void cancelLoading() {
+		tableModel.cancelLoading();
 	}
 
 	public void updatePageInfo(int currentPage, int totalPages) {
@@ -307,10 +310,14 @@ public class AppointmentManagementView extends JPanel {
 		return btnSelectDoctor;
 	}
 
-	public DefaultTableModel getTableModel() {
+	public LazyPagedTableModel<Appointment> getTableModel() {
 		return tableModel;
 	}
 
+	public JViewport getTableViewport() {
+		return tableScrollPane.getViewport();
+	}
+
 	public JTextField getPatientCodeField() {
 		return txtPatientCode;
 	}
@@ -387,6 +394,10 @@ public class AppointmentManagementView extends JPanel {
 		return btnCancelAppointment;
 	}
 
+	public JButton getExportButton() {
+		return btnExport;
+	}
+
 	public JTextArea getNoteTextArea() {
 		return txtNote;
 	}
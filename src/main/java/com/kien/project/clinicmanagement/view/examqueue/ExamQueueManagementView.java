@@ -4,7 +4,6 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.FlowLayout;
 import java.text.SimpleDateFormat;
-import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -15,12 +14,13 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 
 import com.kien.project.clinicmanagement.controller.ExamQueueController;
 import com.kien.project.clinicmanagement.model.ExamQueue;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
 import com.kien.project.clinicmanagement.utils.ShowMessage;
 import com.kien.project.clinicmanagement.utils.StyleConstants;
 
@@ -28,8 +28,13 @@ public class ExamQueueManagementView extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 
+	// Mỗi lần truy vấn lấy 50 dòng, giữ tối đa 10 trang gần nhất trong bộ nhớ
+	private static final int FETCH_SIZE = 50;
+	private static final int MAX_CACHED_PAGES = 10;
+
 	private JTable examQueueTable;
-	private DefaultTableModel tableModel;
+	private JScrollPane tableScrollPane;
+	private LazyPagedTableModel<ExamQueue> tableModel;
 	private JTextField searchField;
 	private JComboBox<String> searchTypeCombo;
 	private JLabel pageInfoLabel;
@@ -100,14 +105,14 @@ public class ExamQueueManagementView extends JPanel {
 		panel.setBorder(new EmptyBorder(0, 20, 10, 20));
 		String[] columnNames = new String[] { "No", "Patient Name", "Doctor Name", "Queue Number", "Status",
 				"Created By", "Created At" };
-		tableModel = new DefaultTableModel(columnNames, 0) {
-			@Override
-			public boolean isCellEditable(int row, int column) {
-				return false; // Chỉ đọc
-			}
-		};
+		SimpleDateFormat sdfDate = new SimpleDateFormat("yyyy-MM-dd"); // Dùng trên EDT
+		tableModel = new LazyPagedTableModel<>(columnNames, FETCH_SIZE, MAX_CACHED_PAGES,
+				(eq, rowIndex) -> new Object[] { rowIndex + 1, eq.getPatientName(), eq.getDoctorName(),
+						eq.getQueueNumber(), eq.getStatus(), eq.getCreatedByName(),
+						eq.getCreatedAt() != null ? sdfDate.format(eq.getCreatedAt()) : "" });
 		examQueueTable = FormUtilities.createStyledTable(tableModel);
-		panel.add(new JScrollPane(examQueueTable), BorderLayout.CENTER);
+		tableScrollPane = new JScrollPane(examQueueTable);
+		panel.add(tableScrollPane, BorderLayout.CENTER);
 		return panel;
 	}
 
@@ -198,24 +203,12 @@ public class ExamQueueManagementView extends JPanel {
 		return FormUtilities.createIconButton(text, iconPath, 18);
 	}
 
-	public void renderExamQueueTable(List<ExamQueue> queues, int startIndex) {
-		tableModel.setRowCount(0);
-		var sdfDate = new SimpleDateFormat("yyyy-MM-dd");
-		
-		for (int i = 0; i < queues.size(); i++) {
-			ExamQueue eq = queues.get(i);
-			String createdAtStr = eq.getCreatedAt() != null ? sdfDate.format(eq.getCreatedAt()) : "";
-			
-			tableModel.addRow(new Object[] { 
-					startIndex + i + 1, 
-					eq.getPatientName(), 
-					eq.getDoctorName(),
-					eq.getQueueNumber(), 
-					eq.getStatus(), 
-					eq.getCreatedByName(), 
-					createdAtStr
-			});
-		}
+	public int getFirstVisibleRow() {
+		return FormUtilities.getFirstVisibleRow(examQueueTable);
+	}
+
+	public void scrollToRow(int rowIndex) {
+		FormUtilities.scrollToRow(examQueueTable, rowIndex);
 	}
 
 	public void updatePageInfo(int currentPage, int totalPages) {
@@ -259,10 +252,14 @@ public class ExamQueueManagementView extends JPanel {
 		return serialVersionUID;
 	}
 
-	public DefaultTableModel getTableModel() {
+	public LazyPagedTableModel<ExamQueue> getTableModel() {
 		return tableModel;
 	}
 
+	public JViewport getTableViewport() {
+		return tableScrollPane.getViewport();
+	}
+
 	public JTextField getPatientCodeField() {
 		return txtPatientCode;
 	}
@@ -283,6 +280,10 @@ public class ExamQueueManagementView extends JPanel {
 		return examQueueController;
 	}
 
+	public void stopAutoRefresh() {
+		examQueueController.stopAutoRefresh();
+	}
+
 	public JTable getExamQueueTable() {
 		return examQueueTable;
 	}
@@ -41,7 +41,6 @@ public class MedicalExaminateView extends JPanel {
 	private JButton btnAddPrescriptionDetail, btnEditPrescriptionDetail, btnDeletePrescriptionDetail, btnAddAppointment;
 
 	private List<PrescriptionDetail> prescriptionDetails = new ArrayList<>();
-	@SuppressWarnings("unused")
 	private final MedicalExaminateController medicalExaminateController;
 
 	public MedicalExaminateView() {
@@ -306,10 +305,34 @@ public class MedicalExaminateView extends JPanel {
 	public void renderTable(List<ExamQueue> queues) {
 		queueTableModel.setRowCount(0);
 		for (ExamQueue eq : queues) {
-			queueTableModel.addRow(new Object[] { eq.getQueueNumber(), eq.getPatientName() });
+			queueTableModel.addRow(toQueueRow(eq));
 		}
 	}
 
+	// Cập nhật từng dòng theo delta, giữ nguyên dòng đang chọn của bác sĩ
+	public void insertQueueRow(int index, ExamQueue eq) {
+		queueTableModel.insertRow(index, toQueueRow(eq));
+	}
+
+	public void updateQueueRow(int index, ExamQueue eq) {
+		Object[] row = toQueueRow(eq);
+		for (int col = 0; col < row.length; col++) {
+			queueTableModel.setValueAt(row[col], index, col);
+		}
+	}
+
+	public void removeQueueRow(int index) {
+		queueTableModel.removeRow(index);
+	}
+
+	public void stopAutoRefresh() {
+		medicalExaminateController.stopAutoRefresh();
+	}
+
+	private Object[] toQueueRow(ExamQueue eq) {
+		return new Object[] { eq.getQueueNumber(), eq.getPatientName() };
+	}
+
 	public void setPrescriptionDetailTablePanel(JPanel panel) {
 		prescriptionDetailTableContainer.removeAll();
 		prescriptionDetailTableContainer.add(panel, BorderLayout.CENTER);
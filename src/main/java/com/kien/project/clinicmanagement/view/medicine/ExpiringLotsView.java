@@ -0,0 +1,127 @@
+package com.kien.project.clinicmanagement.view.medicine;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+
+import com.kien.project.clinicmanagement.model.MedicineLot;
+import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.StyleConstants;
+
+// Báo cáo các lô còn hàng sắp hết hạn, hạn gần nhất trước
+public class ExpiringLotsView extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+	private static final Integer[] DAY_OPTIONS = { 30, 60, 90, 180 };
+
+	private DefaultTableModel lotModel;
+	private JComboBox<Integer> daysCombo;
+	private JLabel summaryLabel;
+	private JButton btnClose;
+
+	// ----------------- Constructor ---------------
+	public ExpiringLotsView(JFrame owner) {
+		super(owner, "Expiring Lots", true);
+
+		setSize(760, 480);
+		setLocationRelativeTo(owner);
+		setLayout(new BorderLayout());
+		getContentPane().setBackground(StyleConstants.COLOR_WHITE);
+
+		add(buildHeader(), BorderLayout.NORTH);
+		add(buildTablePanel(), BorderLayout.CENTER);
+		add(buildFooterPanel(), BorderLayout.SOUTH);
+	}
+
+	private JPanel buildHeader() {
+		JPanel headerPanel = new JPanel(new BorderLayout());
+		headerPanel.setBackground(StyleConstants.COLOR_BLUE_50);
+		headerPanel.setBorder(new EmptyBorder(10, 20, 0, 20));
+
+		JLabel title = new JLabel("Expiring Lots", JLabel.CENTER);
+		title.setFont(StyleConstants.TITLE_FONT);
+		title.setForeground(StyleConstants.COLOR_BLUE_800);
+		title.setBorder(new EmptyBorder(10, 0, 10, 0));
+
+		daysCombo = new JComboBox<>(DAY_OPTIONS);
+		summaryLabel = new JLabel(" ");
+
+		JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+		filterPanel.setOpaque(false);
+		filterPanel.add(new JLabel("Expiring within (days):"));
+		filterPanel.add(daysCombo);
+		filterPanel.add(summaryLabel);
+
+		headerPanel.add(title, BorderLayout.NORTH);
+		headerPanel.add(filterPanel, BorderLayout.SOUTH);
+		return headerPanel;
+	}
+
+	private JScrollPane buildTablePanel() {
+		String[] columns = { "Medicine", "Lot Number", "Expiry Date", "Days Left", "Quantity" };
+		lotModel = new DefaultTableModel(columns, 0) {
+			@Override
+			public boolean isCellEditable(int row, int column) {
+				return false; // Chỉ đọc
+			}
+		};
+
+		JTable lotTable = FormUtilities.createStyledTable(lotModel);
+		lotTable.setFillsViewportHeight(true);
+		lotTable.getTableHeader().setReorderingAllowed(false);
+
+		JScrollPane scrollPane = new JScrollPane(lotTable);
+		scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+		return scrollPane;
+	}
+
+	private JPanel buildFooterPanel() {
+		JButton closeButton = FormUtilities.createTextButton("Close");
+		closeButton.setPreferredSize(new Dimension(100, 30));
+		btnClose = FormUtilities.styleButton(closeButton, StyleConstants.BUTTON_BG, StyleConstants.NORMAL_TEXT_COLOR);
+		btnClose.addActionListener(e -> dispose());
+
+		JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 10));
+		panel.setBackground(StyleConstants.COLOR_BLUE_50);
+		panel.add(btnClose);
+		return panel;
+	}
+
+	// medicineName: tra tên thuốc theo mã để hiển thị
+	public void renderLots(List<MedicineLot> lots, Function<String, String> medicineName) {
+		LocalDate today = LocalDate.now();
+		int totalQuantity = 0;
+		lotModel.setRowCount(0);
+		for (MedicineLot lot : lots) {
+			lotModel.addRow(new Object[] { medicineName.apply(lot.getMedicineCode()), lot.getLotNumber(),
+					lot.getExpiryDate(), ChronoUnit.DAYS.between(today, lot.getExpiryDate()), lot.getQuantity() });
+			totalQuantity += lot.getQuantity();
+		}
+		summaryLabel.setText(lots.size() + " lot(s), " + totalQuantity + " unit(s)");
+	}
+
+	// --------------- Getter for Controller--------------
+	public JComboBox<Integer> getDaysCombo() {
+		return daysCombo;
+	}
+
+	public int getSelectedDays() {
+		return (Integer) daysCombo.getSelectedItem();
+	}
+}
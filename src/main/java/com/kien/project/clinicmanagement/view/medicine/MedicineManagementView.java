@@ -6,7 +6,6 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
-import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -20,14 +19,16 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.border.EmptyBorder;
+import javax.swing.JViewport;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableModel;
 
 import com.kien.project.clinicmanagement.controller.MedicineController;
 import com.kien.project.clinicmanagement.model.Medicine;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
 import com.kien.project.clinicmanagement.utils.ShowMessage;
 import com.kien.project.clinicmanagement.utils.StyleConstants;
 
@@ -35,15 +36,20 @@ public class MedicineManagementView extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 
+	// Mỗi lần truy vấn lấy 50 dòng, giữ tối đa 10 trang gần nhất trong bộ nhớ
+	private static final int FETCH_SIZE = 50;
+	private static final int MAX_CACHED_PAGES = 10;
+
 	private JTable medicineTable;
-	private DefaultTableModel tableModel;
+	private JScrollPane tableScrollPane;
+	private LazyPagedTableModel<Medicine> tableModel;
 	private JTextField searchField;
 	private JComboBox<String> searchTypeCombo;
 	private JLabel pageInfoLabel;
 
 	private JButton btnSearch, btnRefresh;
 	
-	private JButton btnAdd, btnEdit, btnDelete, btnAddStock;
+	private JButton btnAdd, btnEdit, btnDelete, btnAddStock, btnStockHistory, btnExpiringLots, btnImport;
 	
 	private JButton btnPrevPage, btnNextPage;
 
@@ -57,7 +63,7 @@ public class MedicineManagementView extends JPanel {
 		setBackground(StyleConstants.COLOR_WHITE);
 		
 		initComponents();
-		medicineController = new MedicineController(this, tableModel);
+		medicineController = new MedicineController(this);
 	}
 
 	private void initComponents() {
@@ -67,7 +73,7 @@ public class MedicineManagementView extends JPanel {
 	}
 
 	// Hàm tạo bảng với phân biệt lowStock và normalStock
-	public static JTable createStyledMedicineTable(DefaultTableModel model) {
+	public static JTable createStyledMedicineTable(TableModel model) {
 		JTable table = new JTable(model) {
 			@Override
 			public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
@@ -150,14 +156,12 @@ public class MedicineManagementView extends JPanel {
 		panel.setBackground(StyleConstants.COLOR_WHITE);
 		panel.setBorder(new EmptyBorder(0, 20, 10, 20));
 		String[] columnNames =  new String[] { "No", "Name", "Description", "Unit", "Price", "Min Age", "Max Age", "Quantity" };
-		tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Chỉ đọc
-            }
-        };
+		tableModel = new LazyPagedTableModel<>(columnNames, FETCH_SIZE, MAX_CACHED_PAGES,
+				(m, rowIndex) -> new Object[] { rowIndex + 1, m.getName(), m.getDescription(), m.getUnit(),
+						m.getPrice(), m.getMinAge(), m.getMaxAge(), m.getQuantity() });
 		medicineTable = createStyledMedicineTable(tableModel);
-		panel.add(new JScrollPane(medicineTable), BorderLayout.CENTER);
+		tableScrollPane = new JScrollPane(medicineTable);
+		panel.add(tableScrollPane, BorderLayout.CENTER);
 		return panel;
 	}
 
@@ -176,12 +180,18 @@ public class MedicineManagementView extends JPanel {
         btnDelete = FormUtilities.styleButton(createButton("Delete", "/images/for_button/delete.png"),
                 new Color(239, 83, 80), Color.WHITE);
 		btnAddStock = FormUtilities.styleButton(createButton("Add Stock", "/images/for_button/add_stock.png"),StyleConstants.BUTTON_BG, Color.BLACK);
+		btnStockHistory = FormUtilities.styleButton(createButton("Stock History", "/images/for_button/view_user_log.png"),StyleConstants.BUTTON_BG, Color.BLACK);
+		btnExpiringLots = FormUtilities.styleButton(createButton("Expiring Lots", "/images/for_button/medicine_management.png"),StyleConstants.BUTTON_BG, Color.BLACK);
+		btnImport = FormUtilities.styleButton(createButton("Import Excel", "/images/for_button/import_file.png"),StyleConstants.BUTTON_BG, Color.BLACK);
 
 		crudPanel.add(new JLabel("Medicine Management:"));
 		crudPanel.add(btnAdd);
 		crudPanel.add(btnEdit);
 		crudPanel.add(btnDelete);
 		crudPanel.add(btnAddStock);
+		crudPanel.add(btnStockHistory);
+		crudPanel.add(btnExpiringLots);
+		crudPanel.add(btnImport);
 
 		pageInfoLabel = new JLabel("Page 1/1");
 		btnPrevPage = FormUtilities.styleButton(createButton("Prev", "/images/for_button/previous.png"),
@@ -220,13 +230,16 @@ public class MedicineManagementView extends JPanel {
 		return FormUtilities.createIconButton(text, iconPath, 18);
 	}
 
-	public void renderMedicineTable(List<Medicine> medicines, int startIndex) {
-		tableModel.setRowCount(0);
-		for (int i = 0; i < medicines.size(); i++) {
-			Medicine m = medicines.get(i);
-			tableModel.addRow(new Object[] { startIndex + i + 1, m.getName(), m.getDescription(), m.getUnit(),
-					m.getPrice(), m.getMinAge(), m.getMaxAge(), m.getQuantity() });
-		}
+	public int getFirstVisibleRow() {
+		return FormUtilities.getFirstVisibleRow(medicineTable);
+	}
+
+	public void scrollToRow(int rowIndex) {
+		FormUtilities.scrollToRow(medicineTable, rowIndex);
+	}
+
+	public void cancelLoading() {
+		tableModel.cancelLoading();
 	}
 
 	public void updatePageInfo(int currentPage, int totalPages) {
@@ -262,6 +275,14 @@ public class MedicineManagementView extends JPanel {
 		return medicineTable;
 	}
 
+	public LazyPagedTableModel<Medicine> getMedicineTableModel() {
+		return tableModel;
+	}
+
+	public JViewport getTableViewport() {
+		return tableScrollPane.getViewport();
+	}
+
 	public JTextField getSearchField() {
 		return searchField;
 	}
@@ -286,6 +307,18 @@ public class MedicineManagementView extends JPanel {
 		return btnAddStock;
 	}
 
+	public JButton getStockHistoryButton() {
+		return btnStockHistory;
+	}
+
+	public JButton getExpiringLotsButton() {
+		return btnExpiringLots;
+	}
+
+	public JButton getImportButton() {
+		return btnImport;
+	}
+
 	public JButton getAddButton() {
 		return btnAdd;
 	}
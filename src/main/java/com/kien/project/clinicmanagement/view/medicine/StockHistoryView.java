@@ -0,0 +1,214 @@
+package com.kien.project.clinicmanagement.view.medicine;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+
+import com.kien.project.clinicmanagement.model.InventoryMovement;
+import com.kien.project.clinicmanagement.model.Medicine;
+import com.kien.project.clinicmanagement.model.MedicineLot;
+import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.ShowMessage;
+import com.kien.project.clinicmanagement.utils.StyleConstants;
+
+// Sổ kho của một thuốc: tồn kho tại một ngày, các dòng nhập/xuất trong khoảng ngày đã chọn và các lô còn hàng
+public class StockHistoryView extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+	private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private final Medicine medicine;
+	private DefaultTableModel movementModel, lotModel;
+	private JTable movementTable;
+	private JTextField fromField, toField;
+	private JLabel stockAtLabel, pageInfoLabel;
+	private JButton btnShow, btnPrevPage, btnNextPage, btnClose;
+
+	// ----------------- Constructor ---------------
+	public StockHistoryView(JFrame owner, Medicine medicine) {
+		super(owner, "Stock History - " + medicine.getName(), true);
+		this.medicine = medicine;
+
+		setSize(820, 520);
+		setLocationRelativeTo(owner);
+		setLayout(new BorderLayout());
+		getContentPane().setBackground(StyleConstants.COLOR_WHITE);
+
+		JTabbedPane tabbedPane = new JTabbedPane();
+		tabbedPane.addTab("Movements", buildMovementPanel());
+		tabbedPane.addTab("Lots", buildLotPanel());
+
+		add(buildHeader(), BorderLayout.NORTH);
+		add(tabbedPane, BorderLayout.CENTER);
+		add(buildFooterPanel(), BorderLayout.SOUTH);
+	}
+
+	private JPanel buildHeader() {
+		JPanel headerPanel = new JPanel(new BorderLayout());
+		headerPanel.setBackground(StyleConstants.COLOR_BLUE_50);
+		headerPanel.setBorder(new EmptyBorder(10, 20, 0, 20));
+
+		JLabel title = new JLabel("Stock History - " + medicine.getName(), JLabel.CENTER);
+		title.setFont(StyleConstants.TITLE_FONT);
+		title.setForeground(StyleConstants.COLOR_BLUE_800);
+		title.setBorder(new EmptyBorder(10, 0, 10, 0));
+
+		fromField = new JTextField(10);
+		toField = new JTextField(10);
+		btnShow = FormUtilities.styleButton(createButtonNoIcon("Show"), new Color(66, 165, 245), Color.WHITE);
+		stockAtLabel = new JLabel(" ");
+		stockAtLabel.setFont(StyleConstants.LABEL_BOLD);
+
+		JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+		filterPanel.setOpaque(false);
+		filterPanel.add(new JLabel("From (yyyy-MM-dd):"));
+		filterPanel.add(fromField);
+		filterPanel.add(new JLabel("To:"));
+		filterPanel.add(toField);
+		filterPanel.add(btnShow);
+		filterPanel.add(stockAtLabel);
+
+		headerPanel.add(title, BorderLayout.NORTH);
+		headerPanel.add(filterPanel, BorderLayout.SOUTH);
+		return headerPanel;
+	}
+
+	private JScrollPane buildMovementPanel() {
+		String[] columns = { "Time", "Type", "Quantity", "Reference" };
+		movementModel = new DefaultTableModel(columns, 0) {
+			@Override
+			public boolean isCellEditable(int row, int column) {
+				return false; // Chỉ đọc
+			}
+		};
+
+		movementTable = FormUtilities.createStyledTable(movementModel);
+		movementTable.setFillsViewportHeight(true);
+		movementTable.getTableHeader().setReorderingAllowed(false);
+
+		JScrollPane scrollPane = new JScrollPane(movementTable);
+		scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+		return scrollPane;
+	}
+
+	// Các lô còn hàng theo thứ tự sẽ được xuất (FEFO)
+	private JScrollPane buildLotPanel() {
+		String[] columns = { "Lot Number", "Expiry Date", "Quantity", "Received At" };
+		lotModel = new DefaultTableModel(columns, 0) {
+			@Override
+			public boolean isCellEditable(int row, int column) {
+				return false; // Chỉ đọc
+			}
+		};
+
+		JTable lotTable = FormUtilities.createStyledTable(lotModel);
+		lotTable.setFillsViewportHeight(true);
+		lotTable.getTableHeader().setReorderingAllowed(false);
+
+		JScrollPane scrollPane = new JScrollPane(lotTable);
+		scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+		return scrollPane;
+	}
+
+	private JPanel buildFooterPanel() {
+		pageInfoLabel = new JLabel("Page 1/1");
+		btnPrevPage = FormUtilities.styleButton(createButtonNoIcon("Prev"), new Color(189, 189, 189), Color.BLACK);
+		btnNextPage = FormUtilities.styleButton(createButtonNoIcon("Next"), new Color(189, 189, 189), Color.BLACK);
+		btnClose = FormUtilities.styleButton(createButtonNoIcon("Close"), StyleConstants.BUTTON_BG,
+				StyleConstants.NORMAL_TEXT_COLOR);
+		btnClose.addActionListener(e -> dispose());
+
+		JPanel closePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 10));
+		closePanel.setOpaque(false);
+		closePanel.add(btnClose);
+
+		JPanel panel = new JPanel(new BorderLayout());
+		panel.setBackground(StyleConstants.COLOR_BLUE_50);
+		panel.setBorder(new EmptyBorder(0, 20, 0, 5));
+		panel.add(FormUtilities.createPaginationPanel(btnPrevPage, pageInfoLabel, btnNextPage), BorderLayout.WEST);
+		panel.add(closePanel, BorderLayout.EAST);
+		return panel;
+	}
+
+	public void renderMovements(List<InventoryMovement> movements) {
+		movementModel.setRowCount(0);
+		for (InventoryMovement movement : movements) {
+			int delta = movement.getQuantityDelta();
+			movementModel.addRow(new Object[] {
+					movement.getCreatedAt() != null ? movement.getCreatedAt().format(DATE_TIME_FORMAT) : "",
+					movement.getType(), (delta > 0 ? "+" : "") + delta, movement.getReference() });
+		}
+	}
+
+	public void renderLots(List<MedicineLot> lots) {
+		lotModel.setRowCount(0);
+		for (MedicineLot lot : lots) {
+			lotModel.addRow(new Object[] { lot.getLotNumber(),
+					lot.getExpiryDate() != null ? lot.getExpiryDate().toString() : "No expiry", lot.getQuantity(),
+					lot.getReceivedAt() != null ? lot.getReceivedAt().format(DATE_TIME_FORMAT) : "" });
+		}
+	}
+
+	public void setStockAtText(String text) {
+		stockAtLabel.setText(text);
+	}
+
+	public void updatePageInfo(int currentPage, int totalPages) {
+		pageInfoLabel.setText("Page " + currentPage + "/" + totalPages);
+	}
+
+	private JButton createButtonNoIcon(String text) {
+		JButton button = FormUtilities.createTextButton(text);
+		button.setPreferredSize(new Dimension(100, 30));
+		return button;
+	}
+
+	public void showError(String message) {
+		ShowMessage.showError(this, message);
+	}
+
+	public void showWarning(String message) {
+		ShowMessage.showWarning(this, message);
+	}
+
+	// --------------- Getter for Controller--------------
+	public Medicine getMedicine() {
+		return medicine;
+	}
+
+	public JTextField getFromField() {
+		return fromField;
+	}
+
+	public JTextField getToField() {
+		return toField;
+	}
+
+	public JButton getShowButton() {
+		return btnShow;
+	}
+
+	public JButton getPrevPageButton() {
+		return btnPrevPage;
+	}
+
+	public JButton getNextPageButton() {
+		return btnNextPage;
+	}
+}
@@ -0,0 +1,198 @@
+package com.kien.project.clinicmanagement.view.patient;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+
+import com.kien.project.clinicmanagement.dto.PendingRegistration;
+import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.ShowMessage;
+import com.kien.project.clinicmanagement.utils.StyleConstants;
+
+// Hàng chờ đăng ký từ thư mục quét QR; không chặn (modeless) để lễ tân vẫn dùng màn hình bệnh nhân
+public class PatientIntakeView extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+	private DefaultTableModel tableModel;
+	private JTable registrationTable;
+	private JLabel folderLabel, statusLabel;
+	private JButton btnChooseFolder, btnStartStop, btnRegister, btnDiscard, btnClose;
+	// Dòng i của bảng ứng với phần tử i
+	private List<PendingRegistration> registrations = new ArrayList<>();
+
+	// ----------------- Constructor ---------------
+	public PatientIntakeView(JFrame owner) {
+		super(owner, "QR Intake Queue", false);
+
+		setSize(820, 480);
+		setLocationRelativeTo(owner);
+		setLayout(new BorderLayout());
+		getContentPane().setBackground(StyleConstants.COLOR_WHITE);
+
+		add(buildHeader(), BorderLayout.NORTH);
+		add(buildTablePanel(), BorderLayout.CENTER);
+		add(buildFooterPanel(), BorderLayout.SOUTH);
+	}
+
+	private JPanel buildHeader() {
+		JPanel headerPanel = new JPanel(new BorderLayout());
+		headerPanel.setBackground(StyleConstants.COLOR_BLUE_50);
+		headerPanel.setBorder(new EmptyBorder(10, 20, 10, 20));
+
+		JLabel title = new JLabel("QR Intake Queue", JLabel.CENTER);
+		title.setFont(StyleConstants.TITLE_FONT);
+		title.setForeground(StyleConstants.COLOR_BLUE_800);
+		headerPanel.add(title, BorderLayout.NORTH);
+
+		folderLabel = new JLabel("Folder: -");
+		btnChooseFolder = FormUtilities.styleButton(createButtonNoIcon("Choose Folder"), StyleConstants.BUTTON_BG,
+				StyleConstants.NORMAL_TEXT_COLOR);
+		btnStartStop = FormUtilities.styleButton(createButtonNoIcon("Start"), StyleConstants.BUTTON_BG,
+				StyleConstants.NORMAL_TEXT_COLOR);
+
+		JPanel folderPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+		folderPanel.setOpaque(false);
+		folderPanel.add(folderLabel);
+		folderPanel.add(btnChooseFolder);
+		folderPanel.add(btnStartStop);
+		headerPanel.add(folderPanel, BorderLayout.CENTER);
+		return headerPanel;
+	}
+
+	private JScrollPane buildTablePanel() {
+		String[] columns = { "Received", "File", "Name", "Date of Birth", "Citizen ID", "Phone Number", "Note" };
+		tableModel = new DefaultTableModel(columns, 0) {
+			@Override
+			public boolean isCellEditable(int row, int column) {
+				return false; // Chỉ đọc
+			}
+		};
+
+		registrationTable = FormUtilities.createStyledTable(tableModel);
+		registrationTable.setFillsViewportHeight(true);
+		registrationTable.getTableHeader().setReorderingAllowed(false);
+
+		JScrollPane scrollPane = new JScrollPane(registrationTable);
+		scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		return scrollPane;
+	}
+
+	private JPanel buildFooterPanel() {
+		statusLabel = new JLabel("Stopped");
+		btnRegister = FormUtilities.styleButton(createButtonNoIcon("Register"), StyleConstants.BUTTON_BG,
+				StyleConstants.NORMAL_TEXT_COLOR);
+		btnDiscard = FormUtilities.styleButton(createButtonNoIcon("Discard"), StyleConstants.BUTTON_BG,
+				StyleConstants.NORMAL_TEXT_COLOR);
+		btnClose = FormUtilities.styleButton(createButtonNoIcon("Close"), StyleConstants.BUTTON_BG,
+				StyleConstants.NORMAL_TEXT_COLOR);
+
+		JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 10));
+		buttons.setOpaque(false);
+		buttons.add(btnRegister);
+		buttons.add(btnDiscard);
+		buttons.add(btnClose);
+
+		JPanel panel = new JPanel(new BorderLayout());
+		panel.setBackground(StyleConstants.COLOR_BLUE_50);
+		panel.setBorder(new EmptyBorder(0, 20, 0, 5));
+		panel.add(statusLabel, BorderLayout.WEST);
+		panel.add(buttons, BorderLayout.EAST);
+		return panel;
+	}
+
+	// Nạp lại bảng, giữ dòng đang chọn nếu nó vẫn còn trong hàng chờ
+	public void setRegistrations(List<PendingRegistration> registrations) {
+		PendingRegistration selected = getSelectedRegistration();
+		this.registrations = new ArrayList<>(registrations);
+		tableModel.setRowCount(0);
+
+		int selectedRow = -1;
+		for (PendingRegistration registration : this.registrations) {
+			if (selected != null && registration.getId() == selected.getId()) {
+				selectedRow = tableModel.getRowCount();
+			}
+			tableModel.addRow(new Object[] { registration.getReceivedAt().format(TIME_FORMAT),
+					registration.getSourceFile().getFileName().toString(), registration.getPatient().getName(),
+					registration.getPatient().getDateOfBirth(), registration.getPatient().getCitizenId(),
+					registration.getPatient().getPhoneNumber(),
+					registration.isAlreadyRegistered()
+							? "Already registered as " + registration.getExistingPatientCode()
+							: "New patient" });
+		}
+		if (selectedRow >= 0) {
+			registrationTable.setRowSelectionInterval(selectedRow, selectedRow);
+		}
+	}
+
+	public PendingRegistration getSelectedRegistration() {
+		int row = registrationTable.getSelectedRow();
+		return (row >= 0 && row < registrations.size()) ? registrations.get(row) : null;
+	}
+
+	public void setFolderText(String folder) {
+		folderLabel.setText("Folder: " + folder);
+	}
+
+	public void setRunning(boolean running) {
+		btnStartStop.setText(running ? "Stop" : "Start");
+		btnChooseFolder.setEnabled(!running);
+	}
+
+	public void setStatusText(String status) {
+		statusLabel.setText(status);
+	}
+
+	private JButton createButtonNoIcon(String text) {
+		JButton button = FormUtilities.createTextButton(text);
+		button.setPreferredSize(new Dimension(140, 35));
+		return button;
+	}
+
+	public void showInfo(String message) {
+		ShowMessage.showInfo(this, message);
+	}
+
+	public void showError(String message) {
+		ShowMessage.showError(this, message);
+	}
+
+	public void showWarning(String message) {
+		ShowMessage.showWarning(this, message);
+	}
+
+	public JButton getChooseFolderButton() {
+		return btnChooseFolder;
+	}
+
+	public JButton getStartStopButton() {
+		return btnStartStop;
+	}
+
+	public JButton getRegisterButton() {
+		return btnRegister;
+	}
+
+	public JButton getDiscardButton() {
+		return btnDiscard;
+	}
+
+	public JButton getCloseButton() {
+		return btnClose;
+	}
+}
@@ -3,8 +3,6 @@ package com.kien.project.clinicmanagement.view.patient;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.FlowLayout;
-import java.util.List;
-
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
@@ -13,12 +11,13 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 
 import com.kien.project.clinicmanagement.controller.PatientController;
 import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.utils.FormUtilities;
+import com.kien.project.clinicmanagement.utils.LazyPagedTableModel;
 import com.kien.project.clinicmanagement.utils.ShowMessage;
 import com.kien.project.clinicmanagement.utils.StyleConstants;
 
@@ -26,15 +25,20 @@ public class PatientManagementView extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 
+	// Mỗi lần truy vấn lấy 50 dòng, giữ tối đa 10 trang gần nhất trong bộ nhớ
+	private static final int FETCH_SIZE = 50;
+	private static final int MAX_CACHED_PAGES = 10;
+
 	private JTable patientTable;
-	private DefaultTableModel tableModel;
+	private JScrollPane tableScrollPane;
+	private LazyPagedTableModel<Patient> tableModel;
 	private JTextField searchField;
 	private JComboBox<String> searchTypeCombo;
 	private JLabel pageInfoLabel;
 
 	private JButton btnSearch, btnRefresh;
 
-	private JButton btnAdd, btnEdit, btnDelete, btnViewPatientProfile, btnScanPatient;
+	private JButton btnAdd, btnEdit, btnDelete, btnViewPatientProfile, btnScanPatient, btnIntake, btnExport, btnImport;
 
 	private JButton btnPrevPage, btnNextPage;
 
@@ -69,7 +73,7 @@ public class PatientManagementView extends JPanel {
 		JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
 		searchPanel.setOpaque(false);
 		searchField = new JTextField(18);
-		searchTypeCombo = new JComboBox<>(new String[] { "Search by name", "Search by phone number", "Search by citizen id" });
+		searchTypeCombo = new JComboBox<>(new String[] { "Search by name", "Search by phone number", "Search by citizen id", "Search by code" });
 		btnSearch = FormUtilities.styleButton(createButton("Search", "/images/for_button/search.png"),new Color(66, 165, 245),Color.WHITE);
 		btnRefresh = FormUtilities.styleButton(createButton("Refresh", "/images/for_button/refresh.png"),new Color(38, 166, 154),Color.WHITE);
 		
@@ -93,14 +97,12 @@ public class PatientManagementView extends JPanel {
 		panel.setBackground(StyleConstants.COLOR_WHITE);
 		panel.setBorder(new EmptyBorder(0, 20, 10, 20));
 		String[] columnNames = new String[] { "No", "Name", "Phone", "Address", "Citizen ID", "Gender" };
-		tableModel = new DefaultTableModel(columnNames, 0) {
-			@Override
-			public boolean isCellEditable(int row, int column) {
-				return false; // Chỉ đọc
-			}
-		};
+		tableModel = new LazyPagedTableModel<>(columnNames, FETCH_SIZE, MAX_CACHED_PAGES,
+				(p, rowIndex) -> new Object[] { rowIndex + 1, p.getName(), p.getPhoneNumber(), p.getAddress(),
+						p.getCitizenId(), p.getGender() });
 		patientTable = FormUtilities.createStyledTable(tableModel);
-		panel.add(new JScrollPane(patientTable), BorderLayout.CENTER);
+		tableScrollPane = new JScrollPane(patientTable);
+		panel.add(tableScrollPane, BorderLayout.CENTER);
 		return panel;
 	}
 
@@ -120,14 +122,20 @@ public class PatientManagementView extends JPanel {
 				new Color(239, 83, 80), Color.WHITE);
 		btnViewPatientProfile = FormUtilities.styleButton(createButton("View Patient Profile", "/images/for_button/user_detail.png"),StyleConstants.BUTTON_BG, Color.BLACK);
 		btnScanPatient = FormUtilities.styleButton(createButton("View Patient Profile", "/images/for_button/scan_patient.png"),StyleConstants.BUTTON_BG, Color.BLACK);
+		btnIntake = FormUtilities.styleButton(createButton("QR Intake", "/images/for_button/check_in.png"),StyleConstants.BUTTON_BG, Color.BLACK);
+		btnExport = FormUtilities.styleButton(createButton("Export Excel", "/images/for_button/export_file.png"),StyleConstants.BUTTON_BG, Color.BLACK);
+		btnImport = FormUtilities.styleButton(createButton("Import Excel", "/images/for_button/import_file.png"),StyleConstants.BUTTON_BG, Color.BLACK);
 
 		crudPanel.add(new JLabel("Patient Management:"));
 		crudPanel.add(btnAdd);
 		crudPanel.add(btnEdit);
 		crudPanel.add(btnDelete);
 		crudPanel.add(btnScanPatient);
+		crudPanel.add(btnIntake);
+		crudPanel.add(btnImport);
 		crudPanel.add(new JLabel("Information:"));
 		crudPanel.add(btnViewPatientProfile);
+		crudPanel.add(btnExport);
 
 		pageInfoLabel = new JLabel("Page 1/1");
 		btnPrevPage = FormUtilities.styleButton(createButton("Prev", "/images/for_button/previous.png"),
@@ -145,13 +153,16 @@ public class PatientManagementView extends JPanel {
 		return FormUtilities.createIconButton(text, iconPath, 18);
 	}
 
-	public void renderPatientTable(List<Patient> patients, int startIndex) {
-		tableModel.setRowCount(0);
-		for (int i = 0; i < patients.size(); i++) {
-			Patient p = patients.get(i);
-			tableModel.addRow(new Object[] { startIndex + i + 1, p.getName(), p.getPhoneNumber(), p.getAddress(),
-					p.getCitizenId(), p.getGender() });
-		}
+	public int getFirstVisibleRow() {
+		return FormUtilities.getFirstVisibleRow(patientTable);
+	}
+
+	public void scrollToRow(int rowIndex) {
+		FormUtilities.scrollToRow(patientTable, rowIndex);
+	}
+
+	public void cancelLoading() {
+		tableModel.cancelLoading();
 	}
 
 	public void updatePageInfo(int currentPage, int totalPages) {
@@ -183,6 +194,14 @@ public class PatientManagementView extends JPanel {
 		return patientTable;
 	}
 
+	public LazyPagedTableModel<Patient> getPatientTableModel() {
+		return tableModel;
+	}
+
+	public JViewport getTableViewport() {
+		return tableScrollPane.getViewport();
+	}
+
 	public JTextField getSearchField() {
 		return searchField;
 	}
@@ -230,4 +249,16 @@ public class PatientManagementView extends JPanel {
 	public JButton getScanPatientButton() {
 		return btnScanPatient;
 	}
+
+	public JButton getIntakeButton() {
+		return btnIntake;
+	}
+
+	public JButton getExportButton() {
+		return btnExport;
+	}
+
+	public JButton getImportButton() {
+		return btnImport;
+	}
 }
@@ -21,10 +21,13 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 
+import com.kien.project.clinicmanagement.dto.MedicalNoteFilter;
+import com.kien.project.clinicmanagement.dto.PagedResult;
 import com.kien.project.clinicmanagement.model.MedicalResult;
 import com.kien.project.clinicmanagement.model.Patient;
 import com.kien.project.clinicmanagement.model.Prescription;
@@ -39,8 +42,16 @@ public class PatientProfileView extends JDialog {
 
 	private static final long serialVersionUID = 1L;
 
+	// Số kết quả tối đa khi tìm trong ghi chú khám của một bệnh nhân
+	private static final int NOTE_SEARCH_LIMIT = 200;
+
+	private final MedicalResultService medicalResultService = new MedicalResultService();
+
 	private Patient patient;
 	private JTable prescriptionTable;
+	private DefaultTableModel medicalResultModel;
+	private JTextField noteSearchField;
+	private JLabel noteSearchStatus;
 
 	private JTabbedPane tabbedPane;
 	private JButton btnClose, btnEditProfile, btnViewDetail;
@@ -159,7 +170,7 @@ public class PatientProfileView extends JDialog {
 
 		String[] columns = { "Date", "Doctor", "Symptoms", "Diagnosis", "Treatment Plan" };
 
-		DefaultTableModel model = new DefaultTableModel(columns, 0) {
+		medicalResultModel = new DefaultTableModel(columns, 0) {
 			@Override
 			public boolean isCellEditable(int row, int column) {
 				return false; // Chỉ đọc
@@ -167,27 +178,65 @@ public class PatientProfileView extends JDialog {
 		};
 
 		// Tạo bảng chuẩn theo FormUtilities
-		JTable table = FormUtilities.createStyledTable(model);
+		JTable table = FormUtilities.createStyledTable(medicalResultModel);
 		table.setFillsViewportHeight(true);
 		table.getTableHeader().setReorderingAllowed(false);
 
+		// Tìm trong ghi chú khám của bệnh nhân này; chỉ tìm khi nhấn Enter hoặc nút Search
+		noteSearchField = new JTextField(24);
+		noteSearchField.setToolTipText("Words in symptoms, diagnosis or treatment plan; use \"...\" for a phrase");
+		JButton btnSearchNotes = createButtonNoIcon("Search");
+		btnSearchNotes.setPreferredSize(new Dimension(100, 30));
+		noteSearchField.addActionListener(e -> searchMedicalNotes(patientCode));
+		btnSearchNotes.addActionListener(e -> searchMedicalNotes(patientCode));
+		noteSearchStatus = new JLabel(" ");
+
+		JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+		searchPanel.setOpaque(false);
+		searchPanel.add(new JLabel("Search notes:"));
+		searchPanel.add(noteSearchField);
+		searchPanel.add(btnSearchNotes);
+		searchPanel.add(noteSearchStatus);
+
 		// Lấy dữ liệu qua service
-		MedicalResultService service = new MedicalResultService();
-		List<MedicalResult> results = service.getResultsByPatientCode(patientCode);
+		renderMedicalResults(medicalResultService.getResultsByPatientCode(patientCode));
+
+		JScrollPane scrollPane = new JScrollPane(table);
+		panel.add(searchPanel, BorderLayout.NORTH);
+		panel.add(scrollPane, BorderLayout.CENTER);
+
+		return panel;
+	}
+
+	private void searchMedicalNotes(String patientCode) {
+		String query = noteSearchField.getText().trim();
+		if (query.isEmpty()) {
+			noteSearchStatus.setText(" ");
+			renderMedicalResults(medicalResultService.getResultsByPatientCode(patientCode));
+			return;
+		}
+
+		MedicalNoteFilter filter = new MedicalNoteFilter(patientCode, null, null, null);
+		PagedResult<MedicalResult> page = medicalResultService.searchMedicalNotes(query, filter, 0, NOTE_SEARCH_LIMIT);
+		if (page == null) {
+			noteSearchStatus.setText("Search index is loading, try again in a few seconds");
+			return;
+		}
+		renderMedicalResults(page.getRows());
+		noteSearchStatus.setText(page.getTotal() + " matching record(s)");
+	}
+
+	private void renderMedicalResults(List<MedicalResult> results) {
+		medicalResultModel.setRowCount(0);
 
 		// Format ngày theo yyyy-MM-dd để hiển thị đẹp
-		java.time.format.DateTimeFormatter dateFormatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd");
+		DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
 		for (MedicalResult mr : results) {
-			model.addRow(
+			medicalResultModel.addRow(
 					new Object[] { mr.getExaminationDate() != null ? mr.getExaminationDate().format(dateFormatter) : "",
 							mr.getDoctorCode(), mr.getSymptoms(), mr.getDiagnosis(), mr.getTreatmentPlan() });
 		}
-
-		JScrollPane scrollPane = new JScrollPane(table);
-		panel.add(scrollPane, BorderLayout.CENTER);
-
-		return panel;
 	}
 
 	private JPanel buildPrescriptionPanel(String patientCode) {
@@ -61,7 +61,7 @@ public class PatientSelectionView extends JDialog {
         searchPanel.setOpaque(false);
         searchField = new JTextField(18);
         searchCombo = new JComboBox<>(new String[] {
-            "Search by name", "Search by phone number", "Search by citizen id"
+            "Search by name", "Search by phone number", "Search by citizen id", "Search by code"
         });
         
         btnSearch = FormUtilities.styleButton(createButton("Search", "/images/for_button/search.png"),new Color(66, 165, 245),Color.WHITE);
@@ -2,8 +2,11 @@ package com.kien.project.clinicmanagement.view.statistic;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.FlowLayout;
 import java.awt.GridLayout;
+import java.util.List;
 
+import javax.swing.JButton;
 import javax.swing.JPanel;
 import javax.swing.JLabel;
 import javax.swing.BorderFactory;
@@ -11,6 +14,7 @@ import javax.swing.BoxLayout;
 import javax.swing.border.EmptyBorder;
 
 import com.kien.project.clinicmanagement.controller.DashboardController;
+import com.kien.project.clinicmanagement.utils.FormUtilities;
 import com.kien.project.clinicmanagement.utils.StyleConstants;
 
 public class DashboardView extends JPanel {
@@ -18,6 +22,10 @@ public class DashboardView extends JPanel {
 
     private JPanel chartPanel;
     private JPanel footerPanel;
+    private JPanel[] chartSlots = new JPanel[0];
+    private JPanel[] summarySlots = new JPanel[0];
+    private JButton btnExportRevenue;
+    private JButton btnExportPrescriptionDetails;
     private DashboardController dashboardController;
 
     public DashboardView() {
@@ -59,13 +67,63 @@ public class DashboardView extends JPanel {
         title.setForeground(StyleConstants.COLOR_BLUE_800);
         title.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
+        // Xuất Excel doanh thu và lịch sử chi tiết đơn thuốc
+        btnExportRevenue = FormUtilities.styleButton(
+                FormUtilities.createIconButton("Export Revenue", "/images/for_button/export_file.png", 18),
+                StyleConstants.BUTTON_BG, Color.BLACK);
+        btnExportPrescriptionDetails = FormUtilities.styleButton(
+                FormUtilities.createIconButton("Export Prescriptions", "/images/for_button/export_file.png", 18),
+                StyleConstants.BUTTON_BG, Color.BLACK);
+        JPanel exportPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        exportPanel.setOpaque(false);
+        exportPanel.add(btnExportRevenue);
+        exportPanel.add(btnExportPrescriptionDetails);
+
         headerPanel.add(title, BorderLayout.CENTER);
+        headerPanel.add(exportPanel, BorderLayout.EAST);
         return headerPanel;
     }
 
-    // --- Hàm để controller thêm chart vào view ---
-    public void addChart(JPanel chart) {
-        chartPanel.add(chart);
+    // --- Tạo các ô chờ (placeholder) cho từng chart, hiển thị ngay trước khi có dữ liệu ---
+    public void showPlaceholders(String... titles) {
+        chartPanel.removeAll();
+        footerPanel.removeAll();
+        chartSlots = new JPanel[titles.length];
+        summarySlots = new JPanel[titles.length];
+
+        for (int i = 0; i < titles.length; i++) {
+            JPanel slot = new JPanel(new BorderLayout());
+            slot.setBackground(Color.WHITE);
+            slot.setBorder(BorderFactory.createLineBorder(StyleConstants.COLOR_BLUE_50));
+            slot.add(createStatusLabel(titles[i] + " - Loading..."), BorderLayout.CENTER);
+            chartSlots[i] = slot;
+            chartPanel.add(slot);
+
+            JPanel summary = new JPanel();
+            summary.setLayout(new BoxLayout(summary, BoxLayout.Y_AXIS));
+            summary.setOpaque(false);
+            summarySlots[i] = summary;
+            footerPanel.add(summary);
+        }
+        refreshView();
+        refreshSummary();
+    }
+
+    // --- Hàm để controller đặt chart vào đúng ô ---
+    public void setChart(int index, JPanel chart) {
+        JPanel slot = chartSlots[index];
+        slot.removeAll();
+        slot.add(chart, BorderLayout.CENTER);
+        slot.revalidate();
+        slot.repaint();
+    }
+
+    public void showChartError(int index, String message) {
+        JPanel slot = chartSlots[index];
+        slot.removeAll();
+        slot.add(createStatusLabel(message), BorderLayout.CENTER);
+        slot.revalidate();
+        slot.repaint();
     }
 
     public void refreshView() {
@@ -73,16 +131,41 @@ public class DashboardView extends JPanel {
         chartPanel.repaint();
     }
 
-    // --- Hàm để controller thêm dữ liệu tóm tắt ---
-    public void addSummary(String text) {
-        JLabel label = new JLabel(text);
-        label.setFont(StyleConstants.LABEL_PLAIN);
-        label.setForeground(StyleConstants.COLOR_BLUE_800);
-        footerPanel.add(label);
+    // --- Hàm để controller đặt dữ liệu tóm tắt vào đúng ô ---
+    public void setSummary(int index, List<String> lines) {
+        JPanel summary = summarySlots[index];
+        summary.removeAll();
+        for (String text : lines) {
+            JLabel label = new JLabel(text);
+            label.setFont(StyleConstants.LABEL_PLAIN);
+            label.setForeground(StyleConstants.COLOR_BLUE_800);
+            summary.add(label);
+        }
+        refreshSummary();
     }
 
     public void refreshSummary() {
         footerPanel.revalidate();
         footerPanel.repaint();
     }
+
+    // Hủy các truy vấn còn đang chạy khi rời khỏi Dashboard
+    public void cancelLoading() {
+        dashboardController.cancel();
+    }
+
+    private JLabel createStatusLabel(String text) {
+        JLabel label = new JLabel(text, JLabel.CENTER);
+        label.setFont(StyleConstants.LABEL_PLAIN);
+        label.setForeground(StyleConstants.COLOR_BLUE_800);
+        return label;
+    }
+
+    public JButton getExportRevenueButton() {
+        return btnExportRevenue;
+    }
+
+    public JButton getExportPrescriptionDetailsButton() {
+        return btnExportPrescriptionDetails;
+    }
 }
@@ -0,0 +1,20 @@
+-- V1: Chỉ mục phụ cho các truy vấn lọc theo bác sĩ / bệnh nhân / ngày
+-- Mỗi lệnh CREATE INDEX chạy riêng; chỉ mục đã tồn tại (lỗi 1061) sẽ được bỏ qua
+
+-- Hàng đợi khám theo bác sĩ trong ngày (đếm, lấy số thứ tự lớn nhất)
+CREATE INDEX idx_exam_queue_doctor_created ON exam_queue (doctor_code, created_at);
+
+-- Lịch hẹn theo bác sĩ, ngày hẹn và trạng thái
+CREATE INDEX idx_appointment_doctor_date_status ON appointment (doctor_code, scheduled_date, status);
+
+-- Lịch sử khám của bệnh nhân
+CREATE INDEX idx_medical_result_patient ON medical_result (patient_code);
+
+-- Đơn thuốc của bệnh nhân theo ngày kê
+CREATE INDEX idx_prescription_patient_date ON prescription (patient_code, prescription_date);
+
+-- Chi tiết đơn thuốc (thay cho chỉ mục ngầm định của khóa ngoại)
+CREATE INDEX idx_prescription_detail_prescription ON prescription_detail (prescription_id);
+
+-- Nhật ký hoạt động của người dùng, mới nhất trước
+CREATE INDEX idx_system_log_user_timestamp ON system_log (user_code, timestamp);
@@ -0,0 +1,46 @@
+-- V2: Bảng doanh thu tổng hợp sẵn theo ngày, theo bác sĩ/ngày và theo tháng
+-- Được cập nhật cùng giao dịch khi lưu đơn thuốc hoặc cập nhật tổng tiền
+
+CREATE TABLE revenue_daily (
+    revenue_date DATE PRIMARY KEY,
+    prescription_count INT NOT NULL DEFAULT 0,
+    total_revenue DECIMAL(14, 2) NOT NULL DEFAULT 0
+);
+
+CREATE TABLE revenue_doctor_daily (
+    revenue_date DATE NOT NULL,
+    doctor_code VARCHAR(50) NOT NULL,
+    prescription_count INT NOT NULL DEFAULT 0,
+    total_revenue DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (revenue_date, doctor_code),
+    INDEX idx_revenue_doctor_daily_doctor (doctor_code, revenue_date)
+);
+
+CREATE TABLE revenue_monthly (
+    revenue_month CHAR(7) PRIMARY KEY,          -- Dạng "YYYY-MM"
+    prescription_count INT NOT NULL DEFAULT 0,
+    total_revenue DECIMAL(14, 2) NOT NULL DEFAULT 0
+);
+
+-- Nạp dữ liệu cũ (ghi đè nên chạy lại vẫn cho cùng kết quả)
+INSERT INTO revenue_daily (revenue_date, prescription_count, total_revenue)
+SELECT prescription_date, COUNT(*), COALESCE(SUM(total_price), 0)
+FROM prescription
+WHERE prescription_date IS NOT NULL
+GROUP BY prescription_date
+ON DUPLICATE KEY UPDATE prescription_count = VALUES(prescription_count), total_revenue = VALUES(total_revenue);
+
+INSERT INTO revenue_doctor_daily (revenue_date, doctor_code, prescription_count, total_revenue)
+SELECT p.prescription_date, mr.doctor_code, COUNT(*), COALESCE(SUM(p.total_price), 0)
+FROM prescription p
+JOIN medical_result mr ON p.medical_result_id = mr.id
+WHERE p.prescription_date IS NOT NULL
+GROUP BY p.prescription_date, mr.doctor_code
+ON DUPLICATE KEY UPDATE prescription_count = VALUES(prescription_count), total_revenue = VALUES(total_revenue);
+
+INSERT INTO revenue_monthly (revenue_month, prescription_count, total_revenue)
+SELECT DATE_FORMAT(prescription_date, '%Y-%m') AS month_key, COUNT(*), COALESCE(SUM(total_price), 0)
+FROM prescription
+WHERE prescription_date IS NOT NULL
+GROUP BY month_key
+ON DUPLICATE KEY UPDATE prescription_count = VALUES(prescription_count), total_revenue = VALUES(total_revenue);
@@ -0,0 +1,31 @@
+-- V3: Bảng sequence cho cấp phát id/mã theo khối (hi-lo), thay cho MAX()+1
+-- next_value là giá trị chưa được cấp nhỏ nhất; mỗi lần lấy khối sẽ cộng thêm kích thước khối
+
+CREATE TABLE id_sequence (
+    name VARCHAR(50) PRIMARY KEY,
+    next_value BIGINT NOT NULL
+);
+
+-- Khởi tạo từ dữ liệu hiện có (GREATEST để chạy lại không làm lùi sequence)
+INSERT INTO id_sequence (name, next_value)
+SELECT 'prescription', COALESCE(MAX(id), 0) + 1 FROM prescription
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_sequence (name, next_value)
+SELECT 'medical_result', COALESCE(MAX(id), 0) + 1 FROM medical_result
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_sequence (name, next_value)
+SELECT 'patient_code', COALESCE(MAX(CAST(SUBSTRING(code, 2) AS UNSIGNED)), 0) + 1
+FROM patient_profile WHERE code REGEXP '^P[0-9]+$'
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_sequence (name, next_value)
+SELECT 'user_code', COALESCE(MAX(CAST(SUBSTRING(code, 2) AS UNSIGNED)), 0) + 1
+FROM account WHERE code REGEXP '^U[0-9]+$'
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_sequence (name, next_value)
+SELECT 'medicine_code', COALESCE(MAX(CAST(SUBSTRING(code, 4) AS UNSIGNED)), 0) + 1
+FROM medicine WHERE code REGEXP '^MED[0-9]+$'
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
@@ -0,0 +1,9 @@
+-- V4: Bộ đếm số thứ tự hàng đợi theo (bác sĩ, ngày), thay cho MAX(queue_number) mỗi lần check-in
+-- last_number là số đã cấp gần nhất; dòng của ngày mới được tạo khi cấp số đầu tiên trong ngày
+
+CREATE TABLE queue_counter (
+    doctor_code VARCHAR(50) NOT NULL,
+    queue_date DATE NOT NULL,
+    last_number INT NOT NULL,
+    PRIMARY KEY (doctor_code, queue_date)
+);
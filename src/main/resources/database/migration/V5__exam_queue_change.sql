@@ -0,0 +1,18 @@
+-- V5: Nhật ký thay đổi của exam_queue để các màn hình hàng đợi chỉ tải lại những dòng bị đổi
+-- Trigger ghi id của dòng vừa thêm / sửa / xóa; trạng thái hiện tại được đọc lại từ exam_queue
+
+CREATE TABLE exam_queue_change (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    queue_id BIGINT NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_exam_queue_change_changed_at (changed_at)
+);
+
+DROP TRIGGER IF EXISTS trg_exam_queue_after_insert;
+CREATE TRIGGER trg_exam_queue_after_insert AFTER INSERT ON exam_queue FOR EACH ROW INSERT INTO exam_queue_change (queue_id) VALUES (NEW.id);
+
+DROP TRIGGER IF EXISTS trg_exam_queue_after_update;
+CREATE TRIGGER trg_exam_queue_after_update AFTER UPDATE ON exam_queue FOR EACH ROW INSERT INTO exam_queue_change (queue_id) VALUES (NEW.id);
+
+DROP TRIGGER IF EXISTS trg_exam_queue_after_delete;
+CREATE TRIGGER trg_exam_queue_after_delete AFTER DELETE ON exam_queue FOR EACH ROW INSERT INTO exam_queue_change (queue_id) VALUES (OLD.id);
@@ -0,0 +1,30 @@
+-- V6: Sổ kho chỉ ghi thêm (append-only) cho thuốc và ảnh chụp tồn kho định kỳ
+-- Mỗi lần nhập/xuất/điều chỉnh ghi một dòng inventory_movement trong cùng giao dịch với medicine.quantity;
+-- tồn kho tại một thời điểm = ảnh chụp gần nhất trước đó + tổng các dòng phát sinh sau ảnh chụp
+
+CREATE TABLE inventory_movement (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    medicine_code VARCHAR(50) NOT NULL,
+    movement_type VARCHAR(20) NOT NULL,
+    quantity_delta INT NOT NULL,
+    reference VARCHAR(100),
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_movement_medicine_time (medicine_code, created_at),
+    INDEX idx_movement_time (created_at)
+);
+
+CREATE TABLE inventory_snapshot (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    medicine_code VARCHAR(50) NOT NULL,
+    last_movement_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    taken_at DATETIME NOT NULL,
+    INDEX idx_snapshot_medicine_time (medicine_code, taken_at),
+    INDEX idx_snapshot_medicine_movement (medicine_code, last_movement_id)
+);
+
+-- Số dư đầu kỳ: tồn kho hiện tại trở thành dòng OPENING đầu tiên của mỗi thuốc (chạy lại không ghi trùng)
+INSERT INTO inventory_movement (medicine_code, movement_type, quantity_delta, reference)
+SELECT m.code, 'OPENING', COALESCE(m.quantity, 0), 'Opening balance'
+FROM medicine m
+WHERE NOT EXISTS (SELECT 1 FROM inventory_movement im WHERE im.medicine_code = m.code);
@@ -0,0 +1,21 @@
+-- V7: Tồn kho theo lô (số lô, hạn dùng, số lượng) để xuất thuốc theo nguyên tắc hết hạn trước xuất trước (FEFO)
+-- medicine.quantity vẫn là tổng tồn của mọi lô; lô không rõ số lô/hạn dùng được gom vào lô UNASSIGNED
+
+CREATE TABLE medicine_lot (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    medicine_code VARCHAR(50) NOT NULL,
+    lot_number VARCHAR(50) NOT NULL,
+    expiry_date DATE NULL,
+    quantity INT NOT NULL,
+    received_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uq_medicine_lot (medicine_code, lot_number),
+    INDEX idx_lot_medicine_expiry (medicine_code, expiry_date),
+    INDEX idx_lot_expiry (expiry_date)
+);
+
+-- Tồn kho hiện có chưa có thông tin lô: đưa vào lô UNASSIGNED (chạy lại không ghi trùng)
+INSERT INTO medicine_lot (medicine_code, lot_number, expiry_date, quantity)
+SELECT m.code, 'UNASSIGNED', NULL, m.quantity
+FROM medicine m
+WHERE m.quantity > 0
+  AND NOT EXISTS (SELECT 1 FROM medicine_lot l WHERE l.medicine_code = m.code);
@@ -0,0 +1,18 @@
+-- V8: Hộp thư đi (outbox) cho email hệ thống
+-- Service chỉ ghi thư vào bảng rồi trả về ngay; luồng nền MailOutbox gửi theo lô qua một kết nối SMTP,
+-- thử lại với thời gian chờ tăng dần và ghi lại trạng thái giao thư
+
+CREATE TABLE mail_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_at DATETIME NULL,
+    last_error VARCHAR(500),
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at DATETIME NULL,
+    INDEX idx_outbox_due (status, next_attempt_at)
+);
@@ -0,0 +1,11 @@
+-- V9: Không lưu mật khẩu mới/mã xác minh trong hộp thư đi
+-- Thư chứa bí mật chỉ lưu nội dung có chỗ trống; bí mật nằm trong bộ nhớ của máy trạm đã tạo thư
+-- và chỉ máy đó được nhận thư này để gửi
+
+ALTER TABLE mail_outbox
+    ADD COLUMN holds_secret BOOLEAN NOT NULL DEFAULT FALSE AFTER body;
+
+-- Thư cũ còn chờ gửi đã lưu bí mật dạng rõ: hủy để không còn nằm trong database
+UPDATE mail_outbox
+SET status = 'FAILED', body = '', last_error = 'Cancelled: body held a secret in plain text', claimed_at = NULL
+WHERE status IN ('PENDING', 'SENDING');